@@ -43,14 +43,18 @@ import org.opencb.opencga.catalog.managers.CatalogManager;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.catalog.utils.ParamUtils;
 import org.opencb.opencga.core.exceptions.ToolException;
+import org.opencb.opencga.core.models.common.AnnotationSet;
 import org.opencb.opencga.core.models.file.File;
+import org.opencb.opencga.core.models.file.FileUpdateParams;
 import org.opencb.opencga.core.models.project.Project;
 import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.core.response.OpenCGAResult;
 import org.opencb.opencga.storage.core.StorageEngineFactory;
 import org.opencb.opencga.storage.core.alignment.AlignmentStorageEngine;
 import org.opencb.opencga.storage.core.alignment.iterators.AlignmentIterator;
+import org.opencb.opencga.storage.core.alignment.local.CoverageTileStore;
 import org.opencb.opencga.storage.core.alignment.local.LocalAlignmentStorageEngine;
+import org.opencb.opencga.storage.core.alignment.local.ParallelBamStatsCalculator;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 
 import java.io.IOException;
@@ -151,6 +155,41 @@ public class AlignmentStorageManager extends StorageManager {
         samtools.start();
     }
 
+    /**
+     * Compute the alignment stats within the JVM, splitting the BAM file by regions, instead of running samtools.
+     * The stats file is written to the output directory and the summary numbers are indexed in catalog.
+     *
+     * @param study      Study
+     * @param inputFile  BAM file
+     * @param numThreads Number of threads
+     * @param outdir     Output directory
+     * @param token      User token
+     * @throws ToolException on error computing or indexing the stats
+     */
+    public void statsRunLocal(String study, String inputFile, int numThreads, String outdir, String token) throws ToolException {
+        try {
+            File file = extractAlignmentFile(study, inputFile, token);
+            Path bamPath = Paths.get(file.getUri());
+            Path outputFile = Paths.get(outdir).resolve(Paths.get(inputFile).getFileName() + ".stats.txt");
+
+            logger.info("Computing alignment stats for {} using {} threads", bamPath, numThreads);
+            new ParallelBamStatsCalculator(bamPath, numThreads).compute().write(outputFile);
+
+            // Link the stats file next to the BAM file, the same as the samtools stats wrapper
+            Path link = bamPath.getParent().resolve(outputFile.getFileName());
+            if (!Files.exists(link)) {
+                Files.createSymbolicLink(link, outputFile.toAbsolutePath());
+            }
+
+            Map<String, Object> annotations = SamtoolsWrapperAnalysis.parseSummaryNumbers(Files.readAllLines(outputFile));
+            AnnotationSet annotationSet = new AnnotationSet(ALIGNMENT_STATS_VARIABLE_SET, ALIGNMENT_STATS_VARIABLE_SET, annotations);
+            FileUpdateParams updateParams = new FileUpdateParams().setAnnotationSets(Collections.singletonList(annotationSet));
+            catalogManager.getFileManager().update(study, inputFile, updateParams, QueryOptions.empty(), token);
+        } catch (CatalogException | IOException e) {
+            throw new ToolException(e);
+        }
+    }
+
     //-------------------------------------------------------------------------
 
     public OpenCGAResult<String> statsInfo(String study, String inputFile, String token) throws ToolException, StorageEngineException,
@@ -200,6 +239,35 @@ public class AlignmentStorageManager extends StorageManager {
         deeptools.start();
     }
 
+    /**
+     * Precompute all the coverage tiles of a BAM file within the JVM, splitting the BAM file by regions, instead of running deeptools.
+     * Tiles are stored in a sidecar file next to the BAM file, and used by the coverage queries.
+     *
+     * @param study      Study
+     * @param inputFile  BAM file
+     * @param numThreads Number of threads
+     * @param token      User token
+     * @throws ToolException on error computing the coverage
+     */
+    public void coverageRunLocal(String study, String inputFile, int numThreads, String token) throws ToolException {
+        try {
+            File file = extractAlignmentFile(study, inputFile, token);
+            Path bamPath = Paths.get(file.getUri());
+            CoverageTileStore store = CoverageTileStore.get(bamPath);
+            if (store == null) {
+                throw new ToolException("Unable to create the coverage tiles file for " + bamPath);
+            }
+            try {
+                logger.info("Computing coverage tiles for {} using {} threads", bamPath, numThreads);
+                store.computeAll(numThreads);
+            } finally {
+                store.close();
+            }
+        } catch (CatalogException | IOException e) {
+            throw new ToolException(e);
+        }
+    }
+
     //-------------------------------------------------------------------------
 
     public OpenCGAResult<RegionCoverage> coverageQuery(String studyIdStr, String fileIdStr, Region region, int minCoverage, int maxCoverage,
@@ -328,6 +396,14 @@ public class AlignmentStorageManager extends StorageManager {
         return fileResult.first();
     }
 
+    private File extractAlignmentFile(String studyIdStr, String fileIdStr, String sessionId) throws CatalogException {
+        File file = extractAlignmentOrCoverageFile(studyIdStr, fileIdStr, sessionId);
+        if (file.getBioformat() != File.Bioformat.ALIGNMENT) {
+            throw new CatalogException("File " + fileIdStr + " not supported. Expecting an alignment file.");
+        }
+        return file;
+    }
+
     private void checkAlignmentBioformat(List<FileInfo> fileInfo) throws CatalogException {
         for (FileInfo file : fileInfo) {
             if (!file.getBioformat().equals(File.Bioformat.ALIGNMENT)) {
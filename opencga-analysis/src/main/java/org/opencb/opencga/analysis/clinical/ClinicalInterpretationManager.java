@@ -86,6 +86,7 @@ public class ClinicalInterpretationManager extends StorageManager {
 
     public static final int LOW_COVERAGE_DEFAULT = 20;
     public static final int DEFAULT_COVERAGE_THRESHOLD = 20;
+    public static final int PRIMARY_FINDINGS_BATCH_SIZE = 1000;
 
     private String database;
 
@@ -467,6 +468,41 @@ public class ClinicalInterpretationManager extends StorageManager {
         }
     }
 
+    /**
+     * Create the reported variants from a variant query and write them as they are created, in batches of
+     * {@link #PRIMARY_FINDINGS_BATCH_SIZE} variants, without loading all the variants in memory.
+     *
+     * @param query                  Variant query
+     * @param queryOptions           Query options
+     * @param reportedVariantCreator Reported variant creator
+     * @param writer                 Reported variant writer
+     * @param sessionId              Session id
+     * @return Number of reported variants written
+     * @throws ToolException if the variants can not be read, or the reported variants created or written
+     */
+    public long writePrimaryFindings(Query query, QueryOptions queryOptions, ReportedVariantCreator reportedVariantCreator,
+                                     ReportedVariantWriter writer, String sessionId) throws ToolException {
+        long count = writer.getCount();
+        try (VariantDBIterator iterator = getVariantStorageManager().iterator(query, queryOptions, sessionId)) {
+            List<Variant> variants = new ArrayList<>(PRIMARY_FINDINGS_BATCH_SIZE);
+            while (iterator.hasNext()) {
+                variants.add(iterator.next());
+                if (variants.size() == PRIMARY_FINDINGS_BATCH_SIZE) {
+                    writer.write(reportedVariantCreator.create(variants));
+                    variants.clear();
+                }
+            }
+            if (!variants.isEmpty()) {
+                writer.write(reportedVariantCreator.create(variants));
+            }
+        } catch (ToolException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ToolException("Error retrieving primary findings variants", e);
+        }
+        return writer.getCount() - count;
+    }
+
     public List<ReportedVariant> getPrimaryFindings(String clinicalAnalysisId, Query query, QueryOptions queryOptions,
                                                     ReportedVariantCreator reportedVariantCreator, String sessionId)
             throws ToolException {
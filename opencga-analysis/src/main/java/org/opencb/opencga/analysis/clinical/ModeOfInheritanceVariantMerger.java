@@ -0,0 +1,311 @@
+package org.opencb.opencga.analysis.clinical;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.clinical.interpretation.ClinicalProperty;
+import org.opencb.biodata.models.variant.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Merges the variants returned by the queries of several modes of inheritance, in genomic order.
+ *
+ * Each query is executed concurrently in its own thread, which fetches the variants in small batches into a bounded queue.
+ * The variants from all the queries are merged as they arrive, so only a few batches from each query are kept in memory.
+ * Each variant is returned once, together with the list of modes of inheritance where it was found.
+ *
+ * All the iterators must be sorted in genomic order. Variant queries must use {@code QueryOptions.SORT=true}.
+ * The order of the chromosomes depends on the storage engine, so it is inferred from the order in which the iterators
+ * visit them, falling back to the natural chromosome order when unknown. Variants are compared only by position,
+ * reading all the variants from the same position before merging them.
+ */
+public class ModeOfInheritanceVariantMerger implements Iterator<ModeOfInheritanceVariantMerger.MergedVariant>, AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_QUEUE_SIZE = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModeOfInheritanceVariantMerger.class);
+
+    private static final Comparator<String> CHROMOSOME_COMPARATOR = (c1, c2) -> {
+        boolean numeric1 = StringUtils.isNumeric(c1);
+        boolean numeric2 = StringUtils.isNumeric(c2);
+        if (numeric1 && numeric2) {
+            return Integer.compare(Integer.parseInt(c1), Integer.parseInt(c2));
+        } else if (numeric1) {
+            return -1;
+        } else if (numeric2) {
+            return 1;
+        } else {
+            return c1.compareTo(c2);
+        }
+    };
+
+    private final List<Source> sources = new ArrayList<>();
+    private final int batchSize;
+    private final int queueSize;
+    private ExecutorService executor;
+    private final Deque<MergedVariant> pending = new LinkedList<>();
+    private final Set<String> closedChromosomes = new HashSet<>();
+    private String chromosome;
+
+    public ModeOfInheritanceVariantMerger() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_SIZE);
+    }
+
+    public ModeOfInheritanceVariantMerger(int batchSize, int queueSize) {
+        this.batchSize = batchSize;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Add a new query to merge. The query will not be executed until the first call to {@link #hasNext()}.
+     *
+     * @param moi   Mode of inheritance of the variants returned by this query
+     * @param query Callable returning a sorted iterator. If it implements {@link AutoCloseable}, it is closed when exhausted.
+     * @return this
+     */
+    public ModeOfInheritanceVariantMerger add(ClinicalProperty.ModeOfInheritance moi, Callable<? extends Iterator<Variant>> query) {
+        if (executor != null) {
+            throw new IllegalStateException("Unable to add new queries after start");
+        }
+        sources.add(new Source(moi, query, queueSize));
+        return this;
+    }
+
+    private void start() {
+        // One thread per query. A query blocked on a full queue must never prevent other queries from running
+        executor = Executors.newFixedThreadPool(Math.max(1, sources.size()), r -> {
+            Thread thread = new Thread(r, "moi-variant-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        String parentThreadName = Thread.currentThread().getName();
+        for (Source source : sources) {
+            executor.submit(() -> {
+                Thread.currentThread().setName(parentThreadName + "-" + source.moi.name());
+                source.fetch(batchSize);
+            });
+        }
+        executor.shutdown();
+        for (Source source : sources) {
+            source.advance();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (executor == null) {
+            start();
+        }
+        if (pending.isEmpty()) {
+            mergeNextPosition();
+        }
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public MergedVariant next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.poll();
+    }
+
+    private void mergeNextPosition() {
+        int start = Integer.MAX_VALUE;
+        for (Source source : sources) {
+            if (source.isAt(chromosome)) {
+                start = Math.min(start, source.head.getStart());
+            }
+        }
+        if (start == Integer.MAX_VALUE) {
+            if (chromosome != null) {
+                closedChromosomes.add(chromosome);
+            }
+            chromosome = nextChromosome();
+            if (chromosome == null) {
+                return;
+            }
+            mergeNextPosition();
+            return;
+        }
+
+        // Read all the variants from this position, as the order of variants starting at the same position is not guaranteed
+        Map<String, MergedVariant> variants = new TreeMap<>();
+        for (Source source : sources) {
+            while (source.isAt(chromosome) && source.head.getStart() == start) {
+                MergedVariant merged = variants.computeIfAbsent(source.head.toString(),
+                        k -> new MergedVariant(source.head, new ArrayList<>(2)));
+                if (!merged.modeOfInheritances.contains(source.moi)) {
+                    merged.modeOfInheritances.add(source.moi);
+                }
+                source.advance();
+            }
+        }
+        pending.addAll(variants.values());
+    }
+
+    private String nextChromosome() {
+        Set<String> candidates = new LinkedHashSet<>();
+        for (Source source : sources) {
+            if (source.head != null) {
+                candidates.add(source.head.getChromosome());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        for (String candidate : candidates) {
+            if (closedChromosomes.contains(candidate)) {
+                LOGGER.warn("Chromosome {} visited twice. Some variants from this chromosome may be reported twice", candidate);
+                return candidate;
+            }
+        }
+        // Discard the chromosomes that, according to any of the iterators, go after any other candidate
+        List<String> firstCandidates = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            boolean first = true;
+            for (String other : candidates) {
+                if (!other.equals(candidate) && isBefore(other, candidate)) {
+                    first = false;
+                    break;
+                }
+            }
+            if (first) {
+                firstCandidates.add(candidate);
+            }
+        }
+        if (firstCandidates.isEmpty()) {
+            firstCandidates.addAll(candidates);
+        }
+        return Collections.min(firstCandidates, CHROMOSOME_COMPARATOR);
+    }
+
+    private boolean isBefore(String chromosome1, String chromosome2) {
+        for (Source source : sources) {
+            int idx = source.chromosomes.indexOf(chromosome1);
+            if (idx >= 0 && source.chromosomes.indexOf(chromosome2) > idx) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public static class MergedVariant {
+        private final Variant variant;
+        private final List<ClinicalProperty.ModeOfInheritance> modeOfInheritances;
+
+        public MergedVariant(Variant variant, List<ClinicalProperty.ModeOfInheritance> modeOfInheritances) {
+            this.variant = variant;
+            this.modeOfInheritances = modeOfInheritances;
+        }
+
+        public Variant getVariant() {
+            return variant;
+        }
+
+        public List<ClinicalProperty.ModeOfInheritance> getModeOfInheritances() {
+            return modeOfInheritances;
+        }
+    }
+
+    private static final class Source {
+        private final ClinicalProperty.ModeOfInheritance moi;
+        private final Callable<? extends Iterator<Variant>> query;
+        // An empty batch marks the end of the query
+        private final BlockingQueue<List<Variant>> queue;
+        private Iterator<Variant> batch = Collections.emptyIterator();
+        private boolean finished = false;
+        private Variant head;
+        // Chromosomes visited by this iterator, in order
+        private final List<String> chromosomes = new ArrayList<>();
+
+        private Source(ClinicalProperty.ModeOfInheritance moi, Callable<? extends Iterator<Variant>> query, int queueSize) {
+            this.moi = moi;
+            this.query = query;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        private void fetch(int batchSize) {
+            Iterator<Variant> iterator = null;
+            try {
+                iterator = query.call();
+                List<Variant> variants = new ArrayList<>(batchSize);
+                while (iterator.hasNext()) {
+                    variants.add(iterator.next());
+                    if (variants.size() == batchSize) {
+                        queue.put(variants);
+                        variants = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!variants.isEmpty()) {
+                    queue.put(variants);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Same as with non streaming queries, a failing mode of inheritance does not stop the interpretation
+                LOGGER.warn("Error fetching variants for mode of inheritance " + moi + ". Skip remaining variants", e);
+            } finally {
+                if (iterator instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) iterator).close();
+                    } catch (Exception e) {
+                        LOGGER.warn("Error closing iterator", e);
+                    }
+                }
+            }
+            try {
+                queue.put(Collections.emptyList());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void advance() {
+            Variant previous = head;
+            head = null;
+            while (!batch.hasNext() && !finished) {
+                List<Variant> variants;
+                try {
+                    variants = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for variants for mode of inheritance " + moi, e);
+                }
+                if (variants.isEmpty()) {
+                    finished = true;
+                } else {
+                    batch = variants.iterator();
+                }
+            }
+            if (batch.hasNext()) {
+                head = batch.next();
+                if (previous == null || !previous.getChromosome().equals(head.getChromosome())) {
+                    if (chromosomes.contains(head.getChromosome())) {
+                        throw new IllegalStateException("Variants for mode of inheritance " + moi + " are not sorted. "
+                                + "Chromosome " + head.getChromosome() + " found twice");
+                    }
+                    chromosomes.add(head.getChromosome());
+                } else if (previous.getStart() > head.getStart()) {
+                    throw new IllegalStateException("Variants for mode of inheritance " + moi + " are not sorted: "
+                            + previous + " > " + head);
+                }
+            }
+        }
+
+        private boolean isAt(String chromosome) {
+            return head != null && head.getChromosome().equals(chromosome);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.opencb.opencga.analysis.clinical;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.commons.collections.CollectionUtils;
+import org.opencb.biodata.models.clinical.interpretation.ReportedVariant;
+import org.opencb.opencga.core.common.JacksonUtils;
+import org.opencb.opencga.core.exceptions.ToolException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes reported variants incrementally, one JSON object per line.
+ *
+ * The output format is the same as {@link ClinicalUtils#writeReportedVariants}, so the files can be read
+ * with {@link ClinicalUtils#readReportedVariants}.
+ */
+public class ReportedVariantWriter implements AutoCloseable {
+
+    private final Path path;
+    private final BufferedWriter writer;
+    private final ObjectWriter objectWriter;
+    private long count;
+
+    public ReportedVariantWriter(Path path) throws ToolException {
+        this.path = path;
+        this.objectWriter = JacksonUtils.getDefaultObjectMapper().writerFor(ReportedVariant.class);
+        try {
+            this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ToolException("Error writing reported variants to file: " + path, e);
+        }
+    }
+
+    public void write(List<ReportedVariant> reportedVariants) throws ToolException {
+        if (CollectionUtils.isEmpty(reportedVariants)) {
+            return;
+        }
+        try {
+            for (ReportedVariant reportedVariant : reportedVariants) {
+                writer.write(objectWriter.writeValueAsString(reportedVariant));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new ToolException("Error writing reported variants to file: " + path, e);
+        }
+        count += reportedVariants.size();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws ToolException {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new ToolException("Error writing reported variants to file: " + path, e);
+        }
+    }
+}
@@ -9,11 +9,11 @@ import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.analysis.clinical.ClinicalInterpretationManager;
 import org.opencb.opencga.analysis.clinical.ClinicalUtils;
+import org.opencb.opencga.analysis.clinical.ReportedVariantWriter;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.core.tools.OpenCgaToolExecutor;
 import org.opencb.opencga.core.tools.annotations.ToolExecutor;
 import org.opencb.opencga.core.exceptions.ToolException;
-import org.opencb.opencga.core.response.VariantQueryResult;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 
@@ -70,32 +70,27 @@ public class CustomInterpretationAnalysisExecutor extends OpenCgaToolExecutor im
         if (query.containsKey(FAMILY_SEGREGATION.key())) {
             moi = ClinicalProperty.ModeOfInheritance.valueOf(query.getString(FAMILY_SEGREGATION.key()));
         }
-        try {
+        // Primary findings are written as they are created
+        try (ReportedVariantWriter writer = new ReportedVariantWriter(Paths.get(getOutDir() + "/" + PRIMARY_FINDINGS_FILENAME))) {
             switch (moi) {
                 case DE_NOVO:
                     variants = clinicalInterpretationManager.getDeNovoVariants(clinicalAnalysisId, studyId, query, queryOptions, sessionId);
-                    reportedVariants = reportedVariantCreator.create(variants);
+                    writer.write(reportedVariantCreator.create(variants));
                     break;
                 case COMPOUND_HETEROZYGOUS:
                     Map<String, List<Variant>> chVariants;
                     chVariants = clinicalInterpretationManager.getCompoundHeterozigousVariants(clinicalAnalysisId, studyId, query,
                             queryOptions, sessionId);
-                    reportedVariants = ClinicalUtils.getCompoundHeterozygousReportedVariants(chVariants, reportedVariantCreator);
+                    writer.write(ClinicalUtils.getCompoundHeterozygousReportedVariants(chVariants, reportedVariantCreator));
                     break;
                 default:
-                    VariantQueryResult<Variant> variantQueryResult = clinicalInterpretationManager.getVariantStorageManager()
-                            .get(query, queryOptions, sessionId);
-                    variants = variantQueryResult.getResults();
-                    reportedVariants = reportedVariantCreator.create(variants);
+                    clinicalInterpretationManager.writePrimaryFindings(query, queryOptions, reportedVariantCreator, writer, sessionId);
                     break;
             }
         } catch (CatalogException | StorageEngineException | IOException | InterpretationAnalysisException e) {
             throw new ToolException("Error retrieving primary findings variants", e);
         }
 
-        // Write primary findings
-        ClinicalUtils.writeReportedVariants(reportedVariants, Paths.get(getOutDir() + "/" + PRIMARY_FINDINGS_FILENAME));
-
         // Get secondary findings
         try {
             variants = clinicalInterpretationManager.getSecondaryFindings(query.getString(VariantQueryParam.SAMPLE.key()),
@@ -12,6 +12,7 @@ import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.analysis.clinical.ClinicalInterpretationManager;
 import org.opencb.opencga.analysis.clinical.ClinicalUtils;
+import org.opencb.opencga.analysis.clinical.ReportedVariantWriter;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.core.tools.OpenCgaToolExecutor;
 import org.opencb.opencga.core.tools.annotations.ToolExecutor;
@@ -91,7 +92,7 @@ public class TeamInterpretationAnalysisExecutor extends OpenCgaToolExecutor impl
             throw new ToolException("Error creating Team reported variant creator", e);
         }
 
-        List<ReportedVariant> primaryFindings;
+        long numPrimaryFindings;
 
         // Step 1 - diagnostic variants
         // Get diagnostic variants from panels
@@ -111,12 +112,12 @@ public class TeamInterpretationAnalysisExecutor extends OpenCgaToolExecutor impl
         query.put(VariantQueryParam.SAMPLE.key(), StringUtils.join(sampleList, ","));
 
         try {
-            primaryFindings = getReportedVariants(query, queryOptions, creator);
+            numPrimaryFindings = writePrimaryFindings(query, queryOptions, creator);
         } catch (InterpretationAnalysisException | CatalogException | IOException | StorageEngineException e) {
             throw new ToolException("Error retrieving primary findings variants", e);
         }
 
-        if (CollectionUtils.isEmpty(primaryFindings)) {
+        if (numPrimaryFindings == 0) {
             // Step 2 - VUS variants from genes in panels
             List<String> geneIds = ClinicalUtils.getGeneIds(diseasePanels);
             // Remove variant IDs from the query, and set gene IDs
@@ -152,28 +153,25 @@ public class TeamInterpretationAnalysisExecutor extends OpenCgaToolExecutor impl
             query.put(VariantQueryParam.ANNOT_FUNCTIONAL_SCORE.key(), "scaled_cadd>15");
 
             try {
-                primaryFindings = getReportedVariants(query, queryOptions, creator);
+                numPrimaryFindings = writePrimaryFindings(query, queryOptions, creator);
             } catch (InterpretationAnalysisException | CatalogException | IOException | StorageEngineException e) {
                 throw new ToolException("Error retrieving primary findings variants", e);
             }
 
-            if (CollectionUtils.isEmpty(primaryFindings)) {
+            if (numPrimaryFindings == 0) {
                 // No loss of function variants, then try with protein_coding and protein substitution scores
                 query.remove(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key());
                 query.put(VariantQueryParam.ANNOT_BIOTYPE.key(), proteinCoding);
                 query.put(VariantQueryParam.ANNOT_PROTEIN_SUBSTITUTION.key(), "sift<0.05" + VariantQueryUtils.AND + "polyphen>0.91");
 
                 try {
-                    primaryFindings = getReportedVariants(query, queryOptions, creator);
+                    numPrimaryFindings = writePrimaryFindings(query, queryOptions, creator);
                 } catch (InterpretationAnalysisException | CatalogException | IOException | StorageEngineException e) {
                     throw new ToolException("Error retrieving primary findings variants", e);
                 }
             }
         }
 
-        // Write primary findings
-        ClinicalUtils.writeReportedVariants(primaryFindings, Paths.get(getOutDir() + "/" + PRIMARY_FINDINGS_FILENAME));
-
         // Step 3: secondary findings, if clinical consent is TRUE
         List<ReportedVariant> secondaryFindings;
         try {
@@ -187,24 +185,23 @@ public class TeamInterpretationAnalysisExecutor extends OpenCgaToolExecutor impl
         ClinicalUtils.writeReportedVariants(secondaryFindings, Paths.get(getOutDir() + "/" + SECONDARY_FINDINGS_FILENAME));
     }
 
-    private List<ReportedVariant> getReportedVariants(Query query, QueryOptions queryOptions, TeamReportedVariantCreator creator)
+    private long writePrimaryFindings(Query query, QueryOptions queryOptions, TeamReportedVariantCreator creator)
             throws InterpretationAnalysisException, CatalogException, IOException, StorageEngineException, ToolException {
-        List<ReportedVariant> reportedVariants;
-        if (moi != null && (moi == DE_NOVO || moi == COMPOUND_HETEROZYGOUS)) {
+        // Primary findings from previous steps, if any, are overwritten
+        try (ReportedVariantWriter writer = new ReportedVariantWriter(Paths.get(getOutDir() + "/" + PRIMARY_FINDINGS_FILENAME))) {
             if (moi == DE_NOVO) {
                 List<Variant> deNovoVariants = clinicalInterpretationManager.getDeNovoVariants(clinicalAnalysisId, studyId, query,
                         QueryOptions.empty(), sessionId);
-                reportedVariants = creator.create(deNovoVariants);
-            } else {
+                writer.write(creator.create(deNovoVariants));
+            } else if (moi == COMPOUND_HETEROZYGOUS) {
                 Map<String, List<Variant>> chVariants = clinicalInterpretationManager.getCompoundHeterozigousVariants(clinicalAnalysisId,
                         studyId, query, QueryOptions.empty(), sessionId);
-                reportedVariants = ClinicalUtils.getCompoundHeterozygousReportedVariants(chVariants, creator);
+                writer.write(ClinicalUtils.getCompoundHeterozygousReportedVariants(chVariants, creator));
+            } else {
+                clinicalInterpretationManager.writePrimaryFindings(query, queryOptions, creator, writer, sessionId);
             }
-        } else {
-            reportedVariants = creator.create(clinicalInterpretationManager.getVariantStorageManager().get(query, queryOptions, sessionId)
-                    .getResults());
+            return writer.getCount();
         }
-        return reportedVariants;
     }
 
     public String getClinicalAnalysisId() {
@@ -17,6 +17,8 @@ import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.utils.ListUtils;
 import org.opencb.opencga.analysis.clinical.ClinicalInterpretationManager;
 import org.opencb.opencga.analysis.clinical.ClinicalUtils;
+import org.opencb.opencga.analysis.clinical.ModeOfInheritanceVariantMerger;
+import org.opencb.opencga.analysis.clinical.ReportedVariantWriter;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.FamilyManager;
 import org.opencb.opencga.core.tools.OpenCgaToolExecutor;
@@ -137,89 +139,41 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
         // samples easily)
         Map<String, String> sampleMap = ClinicalUtils.getSampleMap(clinicalAnalysis, proband);
 
-        Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap = new HashMap<>();
-        Map<String, List<Variant>> chVariantMap = new HashMap<>();
-
-        List<Variant> regionVariants = new ArrayList<>();
-
-        ExecutorService threadPool = Executors.newFixedThreadPool(8);
-
-        List<Future<Boolean>> futureList = new ArrayList<>(8);
-        futureList.add(threadPool.submit(getNamedThread(MONOALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, MONOALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(XLINKED_MONOALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, XLINKED_MONOALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(YLINKED.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, YLINKED, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(BIALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, BIALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(XLINKED_BIALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, XLINKED_BIALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(MITOCHONDRIAL.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, MITOCHONDRIAL, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(COMPOUND_HETEROZYGOUS.name(), () -> compoundHeterozygous(chVariantMap))));
-        futureList.add(threadPool.submit(getNamedThread(DE_NOVO.name(), () -> deNovo(resultMap))));
-        futureList.add(threadPool.submit(getNamedThread("REGION", () -> region(diseasePanels, sampleMap.values(),
-                assembly, regionVariants))));
-        threadPool.shutdown();
-
-        try {
-            threadPool.awaitTermination(2, TimeUnit.MINUTES);
-            if (!threadPool.isTerminated()) {
-                for (Future<Boolean> future : futureList) {
-                    future.cancel(true);
-                }
-            }
-        } catch (InterruptedException e) {
-            throw new ToolException("Error launching threads when execuging the Tiering interpretation analysis", e);
-        }
-
-        List<Variant> variantList = new ArrayList<>();
-        Map<String, List<ClinicalProperty.ModeOfInheritance>> variantMoIMap = new HashMap<>();
-
-        for (Map.Entry<ClinicalProperty.ModeOfInheritance, List<Variant>> entry : resultMap.entrySet()) {
-            for (Variant variant : entry.getValue()) {
-                if (!variantMoIMap.containsKey(variant.getId())) {
-                    variantMoIMap.put(variant.getId(), new ArrayList<>());
-                    variantList.add(variant);
-                }
-                variantMoIMap.get(variant.getId()).add(entry.getKey());
-            }
-        }
-
-        // Add region variants to variantList and variantMoIMap
-        for (Variant variant : regionVariants) {
-            if (!variantMoIMap.containsKey(variant.getId())) {
-                variantMoIMap.put(variant.getId(), new ArrayList<>());
-                variantList.add(variant);
-            }
-            // We add these variants with the ModeOfInheritance UNKNOWN
-            variantMoIMap.get(variant.getId()).add(UNKNOWN);
-        }
-
-        // Primary findings,
         TieringReportedVariantCreator creator;
-        List<ReportedVariant> primaryFindings;
         try {
             creator = new TieringReportedVariantCreator(diseasePanels,
                     clinicalInterpretationManager.getRoleInCancerManager().getRoleInCancer(),
                     clinicalInterpretationManager.getActionableVariantManager().getActionableVariants(assembly),
                     clinicalAnalysis.getDisorder(), null, penetrance, assembly);
-            primaryFindings = creator.create(variantList, variantMoIMap);
-        } catch (InterpretationAnalysisException | IOException e) {
+        } catch (IOException e) {
             throw new ToolException(e.getMessage(), e);
         }
 
-        // Add compound heterozyous variants
-        try {
-            primaryFindings.addAll(ClinicalUtils.getCompoundHeterozygousReportedVariants(chVariantMap, creator));
-        } catch (InterpretationAnalysisException e) {
-            throw new ToolException("Error retrieving compound heterozygous variants", e);
-        }
-        primaryFindings = creator.mergeReportedVariants(primaryFindings);
+        // Compound heterozygous variants are grouped by gene, so they are obtained in advance
+        ExecutorService chExecutor = Executors.newSingleThreadExecutor();
+        Future<Map<String, List<Variant>>> chFuture = chExecutor.submit(getNamedThread(COMPOUND_HETEROZYGOUS.name(),
+                this::compoundHeterozygous));
+        chExecutor.shutdown();
+
+        // Primary findings. Variants from all the modes of inheritance are merged and written as they arrive
+        try (ModeOfInheritanceVariantMerger merger = new ModeOfInheritanceVariantMerger();
+             ReportedVariantWriter writer = new ReportedVariantWriter(Paths.get(getOutDir() + "/primary-findings.json"))) {
+            for (ClinicalProperty.ModeOfInheritance moi : Arrays.asList(MONOALLELIC, XLINKED_MONOALLELIC, YLINKED, BIALLELIC,
+                    XLINKED_BIALLELIC, MITOCHONDRIAL)) {
+                Query query = buildQuery(pedigree, clinicalAnalysis.getDisorder(), sampleMap, moi);
+                if (query != null) {
+                    merger.add(moi, () -> iterator(query));
+                }
+            }
+            merger.add(DE_NOVO, this::deNovo);
+            Query regionQuery = buildRegionQuery(diseasePanels, sampleMap.values(), assembly);
+            if (regionQuery != null) {
+                // We add these variants with the ModeOfInheritance UNKNOWN
+                merger.add(UNKNOWN, () -> iterator(regionQuery));
+            }
 
-        // Write primary findings
-        ClinicalUtils.writeReportedVariants(primaryFindings, Paths.get(getOutDir() + "/primary-findings.json"));
+            writePrimaryFindings(merger, chFuture, creator, writer);
+        }
 
         // Secondary findings, if clinical consent is TRUE
         List<ReportedVariant> secondaryFindings = null;
@@ -234,6 +188,66 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
         ClinicalUtils.writeReportedVariants(secondaryFindings, Paths.get(getOutDir() + "/secondary-findings.json"));
     }
 
+    private void writePrimaryFindings(ModeOfInheritanceVariantMerger merger, Future<Map<String, List<Variant>>> chFuture,
+                                      TieringReportedVariantCreator creator, ReportedVariantWriter writer) throws ToolException {
+        // Start the queries before waiting for the compound heterozygous variants
+        merger.hasNext();
+
+        Map<String, List<ReportedVariant>> chReportedVariants = new HashMap<>();
+        try {
+            for (ReportedVariant reportedVariant : ClinicalUtils.getCompoundHeterozygousReportedVariants(chFuture.get(), creator)) {
+                chReportedVariants.computeIfAbsent(reportedVariant.getId(), k -> new ArrayList<>()).add(reportedVariant);
+            }
+        } catch (InterpretationAnalysisException | ExecutionException e) {
+            throw new ToolException("Error retrieving compound heterozygous variants", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ToolException("Error retrieving compound heterozygous variants", e);
+        }
+
+        List<Variant> variants = new ArrayList<>(ClinicalInterpretationManager.PRIMARY_FINDINGS_BATCH_SIZE);
+        Map<String, List<ClinicalProperty.ModeOfInheritance>> variantMoIMap = new HashMap<>();
+        while (merger.hasNext()) {
+            ModeOfInheritanceVariantMerger.MergedVariant mergedVariant = merger.next();
+            variants.add(mergedVariant.getVariant());
+            variantMoIMap.put(mergedVariant.getVariant().getId(), mergedVariant.getModeOfInheritances());
+            if (variants.size() == ClinicalInterpretationManager.PRIMARY_FINDINGS_BATCH_SIZE) {
+                writePrimaryFindings(variants, variantMoIMap, chReportedVariants, creator, writer);
+                variants.clear();
+                variantMoIMap.clear();
+            }
+        }
+        writePrimaryFindings(variants, variantMoIMap, chReportedVariants, creator, writer);
+
+        // Compound heterozygous variants not found by any other mode of inheritance
+        List<ReportedVariant> reportedVariants = new ArrayList<>();
+        chReportedVariants.values().forEach(reportedVariants::addAll);
+        writer.write(creator.mergeReportedVariants(reportedVariants));
+    }
+
+    private void writePrimaryFindings(List<Variant> variants, Map<String, List<ClinicalProperty.ModeOfInheritance>> variantMoIMap,
+                                      Map<String, List<ReportedVariant>> chReportedVariants, TieringReportedVariantCreator creator,
+                                      ReportedVariantWriter writer) throws ToolException {
+        if (variants.isEmpty()) {
+            return;
+        }
+        List<ReportedVariant> reportedVariants;
+        try {
+            reportedVariants = creator.create(variants, variantMoIMap);
+        } catch (InterpretationAnalysisException e) {
+            throw new ToolException(e.getMessage(), e);
+        }
+
+        // Add compound heterozyous variants
+        for (Variant variant : variants) {
+            List<ReportedVariant> chVariants = chReportedVariants.remove(variant.getId());
+            if (chVariants != null) {
+                reportedVariants.addAll(chVariants);
+            }
+        }
+        writer.write(creator.mergeReportedVariants(reportedVariants));
+    }
+
     private <T> Callable<T> getNamedThread(String name, Callable<T> c) {
         String parentThreadName = Thread.currentThread().getName();
         return () -> {
@@ -242,36 +256,32 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
         };
     }
 
-    private Boolean compoundHeterozygous(Map<String, List<Variant>> resultMap) {
-        Query query = new Query(recessiveQuery);
-        try {
-            Map<String, List<Variant>> chVariants = clinicalInterpretationManager.getCompoundHeterozigousVariants(clinicalAnalysisId,
-                    studyId, query, QueryOptions.empty(), sessionId);
-            resultMap.putAll(chVariants);
-        } catch (Exception e) {
-            return false;
-        }
-
-        return true;
+    private Iterator<Variant> iterator(Query query) throws CatalogException, StorageEngineException {
+        return clinicalInterpretationManager.getVariantStorageManager().iterator(query, new QueryOptions(QueryOptions.SORT, true),
+                sessionId);
     }
 
-    private Boolean deNovo(Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap) {
-        Query query = new Query(dominantQuery);
+    private Map<String, List<Variant>> compoundHeterozygous() {
+        Query query = new Query(recessiveQuery);
         try {
-            List<Variant> deNovoVariants = clinicalInterpretationManager.getDeNovoVariants(clinicalAnalysisId, studyId, query,
+            return clinicalInterpretationManager.getCompoundHeterozigousVariants(clinicalAnalysisId, studyId, query,
                     QueryOptions.empty(), sessionId);
-            resultMap.put(DE_NOVO, deNovoVariants);
         } catch (Exception e) {
-            return false;
+            return Collections.emptyMap();
         }
+    }
 
-        return true;
+    private Iterator<Variant> deNovo() throws Exception {
+        Query query = new Query(dominantQuery);
+        // Sorted, to be merged with the other modes of inheritance
+        return clinicalInterpretationManager.getDeNovoVariants(clinicalAnalysisId, studyId, query,
+                new QueryOptions(QueryOptions.SORT, true), sessionId).iterator();
     }
 
-    private Boolean region(List<DiseasePanel> diseasePanelList, Collection<String> samples, String assembly, List<Variant> result) {
+    private Query buildRegionQuery(List<DiseasePanel> diseasePanelList, Collection<String> samples, String assembly) {
         List<Region> regions = new ArrayList<>();
         if (diseasePanelList == null || diseasePanelList.isEmpty()) {
-            return true;
+            return null;
         }
 
         for (DiseasePanel diseasePanel : diseasePanelList) {
@@ -287,29 +297,20 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
         }
 
         if (regions.isEmpty()) {
-            return true;
+            return null;
         }
 
-        Query query = new Query()
+        return new Query()
                 .append(VariantQueryParam.REGION.key(), regions)
                 .append(VariantQueryParam.INCLUDE_GENOTYPE.key(), true)
                 .append(VariantQueryParam.STUDY.key(), studyId)
                 .append(VariantQueryParam.FILTER.key(), VCFConstants.PASSES_FILTERS_v4)
                 .append(VariantQueryParam.UNKNOWN_GENOTYPE.key(), "./.")
                 .append(VariantQueryParam.SAMPLE.key(), samples);
-
-        try {
-            result.addAll(clinicalInterpretationManager.getVariantStorageManager().get(query, QueryOptions.empty(), sessionId)
-                    .getResults());
-        } catch (Exception e) {
-            return false;
-        }
-
-        return true;
     }
 
-    private Boolean query(Pedigree pedigree, Disorder disorder, Map<String, String> sampleMap, ClinicalProperty.ModeOfInheritance moi,
-                          Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap) {
+    private Query buildQuery(Pedigree pedigree, Disorder disorder, Map<String, String> sampleMap,
+                             ClinicalProperty.ModeOfInheritance moi) {
         Query query;
         Map<String, List<String>> genotypes;
         switch (moi) {
@@ -342,7 +343,7 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
                 filterOutHealthyGenotypes(genotypes);
                 break;
             default:
-                return false;
+                return null;
         }
         query.append(VariantQueryParam.INCLUDE_GENOTYPE.key(), true)
                 .append(VariantQueryParam.STUDY.key(), studyId)
@@ -350,17 +351,10 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
                 .append(VariantQueryParam.UNKNOWN_GENOTYPE.key(), "./.");
 
         if (ModeOfInheritance.isEmptyMapOfGenotypes(genotypes)) {
-            return false;
+            return null;
         }
         addGenotypeFilter(genotypes, sampleMap, query);
-
-        try {
-            resultMap.put(moi, clinicalInterpretationManager.getVariantStorageManager().get(query, QueryOptions.empty(), sessionId)
-                    .getResults());
-        } catch (CatalogException | StorageEngineException | IOException e) {
-            return false;
-        }
-        return true;
+        return query;
     }
 
     private void filterOutHealthyGenotypes(Map<String, List<String>> genotypes) {
@@ -24,6 +24,7 @@ import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.biodata.models.variant.avro.VariantType;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.biodata.tools.variant.converters.ga4gh.Ga4ghVariantConverter;
 import org.opencb.biodata.tools.variant.converters.ga4gh.factories.AvroGa4GhVariantFactory;
@@ -72,6 +73,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBItera
 import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat;
 import org.opencb.opencga.storage.core.variant.score.VariantScoreFormatDescriptor;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadResult;
+import org.opencb.opencga.storage.core.variant.stats.SampleVariantStatsStore;
 
 import java.io.IOException;
 import java.net.URI;
@@ -569,6 +571,43 @@ public class VariantStorageManager extends StorageManager {
         });
     }
 
+    /**
+     * Get the variant stats of the given samples. Stats already computed are read from the metadata,
+     * and only the files loaded since the last computation are scanned.
+     *
+     * @param study   Study
+     * @param samples Samples
+     * @param token   User token
+     * @return Stats of each sample
+     * @throws CatalogException       if there is any error with Catalog
+     * @throws StorageEngineException if there is any error computing the stats
+     */
+    public List<SampleVariantStats> getSampleVariantStats(String study, List<String> samples, String token)
+            throws CatalogException, StorageEngineException {
+        return getSampleVariantStats(study, samples, false, token);
+    }
+
+    /**
+     * Get the variant stats of the given samples.
+     *
+     * @param study   Study
+     * @param samples Samples
+     * @param force   Compute the stats from scratch, ignoring the stats stored in the metadata
+     * @param token   User token
+     * @return Stats of each sample
+     * @throws CatalogException       if there is any error with Catalog
+     * @throws StorageEngineException if there is any error computing the stats
+     */
+    public List<SampleVariantStats> getSampleVariantStats(String study, List<String> samples, boolean force, String token)
+            throws CatalogException, StorageEngineException {
+        String studyFqn = getStudyFqn(study, token);
+        Query query = new Query(STUDY.key(), studyFqn)
+                .append(INCLUDE_SAMPLE.key(), samples)
+                .append(INCLUDE_FILE.key(), VariantQueryUtils.NONE);
+        return secure(query, new QueryOptions(), token, engine ->
+                new SampleVariantStatsStore(engine.getMetadataManager(), engine::iterator).get(studyFqn, samples, force));
+    }
+
     public SampleMetadata getSampleMetadata(String study, String sample, String token)
             throws CatalogException, StorageEngineException {
         Query query = new Query(STUDY.key(), study)
@@ -1,21 +1,10 @@
 package org.opencb.opencga.analysis.variant.stats;
 
-import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
-import org.opencb.biodata.models.variant.metadata.VariantMetadata;
-import org.opencb.biodata.tools.variant.stats.SampleVariantStatsCalculator;
-import org.opencb.commons.ProgressLogger;
-import org.opencb.commons.datastore.core.DataResult;
-import org.opencb.commons.datastore.core.Query;
-import org.opencb.commons.datastore.core.QueryOptions;
-import org.opencb.commons.run.ParallelTaskRunner;
 import org.opencb.opencga.analysis.variant.manager.VariantStorageToolExecutor;
 import org.opencb.opencga.core.tools.variant.SampleVariantStatsAnalysisExecutor;
 import org.opencb.opencga.core.tools.annotations.ToolExecutor;
 import org.opencb.opencga.analysis.variant.manager.VariantStorageManager;
-import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
-import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
-import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
 import org.opencb.opencga.core.exceptions.ToolException;
 import org.opencb.opencga.core.exceptions.ToolExecutorException;
 
@@ -33,32 +22,10 @@ public class SampleVariantStatsLocalAnalysisExecutor extends SampleVariantStatsA
 
         List<String> sampleNames = getSampleNames();
 
-        Query query = new Query()
-                .append(VariantQueryParam.STUDY.key(), getStudy())
-                .append(VariantQueryParam.INCLUDE_SAMPLE.key(), sampleNames);
-
         List<SampleVariantStats> stats;
         try {
-            DataResult<VariantMetadata> metadata = variantStorageManager.getMetadata(query, new QueryOptions(), getToken());
-            SampleVariantStatsCalculator calculator = new SampleVariantStatsCalculator(metadata.first().getStudies().get(0));
-
-            ProgressLogger progressLogger = new ProgressLogger("Variants processed:");
-            VariantDBIterator iterator = variantStorageManager.iterator(query, new QueryOptions(), getToken());
-
-            ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder().setNumTasks(1).setBatchSize(10).build();
-
-            ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>(
-                    new VariantDBReader(iterator),
-                    calculator.then((List<Variant> b) -> {
-                        progressLogger.increment(b.size());
-                        return b;
-                    }),
-                    null,
-                    config);
-
-            ptr.run();
-
-            stats = calculator.getSampleVariantStats();
+            // Samples with stats up to date are read from the metadata. Only new files are scanned.
+            stats = variantStorageManager.getSampleVariantStats(getStudy(), sampleNames, getToken());
         } catch (Exception e) {
             throw new ToolExecutorException(e);
         }
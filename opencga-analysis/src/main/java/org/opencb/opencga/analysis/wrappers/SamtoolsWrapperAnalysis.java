@@ -402,8 +402,24 @@ public class SamtoolsWrapperAnalysis extends OpenCgaWrapperAnalysis {
                 outputFile.toPath());
 
         // Create a variable set with the summary numbers of the statistics
-        Map<String, Object> annotations = new HashMap<>();
         List<String> lines = org.apache.commons.io.FileUtils.readLines(outputFile, Charset.defaultCharset());
+        Map<String, Object> annotations = parseSummaryNumbers(lines);
+
+        AnnotationSet annotationSet = new AnnotationSet(ALIGNMENT_STATS_VARIABLE_SET, ALIGNMENT_STATS_VARIABLE_SET, annotations);
+
+        FileUpdateParams updateParams = new FileUpdateParams().setAnnotationSets(Collections.singletonList(annotationSet));
+
+        catalogManager.getFileManager().update(getStudy(), inputFile, updateParams, QueryOptions.empty(), token);
+    }
+
+    /**
+     * Parse the "SN" section (summary numbers) of a samtools stats file into the annotations of the alignment stats variable set.
+     *
+     * @param lines Lines of the samtools stats file
+     * @return Map of annotations
+     */
+    public static Map<String, Object> parseSummaryNumbers(List<String> lines) {
+        Map<String, Object> annotations = new HashMap<>();
         int count = 0;
 
         for (String line : lines) {
@@ -424,11 +440,7 @@ public class SamtoolsWrapperAnalysis extends OpenCgaWrapperAnalysis {
             }
         }
 
-        AnnotationSet annotationSet = new AnnotationSet(ALIGNMENT_STATS_VARIABLE_SET, ALIGNMENT_STATS_VARIABLE_SET, annotations);
-
-        FileUpdateParams updateParams = new FileUpdateParams().setAnnotationSets(Collections.singletonList(annotationSet));
-
-        catalogManager.getFileManager().update(getStudy(), inputFile, updateParams, QueryOptions.empty(), token);
+        return annotations;
     }
 
     public String getCommand() {
@@ -0,0 +1,55 @@
+package org.opencb.opencga.analysis.clinical;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.opencb.biodata.models.clinical.interpretation.ClinicalProperty.ModeOfInheritance.*;
+
+public class ModeOfInheritanceVariantMergerTest {
+
+    @Test
+    public void testMerge() {
+        List<Variant> monoallelic = variants("1:100:A:C", "1:200:A:C", "2:10:A:C", "10:50:A:C");
+        // Variants from the same position may come in any order
+        List<Variant> biallelic = variants("1:200:A:G", "1:200:A:C", "10:50:A:C");
+        List<Variant> deNovo = variants("2:10:A:C", "2:20:A:C", "X:10:A:C");
+
+        List<String> merged = new ArrayList<>();
+        try (ModeOfInheritanceVariantMerger merger = new ModeOfInheritanceVariantMerger(1, 1)) {
+            merger.add(MONOALLELIC, monoallelic::iterator)
+                    .add(BIALLELIC, biallelic::iterator)
+                    .add(DE_NOVO, deNovo::iterator);
+            merger.forEachRemaining(v -> merged.add(v.getVariant() + " " + v.getModeOfInheritances()));
+        }
+
+        assertEquals(Arrays.asList(
+                "1:100:A:C [MONOALLELIC]",
+                "1:200:A:C [MONOALLELIC, BIALLELIC]",
+                "1:200:A:G [BIALLELIC]",
+                "2:10:A:C [MONOALLELIC, DE_NOVO]",
+                "2:20:A:C [DE_NOVO]",
+                "10:50:A:C [MONOALLELIC, BIALLELIC]",
+                "X:10:A:C [DE_NOVO]"), merged);
+    }
+
+    @Test
+    public void testFailingQuery() {
+        List<String> merged = new ArrayList<>();
+        try (ModeOfInheritanceVariantMerger merger = new ModeOfInheritanceVariantMerger()) {
+            merger.add(MONOALLELIC, variants("1:100:A:C")::iterator)
+                    .add(BIALLELIC, () -> {
+                        throw new IllegalStateException("Error");
+                    });
+            merger.forEachRemaining(v -> merged.add(v.getVariant().toString()));
+        }
+        assertEquals(Collections.singletonList("1:100:A:C"), merged);
+    }
+
+    private static List<Variant> variants(String... variants) {
+        return Arrays.stream(variants).map(Variant::new).collect(Collectors.toList());
+    }
+}
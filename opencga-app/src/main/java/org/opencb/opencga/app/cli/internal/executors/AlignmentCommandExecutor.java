@@ -126,7 +126,12 @@ public class AlignmentCommandExecutor extends InternalCommandExecutor {
 
         AlignmentStorageManager alignmentManager = new AlignmentStorageManager(catalogManager, storageEngineFactory);
 
-        alignmentManager.statsRun(cliOptions.study, cliOptions.file, cliOptions.outdir, cliOptions.commonOptions.token);
+        if (cliOptions.numThreads > 0) {
+            alignmentManager.statsRunLocal(cliOptions.study, cliOptions.file, cliOptions.numThreads, cliOptions.outdir,
+                    cliOptions.commonOptions.token);
+        } else {
+            alignmentManager.statsRun(cliOptions.study, cliOptions.file, cliOptions.outdir, cliOptions.commonOptions.token);
+        }
     }
 
     private void coverageRun() throws ToolException {
@@ -134,7 +139,12 @@ public class AlignmentCommandExecutor extends InternalCommandExecutor {
 
         AlignmentStorageManager alignmentManager = new AlignmentStorageManager(catalogManager, storageEngineFactory);
 
-        alignmentManager.coverageRun(cliOptions.study, cliOptions.file, cliOptions.windowSize, cliOptions.outdir, cliOptions.commonOptions.token);
+        if (cliOptions.numThreads > 0) {
+            alignmentManager.coverageRunLocal(cliOptions.study, cliOptions.file, cliOptions.numThreads, cliOptions.commonOptions.token);
+        } else {
+            alignmentManager.coverageRun(cliOptions.study, cliOptions.file, cliOptions.windowSize, cliOptions.outdir,
+                    cliOptions.commonOptions.token);
+        }
     }
 
     private void delete() {
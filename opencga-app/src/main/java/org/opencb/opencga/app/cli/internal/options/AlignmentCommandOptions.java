@@ -160,6 +160,10 @@ public class AlignmentCommandOptions {
         @Parameter(names = {"--file"}, description = FILE_ID_DESCRIPTION, required = true, arity = 1)
         public String file;
 
+        @Parameter(names = {"--num-threads"}, description = "Compute the stats within the JVM, splitting the BAM file by regions"
+                + " and using this number of threads. By default, samtools stats is used.", arity = 1)
+        public int numThreads;
+
         @Parameter(names = {"-o", "--outdir"}, description = OUTPUT_DIRECTORY_DESCRIPTION)
         public String outdir;
     }
@@ -262,6 +266,10 @@ public class AlignmentCommandOptions {
         @Parameter(names = {"--window-size"}, description = COVERAGE_WINDOW_SIZE_DESCRIPTION, arity = 1)
         public int windowSize = 1;
 
+        @Parameter(names = {"--num-threads"}, description = "Precompute the coverage tiles within the JVM, splitting the BAM file by"
+                + " regions and using this number of threads. By default, deeptools bamCoverage is used.", arity = 1)
+        public int numThreads;
+
         @Parameter(names = {"-o", "--outdir"}, description = OUTPUT_DIRECTORY_DESCRIPTION)
         public String outdir;
     }
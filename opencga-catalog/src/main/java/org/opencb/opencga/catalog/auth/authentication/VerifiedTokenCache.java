@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.auth.authentication;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of tokens already verified by one of the authentication managers.
+ *
+ * Tokens are stored by their SHA-256 digest, together with the user and the authentication origin that verified them.
+ * Entries expire with the "exp" claim of the token, and never live longer than the given max time to live, so
+ * non-expiring tokens are verified again from time to time. Expired tokens, or tokens whose claims can not be read, are
+ * never cached.
+ */
+public class VerifiedTokenCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_MAX_TTL_MILLIS = 5 * 60 * 1000L;
+
+    private final long maxTtlMillis;
+    private final Map<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_TTL_MILLIS);
+    }
+
+    public VerifiedTokenCache(int maxSize, long maxTtlMillis) {
+        this.maxTtlMillis = maxTtlMillis;
+        this.cache = new LinkedHashMap<String, VerifiedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the verified token, if present and not expired.
+     *
+     * @param token Token
+     * @return Verified token, or null if missing
+     */
+    public VerifiedToken get(String token) {
+        String key = digest(token);
+        synchronized (cache) {
+            VerifiedToken verifiedToken = cache.get(key);
+            if (verifiedToken != null && verifiedToken.expiration < System.currentTimeMillis()) {
+                cache.remove(key);
+                return null;
+            }
+            return verifiedToken;
+        }
+    }
+
+    /**
+     * Add a token that has just been verified.
+     *
+     * @param token      Verified token
+     * @param userId     User of the token
+     * @param authOrigin Authentication origin that verified the token
+     */
+    public void put(String token, String userId, String authOrigin) {
+        Claims claims = getClaims(token);
+        if (claims == null) {
+            // Unable to read the expiration
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expiration = now + maxTtlMillis;
+        Date tokenExpiration = claims.getExpiration();
+        if (tokenExpiration != null) {
+            expiration = Math.min(expiration, tokenExpiration.getTime());
+        }
+        if (expiration <= now) {
+            return;
+        }
+        VerifiedToken verifiedToken = new VerifiedToken(userId, authOrigin, expiration);
+        String key = digest(token);
+        synchronized (cache) {
+            cache.put(key, verifiedToken);
+        }
+    }
+
+    /**
+     * Remove a token from the cache.
+     *
+     * @param token Token
+     */
+    public void invalidate(String token) {
+        String key = digest(token);
+        synchronized (cache) {
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * Remove all the tokens from a user. Used when the password changes or the user is deleted.
+     *
+     * @param userId User
+     */
+    public void invalidateUser(String userId) {
+        synchronized (cache) {
+            cache.values().removeIf(verifiedToken -> verifiedToken.getUserId().equals(userId));
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static Claims getClaims(String token) {
+        // The signature was already verified by the authentication manager. Parse the claims without it.
+        int idx = token.lastIndexOf('.');
+        if (idx < 0) {
+            return null;
+        }
+        try {
+            return Jwts.parser().parseClaimsJwt(token.substring(0, idx + 1)).getBody();
+        } catch (ExpiredJwtException e) {
+            return e.getClaims();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class VerifiedToken {
+        private final String userId;
+        private final String authOrigin;
+        private final long expiration;
+
+        VerifiedToken(String userId, String authOrigin, long expiration) {
+            this.userId = userId;
+            this.authOrigin = authOrigin;
+            this.expiration = expiration;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getAuthOrigin() {
+            return authOrigin;
+        }
+
+        public long getExpiration() {
+            return expiration;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import java.util.function.Function;
 public abstract class BatchedCatalogMongoDBIterator<T> extends CatalogMongoDBIterator<T> {
 
     private Queue<Document> buffer = new LinkedList<>();
+    private final CatalogMongoDBBatchPrefetcher prefetcher;
 
     protected final QueryOptions options;
 
@@ -26,17 +27,31 @@ public abstract class BatchedCatalogMongoDBIterator<T> extends CatalogMongoDBIte
                                          QueryOptions options) {
         super(mongoCursor, clientSession, converter, filter);
         this.options = options == null ? QueryOptions.empty() : options;
+        this.prefetcher = new CatalogMongoDBBatchPrefetcher(batch -> fetchNextBatch(batch, 100), clientSession == null);
     }
 
 
     @Override
     public boolean hasNext() {
         if (buffer.isEmpty()) {
-            fetchNextBatch(buffer, 100);
+            buffer = prefetcher.next();
         }
         return !buffer.isEmpty();
     }
 
+    @Override
+    public void close() {
+        prefetcher.close();
+        super.close();
+    }
+
+    /**
+     * Fill the buffer with the next batch of documents, resolving the related entities.
+     * Might be called from a background thread, while the previous batch is being consumed.
+     *
+     * @param buffer     Buffer to fill
+     * @param bufferSize Max number of documents to read
+     */
     protected abstract void fetchNextBatch(Queue<Document> buffer, int bufferSize);
 
     @Override
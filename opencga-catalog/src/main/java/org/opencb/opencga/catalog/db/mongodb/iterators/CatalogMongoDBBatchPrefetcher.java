@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.db.mongodb.iterators;
+
+import org.bson.Document;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Reads batches of documents from a catalog iterator, fetching the next batch in background.
+ *
+ * The batch fetcher reads the next documents from the cursor and resolves the related entities. While the caller consumes
+ * one batch, the next one is fetched from a background thread, so the cursor reads and the join queries of the next
+ * batch overlap with the processing of the current one. Only one batch is fetched at a time, so the cursor is never
+ * accessed concurrently.
+ *
+ * Prefetching must be disabled when the iterator runs within a transaction, as client sessions are not thread safe.
+ */
+public class CatalogMongoDBBatchPrefetcher {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "catalog-iterator-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Consumer<Queue<Document>> fetcher;
+    private final boolean prefetch;
+    private Future<Queue<Document>> nextBatch;
+
+    /**
+     * Constructor.
+     *
+     * @param fetcher  Fills the given queue with the next batch of documents
+     * @param prefetch Fetch the next batch in background
+     */
+    public CatalogMongoDBBatchPrefetcher(Consumer<Queue<Document>> fetcher, boolean prefetch) {
+        this.fetcher = fetcher;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Get the next batch of documents, and start fetching the following one.
+     *
+     * @return Next batch. Empty if there are no more documents.
+     */
+    public Queue<Document> next() {
+        Queue<Document> batch;
+        if (nextBatch != null) {
+            batch = get(nextBatch);
+            nextBatch = null;
+        } else {
+            batch = fetch();
+        }
+        if (prefetch && !batch.isEmpty()) {
+            nextBatch = EXECUTOR.submit(this::fetch);
+        }
+        return batch;
+    }
+
+    /**
+     * Wait for any pending batch. Must be called before closing the cursor.
+     */
+    public void close() {
+        if (nextBatch != null) {
+            try {
+                nextBatch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignore) {
+                // Nothing to do. The batch is discarded
+            }
+            nextBatch = null;
+        }
+    }
+
+    private Queue<Document> fetch() {
+        Queue<Document> batch = new LinkedList<>();
+        fetcher.accept(batch);
+        return batch;
+    }
+
+    private static Queue<Document> get(Future<Queue<Document>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
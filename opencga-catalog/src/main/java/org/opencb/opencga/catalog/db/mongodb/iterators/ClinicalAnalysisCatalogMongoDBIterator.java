@@ -31,6 +31,7 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
     private QueryOptions options;
 
     private Queue<Document> clinicalAnalysisListBuffer;
+    private CatalogMongoDBBatchPrefetcher prefetcher;
 
     private Logger logger;
 
@@ -57,6 +58,7 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
         this.interpretationQueryOptions = createInnerQueryOptions(ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key(), false);
 
         this.clinicalAnalysisListBuffer= new LinkedList<>();
+        this.prefetcher = new CatalogMongoDBBatchPrefetcher(this::fetchNextBatch, this.clientSession == null);
         this.logger = LoggerFactory.getLogger(ClinicalAnalysisCatalogMongoDBIterator.class);
     }
 
@@ -81,12 +83,18 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
     @Override
     public boolean hasNext() {
         if (clinicalAnalysisListBuffer.isEmpty()) {
-            fetchNextBatch();
+            clinicalAnalysisListBuffer = prefetcher.next();
         }
         return !clinicalAnalysisListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        prefetcher.close();
+        super.close();
+    }
+
+    private void fetchNextBatch(Queue<Document> buffer) {
         Set<String> interpretationSet = new HashSet<>();
 
         // Get next BUFFER_SIZE documents
@@ -98,7 +106,7 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
                 studyUid = clinicalDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            clinicalAnalysisListBuffer.add(clinicalDocument);
+            buffer.add(clinicalDocument);
             counter++;
 
             // Extract the interpretations
@@ -136,7 +144,7 @@ public class ClinicalAnalysisCatalogMongoDBIterator<E> extends CatalogMongoDBIte
         if (!interpretationMap.isEmpty()) {
 
             // Add the interpretations obtained to the corresponding clinical analyses
-            clinicalAnalysisListBuffer.forEach(clinicalAnalysis -> {
+            buffer.forEach(clinicalAnalysis -> {
                 List<Document> interpretations = new ArrayList<>();
                 List<Document> origInterpretations =
                         (List<Document>) clinicalAnalysis.get(ClinicalAnalysisDBAdaptor.QueryParams.INTERPRETATIONS.key());
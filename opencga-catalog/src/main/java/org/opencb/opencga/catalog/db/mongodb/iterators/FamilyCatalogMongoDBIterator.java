@@ -33,10 +33,19 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     private QueryOptions individualQueryOptions;
 
     private Queue<Document> familyListBuffer;
+    private CatalogMongoDBBatchPrefetcher prefetcher;
+    // Members shared by families of different batches. Only accessed from the batch fetcher
+    private final Map<String, Document> memberCache = new LinkedHashMap<String, Document>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+            return size() > MEMBER_CACHE_SIZE;
+        }
+    };
 
     private Logger logger;
 
     private static final int BUFFER_SIZE = 100;
+    private static final int MEMBER_CACHE_SIZE = 1000;
 
     public FamilyCatalogMongoDBIterator(MongoDBIterator<Document> mongoCursor, ClientSession clientSession,
                                         AnnotableConverter<? extends Annotable> converter, Function<Document, Document> filter,
@@ -57,6 +66,7 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
         this.individualQueryOptions = createFamilyQueryOptions();
 
         this.familyListBuffer = new LinkedList<>();
+        this.prefetcher = new CatalogMongoDBBatchPrefetcher(this::fetchNextBatch, this.clientSession == null);
         this.logger = LoggerFactory.getLogger(FamilyCatalogMongoDBIterator.class);
     }
 
@@ -81,12 +91,18 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     @Override
     public boolean hasNext() {
         if (familyListBuffer.isEmpty()) {
-            fetchNextBatch();
+            familyListBuffer = prefetcher.next();
         }
         return !familyListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        prefetcher.close();
+        super.close();
+    }
+
+    private void fetchNextBatch(Queue<Document> buffer) {
         Set<String> memberVersions = new HashSet<>();
 
         // Get next BUFFER_SIZE documents
@@ -98,7 +114,7 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 studyUid = familyDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            familyListBuffer.add(familyDocument);
+            buffer.add(familyDocument);
             counter++;
 
             // Extract all the members
@@ -117,30 +133,49 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
         }
 
         if (!memberVersions.isEmpty()) {
-            // Obtain all those members
-
-            List<Long> uidList = new ArrayList<>(memberVersions.size());
-            List<Integer> versionList = new ArrayList<>(memberVersions.size());
-            memberVersions.forEach(s -> {
-                String[] split = StringUtils.splitByWholeSeparatorPreserveAllTokens(s, "__");
-                uidList.add(Long.valueOf(split[0]));
-                versionList.add(Integer.valueOf(split[1]));
-            });
-
-            Query query = new Query()
-                    .append(IndividualDBAdaptor.QueryParams.UID.key(), uidList)
-                    .append(IndividualDBAdaptor.QueryParams.VERSION.key(), versionList);
-            List<Document> memberList;
-            try {
-                if (user != null) {
-                    query.put(IndividualDBAdaptor.QueryParams.STUDY_UID.key(), studyUid);
-                    memberList = individualDBAdaptor.nativeGet(clientSession, studyUid, query, individualQueryOptions, user).getResults();
+            // Members already obtained for families of previous batches are taken from the cache
+            List<Document> memberList = new ArrayList<>(memberVersions.size());
+            Set<String> missingMemberVersions = new HashSet<>();
+            for (String memberVersion : memberVersions) {
+                Document member = memberCache.get(memberVersion);
+                if (member == null) {
+                    missingMemberVersions.add(memberVersion);
                 } else {
-                    memberList = individualDBAdaptor.nativeGet(clientSession, query, individualQueryOptions).getResults();
+                    memberList.add(new Document(member));
+                }
+            }
+
+            if (!missingMemberVersions.isEmpty()) {
+                // Obtain all those members
+                List<Long> uidList = new ArrayList<>(missingMemberVersions.size());
+                List<Integer> versionList = new ArrayList<>(missingMemberVersions.size());
+                missingMemberVersions.forEach(s -> {
+                    String[] split = StringUtils.splitByWholeSeparatorPreserveAllTokens(s, "__");
+                    uidList.add(Long.valueOf(split[0]));
+                    versionList.add(Integer.valueOf(split[1]));
+                });
+
+                Query query = new Query()
+                        .append(IndividualDBAdaptor.QueryParams.UID.key(), uidList)
+                        .append(IndividualDBAdaptor.QueryParams.VERSION.key(), versionList);
+                List<Document> missingMemberList;
+                try {
+                    if (user != null) {
+                        query.put(IndividualDBAdaptor.QueryParams.STUDY_UID.key(), studyUid);
+                        missingMemberList = individualDBAdaptor.nativeGet(clientSession, studyUid, query, individualQueryOptions, user)
+                                .getResults();
+                    } else {
+                        missingMemberList = individualDBAdaptor.nativeGet(clientSession, query, individualQueryOptions).getResults();
+                    }
+                } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
+                    logger.warn("Could not obtain the members associated to the families: {}", e.getMessage(), e);
+                    return;
+                }
+                for (Document member : missingMemberList) {
+                    memberCache.put(member.get(FamilyDBAdaptor.QueryParams.UID.key()) + "__"
+                            + member.get(FamilyDBAdaptor.QueryParams.VERSION.key()), new Document(member));
+                    memberList.add(member);
                 }
-            } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
-                logger.warn("Could not obtain the members associated to the families: {}", e.getMessage(), e);
-                return;
             }
 
             // Map each member uid - version to the member entry
@@ -155,7 +190,7 @@ public class FamilyCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
             );
 
             // Add the members obtained to the corresponding families
-            familyListBuffer.forEach(family -> {
+            buffer.forEach(family -> {
                 List<Document> tmpMemberList = new ArrayList<>();
                 List<Document> members = (List<Document>) family.get(FamilyMongoDBAdaptor.QueryParams.MEMBERS.key());
 
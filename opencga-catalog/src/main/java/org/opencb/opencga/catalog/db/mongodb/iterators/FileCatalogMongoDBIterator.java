@@ -34,6 +34,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
     private QueryOptions sampleQueryOptions;
 
     private Queue<Document> fileListBuffer;
+    private CatalogMongoDBBatchPrefetcher prefetcher;
 
     private Logger logger;
 
@@ -61,6 +62,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
         this.sampleQueryOptions = createSampleQueryOptions();
 
         this.fileListBuffer = new LinkedList<>();
+        this.prefetcher = new CatalogMongoDBBatchPrefetcher(this::fetchNextBatch, this.clientSession == null);
         this.logger = LoggerFactory.getLogger(FileCatalogMongoDBIterator.class);
     }
 
@@ -100,12 +102,18 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
     @Override
     public boolean hasNext() {
         if (fileListBuffer.isEmpty()) {
-            fetchNextBatch();
+            fileListBuffer = prefetcher.next();
         }
         return !fileListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        prefetcher.close();
+        super.close();
+    }
+
+    private void fetchNextBatch(Queue<Document> buffer) {
         Set<Long> sampleSet = new HashSet<>();
         Map<String, String> relatedFileMap = new HashMap<>();
         Set<Long> relatedFileSet = new HashSet<>();
@@ -119,7 +127,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
                 studyUid = fileDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            fileListBuffer.add(fileDocument);
+            buffer.add(fileDocument);
             counter++;
 
             // Extract all the samples
@@ -169,7 +177,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
             );
 
             // Add the samples obtained to the corresponding files
-            fileListBuffer.forEach(fileDocument -> {
+            buffer.forEach(fileDocument -> {
                 List<Document> tmpSampleList = new ArrayList<>();
                 List<Document> samples = (List<Document>) fileDocument.get(FileDBAdaptor.QueryParams.SAMPLES.key());
 
@@ -212,7 +220,7 @@ public class FileCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIterat
             );
 
             // Add the files obtained to the corresponding related files
-            fileListBuffer.forEach(fileDocument -> {
+            buffer.forEach(fileDocument -> {
                 String fileId = String.valueOf(fileDocument.getLong(FileDBAdaptor.QueryParams.UID.key()));
 
                 List<Document> tmpFileList = new ArrayList<>();
@@ -31,6 +31,7 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     private QueryOptions individualQueryOptions;
 
     private Queue<Document> sampleListBuffer;
+    private CatalogMongoDBBatchPrefetcher prefetcher;
 
     private Logger logger;
 
@@ -54,6 +55,7 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
         this.individualQueryOptions = createIndividualQueryOptions();
 
         this.sampleListBuffer = new LinkedList<>();
+        this.prefetcher = new CatalogMongoDBBatchPrefetcher(this::fetchNextBatch, this.clientSession == null);
         this.logger = LoggerFactory.getLogger(SampleCatalogMongoDBIterator.class);
     }
 
@@ -78,12 +80,18 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
     @Override
     public boolean hasNext() {
         if (sampleListBuffer.isEmpty()) {
-            fetchNextBatch();
+            sampleListBuffer = prefetcher.next();
         }
         return !sampleListBuffer.isEmpty();
     }
 
-    private void fetchNextBatch() {
+    @Override
+    public void close() {
+        prefetcher.close();
+        super.close();
+    }
+
+    private void fetchNextBatch(Queue<Document> buffer) {
         Map<Long, Document> sampleUidMap = new HashMap<>(BUFFER_SIZE);
 
         // Get next BUFFER_SIZE documents
@@ -95,7 +103,7 @@ public class SampleCatalogMongoDBIterator<E> extends AnnotableCatalogMongoDBIter
                 studyUid = sampleDocument.getLong(PRIVATE_STUDY_UID);
             }
 
-            sampleListBuffer.add(sampleDocument);
+            buffer.add(sampleDocument);
             counter++;
 
             // Extract the sample uids
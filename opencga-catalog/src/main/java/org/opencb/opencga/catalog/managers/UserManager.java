@@ -28,6 +28,7 @@ import org.opencb.opencga.catalog.auth.authentication.AuthenticationManager;
 import org.opencb.opencga.catalog.auth.authentication.AzureADAuthenticationManager;
 import org.opencb.opencga.catalog.auth.authentication.CatalogAuthenticationManager;
 import org.opencb.opencga.catalog.auth.authentication.LDAPAuthenticationManager;
+import org.opencb.opencga.catalog.auth.authentication.VerifiedTokenCache;
 import org.opencb.opencga.catalog.auth.authorization.AuthorizationManager;
 import org.opencb.opencga.catalog.db.DBAdaptorFactory;
 import org.opencb.opencga.catalog.db.api.UserDBAdaptor;
@@ -62,6 +63,7 @@ public class UserManager extends AbstractManager {
 
     private String INTERNAL_AUTHORIZATION = CatalogAuthenticationManager.INTERNAL;
     private Map<String, AuthenticationManager> authenticationManagerMap;
+    private final VerifiedTokenCache tokenCache = new VerifiedTokenCache();
 
     protected static final String EMAIL_PATTERN = "^['_A-Za-z0-9-\\+]+(\\.['_A-Za-z0-9-]+)*@"
             + "[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$";
@@ -133,11 +135,21 @@ public class UserManager extends AbstractManager {
      * @throws CatalogException when the session id does not correspond to any user or the token has expired.
      */
     public String getUserId(String token) throws CatalogException {
+        boolean cacheable = StringUtils.isNotEmpty(token) && !"null".equalsIgnoreCase(token);
+        if (cacheable) {
+            VerifiedTokenCache.VerifiedToken verifiedToken = tokenCache.get(token);
+            if (verifiedToken != null) {
+                return verifiedToken.getUserId();
+            }
+        }
         for (Map.Entry<String, AuthenticationManager> entry : authenticationManagerMap.entrySet()) {
             AuthenticationManager authenticationManager = entry.getValue();
             try {
                 String userId = authenticationManager.getUserId(token);
                 userDBAdaptor.checkId(userId);
+                if (cacheable) {
+                    tokenCache.put(token, userId, entry.getKey());
+                }
                 return userId;
             } catch (Exception e) {
                 logger.debug("Could not get user from token using {} authentication manager. {}", entry.getKey(), e.getMessage(), e);
@@ -160,6 +172,7 @@ public class UserManager extends AbstractManager {
             userDBAdaptor.checkId(userId);
             String authOrigin = getAuthenticationOriginId(userId);
             authenticationManagerMap.get(authOrigin).changePassword(userId, oldPassword, newPassword);
+            tokenCache.invalidateUser(userId);
             userDBAdaptor.updateUserLastModified(userId);
             auditManager.auditUser(userId, Enums.Action.CHANGE_USER_PASSWORD, userId,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
@@ -641,6 +654,7 @@ public class UserManager extends AbstractManager {
             if (OPENCGA.equals(tokenUser) || userId.equals(tokenUser)) {
                 try {
                     OpenCGAResult result = userDBAdaptor.delete(userId, options);
+                    tokenCache.invalidateUser(userId);
 
                     auditManager.auditDelete(operationUuid, tokenUser, Enums.Resource.USER, userId, "", "", "", auditParams,
                             new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
@@ -690,6 +704,7 @@ public class UserManager extends AbstractManager {
             validateUserAndToken(userId, sessionId);
             String authOrigin = getAuthenticationOriginId(userId);
             OpenCGAResult writeResult = authenticationManagerMap.get(authOrigin).resetPassword(userId);
+            tokenCache.invalidateUser(userId);
             auditManager.auditUser(userId, Enums.Action.RESET_USER_PASSWORD, userId,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
             return writeResult;
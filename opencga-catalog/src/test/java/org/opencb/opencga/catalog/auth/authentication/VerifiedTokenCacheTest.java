@@ -0,0 +1,77 @@
+package org.opencb.opencga.catalog.auth.authentication;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.test.GenericTest;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+
+import static org.junit.Assert.*;
+
+public class VerifiedTokenCacheTest extends GenericTest {
+
+    private JwtManager jwtManager;
+
+    @Before
+    public void setUp() throws Exception {
+        Key key = new SecretKeySpec(TextCodec.BASE64.decode("12345"), SignatureAlgorithm.HS256.getJcaName());
+        jwtManager = new JwtManager(SignatureAlgorithm.HS256.getValue(), key, key);
+    }
+
+    @Test
+    public void testGet() {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        String token = jwtManager.createJWTToken("user1", 60L);
+
+        assertNull(cache.get(token));
+        cache.put(token, "user1", "internal");
+        VerifiedTokenCache.VerifiedToken verifiedToken = cache.get(token);
+        assertEquals("user1", verifiedToken.getUserId());
+        assertEquals("internal", verifiedToken.getAuthOrigin());
+        // Expires with the token
+        assertTrue(verifiedToken.getExpiration() <= System.currentTimeMillis() + 60000L);
+    }
+
+    @Test
+    public void testExpiredToken() throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        String token = jwtManager.createJWTToken("user1", 1L);
+        cache.put(token, "user1", "internal");
+        Thread.sleep(1500);
+        assertNull(cache.get(token));
+
+        // Already expired tokens are not cached
+        cache.put(token, "user1", "internal");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidToken() {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        cache.put("not.a.token", "user1", "internal");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2, VerifiedTokenCache.DEFAULT_MAX_TTL_MILLIS);
+        String token1 = jwtManager.createJWTToken("user1", 60L);
+        String token2 = jwtManager.createJWTToken("user2", 60L);
+        String token3 = jwtManager.createJWTToken("user3", 0L);
+        cache.put(token1, "user1", "internal");
+        cache.put(token2, "user2", "internal");
+        cache.put(token3, "user3", "internal");
+
+        // Bounded
+        assertEquals(2, cache.size());
+        assertNull(cache.get(token1));
+
+        cache.invalidateUser("user2");
+        assertNull(cache.get(token2));
+        cache.invalidate(token3);
+        assertNull(cache.get(token3));
+    }
+}
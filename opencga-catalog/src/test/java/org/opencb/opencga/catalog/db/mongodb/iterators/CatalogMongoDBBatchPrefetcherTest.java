@@ -0,0 +1,44 @@
+package org.opencb.opencga.catalog.db.mongodb.iterators;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CatalogMongoDBBatchPrefetcherTest {
+
+    @Test
+    public void testNext() {
+        for (boolean prefetch : new boolean[]{false, true}) {
+            List<Document> documents = IntStream.range(0, 250).mapToObj(i -> new Document("id", i)).collect(Collectors.toList());
+            Iterator<Document> cursor = documents.iterator();
+            CatalogMongoDBBatchPrefetcher prefetcher = new CatalogMongoDBBatchPrefetcher(buffer -> {
+                while (cursor.hasNext() && buffer.size() < 100) {
+                    buffer.add(cursor.next());
+                }
+            }, prefetch);
+
+            List<Document> read = new ArrayList<>();
+            List<Integer> batchSizes = new ArrayList<>();
+            Queue<Document> batch = prefetcher.next();
+            while (!batch.isEmpty()) {
+                batchSizes.add(batch.size());
+                read.addAll(batch);
+                batch = prefetcher.next();
+            }
+            prefetcher.close();
+
+            assertEquals(documents, read);
+            assertEquals(3, batchSizes.size());
+            assertTrue(prefetcher.next().isEmpty());
+        }
+    }
+}
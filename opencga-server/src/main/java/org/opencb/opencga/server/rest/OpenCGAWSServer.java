@@ -16,9 +16,12 @@
 
 package org.opencb.opencga.server.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Splitter;
 import io.swagger.annotations.ApiParam;
 import org.apache.avro.generic.GenericRecord;
@@ -64,14 +67,17 @@ import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
 import static org.opencb.opencga.core.common.JacksonUtils.getExternalOpencgaObjectMapper;
 
@@ -132,6 +138,8 @@ public class OpenCGAWSServer {
     private static final int DEFAULT_LIMIT = AbstractManager.DEFAULT_LIMIT;
     private static final int MAX_LIMIT = 5000;
     private static final int MAX_ID_SIZE = 100;
+    // Minimum number of results to write the response directly into the output stream
+    static final int STREAM_MIN_RESULTS = 1000;
 
     private static String errorMessage;
 
@@ -605,13 +613,164 @@ public class OpenCGAWSServer {
     }
 
     protected Response createJsonResponse(RestResponse queryResponse) {
+        boolean gzip = isGzipAccepted();
+        Object entity;
         try {
-            return buildResponse(Response.ok(jsonObjectWriter.writeValueAsString(queryResponse), MediaType.APPLICATION_JSON_TYPE));
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
-            logger.error("Error parsing queryResponse object");
+            entity = createJsonEntity(queryResponse, gzip);
+        } catch (IOException e) {
+            logger.error("Error parsing queryResponse object", e);
             return createErrorResponse("", "Error parsing RestResponse object:\n" + Arrays.toString(e.getStackTrace()));
         }
+        return buildResponse(addContentEncoding(Response.ok(entity, MediaType.APPLICATION_JSON_TYPE), gzip));
+    }
+
+    /**
+     * Serialize the RestResponse. Responses with errors or with less than {@link #STREAM_MIN_RESULTS} results are serialized
+     * in memory, so a serialization error can still be returned to the client as an error. Larger responses are written directly
+     * into the output stream, without building the whole JSON in memory.
+     *
+     * @param queryResponse RestResponse to serialize
+     * @param gzip          Compress the output
+     * @return Serialized response as byte[], or StreamingOutput for large responses
+     * @throws IOException if there is any error serializing the response in memory
+     */
+    static Object createJsonEntity(RestResponse<?> queryResponse, boolean gzip) throws IOException {
+        if (hasErrors(queryResponse) || getNumResults(queryResponse) < STREAM_MIN_RESULTS) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeJson(bytes, queryResponse, gzip);
+            return bytes.toByteArray();
+        } else {
+            return (StreamingOutput) os -> {
+                try {
+                    writeJson(os, queryResponse, gzip);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Error writing RestResponse object", e);
+                    throw e;
+                }
+            };
+        }
+    }
+
+    private static void writeJson(OutputStream os, Object value, boolean gzip) throws IOException {
+        OutputStream out = os;
+        if (gzip) {
+            out = new GZIPOutputStream(os);
+        }
+        jsonObjectWriter.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, value);
+        if (gzip) {
+            ((GZIPOutputStream) out).finish();
+        }
+    }
+
+    private static boolean hasErrors(RestResponse<?> queryResponse) {
+        if (queryResponse.getEvents() != null) {
+            for (Event event : queryResponse.getEvents()) {
+                if (Event.Type.ERROR.equals(event.getType())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int getNumResults(RestResponse<?> queryResponse) {
+        int numResults = 0;
+        if (queryResponse.getResponses() != null) {
+            for (OpenCGAResult<?> result : queryResponse.getResponses()) {
+                if (result != null && result.getResults() != null) {
+                    numResults += result.getResults().size();
+                }
+            }
+        }
+        return numResults;
+    }
+
+    /**
+     * Create a response streaming the results from an iterator. Results are serialized while being read from the iterator,
+     * so the memory used by the request does not depend on the size of the response.
+     * The iterator is closed after writing the response, if it implements {@link AutoCloseable}.
+     *
+     * @param iterator Iterator with the results. Should be limited by the query.
+     * @return Response
+     */
+    protected Response createOkStreamingResponse(Iterator<?> iterator) {
+        RestResponse<Object> queryResponse = new RestResponse<>();
+        queryResponse.setApiVersion(apiVersion);
+        queryResponse.setParams(params);
+        queryResponse.setEvents(new ArrayList<>());
+        queryResponse.setResponses(Collections.singletonList(
+                new OpenCGAResult<>(0, new ArrayList<>(), 0, Collections.emptyList(), -1)));
+        // Serialize the envelope ahead, and replace the fields that depend on the results while streaming
+        ObjectNode envelope = jsonObjectMapper.valueToTree(queryResponse);
+        ObjectNode resultEnvelope = (ObjectNode) envelope.get("responses").get(0);
+        boolean gzip = isGzipAccepted();
+
+        StreamingOutput output = os -> {
+            OutputStream out = gzip ? new GZIPOutputStream(os) : os;
+            long queryStartTime = System.currentTimeMillis();
+            int numResults = 0;
+            try (JsonGenerator generator = jsonObjectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartObject();
+                writeFields(generator, envelope, "responses", "time");
+                generator.writeArrayFieldStart("responses");
+                generator.writeStartObject();
+                writeFields(generator, resultEnvelope, "results", "numResults", "time");
+                generator.writeArrayFieldStart("results");
+                while (iterator.hasNext()) {
+                    jsonObjectWriter.writeValue(generator, iterator.next());
+                    numResults++;
+                }
+                generator.writeEndArray();
+                generator.writeNumberField("numResults", numResults);
+                generator.writeNumberField("time", System.currentTimeMillis() - queryStartTime);
+                generator.writeEndObject();
+                generator.writeEndArray();
+                generator.writeNumberField("time", System.currentTimeMillis() - startTime);
+                generator.writeEndObject();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Error streaming response", e);
+                throw e;
+            } finally {
+                if (iterator instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) iterator).close();
+                    } catch (Exception e) {
+                        logger.warn("Error closing iterator", e);
+                    }
+                }
+            }
+            if (gzip) {
+                ((GZIPOutputStream) out).finish();
+            }
+            logger.info("OK [200], {}ms, num: {}, {}", System.currentTimeMillis() - startTime, numResults, requestDescription);
+        };
+        return buildResponse(addContentEncoding(Response.ok(output, MediaType.APPLICATION_JSON_TYPE), gzip));
+    }
+
+    private static void writeFields(JsonGenerator generator, ObjectNode node, String... skipFields) throws IOException {
+        List<String> skip = Arrays.asList(skipFields);
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!skip.contains(field.getKey())) {
+                generator.writeFieldName(field.getKey());
+                generator.writeTree(field.getValue());
+            }
+        }
+    }
+
+    private boolean isGzipAccepted() {
+        String acceptEncoding = httpServletRequest == null ? null : httpServletRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private Response.ResponseBuilder addContentEncoding(Response.ResponseBuilder responseBuilder, boolean gzip) {
+        if (gzip) {
+            responseBuilder.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return responseBuilder;
     }
 
     protected Response buildResponse(Response.ResponseBuilder responseBuilder) {
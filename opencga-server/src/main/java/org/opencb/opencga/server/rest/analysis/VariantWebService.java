@@ -80,6 +80,7 @@ public class VariantWebService extends AnalysisWebService {
 
     private static final String DEPRECATED = " [DEPRECATED] ";
     public static final String PENDING = " [PENDING] ";
+    public static final String STREAM_PARAM = "stream";
     private static final Map<String, org.opencb.commons.datastore.core.QueryParam> DEPRECATED_VARIANT_QUERY_PARAM;
 
     static {
@@ -183,6 +184,8 @@ public class VariantWebService extends AnalysisWebService {
             @ApiImplicitParam(name = "approximateCount", value = "Get an approximate count, instead of an exact total count. Reduces execution time", dataType = "boolean", paramType = "query"),
             @ApiImplicitParam(name = "approximateCountSamplingSize", value = "Sampling size to get the approximate count. "
                     + "Larger values increase accuracy but also increase execution time", dataType = "integer", paramType = "query"),
+            @ApiImplicitParam(name = STREAM_PARAM, value = "Stream the results while reading them from the database. "
+                    + "Does not return the total count nor the samples metadata", dataType = "boolean", paramType = "query"),
 
             // Variant filters
             @ApiImplicitParam(name = "id", value = ID_DESCR, dataType = "string", paramType = "query"),
@@ -297,6 +300,18 @@ public class VariantWebService extends AnalysisWebService {
 //            @ApiImplicitParam(name = "traits", value = DEPRECATED + "Use 'trait' instead", dataType = "string", paramType = "query"),
     })
     public Response getVariants() {
+        if (uriInfo.getQueryParameters().containsKey(STREAM_PARAM)
+                && Boolean.parseBoolean(uriInfo.getQueryParameters().getFirst(STREAM_PARAM)) && !count) {
+            try {
+                QueryOptions queryOptions = new QueryOptions(uriInfo.getQueryParameters(), true);
+                queryOptions.remove(STREAM_PARAM);
+                queryOptions.put(QueryOptions.LIMIT, this.queryOptions.getInt(QueryOptions.LIMIT));
+                Query query = getVariantQuery(queryOptions);
+                return createOkStreamingResponse(variantManager.iterator(query, queryOptions, token));
+            } catch (Exception e) {
+                return createErrorResponse(e);
+            }
+        }
         return run(() -> {
             // Get all query options
             QueryOptions queryOptions = new QueryOptions(uriInfo.getQueryParameters(), true);
@@ -18,8 +18,10 @@ package org.opencb.opencga.server.rest.utils;
 
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
-import org.apache.commons.lang3.time.StopWatch;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.exceptions.VersionException;
 import org.opencb.opencga.core.models.file.File;
@@ -30,17 +32,36 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Path("/{apiVersion}/utils")
 @Produces("application/json")
 public class FileRangesWSServer extends OpenCGAWSServer {
 
+    // Max number of bytes returned for each range. Larger ranges are truncated, as allowed by RFC 7233
+    public static final long MAX_RANGE_LENGTH = 16 * 1024 * 1024;
+    public static final int MAX_RANGES = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Time to live of the resolved files. Avoid querying catalog for every range request from the same client
+    private static final long FILE_CACHE_TTL_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final int FILE_CACHE_MAX_SIZE = 10000;
+    private static final Map<String, ResolvedFile> FILE_CACHE = new ConcurrentHashMap<>();
+
     public FileRangesWSServer(@Context UriInfo uriInfo, @Context HttpServletRequest httpServletRequest, @Context HttpHeaders headerParam)
             throws IOException, VersionException {
         super(uriInfo, httpServletRequest, headerParam);
@@ -56,42 +77,74 @@ public class FileRangesWSServer extends OpenCGAWSServer {
                               @QueryParam(ParamConstants.STUDY_PARAM) String studyStr) {
 
         try {
-            DataResult<File> queryResult = catalogManager.getFileManager().get(studyStr, fileIdStr, this.queryOptions, token);
-            File file = queryResult.getResults().get(0);
-
             List<String> rangeList = headers.getRequestHeader("range");
             if (rangeList != null) {
-                long from;
-                long to;
-                String[] acceptedRanges = rangeList.get(0).split("=")[1].split("-");
-                from = Long.parseLong(acceptedRanges[0]);
-                to = Long.parseLong(acceptedRanges[1]);
-                int length = (int) (to - from) + 1;
-                ByteBuffer buf = ByteBuffer.allocate(length);
-
-                logger.debug("from: {} , to: {}, length:{}", from, to, length);
-                StopWatch t = StopWatch.createStarted();
-
-                java.nio.file.Path filePath = Paths.get(file.getUri());
-                try (FileChannel fc = (FileChannel.open(filePath, StandardOpenOption.READ))) {
-                    fc.position(from);
-                    fc.read(buf);
+                java.nio.file.Path filePath = Paths.get(resolveFile(studyStr, fileIdStr));
+                // Size of the file on disk, as it may differ from the size registered in catalog
+                long size = Files.size(filePath);
+                List<long[]> ranges;
+                try {
+                    ranges = parseRanges(rangeList.get(0), size);
+                } catch (IllegalArgumentException e) {
+                    // Malformed range header. Not a server error
+                    logger.debug("Invalid range header '{}'", rangeList.get(0), e);
+                    return addCorsHeaders(Response.status(416))
+                            .header("Content-Range", "bytes */" + size)
+                            .entity(e.getMessage())
+                            .build();
+                }
+                if (ranges.isEmpty()) {
+                    return addCorsHeaders(Response.status(416))
+                            .header("Content-Range", "bytes */" + size)
+                            .build();
                 }
 
-                t.stop();
-                logger.debug("Skip {}B and read {}B in {}s", from, length, t.getTime(TimeUnit.MILLISECONDS) / 1000.0);
-
-                return Response.ok(buf.array(), MediaType.APPLICATION_OCTET_STREAM_TYPE)
-                        .header("Accept-Ranges", "bytes")
-                        .header("Access-Control-Allow-Origin", "*")
-                        .header("Access-Control-Allow-Headers", "x-requested-with, content-type, range")
-                        .header("Access-Control-Allow-Credentials", "true")
-                        .header("Access-Control-Allow-Methods", "GET, POST, OPTIONS")
-                        .header("Content-Range", "bytes " + from + "-" + to + "/" + file.getSize())
-                        .header("Content-length", to - from + 1)
-                        .status(Response.Status.PARTIAL_CONTENT).build();
-
+                Response.ResponseBuilder response;
+                if (ranges.size() == 1) {
+                    long from = ranges.get(0)[0];
+                    long to = ranges.get(0)[1];
+                    logger.debug("from: {} , to: {}, length:{}", from, to, to - from + 1);
+                    StreamingOutput output = os -> {
+                        try (FileChannel fc = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                            transfer(fc, from, to, os, ByteBuffer.allocate(BUFFER_SIZE));
+                        }
+                    };
+                    response = Response.ok(output, MediaType.APPLICATION_OCTET_STREAM_TYPE)
+                            .header("Content-Range", "bytes " + from + "-" + to + "/" + size)
+                            .header("Content-length", to - from + 1);
+                } else {
+                    String boundary = RandomStringUtils.randomAlphanumeric(24);
+                    List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+                    long contentLength = 0;
+                    for (long[] range : ranges) {
+                        byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                                + "Content-Type: " + MediaType.APPLICATION_OCTET_STREAM + "\r\n"
+                                + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + size + "\r\n"
+                                + "\r\n").getBytes(StandardCharsets.US_ASCII);
+                        partHeaders.add(partHeader);
+                        contentLength += partHeader.length + range[1] - range[0] + 1;
+                    }
+                    byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+                    contentLength += end.length;
+                    StreamingOutput output = os -> {
+                        try (FileChannel fc = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                            for (int i = 0; i < ranges.size(); i++) {
+                                os.write(partHeaders.get(i));
+                                transfer(fc, ranges.get(i)[0], ranges.get(i)[1], os, buffer);
+                            }
+                            os.write(end);
+                        }
+                    };
+                    response = Response.ok(output, "multipart/byteranges; boundary=" + boundary)
+                            .header("Content-length", contentLength);
+                }
+                return addCorsHeaders(response)
+                        .status(Response.Status.PARTIAL_CONTENT)
+                        .build();
             } else {
+                DataResult<File> queryResult = catalogManager.getFileManager().get(studyStr, fileIdStr, this.queryOptions, token);
+                File file = queryResult.getResults().get(0);
                 DataInputStream stream = catalogManager.getFileManager().download(studyStr, fileIdStr, -1, -1, token);
                 return createOkResponse(stream, MediaType.APPLICATION_OCTET_STREAM_TYPE, file.getName());
             }
@@ -100,4 +153,118 @@ public class FileRangesWSServer extends OpenCGAWSServer {
         }
     }
 
+    private Response.ResponseBuilder addCorsHeaders(Response.ResponseBuilder response) {
+        return response
+                .header("Accept-Ranges", "bytes")
+                .header("Access-Control-Allow-Origin", "*")
+                .header("Access-Control-Allow-Headers", "x-requested-with, content-type, range")
+                .header("Access-Control-Allow-Credentials", "true")
+                .header("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+    }
+
+    /**
+     * Get the file uri from catalog, or from the cache if it was resolved recently with the same token.
+     * The file permissions are checked by catalog when the file is resolved.
+     */
+    private URI resolveFile(String studyStr, String fileIdStr) throws CatalogException {
+        // Do not keep raw tokens in memory
+        String key = digest(StringUtils.defaultString(token)) + "|" + studyStr + "|" + fileIdStr;
+        long now = System.currentTimeMillis();
+        ResolvedFile resolvedFile = FILE_CACHE.get(key);
+        if (resolvedFile == null || resolvedFile.expiration < now) {
+            DataResult<File> queryResult = catalogManager.getFileManager().get(studyStr, fileIdStr, this.queryOptions, token);
+            File file = queryResult.getResults().get(0);
+            resolvedFile = new ResolvedFile(file.getUri(), now + FILE_CACHE_TTL_MS);
+            if (FILE_CACHE.size() >= FILE_CACHE_MAX_SIZE) {
+                FILE_CACHE.values().removeIf(f -> f.expiration < now);
+                if (FILE_CACHE.size() >= FILE_CACHE_MAX_SIZE) {
+                    FILE_CACHE.clear();
+                }
+            }
+            FILE_CACHE.put(key, resolvedFile);
+        }
+        return resolvedFile.uri;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parse the HTTP Range header. e.g. "bytes=0-99,200-299,-500,1000-"
+     *
+     * @param rangeHeader Range header
+     * @param size        File size
+     * @return List of satisfiable ranges, as [from, to] inclusive. Empty if none.
+     */
+    static List<long[]> parseRanges(String rangeHeader, long size) {
+        if (!rangeHeader.startsWith("bytes=")) {
+            throw new IllegalArgumentException("Unsupported range unit in '" + rangeHeader + "'");
+        }
+        String[] rangeSpecs = rangeHeader.substring("bytes=".length()).split(",");
+        if (rangeSpecs.length > MAX_RANGES) {
+            throw new IllegalArgumentException("Too many ranges. Max " + MAX_RANGES + " ranges per request");
+        }
+        List<long[]> ranges = new ArrayList<>(rangeSpecs.length);
+        for (String rangeSpec : rangeSpecs) {
+            rangeSpec = rangeSpec.trim();
+            int idx = rangeSpec.indexOf('-');
+            if (idx < 0) {
+                throw new IllegalArgumentException("Malformed range '" + rangeSpec + "'");
+            }
+            String fromStr = rangeSpec.substring(0, idx);
+            String toStr = rangeSpec.substring(idx + 1);
+            long from;
+            long to;
+            if (StringUtils.isEmpty(fromStr)) {
+                // Suffix range. Last N bytes
+                from = Math.max(0, size - Long.parseLong(toStr));
+                to = size - 1;
+            } else {
+                from = Long.parseLong(fromStr);
+                to = StringUtils.isEmpty(toStr) ? size - 1 : Math.min(Long.parseLong(toStr), size - 1);
+            }
+            if (from > to || from >= size) {
+                // Not satisfiable
+                continue;
+            }
+            to = Math.min(to, from + MAX_RANGE_LENGTH - 1);
+            ranges.add(new long[]{from, to});
+        }
+        return ranges;
+    }
+
+    /**
+     * Copy the range [from, to] of the file into the output stream, reading at most {@link #BUFFER_SIZE} bytes at a time.
+     */
+    private static void transfer(FileChannel fc, long from, long to, OutputStream os, ByteBuffer buffer) throws IOException {
+        long position = from;
+        long end = to + 1;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = fc.read(buffer, position);
+            if (read <= 0) {
+                throw new IOException("Unexpected end of file at position " + position);
+            }
+            os.write(buffer.array(), 0, read);
+            position += read;
+        }
+    }
+
+    private static final class ResolvedFile {
+        private final URI uri;
+        private final long expiration;
+
+        private ResolvedFile(URI uri, long expiration) {
+            this.uri = uri;
+            this.expiration = expiration;
+        }
+    }
+
 }
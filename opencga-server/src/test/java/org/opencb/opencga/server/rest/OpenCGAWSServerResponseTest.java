@@ -0,0 +1,92 @@
+package org.opencb.opencga.server.rest;
+
+import org.junit.Test;
+import org.opencb.commons.datastore.core.Event;
+import org.opencb.opencga.core.response.OpenCGAResult;
+import org.opencb.opencga.core.response.RestResponse;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class OpenCGAWSServerResponseTest {
+
+    @Test
+    public void testSmallResponseBuffered() throws Exception {
+        Object entity = OpenCGAWSServer.createJsonEntity(response(Collections.singletonList("a")), false);
+        assertTrue(entity instanceof byte[]);
+        assertTrue(new String((byte[]) entity).contains("\"results\":[\"a\"]"));
+    }
+
+    @Test
+    public void testGzipResponse() throws Exception {
+        Object entity = OpenCGAWSServer.createJsonEntity(response(Collections.singletonList("a")), true);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream((byte[]) entity))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                os.write(buffer, 0, read);
+            }
+        }
+        String json = os.toString();
+        assertTrue(json.contains("\"results\":[\"a\"]"));
+    }
+
+    @Test
+    public void testLargeResponseStreamed() throws Exception {
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < OpenCGAWSServer.STREAM_MIN_RESULTS; i++) {
+            results.add("r" + i);
+        }
+        Object entity = OpenCGAWSServer.createJsonEntity(response(results), false);
+        assertTrue(entity instanceof StreamingOutput);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ((StreamingOutput) entity).write(os);
+        assertTrue(os.toString().contains("\"r999\""));
+    }
+
+    @Test
+    public void testErrorResponseBuffered() throws Exception {
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < OpenCGAWSServer.STREAM_MIN_RESULTS; i++) {
+            results.add("r" + i);
+        }
+        RestResponse<Object> response = response(results);
+        response.getEvents().add(new Event(Event.Type.ERROR, "error"));
+        assertTrue(OpenCGAWSServer.createJsonEntity(response, false) instanceof byte[]);
+    }
+
+    @Test
+    public void testSerializationError() throws Exception {
+        // The error is thrown before building the response, so it can be reported with an error status
+        try {
+            OpenCGAWSServer.createJsonEntity(response(Collections.singletonList(new FailingBean())), false);
+            fail("Expected serialization error");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Unable to serialize"));
+        }
+    }
+
+    private RestResponse<Object> response(List<?> results) {
+        RestResponse<Object> response = new RestResponse<>();
+        response.setEvents(new ArrayList<>());
+        response.setResponses(Collections.singletonList(
+                new OpenCGAResult<>(0, new ArrayList<>(), results.size(), new ArrayList<>(results), results.size())));
+        return response;
+    }
+
+    public static class FailingBean {
+        public String getValue() {
+            throw new IllegalStateException("Unable to serialize");
+        }
+    }
+}
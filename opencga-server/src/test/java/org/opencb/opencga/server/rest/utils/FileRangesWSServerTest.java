@@ -0,0 +1,34 @@
+package org.opencb.opencga.server.rest.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileRangesWSServerTest {
+
+    @Test
+    public void testParseRanges() {
+        List<long[]> ranges = FileRangesWSServer.parseRanges("bytes=0-99, 200-299,-50,950-,2000-3000", 1000);
+        assertEquals(4, ranges.size());
+        assertArrayEquals(new long[]{0, 99}, ranges.get(0));
+        assertArrayEquals(new long[]{200, 299}, ranges.get(1));
+        assertArrayEquals(new long[]{950, 999}, ranges.get(2));
+        assertArrayEquals(new long[]{950, 999}, ranges.get(3));
+
+        // Not satisfiable
+        assertTrue(FileRangesWSServer.parseRanges("bytes=1000-1100", 1000).isEmpty());
+    }
+
+    @Test
+    public void testParseRangesMaxLength() {
+        List<long[]> ranges = FileRangesWSServer.parseRanges("bytes=10-", Long.MAX_VALUE);
+        assertArrayEquals(new long[]{10, 10 + FileRangesWSServer.MAX_RANGE_LENGTH - 1}, ranges.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseRangesWrongUnit() {
+        FileRangesWSServer.parseRanges("lines=0-10", 1000);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.util.*;
+
+/**
+ * Synthetic in-memory fixtures for the benchmarks. Uses a fixed seed, so all runs use the same data.
+ */
+public final class BenchmarkFixtures {
+
+    public static final String CHROMOSOME = "1";
+    public static final String STUDY = "S_1";
+    public static final long SEED = 42;
+
+    private static final String[] BASES = {"A", "C", "G", "T"};
+    private static final String[] GENOTYPES = {"0/0", "0/0", "0/1", "0/1", "1/1", "./."};
+    private static final String[][] CONSEQUENCE_TYPES = {
+            {"SO:0001583", "missense_variant"},
+            {"SO:0001587", "stop_gained"},
+            {"SO:0001819", "synonymous_variant"},
+            {"SO:0001627", "intron_variant"},
+            {"SO:0001632", "downstream_gene_variant"},
+    };
+    private static final String[] BIOTYPES = {"protein_coding", "nonsense_mediated_decay", "lncRNA", "miRNA"};
+
+    private BenchmarkFixtures() {
+    }
+
+    public static List<String> sampleNames(int numSamples) {
+        List<String> samples = new ArrayList<>(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            samples.add("SAMPLE_" + i);
+        }
+        return samples;
+    }
+
+    /**
+     * Sorted variants within the first sample index batch of the chromosome. 10% of them are indels.
+     *
+     * @param random      Random
+     * @param numVariants Number of variants
+     * @return List of variants
+     */
+    public static List<Variant> variants(Random random, int numVariants) {
+        List<Variant> variants = new ArrayList<>(numVariants);
+        int step = Math.max(1, 900_000 / numVariants);
+        int position = 1;
+        for (int i = 0; i < numVariants; i++) {
+            position += 1 + random.nextInt(step);
+            String reference = BASES[random.nextInt(BASES.length)];
+            String alternate = BASES[(Arrays.asList(BASES).indexOf(reference) + 1 + random.nextInt(3)) % BASES.length];
+            if (random.nextInt(10) == 0) {
+                alternate = reference + alternate + BASES[random.nextInt(BASES.length)];
+            }
+            variants.add(new Variant(CHROMOSOME + ":" + position + ":" + reference + ":" + alternate));
+        }
+        return variants;
+    }
+
+    /**
+     * Add one study with random genotypes to each variant.
+     *
+     * @param random   Random
+     * @param variants Variants
+     * @param samples  Sample names
+     */
+    public static void addGenotypes(Random random, List<Variant> variants, List<String> samples) {
+        LinkedHashMap<String, Integer> samplesPosition = new LinkedHashMap<>();
+        for (String sample : samples) {
+            samplesPosition.put(sample, samplesPosition.size());
+        }
+        for (Variant variant : variants) {
+            StudyEntry studyEntry = new StudyEntry(STUDY, Collections.emptyList(), Collections.singletonList("GT"));
+            studyEntry.setSortedSamplesPosition(samplesPosition);
+            List<List<String>> samplesData = new ArrayList<>(samples.size());
+            for (int i = 0; i < samples.size(); i++) {
+                samplesData.add(Collections.singletonList(GENOTYPES[random.nextInt(GENOTYPES.length)]));
+            }
+            studyEntry.setSamplesData(samplesData);
+            variant.setStudies(Collections.singletonList(studyEntry));
+        }
+    }
+
+    /**
+     * Random annotation with one to three consequence types.
+     *
+     * @param random        Random
+     * @param variant       Variant
+     * @param missenseRatio Ratio of variants with a protein coding missense variant
+     * @return Variant annotation
+     */
+    public static VariantAnnotation annotation(Random random, Variant variant, double missenseRatio) {
+        VariantAnnotation annotation = new VariantAnnotation();
+        annotation.setChromosome(variant.getChromosome());
+        annotation.setStart(variant.getStart());
+        annotation.setEnd(variant.getEnd());
+        annotation.setReference(variant.getReference());
+        annotation.setAlternate(variant.getAlternate());
+        List<ConsequenceType> cts = new ArrayList<>(3);
+        if (random.nextDouble() < missenseRatio) {
+            cts.add(consequenceType("GENE_" + random.nextInt(1000), CONSEQUENCE_TYPES[0], BIOTYPES[0]));
+        }
+        int numCts = 1 + random.nextInt(2);
+        for (int i = 0; i < numCts; i++) {
+            // Skip missense_variant
+            String[] ct = CONSEQUENCE_TYPES[1 + random.nextInt(CONSEQUENCE_TYPES.length - 1)];
+            cts.add(consequenceType("GENE_" + random.nextInt(1000), ct, BIOTYPES[1 + random.nextInt(BIOTYPES.length - 1)]));
+        }
+        annotation.setConsequenceTypes(cts);
+        return annotation;
+    }
+
+    private static ConsequenceType consequenceType(String gene, String[] so, String biotype) {
+        ConsequenceType ct = new ConsequenceType();
+        ct.setGeneName(gene);
+        ct.setEnsemblGeneId(gene);
+        ct.setEnsemblTranscriptId(gene + "_T");
+        ct.setBiotype(biotype);
+        ct.setTranscriptAnnotationFlags(Collections.singletonList("basic"));
+        ct.setExonOverlap(Collections.emptyList());
+        ct.setSequenceOntologyTerms(Collections.singletonList(new SequenceOntologyTerm(so[0], so[1])));
+        return ct;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.opencga.storage.core.io.bit.BitInputStream;
+import org.opencb.opencga.storage.core.io.bit.BitOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitStreamBenchmark {
+
+    @Param({"10000"})
+    private int numValues;
+
+    @Param({"2", "5"})
+    private int bitLength;
+
+    private int[] values;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        values = new int[numValues];
+        BitOutputStream outputStream = new BitOutputStream();
+        for (int i = 0; i < numValues; i++) {
+            values[i] = random.nextInt(1 << bitLength);
+            outputStream.write(values[i], bitLength);
+        }
+        encoded = outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] write() {
+        BitOutputStream outputStream = new BitOutputStream();
+        for (int value : values) {
+            outputStream.write(value, bitLength);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) {
+        BitInputStream inputStream = new BitInputStream(encoded);
+        for (int i = 0; i < numValues; i++) {
+            bh.consume(inputStream.readByte(bitLength));
+        }
+    }
+
+    @Benchmark
+    public int skip() {
+        // Skip all values but one of every 64
+        BitInputStream inputStream = new BitInputStream(encoded);
+        int sum = 0;
+        for (int i = 0; i + Long.SIZE <= numValues; i += Long.SIZE) {
+            sum += inputStream.readByte(bitLength);
+            inputStream.skip((Long.SIZE - 1) * bitLength);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.bson.Document;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryFields;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToSamplesConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantStatsConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion between Variant and the MongoDB Document model, without any MongoDB server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentToVariantConverterBenchmark {
+
+    @Param({"100"})
+    private int numVariants;
+
+    @Param({"10", "500"})
+    private int numSamples;
+
+    private DocumentToVariantConverter converter;
+    private List<Variant> variants;
+    private List<Document> documents;
+
+    @Setup
+    public void setup() throws StorageEngineException {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager
+                = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = metadataManager.createStudy(BenchmarkFixtures.STUDY).getId();
+        metadataManager.updateStudyMetadata(studyId, studyMetadata -> {
+            studyMetadata.getAttributes().put(MongoDBVariantStorageOptions.DEFAULT_GENOTYPE.key(), "0/0");
+            return studyMetadata;
+        });
+        List<String> samples = BenchmarkFixtures.sampleNames(numSamples);
+        int fileId = metadataManager.registerFile(studyId, "file.vcf", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+        List<Integer> sampleIds = new ArrayList<>(metadataManager.getSampleIdsFromFileId(studyId, fileId));
+
+        converter = new DocumentToVariantConverter(
+                new DocumentToStudyVariantEntryConverter(true,
+                        new DocumentToSamplesConverter(metadataManager,
+                                new VariantQueryFields(studyMetadata, sampleIds, Collections.singletonList(fileId)))),
+                new DocumentToVariantStatsConverter());
+
+        Random random = new Random(BenchmarkFixtures.SEED);
+        variants = BenchmarkFixtures.variants(random, numVariants);
+        BenchmarkFixtures.addGenotypes(random, variants, samples);
+        documents = new ArrayList<>(numVariants);
+        for (Variant variant : variants) {
+            // Use internal ids for study and file
+            StudyEntry syntheticStudy = variant.getStudies().get(0);
+            StudyEntry studyEntry = new StudyEntry(String.valueOf(fileId), String.valueOf(studyId));
+            studyEntry.getFile(String.valueOf(fileId)).getAttributes().put("QUAL", "50");
+            studyEntry.setFormat(syntheticStudy.getFormat());
+            studyEntry.setSortedSamplesPosition(new LinkedHashMap<>(syntheticStudy.getSamplesPosition()));
+            studyEntry.setSamplesData(syntheticStudy.getSamplesData());
+            variant.setStudies(Collections.singletonList(studyEntry));
+            documents.add(converter.convertToStorageType(variant));
+        }
+    }
+
+    @Benchmark
+    public void toDocument(Blackhole bh) {
+        for (Variant variant : variants) {
+            bh.consume(converter.convertToStorageType(variant));
+        }
+    }
+
+    @Benchmark
+    public void toVariant(Blackhole bh) {
+        for (Document document : documents) {
+            bh.consume(converter.convertToDataModelType(document));
+        }
+    }
+
+    @Benchmark
+    public void roundTrip(Blackhole bh) {
+        for (Variant variant : variants) {
+            bh.consume(converter.convertToDataModelType(converter.convertToStorageType(variant)));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Put;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexPutBuilder;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexConfiguration;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexEntry;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexEntryFilter;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexVariantBiConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter.*;
+
+/**
+ * Sample index encoding, decoding and filtering over one synthetic sample index entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleIndexBenchmark {
+
+    private static final String GT = "0/1";
+    private static final byte[] FAMILY = new byte[]{'0'};
+
+    @Param({"5000"})
+    private int numVariants;
+
+    @Param({"0.01", "0.5"})
+    private double missenseRatio;
+
+    private final SampleIndexVariantBiConverter converter = new SampleIndexVariantBiConverter();
+    private final SampleIndexConfiguration configuration = SampleIndexConfiguration.defaultConfiguration();
+    private AnnotationIndexConverter annotationIndexConverter;
+
+    private List<Variant> variants;
+    private List<VariantAnnotation> annotations;
+    private byte[] variantsBytes;
+    private Put annotationPut;
+    private SingleSampleIndexQuery missenseQuery;
+    private SingleSampleIndexQuery emptyQuery;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        variants = BenchmarkFixtures.variants(random, numVariants);
+        variantsBytes = converter.toBytes(variants);
+
+        annotationIndexConverter = new AnnotationIndexConverter(configuration);
+        annotations = new ArrayList<>(numVariants);
+        AnnotationIndexPutBuilder putBuilder = new AnnotationIndexPutBuilder(numVariants);
+        for (Variant variant : variants) {
+            VariantAnnotation annotation = BenchmarkFixtures.annotation(random, variant, missenseRatio);
+            annotations.add(annotation);
+            putBuilder.add(annotationIndexConverter.convert(annotation));
+        }
+        annotationPut = putBuilder.buildAndReset(new Put(SampleIndexSchema.toRowKey(1, BenchmarkFixtures.CHROMOSOME, 0)), GT, FAMILY);
+
+        byte summaryMask = PROTEIN_CODING_MASK | MISSENSE_VARIANT_MASK;
+        missenseQuery = buildQuery(new SampleAnnotationIndexQuery(new byte[]{summaryMask, summaryMask},
+                CT_MISSENSE_VARIANT_MASK, BT_PROTEIN_CODING_MASK, (byte) 0,
+                VariantQueryUtils.QueryOperation.AND, Collections.emptyList(), true));
+        emptyQuery = buildQuery(new SampleAnnotationIndexQuery());
+    }
+
+    @Benchmark
+    public byte[] encodeVariants() {
+        return converter.toBytes(variants);
+    }
+
+    @Benchmark
+    public List<Variant> decodeVariants() {
+        return converter.toVariants(BenchmarkFixtures.CHROMOSOME, 0, variantsBytes, 0, variantsBytes.length);
+    }
+
+    @Benchmark
+    public void convertAnnotationIndex(Blackhole bh) {
+        for (VariantAnnotation annotation : annotations) {
+            bh.consume(annotationIndexConverter.convert(annotation));
+        }
+    }
+
+    @Benchmark
+    public Collection<Variant> filterNoAnnotation() {
+        return new SampleIndexEntryFilter(emptyQuery).filter(buildEntry());
+    }
+
+    @Benchmark
+    public Collection<Variant> filterMissense() {
+        return new SampleIndexEntryFilter(missenseQuery).filter(buildEntry());
+    }
+
+    @Benchmark
+    public int filterAndCountMissense() {
+        return new SampleIndexEntryFilter(missenseQuery).filterAndCount(buildEntry());
+    }
+
+    private SampleIndexEntry buildEntry() {
+        SampleIndexEntry entry = new SampleIndexEntry(1, BenchmarkFixtures.CHROMOSOME, 0, configuration);
+        entry.getGtEntry(GT)
+                .setCount(numVariants)
+                .setVariants(variantsBytes)
+                .setAnnotationIndex(getValue(SampleIndexSchema.toAnnotationIndexColumn(GT)))
+                .setConsequenceTypeIndex(getValue(SampleIndexSchema.toAnnotationConsequenceTypeIndexColumn(GT)))
+                .setBiotypeIndex(getValue(SampleIndexSchema.toAnnotationBiotypeIndexColumn(GT)))
+                .setCtBtIndex(getValue(SampleIndexSchema.toAnnotationCtBtIndexColumn(GT)))
+                .setPopulationFrequencyIndex(getValue(SampleIndexSchema.toAnnotationPopFreqIndexColumn(GT)));
+        return entry;
+    }
+
+    private byte[] getValue(byte[] qualifier) {
+        List<Cell> cells = annotationPut.get(FAMILY, qualifier);
+        return cells.isEmpty() ? null : CellUtil.cloneValue(cells.get(0));
+    }
+
+    private static SingleSampleIndexQuery buildQuery(SampleAnnotationIndexQuery annotationIndexQuery) {
+        return new SampleIndexQuery(Collections.emptyList(), null, BenchmarkFixtures.STUDY,
+                Collections.singletonMap("SAMPLE_1", Collections.singletonList(GT)), null,
+                Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+                annotationIndexQuery, Collections.emptySet(), false, VariantQueryUtils.QueryOperation.AND)
+                .forSample("SAMPLE_1");
+    }
+}
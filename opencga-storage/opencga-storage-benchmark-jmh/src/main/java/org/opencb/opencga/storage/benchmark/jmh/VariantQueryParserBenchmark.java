@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query pre-processing with an in-memory metadata manager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantQueryParserBenchmark {
+
+    @Param({"100", "2000"})
+    private int numSamples;
+
+    private VariantQueryParser parser;
+    private Query simpleQuery;
+    private Query sampleQuery;
+    private Query annotationQuery;
+
+    @Setup
+    public void setup() throws StorageEngineException {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager
+                = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = metadataManager.createStudy(BenchmarkFixtures.STUDY).getId();
+        List<String> samples = BenchmarkFixtures.sampleNames(numSamples);
+        int fileId = metadataManager.registerFile(studyId, "file.vcf", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+
+        parser = new VariantQueryParser(null, metadataManager);
+
+        simpleQuery = new Query(VariantQueryParam.REGION.key(), "1:1000-2000000");
+        sampleQuery = new Query(VariantQueryParam.STUDY.key(), BenchmarkFixtures.STUDY)
+                .append(VariantQueryParam.GENOTYPE.key(), samples.get(0) + ":0/1,1/1;" + samples.get(1) + ":0/0")
+                .append(VariantQueryParam.INCLUDE_SAMPLE.key(), samples.subList(0, Math.min(10, samples.size())));
+        annotationQuery = new Query(VariantQueryParam.STUDY.key(), BenchmarkFixtures.STUDY)
+                .append(VariantQueryParam.SAMPLE.key(), samples.get(0))
+                .append(VariantQueryParam.TYPE.key(), "SNV,INDEL")
+                .append(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key(), "lof,missense_variant")
+                .append(VariantQueryParam.ANNOT_BIOTYPE.key(), "protein_coding")
+                .append(VariantQueryParam.ANNOT_CLINICAL_SIGNIFICANCE.key(), "pathogenic,likely_pathogenic");
+    }
+
+    @Benchmark
+    public Query preProcessSimpleQuery() {
+        return parser.preProcessQuery(simpleQuery, new QueryOptions());
+    }
+
+    @Benchmark
+    public Query preProcessSampleQuery() {
+        return parser.preProcessQuery(sampleQuery, new QueryOptions());
+    }
+
+    @Benchmark
+    public Query preProcessAnnotationQuery() {
+        return parser.preProcessQuery(annotationQuery, new QueryOptions());
+    }
+}
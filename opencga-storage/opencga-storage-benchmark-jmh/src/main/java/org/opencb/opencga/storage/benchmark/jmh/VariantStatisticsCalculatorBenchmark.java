@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.stats.VariantStatisticsCalculator;
+import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cohort stats calculation over a batch of variants with random genotypes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantStatisticsCalculatorBenchmark {
+
+    @Param({"1000"})
+    private int numVariants;
+
+    @Param({"100", "1000"})
+    private int numSamples;
+
+    @Param({"1", "4"})
+    private int numCohorts;
+
+    private List<Variant> variants;
+    private Map<String, Set<String>> cohorts;
+    private VariantStatisticsCalculator calculator;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        List<String> samples = BenchmarkFixtures.sampleNames(numSamples);
+        variants = BenchmarkFixtures.variants(random, numVariants);
+        BenchmarkFixtures.addGenotypes(random, variants, samples);
+
+        cohorts = new LinkedHashMap<>();
+        cohorts.put("ALL", new HashSet<>(samples));
+        for (int i = 1; i < numCohorts; i++) {
+            Set<String> cohort = new HashSet<>();
+            for (String sample : samples) {
+                if (random.nextInt(numCohorts) == 0) {
+                    cohort.add(sample);
+                }
+            }
+            cohorts.put("COHORT_" + i, cohort);
+        }
+        calculator = new VariantStatisticsCalculator(true);
+    }
+
+    @Benchmark
+    public List<VariantStatsWrapper> calculateBatch() {
+        return calculator.calculateBatch(variants, BenchmarkFixtures.STUDY, cohorts);
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.alignment.local;
+
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import org.opencb.biodata.models.alignment.RegionCoverage;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.tools.alignment.BamManager;
+import org.opencb.commons.ProgressLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Precomputed multi-resolution coverage for a BAM file.
+ *
+ * The coverage is stored in a binary sidecar file next to the BAM file, split in tiles of {@link #TILE_SIZE} bases.
+ * Each tile contains the mean, min and max coverage for bins of {@link #LEVELS} sizes (zoom levels).
+ * Tiles are computed from the BAM file in background the first time they are requested, and read with memory mapping
+ * once they are ready. Mapped tiles are kept while the store is open. Queries are served from the largest zoom level
+ * aligned with the requested windows. Bins partially covered by a window are weighted by the number of bases in the window.
+ *
+ * Stores are reference counted. Each call to {@link #get(Path)} must be followed by a call to {@link #close()}.
+ * The file is closed once the store is evicted from the cache of open stores and all the references are released.
+ *
+ * Sidecar layout:
+ * <pre>
+ *  MAGIC | BAM_SIZE (long) | BAM_LAST_MODIFIED (long) | NUM_TILES (int) | TILE_STATUS (byte[NUM_TILES]) | padding | TILES
+ *  TILE : for each level : MEAN (float[bins]) | MIN (float[bins]) | MAX (float[bins])
+ * </pre>
+ */
+public class CoverageTileStore implements Closeable {
+
+    public static final String TILES_SUFFIX = ".coverage.tiles";
+    public static final int TILE_SIZE = 1 << 20;
+    public static final int[] LEVELS = {64, 1024, 16384};
+    private static final int MAX_OPEN_STORES = 32;
+    private static final int COMPUTE_CHUNK_SIZE = 1 << 16;
+
+    private static final byte[] MAGIC = "OCGACOV1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_FIXED_LENGTH = MAGIC.length + Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int PAGE_SIZE = 4096;
+    private static final byte STATUS_READY = 1;
+    private static final int TILE_BYTES;
+    private static final int[] LEVEL_OFFSETS;
+
+    private static final Map<Path, CoverageTileStore> OPEN_STORES = new LinkedHashMap<Path, CoverageTileStore>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, CoverageTileStore> eldest) {
+            if (size() > MAX_OPEN_STORES) {
+                // Release the reference from the cache. The store is closed once all the readers are finished
+                eldest.getValue().close();
+                return true;
+            }
+            return false;
+        }
+    };
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "coverage-tiles");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static Logger logger = LoggerFactory.getLogger(CoverageTileStore.class);
+
+    private final Path bamPath;
+    private final FileChannel channel;
+    private final Map<String, Integer> chromosomeFirstTile = new HashMap<>();
+    private final Map<String, Integer> chromosomeLength = new HashMap<>();
+    private final int numTiles;
+    private final long dataOffset;
+    private final Set<Integer> pendingTiles = Collections.synchronizedSet(new HashSet<>());
+    private final Map<Integer, FloatBuffer> mappedTiles = new ConcurrentHashMap<>();
+    private int references = 1;
+    private volatile boolean closed = false;
+
+    static {
+        LEVEL_OFFSETS = new int[LEVELS.length];
+        int offset = 0;
+        for (int i = 0; i < LEVELS.length; i++) {
+            LEVEL_OFFSETS[i] = offset;
+            // mean, min and max
+            offset += 3 * numBins(i) * Float.BYTES;
+        }
+        TILE_BYTES = offset;
+    }
+
+    CoverageTileStore(Path bamPath, Path tilesPath) throws IOException {
+        this.bamPath = bamPath;
+        int tiles = 0;
+        try (SamReader reader = SamReaderFactory.makeDefault().open(bamPath.toFile())) {
+            for (SAMSequenceRecord sequence : reader.getFileHeader().getSequenceDictionary().getSequences()) {
+                chromosomeFirstTile.put(sequence.getSequenceName(), tiles);
+                chromosomeLength.put(sequence.getSequenceName(), sequence.getSequenceLength());
+                tiles += (sequence.getSequenceLength() + TILE_SIZE - 1) / TILE_SIZE;
+            }
+        }
+        numTiles = tiles;
+        dataOffset = ((HEADER_FIXED_LENGTH + numTiles) / PAGE_SIZE + 1) * PAGE_SIZE;
+
+        long bamSize = Files.size(bamPath);
+        long bamLastModified = Files.getLastModifiedTime(bamPath).toMillis();
+        channel = FileChannel.open(tilesPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_FIXED_LENGTH);
+        channel.read(header, 0);
+        header.flip();
+        boolean valid = header.remaining() == HEADER_FIXED_LENGTH;
+        if (valid) {
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            valid = Arrays.equals(magic, MAGIC)
+                    && header.getLong() == bamSize
+                    && header.getLong() == bamLastModified
+                    && header.getInt() == numTiles;
+        }
+        if (!valid) {
+            // New or outdated sidecar file. Reset all tiles
+            logger.info("Creating coverage tiles file {}", tilesPath);
+            channel.truncate(0);
+            header = ByteBuffer.allocate(HEADER_FIXED_LENGTH + numTiles);
+            header.put(MAGIC).putLong(bamSize).putLong(bamLastModified).putInt(numTiles);
+            header.rewind();
+            channel.write(header, 0);
+        }
+    }
+
+    /**
+     * Get the store for the given BAM file, from a cache of open stores.
+     * The returned store must be closed to release the reference.
+     *
+     * @param bamPath BAM file
+     * @return The coverage store, or null if the sidecar file can not be created.
+     */
+    public static CoverageTileStore get(Path bamPath) {
+        Path tilesPath = Paths.get(bamPath.toString() + TILES_SUFFIX);
+        synchronized (OPEN_STORES) {
+            CoverageTileStore store = OPEN_STORES.get(bamPath);
+            if (store == null) {
+                if (!Files.isWritable(tilesPath) && !Files.isWritable(bamPath.toAbsolutePath().getParent())) {
+                    return null;
+                }
+                try {
+                    store = new CoverageTileStore(bamPath, tilesPath);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Unable to open coverage tiles for " + bamPath, e);
+                    return null;
+                }
+                OPEN_STORES.put(bamPath, store);
+            }
+            // Stores in the cache always hold the reference from the cache, so they can not be closed yet
+            store.retain();
+            return store;
+        }
+    }
+
+    /**
+     * Get the coverage of a region. Missing tiles are computed in background.
+     *
+     * @param region     Region
+     * @param windowSize Window size
+     * @return The mean coverage of the region, or null if the coverage can not be served from the tiles yet.
+     * @throws IOException on error reading the tiles
+     */
+    public RegionCoverage coverage(Region region, int windowSize) throws IOException {
+        float[][] windows = windows(region, windowSize, true);
+        if (windows == null) {
+            return null;
+        }
+        RegionCoverage regionCoverage = new RegionCoverage();
+        regionCoverage.setChromosome(region.getChromosome());
+        regionCoverage.setStart(region.getStart());
+        regionCoverage.setEnd(region.getEnd());
+        regionCoverage.setWindowSize(windowSize);
+        regionCoverage.setValues(windows[0]);
+        return regionCoverage;
+    }
+
+    /**
+     * Get the mean, min and max coverage for windows of a region.
+     *
+     * @param region     Region
+     * @param windowSize Window size. Should be at least the smallest level, {@code LEVELS[0]}. Windows not aligned with the smallest
+     *                   level are approximated, weighting the partially covered bins by the number of bases in the window.
+     *                   The min and max of partially covered bins include the bases out of the window
+     * @param background Compute missing tiles in background. Otherwise, compute them in the current thread.
+     * @return Three arrays with the mean, min and max coverage of each window, or null if there are missing tiles
+     * @throws IOException on error reading the tiles
+     */
+    float[][] windows(Region region, int windowSize, boolean background) throws IOException {
+        Integer firstTile = chromosomeFirstTile.get(region.getChromosome());
+        if (firstTile == null || windowSize < LEVELS[0] || closed) {
+            return null;
+        }
+        int start = Math.max(1, region.getStart());
+        int end = Math.min(region.getEnd(), chromosomeLength.get(region.getChromosome()));
+        if (start > end) {
+            return null;
+        }
+        // Largest level aligned with the windows. Otherwise, use the smallest level
+        int level = LEVELS.length - 1;
+        while (level > 0 && (LEVELS[level] > windowSize || windowSize % LEVELS[level] != 0 || (start - 1) % LEVELS[level] != 0)) {
+            level--;
+        }
+
+        // Check that all the tiles are ready
+        int fromTile = (start - 1) / TILE_SIZE;
+        int toTile = (end - 1) / TILE_SIZE;
+        boolean missing = false;
+        for (int tile = fromTile; tile <= toTile; tile++) {
+            if (!isReady(firstTile + tile)) {
+                missing = true;
+                if (background) {
+                    computeInBackground(region.getChromosome(), tile);
+                } else {
+                    computeTile(region.getChromosome(), tile);
+                }
+            }
+        }
+        if (missing && background) {
+            return null;
+        }
+
+        int numWindows = (end - start) / windowSize + 1;
+        float[] mean = new float[numWindows];
+        float[] min = new float[numWindows];
+        float[] max = new float[numWindows];
+        int binSize = LEVELS[level];
+        int bins = numBins(level);
+        int levelOffset = LEVEL_OFFSETS[level] / Float.BYTES;
+        FloatBuffer tileBuffer = null;
+        int currentTile = -1;
+        for (int w = 0; w < numWindows; w++) {
+            int windowStart = start + w * windowSize;
+            int windowEnd = Math.min(end, windowStart + windowSize - 1);
+            int fromBin = (windowStart - 1) / binSize;
+            int toBin = (windowEnd - 1) / binSize;
+            double sum = 0;
+            float windowMin = Float.MAX_VALUE;
+            float windowMax = 0;
+            for (int bin = fromBin; bin <= toBin; bin++) {
+                int tile = bin / bins;
+                if (tile != currentTile) {
+                    tileBuffer = getTile(firstTile + tile);
+                    currentTile = tile;
+                }
+                int binInTile = bin % bins;
+                // Number of bases of the bin within the window
+                int overlap = Math.min(windowEnd, (bin + 1) * binSize) - Math.max(windowStart, bin * binSize + 1) + 1;
+                sum += tileBuffer.get(levelOffset + binInTile) * overlap;
+                windowMin = Math.min(windowMin, tileBuffer.get(levelOffset + bins + binInTile));
+                windowMax = Math.max(windowMax, tileBuffer.get(levelOffset + 2 * bins + binInTile));
+            }
+            mean[w] = (float) (sum / (windowEnd - windowStart + 1));
+            min[w] = windowMin;
+            max[w] = windowMax;
+        }
+        return new float[][]{mean, min, max};
+    }
+
+    /**
+     * Compute all the missing tiles in parallel, splitting the BAM file by tiles.
+     *
+     * @param numThreads Number of threads
+     * @throws IOException on error reading the BAM file or writing the tiles
+     */
+    public void computeAll(int numThreads) throws IOException {
+        List<Map.Entry<String, Integer>> tiles = new ArrayList<>(numTiles);
+        for (Map.Entry<String, Integer> entry : chromosomeLength.entrySet()) {
+            int chromosomeTiles = (entry.getValue() + TILE_SIZE - 1) / TILE_SIZE;
+            for (int tile = 0; tile < chromosomeTiles; tile++) {
+                tiles.add(new AbstractMap.SimpleEntry<>(entry.getKey(), tile));
+            }
+        }
+        ProgressLogger progressLogger = new ProgressLogger("Computing coverage tiles:", tiles.size());
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            pool.submit(() -> tiles.parallelStream().forEach(tile -> {
+                try {
+                    computeTile(tile.getKey(), tile.getValue());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                progressLogger.increment(1, () -> "up to tile " + tile.getKey() + ":" + tile.getValue());
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private boolean isReady(int tileIdx) throws IOException {
+        if (mappedTiles.containsKey(tileIdx)) {
+            return true;
+        }
+        ByteBuffer status = ByteBuffer.allocate(1);
+        channel.read(status, HEADER_FIXED_LENGTH + tileIdx);
+        return status.position() == 1 && status.get(0) == STATUS_READY;
+    }
+
+    private FloatBuffer getTile(int tileIdx) throws IOException {
+        // Ready tiles never change, so they can be mapped once and shared between queries, using only absolute reads
+        FloatBuffer tile = mappedTiles.get(tileIdx);
+        if (tile == null) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + (long) tileIdx * TILE_BYTES, TILE_BYTES);
+            tile = buffer.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            mappedTiles.put(tileIdx, tile);
+        }
+        return tile;
+    }
+
+    private void computeInBackground(String chromosome, int tile) {
+        int tileIdx = chromosomeFirstTile.get(chromosome) + tile;
+        if (pendingTiles.add(tileIdx)) {
+            if (!retain()) {
+                pendingTiles.remove(tileIdx);
+                return;
+            }
+            EXECUTOR.submit(() -> {
+                try {
+                    computeTile(chromosome, tile);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Error computing coverage tile " + chromosome + ":" + tile + " for " + bamPath, e);
+                } finally {
+                    pendingTiles.remove(tileIdx);
+                    close();
+                }
+            });
+        }
+    }
+
+    void computeTile(String chromosome, int tile) throws IOException {
+        int tileIdx = chromosomeFirstTile.get(chromosome) + tile;
+        if (closed || isReady(tileIdx)) {
+            return;
+        }
+        int tileStart = tile * TILE_SIZE + 1;
+        int tileEnd = Math.min(tileStart + TILE_SIZE - 1, chromosomeLength.get(chromosome));
+
+        // Base level from the BAM file
+        int baseBins = numBins(0);
+        float[][] base = new float[][]{new float[baseBins], new float[baseBins], new float[baseBins]};
+        Arrays.fill(base[1], Float.MAX_VALUE);
+        int[] counts = new int[baseBins];
+        BamManager bamManager = null;
+        try {
+            bamManager = new BamManager(bamPath);
+            for (int chunkStart = tileStart; chunkStart <= tileEnd; chunkStart += COMPUTE_CHUNK_SIZE) {
+                int chunkEnd = Math.min(chunkStart + COMPUTE_CHUNK_SIZE - 1, tileEnd);
+                RegionCoverage chunk = bamManager.coverage(new Region(chromosome, chunkStart, chunkEnd), 1);
+                float[] values = chunk.getValues();
+                for (int position = chunkStart; position <= chunkEnd; position++) {
+                    int i = position - chunkStart;
+                    float value = values != null && i < values.length ? values[i] : 0;
+                    int bin = (position - tileStart) / LEVELS[0];
+                    base[0][bin] += value;
+                    base[1][bin] = Math.min(base[1][bin], value);
+                    base[2][bin] = Math.max(base[2][bin], value);
+                    counts[bin]++;
+                }
+            }
+        } catch (Exception e) {
+            throw new IOException("Error reading coverage from " + bamPath, e);
+        } finally {
+            if (bamManager != null) {
+                bamManager.close();
+            }
+        }
+        for (int bin = 0; bin < baseBins; bin++) {
+            if (counts[bin] == 0) {
+                base[1][bin] = 0;
+            } else {
+                base[0][bin] /= counts[bin];
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(TILE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        FloatBuffer floatBuffer = buffer.asFloatBuffer();
+        float[][] levelValues = base;
+        for (int level = 0; level < LEVELS.length; level++) {
+            if (level > 0) {
+                levelValues = aggregate(levelValues, LEVELS[level] / LEVELS[level - 1]);
+            }
+            for (float[] values : levelValues) {
+                floatBuffer.put(values);
+            }
+        }
+
+        // Write tile data before marking the tile as ready
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            channel.write(buffer, dataOffset + (long) tileIdx * TILE_BYTES);
+            channel.force(false);
+            channel.write(ByteBuffer.wrap(new byte[]{STATUS_READY}), HEADER_FIXED_LENGTH + tileIdx);
+        }
+    }
+
+    /**
+     * Aggregate the mean, min and max values from one level into the next level.
+     *
+     * @param values Mean, min and max values
+     * @param factor Number of bins to merge
+     * @return Aggregated mean, min and max values
+     */
+    static float[][] aggregate(float[][] values, int factor) {
+        int bins = values[0].length / factor;
+        float[][] aggregated = new float[][]{new float[bins], new float[bins], new float[bins]};
+        for (int bin = 0; bin < bins; bin++) {
+            float sum = 0;
+            float min = Float.MAX_VALUE;
+            float max = 0;
+            for (int i = bin * factor; i < (bin + 1) * factor; i++) {
+                sum += values[0][i];
+                min = Math.min(min, values[1][i]);
+                max = Math.max(max, values[2][i]);
+            }
+            aggregated[0][bin] = sum / factor;
+            aggregated[1][bin] = min;
+            aggregated[2][bin] = max;
+        }
+        return aggregated;
+    }
+
+    private static int numBins(int level) {
+        return TILE_SIZE / LEVELS[level];
+    }
+
+    private synchronized boolean retain() {
+        if (closed) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+    /**
+     * Release a reference to the store. The file is closed when there are no more references.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        references--;
+        if (references == 0) {
+            closed = true;
+            mappedTiles.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Error closing coverage tiles for " + bamPath, e);
+            }
+        }
+    }
+}
@@ -40,6 +40,8 @@ import org.opencb.opencga.storage.core.alignment.AlignmentDBAdaptor;
 import org.opencb.opencga.storage.core.alignment.iterators.AlignmentIterator;
 import org.opencb.opencga.storage.core.alignment.iterators.ProtoAlignmentIterator;
 import org.opencb.opencga.storage.core.alignment.iterators.SamRecordAlignmentIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -67,6 +69,8 @@ public class LocalAlignmentDBAdaptor implements AlignmentDBAdaptor {
     private static final String COVERAGE_SUFFIX = ".coverage";
     private static final String COVERAGE_DATABASE_NAME = "coverage.db";
 
+    private static Logger logger = LoggerFactory.getLogger(LocalAlignmentDBAdaptor.class);
+
 
     public LocalAlignmentDBAdaptor() {
         this(DEFAULT_CHUNK_SIZE);
@@ -160,9 +164,12 @@ public class LocalAlignmentDBAdaptor implements AlignmentDBAdaptor {
         if (path.toString().endsWith("bw") || path.toString().endsWith("bigwig")) {
             regionCoverage = BamUtils.getCoverageFromBigWig(region, windowSize, path);
         } else {
-            BamManager bamManager = new BamManager(path);
-            regionCoverage = bamManager.coverage(region, windowSize);
-            bamManager.close();
+            regionCoverage = getCoverageFromTiles(path, region, windowSize);
+            if (regionCoverage == null) {
+                BamManager bamManager = new BamManager(path);
+                regionCoverage = bamManager.coverage(region, windowSize);
+                bamManager.close();
+            }
         }
 
         // If necessary, filter by coverage range and remove empty regions
@@ -186,6 +193,32 @@ public class LocalAlignmentDBAdaptor implements AlignmentDBAdaptor {
                 selectedRegions.size());
     }
 
+    /**
+     * Get the coverage from the precomputed coverage tiles. Missing tiles are computed in background.
+     *
+     * @param path       BAM file
+     * @param region     Region
+     * @param windowSize Window size
+     * @return The region coverage, or null if it can not be served from the tiles.
+     */
+    private RegionCoverage getCoverageFromTiles(Path path, Region region, int windowSize) {
+        if (windowSize < CoverageTileStore.LEVELS[0]) {
+            return null;
+        }
+        CoverageTileStore tileStore = CoverageTileStore.get(path);
+        if (tileStore == null) {
+            return null;
+        }
+        try {
+            return tileStore.coverage(region, windowSize);
+        } catch (IOException e) {
+            logger.warn("Error reading coverage tiles from " + path, e);
+            return null;
+        } finally {
+            tileStore.close();
+        }
+    }
+
     @Override
     public OpenCGAResult<Long> getTotalCounts(Path path) throws AlignmentCoverageException, IOException {
         FileUtils.checkFile(path);
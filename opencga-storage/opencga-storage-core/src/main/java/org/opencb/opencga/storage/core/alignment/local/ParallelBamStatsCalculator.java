@@ -0,0 +1,348 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.alignment.local;
+
+import htsjdk.samtools.*;
+import org.opencb.commons.ProgressLogger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Compute alignment summary statistics from a BAM file in parallel.
+ *
+ * The BAM file is split in shards of {@link #DEFAULT_SHARD_SIZE} bases of each reference sequence, plus one shard for the
+ * unplaced unmapped reads. Each shard is read with its own reader using the BAM index, and only keeps a few counters,
+ * so the memory used does not depend on the size of the file. Partial results are merged in shard order.
+ *
+ * The output follows the "SN" (summary numbers) section of samtools stats, so it can be indexed the same way.
+ */
+public class ParallelBamStatsCalculator {
+
+    public static final int DEFAULT_SHARD_SIZE = 10000000;
+    // Pairs with larger insert sizes are not considered for the insert size average, as samtools stats does
+    private static final int MAX_INSERT_SIZE = 8000;
+
+    private final Path bamPath;
+    private final int numThreads;
+    private final int shardSize;
+
+    public ParallelBamStatsCalculator(Path bamPath, int numThreads) {
+        this(bamPath, numThreads, DEFAULT_SHARD_SIZE);
+    }
+
+    public ParallelBamStatsCalculator(Path bamPath, int numThreads, int shardSize) {
+        this.bamPath = bamPath;
+        this.numThreads = numThreads;
+        this.shardSize = shardSize;
+    }
+
+    public BamStats compute() throws IOException {
+        List<QueryInterval> shards = new ArrayList<>();
+        try (SamReader reader = openReader()) {
+            if (!reader.hasIndex()) {
+                throw new IOException("Missing index for BAM file " + bamPath);
+            }
+            for (SAMSequenceRecord sequence : reader.getFileHeader().getSequenceDictionary().getSequences()) {
+                int length = sequence.getSequenceLength();
+                for (long start = 1; start <= length; start += shardSize) {
+                    int end = (int) Math.min(start + shardSize - 1, length);
+                    shards.add(new QueryInterval(sequence.getSequenceIndex(), (int) start, end));
+                }
+            }
+        }
+        // Unplaced unmapped reads
+        shards.add(null);
+
+        ProgressLogger progressLogger = new ProgressLogger("Computing alignment stats:", shards.size());
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            List<BamStats> partialStats = pool.submit(() -> shards.parallelStream()
+                    .map(shard -> {
+                        BamStats stats = computeShard(shard);
+                        progressLogger.increment(1);
+                        return stats;
+                    })
+                    .collect(Collectors.toList())).get();
+            BamStats stats = new BamStats();
+            for (BamStats partial : partialStats) {
+                stats.merge(partial);
+            }
+            return stats;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private BamStats computeShard(QueryInterval shard) {
+        BamStats stats = new BamStats();
+        try (SamReader reader = openReader();
+             SAMRecordIterator iterator = shard == null
+                     ? reader.queryUnmapped()
+                     : reader.query(new QueryInterval[]{shard}, false)) {
+            while (iterator.hasNext()) {
+                SAMRecord record = iterator.next();
+                // Count each record only in the shard where it starts
+                if (shard == null || record.getAlignmentStart() >= shard.start) {
+                    stats.add(record);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stats;
+    }
+
+    private SamReader openReader() {
+        return SamReaderFactory.makeDefault()
+                .validationStringency(ValidationStringency.SILENT)
+                .open(bamPath.toFile());
+    }
+
+    /**
+     * Mergeable alignment summary statistics.
+     */
+    public static class BamStats {
+        private long rawTotalSequences;
+        private long readsMapped;
+        private long readsMappedAndPaired;
+        private long readsUnmapped;
+        private long readsProperlyPaired;
+        private long readsPaired;
+        private long readsDuplicated;
+        private long readsMq0;
+        private long readsQcFailed;
+        private long nonPrimaryAlignments;
+        private long supplementaryAlignments;
+        private long totalLength;
+        private long totalFirstFragmentLength;
+        private long firstFragments;
+        private long totalLastFragmentLength;
+        private long lastFragments;
+        private long basesMapped;
+        private long basesMappedCigar;
+        private long mismatches;
+        private int maximumLength;
+        private long qualitySum;
+        private long qualityCount;
+        private long insertSizeCount;
+        private double insertSizeSum;
+        private double insertSizeSquareSum;
+
+        void add(SAMRecord record) {
+            if (record.isSecondaryAlignment()) {
+                nonPrimaryAlignments++;
+                return;
+            }
+            if (record.getSupplementaryAlignmentFlag()) {
+                supplementaryAlignments++;
+                return;
+            }
+            rawTotalSequences++;
+            int length = record.getReadLength();
+            totalLength += length;
+            maximumLength = Math.max(maximumLength, length);
+            if (record.getReadPairedFlag()) {
+                readsPaired++;
+                if (record.getFirstOfPairFlag()) {
+                    firstFragments++;
+                    totalFirstFragmentLength += length;
+                } else if (record.getSecondOfPairFlag()) {
+                    lastFragments++;
+                    totalLastFragmentLength += length;
+                }
+            } else {
+                firstFragments++;
+                totalFirstFragmentLength += length;
+            }
+            if (record.getReadFailsVendorQualityCheckFlag()) {
+                readsQcFailed++;
+            }
+            if (record.getDuplicateReadFlag()) {
+                readsDuplicated++;
+            }
+            for (byte quality : record.getBaseQualities()) {
+                qualitySum += quality;
+            }
+            qualityCount += record.getBaseQualities().length;
+
+            if (record.getReadUnmappedFlag()) {
+                readsUnmapped++;
+                return;
+            }
+            readsMapped++;
+            basesMapped += length;
+            if (record.getMappingQuality() == 0) {
+                readsMq0++;
+            }
+            for (CigarElement element : record.getCigar().getCigarElements()) {
+                CigarOperator operator = element.getOperator();
+                if (operator == CigarOperator.M || operator == CigarOperator.I
+                        || operator == CigarOperator.EQ || operator == CigarOperator.X) {
+                    basesMappedCigar += element.getLength();
+                }
+            }
+            Integer nm = record.getIntegerAttribute(SAMTag.NM.name());
+            if (nm != null) {
+                mismatches += nm;
+            }
+            if (record.getReadPairedFlag() && !record.getMateUnmappedFlag()) {
+                readsMappedAndPaired++;
+                if (record.getProperPairFlag()) {
+                    readsProperlyPaired++;
+                    int insertSize = record.getInferredInsertSize();
+                    // Count each pair once
+                    if (insertSize > 0 && insertSize <= MAX_INSERT_SIZE) {
+                        insertSizeCount++;
+                        insertSizeSum += insertSize;
+                        insertSizeSquareSum += (double) insertSize * insertSize;
+                    }
+                }
+            }
+        }
+
+        void merge(BamStats other) {
+            rawTotalSequences += other.rawTotalSequences;
+            readsMapped += other.readsMapped;
+            readsMappedAndPaired += other.readsMappedAndPaired;
+            readsUnmapped += other.readsUnmapped;
+            readsProperlyPaired += other.readsProperlyPaired;
+            readsPaired += other.readsPaired;
+            readsDuplicated += other.readsDuplicated;
+            readsMq0 += other.readsMq0;
+            readsQcFailed += other.readsQcFailed;
+            nonPrimaryAlignments += other.nonPrimaryAlignments;
+            supplementaryAlignments += other.supplementaryAlignments;
+            totalLength += other.totalLength;
+            totalFirstFragmentLength += other.totalFirstFragmentLength;
+            firstFragments += other.firstFragments;
+            totalLastFragmentLength += other.totalLastFragmentLength;
+            lastFragments += other.lastFragments;
+            basesMapped += other.basesMapped;
+            basesMappedCigar += other.basesMappedCigar;
+            mismatches += other.mismatches;
+            maximumLength = Math.max(maximumLength, other.maximumLength);
+            qualitySum += other.qualitySum;
+            qualityCount += other.qualityCount;
+            insertSizeCount += other.insertSizeCount;
+            insertSizeSum += other.insertSizeSum;
+            insertSizeSquareSum += other.insertSizeSquareSum;
+        }
+
+        /**
+         * Write the stats as the "SN" section of samtools stats.
+         *
+         * @param output Output file
+         * @throws IOException on error writing the file
+         */
+        public void write(Path output) throws IOException {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(output))) {
+                out.println("# This file was produced by OpenCGA parallel alignment stats");
+                out.println("# Summary Numbers. Use `grep ^SN | cut -f 2-` to extract this part.");
+                printSN(out, "raw total sequences:", rawTotalSequences);
+                printSN(out, "filtered sequences:", 0);
+                printSN(out, "sequences:", rawTotalSequences);
+                printSN(out, "1st fragments:", firstFragments);
+                printSN(out, "last fragments:", lastFragments);
+                printSN(out, "reads mapped:", readsMapped);
+                printSN(out, "reads mapped and paired:", readsMappedAndPaired);
+                printSN(out, "reads unmapped:", readsUnmapped);
+                printSN(out, "reads properly paired:", readsProperlyPaired);
+                printSN(out, "reads paired:", readsPaired);
+                printSN(out, "reads duplicated:", readsDuplicated);
+                printSN(out, "reads MQ0:", readsMq0);
+                printSN(out, "reads QC failed:", readsQcFailed);
+                printSN(out, "non-primary alignments:", nonPrimaryAlignments);
+                printSN(out, "supplementary alignments:", supplementaryAlignments);
+                printSN(out, "total length:", totalLength);
+                printSN(out, "total first fragment length:", totalFirstFragmentLength);
+                printSN(out, "total last fragment length:", totalLastFragmentLength);
+                printSN(out, "bases mapped:", basesMapped);
+                printSN(out, "bases mapped (cigar):", basesMappedCigar);
+                printSN(out, "mismatches:", mismatches);
+                printSN(out, "error rate:", String.format(Locale.ROOT, "%e", ratio(mismatches, basesMappedCigar)));
+                printSN(out, "average length:", Math.round(ratio(totalLength, rawTotalSequences)));
+                printSN(out, "average first fragment length:", Math.round(ratio(totalFirstFragmentLength, firstFragments)));
+                printSN(out, "average last fragment length:", Math.round(ratio(totalLastFragmentLength, lastFragments)));
+                printSN(out, "maximum length:", maximumLength);
+                printSN(out, "average quality:", String.format(Locale.ROOT, "%.1f", ratio(qualitySum, qualityCount)));
+                double insertSizeAverage = ratio(insertSizeSum, insertSizeCount);
+                double insertSizeVariance = ratio(insertSizeSquareSum, insertSizeCount) - insertSizeAverage * insertSizeAverage;
+                printSN(out, "insert size average:", String.format(Locale.ROOT, "%.1f", insertSizeAverage));
+                double insertSizeStandardDeviation = Math.sqrt(Math.max(0, insertSizeVariance));
+                printSN(out, "insert size standard deviation:", String.format(Locale.ROOT, "%.1f", insertSizeStandardDeviation));
+            }
+        }
+
+        private static void printSN(PrintStream out, String key, Object value) {
+            out.println("SN\t" + key + "\t" + value);
+        }
+
+        private static double ratio(double numerator, double denominator) {
+            return denominator == 0 ? 0 : numerator / denominator;
+        }
+
+        public long getRawTotalSequences() {
+            return rawTotalSequences;
+        }
+
+        public long getReadsMapped() {
+            return readsMapped;
+        }
+
+        public long getReadsUnmapped() {
+            return readsUnmapped;
+        }
+
+        public long getReadsPaired() {
+            return readsPaired;
+        }
+
+        public long getReadsDuplicated() {
+            return readsDuplicated;
+        }
+
+        public long getNonPrimaryAlignments() {
+            return nonPrimaryAlignments;
+        }
+
+        public long getTotalLength() {
+            return totalLength;
+        }
+
+        public long getBasesMappedCigar() {
+            return basesMappedCigar;
+        }
+    }
+}
@@ -96,6 +96,21 @@ public class BitInputStream {
         return result;
     }
 
+    /**
+     * Skip bits without reading them.
+     *
+     * @param length Number of bits to skip.
+     */
+    public void skip(int length) {
+        remainingBits -= length;
+        if (remainingBits < 0) {
+            throw new IllegalArgumentException();
+        }
+        int bits = bitIdx + length;
+        idx += bits / Byte.SIZE;
+        bitIdx = bits % Byte.SIZE;
+    }
+
     private static int mask(int i) {
         return (1 << i) - 1;
     }
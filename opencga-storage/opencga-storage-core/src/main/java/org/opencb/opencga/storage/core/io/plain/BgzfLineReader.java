@@ -0,0 +1,305 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.io.plain;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Line reader for BGZF compressed files.
+ *
+ * BGZF files are a concatenation of independent gzip members of at most 64KB, each one with its compressed size in the header.
+ * Raw blocks are read sequentially from the input stream, and inflated in a pool of threads. Each worker also splits its block
+ * into lines, decoding only the complete lines contained in the block. The partial lines at the beginning and the end of each
+ * block are kept as bytes, and joined in order by the consumer thread.
+ */
+public class BgzfLineReader implements Closeable {
+
+    private static final int GZIP_ID1 = 0x1f;
+    private static final int GZIP_ID2 = 0x8b;
+    private static final int GZIP_CM_DEFLATE = 8;
+    private static final int GZIP_FLG_FEXTRA = 4;
+    private static final int BGZF_SI1 = 'B';
+    private static final int BGZF_SI2 = 'C';
+    // ID1 ID2 CM FLG MTIME(4) XFL OS XLEN(2)
+    private static final int GZIP_HEADER_LENGTH = 12;
+    // CRC32(4) ISIZE(4)
+    private static final int GZIP_FOOTER_LENGTH = 8;
+    // Header + BC subfield : SI1 SI2 SLEN(2) BSIZE(2)
+    private static final int BGZF_MIN_HEADER_LENGTH = GZIP_HEADER_LENGTH + 6;
+
+    private final InputStream is;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final Charset charset;
+    private final Deque<Future<Block>> pendingBlocks = new ArrayDeque<>();
+    private final Deque<String> pendingLines = new ArrayDeque<>();
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private boolean eof = false;
+
+    public BgzfLineReader(InputStream is, int numThreads) {
+        this(is, numThreads, Charset.defaultCharset());
+    }
+
+    public BgzfLineReader(InputStream is, int numThreads, Charset charset) {
+        this.is = is;
+        this.charset = charset;
+        this.maxPendingBlocks = numThreads * 4;
+        this.executor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "bgzf-inflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check if the next bytes of the stream are the header of a BGZF block. Does not consume any byte.
+     *
+     * @param is    InputStream supporting mark/reset
+     * @return      If the stream is BGZF compressed
+     * @throws IOException on error reading from the stream
+     */
+    public static boolean isBgzf(InputStream is) throws IOException {
+        if (!is.markSupported()) {
+            throw new IllegalArgumentException("Mark not supported");
+        }
+        byte[] header = new byte[BGZF_MIN_HEADER_LENGTH];
+        is.mark(BGZF_MIN_HEADER_LENGTH);
+        try {
+            int read = readFully(is, header, 0, header.length);
+            return read == header.length
+                    && (header[0] & 0xFF) == GZIP_ID1
+                    && (header[1] & 0xFF) == GZIP_ID2
+                    && header[2] == GZIP_CM_DEFLATE
+                    && (header[3] & GZIP_FLG_FEXTRA) != 0
+                    && header[12] == BGZF_SI1
+                    && header[13] == BGZF_SI2;
+        } finally {
+            is.reset();
+        }
+    }
+
+    /**
+     * Read the next line, as {@link BufferedReader#readLine()}.
+     *
+     * @return the next line, or null if the end of the stream has been reached
+     * @throws IOException on error reading or inflating the stream
+     */
+    public String readLine() throws IOException {
+        while (pendingLines.isEmpty()) {
+            if (!nextBlock()) {
+                if (partialLine.size() > 0) {
+                    pendingLines.add(flushPartialLine());
+                } else {
+                    return null;
+                }
+            }
+        }
+        return pendingLines.poll();
+    }
+
+    private boolean nextBlock() throws IOException {
+        fillPendingBlocks();
+        Future<Block> future = pendingBlocks.poll();
+        if (future == null) {
+            return false;
+        }
+        Block block;
+        try {
+            block = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else {
+                throw new IOException(e.getCause());
+            }
+        }
+        // Submit the next raw block before joining lines, so the workers are never idle
+        fillPendingBlocks();
+
+        byte[] data = block.data;
+        if (block.lines == null) {
+            // No line break in this block
+            partialLine.write(data, 0, block.length);
+        } else {
+            partialLine.write(data, 0, block.firstLineBreak);
+            pendingLines.add(flushPartialLine());
+            pendingLines.addAll(block.lines);
+            partialLine.write(data, block.lastLineBreak + 1, block.length - block.lastLineBreak - 1);
+        }
+        return true;
+    }
+
+    private void fillPendingBlocks() throws IOException {
+        while (!eof && pendingBlocks.size() < maxPendingBlocks) {
+            byte[] rawBlock = readRawBlock();
+            if (rawBlock == null) {
+                eof = true;
+            } else {
+                pendingBlocks.add(executor.submit(() -> inflateBlock(rawBlock)));
+            }
+        }
+    }
+
+    private String flushPartialLine() {
+        byte[] bytes = partialLine.toByteArray();
+        partialLine.reset();
+        return decodeLine(bytes, 0, bytes.length);
+    }
+
+    private byte[] readRawBlock() throws IOException {
+        byte[] header = new byte[GZIP_HEADER_LENGTH];
+        int read = readFully(is, header, 0, GZIP_HEADER_LENGTH);
+        if (read == 0) {
+            return null;
+        } else if (read < GZIP_HEADER_LENGTH) {
+            throw new EOFException("Truncated BGZF block header");
+        }
+        if ((header[0] & 0xFF) != GZIP_ID1 || (header[1] & 0xFF) != GZIP_ID2 || (header[3] & GZIP_FLG_FEXTRA) == 0) {
+            throw new IOException("Invalid BGZF block header");
+        }
+        int xlen = readShort(header, 10);
+        byte[] extra = new byte[xlen];
+        if (readFully(is, extra, 0, xlen) < xlen) {
+            throw new EOFException("Truncated BGZF block header");
+        }
+        int blockSize = -1;
+        int i = 0;
+        while (i + 4 <= xlen) {
+            int slen = readShort(extra, i + 2);
+            if (extra[i] == BGZF_SI1 && extra[i + 1] == BGZF_SI2 && slen == 2) {
+                blockSize = readShort(extra, i + 4) + 1;
+                break;
+            }
+            i += 4 + slen;
+        }
+        if (blockSize < 0) {
+            throw new IOException("Missing BGZF block size");
+        }
+        // Raw block without the header. Only CDATA + CRC32 + ISIZE
+        int remaining = blockSize - GZIP_HEADER_LENGTH - xlen;
+        byte[] rawBlock = new byte[remaining];
+        if (readFully(is, rawBlock, 0, remaining) < remaining) {
+            throw new EOFException("Truncated BGZF block");
+        }
+        return rawBlock;
+    }
+
+    private Block inflateBlock(byte[] rawBlock) throws IOException {
+        int cdataLength = rawBlock.length - GZIP_FOOTER_LENGTH;
+        int isize = readInt(rawBlock, cdataLength + 4);
+        byte[] data = new byte[isize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(rawBlock, 0, cdataLength);
+            int inflated = 0;
+            while (inflated < isize) {
+                int n = inflater.inflate(data, inflated, isize - inflated);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != isize) {
+                throw new IOException("Corrupted BGZF block. Expected " + isize + " bytes, but inflated " + inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted BGZF block", e);
+        } finally {
+            inflater.end();
+        }
+        return splitLines(data, isize);
+    }
+
+    private Block splitLines(byte[] data, int length) {
+        int first = -1;
+        int last = -1;
+        List<String> lines = null;
+        for (int i = 0; i < length; i++) {
+            if (data[i] == '\n') {
+                if (first < 0) {
+                    first = i;
+                    lines = new ArrayList<>();
+                } else {
+                    lines.add(decodeLine(data, last + 1, i - last - 1));
+                }
+                last = i;
+            }
+        }
+        return new Block(data, length, first, last, lines);
+    }
+
+    private String decodeLine(byte[] data, int offset, int length) {
+        if (length > 0 && data[offset + length - 1] == '\r') {
+            length--;
+        }
+        return new String(data, offset, length, charset);
+    }
+
+    private static int readFully(InputStream is, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = is.read(buffer, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return readShort(bytes, offset) | readShort(bytes, offset + 2) << 16;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        is.close();
+    }
+
+    private static final class Block {
+        private final byte[] data;
+        private final int length;
+        private final int firstLineBreak;
+        private final int lastLineBreak;
+        // Complete lines between the first and the last line break. Null if the block has no line breaks
+        private final List<String> lines;
+
+        private Block(byte[] data, int length, int firstLineBreak, int lastLineBreak, List<String> lines) {
+            this.data = data;
+            this.length = length;
+            this.firstLineBreak = firstLineBreak;
+            this.lastLineBreak = lastLineBreak;
+            this.lines = lines;
+        }
+    }
+}
@@ -42,6 +42,7 @@ public class StringDataReader implements DataReader<String> {
     private final URI uri;
     private final IOConnector ioConnector;
     protected BufferedReader reader;
+    protected BgzfLineReader bgzfReader;
     protected final Path path;
     protected static Logger logger = LoggerFactory.getLogger(StringDataReader.class);
     protected long readLines = 0L;
@@ -51,6 +52,7 @@ public class StringDataReader implements DataReader<String> {
     private BiConsumer<Long, Long> readLinesListener;
     private final InputStream is;
     private final boolean closeReader;
+    private int decompressThreads = 1;
 
     public StringDataReader(Path path) {
         this.path = Objects.requireNonNull(path);
@@ -98,8 +100,14 @@ public class StringDataReader implements DataReader<String> {
                     sizeInputStream = new SizeInputStream(new FileInputStream(path.toFile()), lastAvailable);
                 }
                 if (fileName.endsWith(".gz")) {
-                    logger.debug("Gzip input compress");
-                    this.reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(sizeInputStream)));
+                    BufferedInputStream bufferedInputStream = new BufferedInputStream(sizeInputStream);
+                    if (decompressThreads > 1 && BgzfLineReader.isBgzf(bufferedInputStream)) {
+                        logger.debug("BGZF input compress. Decompress using {} threads", decompressThreads);
+                        this.bgzfReader = new BgzfLineReader(bufferedInputStream, decompressThreads);
+                    } else {
+                        logger.debug("Gzip input compress");
+                        this.reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(bufferedInputStream)));
+                    }
                 } else if (fileName.endsWith(".snappy") || fileName.endsWith(".snz")) {
                     logger.debug("Snappy input compress");
                     this.reader = new BufferedReader(new InputStreamReader(new SnappyInputStream(sizeInputStream)));
@@ -118,7 +126,10 @@ public class StringDataReader implements DataReader<String> {
     @Override
     public boolean close() {
         try {
-            if (closeReader) {
+            if (bgzfReader != null) {
+                // Always stop the decompression threads
+                bgzfReader.close();
+            } else if (closeReader) {
                 reader.close();
             }
         } catch (IOException e) {
@@ -130,7 +141,7 @@ public class StringDataReader implements DataReader<String> {
     @Override
     public List<String> read() {
         try {
-            String line = reader.readLine();
+            String line = readLine();
             if (line == null) {
                 return Collections.emptyList();
             } else {
@@ -148,7 +159,7 @@ public class StringDataReader implements DataReader<String> {
         List<String> batch = new ArrayList<>(batchSize);
         try {
             for (int i = 0; i < batchSize; i++) {
-                String line = reader.readLine();
+                String line = readLine();
                 if (line == null) {
                     break;
                 }
@@ -162,6 +173,14 @@ public class StringDataReader implements DataReader<String> {
         return batch;
     }
 
+    private String readLine() throws IOException {
+        if (bgzfReader != null) {
+            return bgzfReader.readLine();
+        } else {
+            return reader.readLine();
+        }
+    }
+
     protected void onReadLine() {
         if (++readLines % 100000 == 0) {
             logger.debug("read lines = " + readLines);
@@ -191,6 +210,17 @@ public class StringDataReader implements DataReader<String> {
         return this;
     }
 
+    /**
+     * Number of threads to decompress BGZF input files. Plain gzip files are always decompressed in the reader thread.
+     *
+     * @param decompressThreads Number of threads. Use 1 to disable parallel decompression
+     * @return this
+     */
+    public StringDataReader setDecompressThreads(int decompressThreads) {
+        this.decompressThreads = decompressThreads;
+        return this;
+    }
+
     public long getFileSize() throws IOException {
         if (path != null) {
             return Files.size(path);
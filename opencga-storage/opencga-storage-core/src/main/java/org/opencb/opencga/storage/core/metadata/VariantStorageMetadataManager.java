@@ -32,6 +32,7 @@ import org.opencb.opencga.core.common.UriUtils;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.adaptors.*;
 import org.opencb.opencga.storage.core.metadata.models.*;
+import org.opencb.opencga.storage.core.utils.IntBitmap;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
@@ -62,6 +63,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     private static final int DEFAULT_LOCK_DURATION = 5000;
     private static final int DEFAULT_TIMEOUT = 60000;
     public static final String SECONDARY_INDEX_PREFIX = "__SECONDARY_INDEX_COHORT_";
+    private static final String METADATA_VERSION_COUNTER = "metadataVersion";
 
     protected static Logger logger = LoggerFactory.getLogger(VariantStorageMetadataManager.class);
 
@@ -208,6 +210,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
     public void unsecureUpdateStudyMetadata(StudyMetadata sm) {
         studyDBAdaptor.updateStudyMetadata(sm);
+        increaseMetadataVersion();
     }
 
     @Deprecated
@@ -262,7 +265,9 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         logger.debug("Timestamp : {} -> {}", studyConfiguration.getTimeStamp(), timeStamp);
         studyConfiguration.setTimeStamp(timeStamp);
 
-        return studyDBAdaptor.updateStudyConfiguration(studyConfiguration, options);
+        DataResult result = studyDBAdaptor.updateStudyConfiguration(studyConfiguration, options);
+        increaseMetadataVersion();
+        return result;
     }
 
     public Integer getStudyIdOrNull(Object studyObj) {
@@ -466,6 +471,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
             lock.checkLocked();
             projectDBAdaptor.updateProjectMetadata(projectMetadata, updateCounters);
+            increaseMetadataVersion();
             return projectMetadata;
         } finally {
             lock.unlock();
@@ -476,6 +482,24 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         return projectDBAdaptor.getProjectMetadata().first();
     }
 
+    /**
+     * Get the version of the metadata. The version is increased on every update of the project, studies, files, samples
+     * or cohorts, from any process sharing the same database, so it can be used to detect outdated cached values.
+     *
+     * @return Metadata version
+     */
+    public int getMetadataVersion() {
+        return projectDBAdaptor.getCounter(null, METADATA_VERSION_COUNTER);
+    }
+
+    private void increaseMetadataVersion() {
+        try {
+            projectDBAdaptor.generateId((Integer) null, METADATA_VERSION_COUNTER);
+        } catch (StorageEngineException e) {
+            throw new IllegalStateException("Unable to increase the metadata version", e);
+        }
+    }
+
     public ProjectMetadata getProjectMetadata(ObjectMap options) throws StorageEngineException {
         ProjectMetadata projectMetadata = getProjectMetadata();
         if (options != null && (projectMetadata == null
@@ -552,6 +576,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateFileMetadata(int studyId, FileMetadata file) {
         file.setStudyId(studyId);
         fileDBAdaptor.updateFileMetadata(studyId, file, null);
+        increaseMetadataVersion();
     }
 
     public <E extends Exception> FileMetadata updateFileMetadata(int studyId, int fileId, UpdateFunction<FileMetadata, E> update)
@@ -671,6 +696,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             logger.info("Register file " + name + " as INDEXED");
         }
         fileDBAdaptor.addIndexedFiles(studyId, fileIds);
+        increaseMetadataVersion();
         fileIdsFromSampleIdCache.clear();
         fileIdIndexedCache.clear();
     }
@@ -701,6 +727,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             });
         }
         fileDBAdaptor.removeIndexedFiles(studyId, fileIds);
+        increaseMetadataVersion();
     }
 
     public Iterator<FileMetadata> fileMetadataIterator(int studyId) {
@@ -714,6 +741,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample) {
         sample.setStudyId(studyId);
         sampleDBAdaptor.updateSampleMetadata(studyId, sample, null);
+        increaseMetadataVersion();
     }
 
     public <E extends Exception> SampleMetadata updateSampleMetadata(int studyId, int sampleId, UpdateFunction<SampleMetadata, E> update)
@@ -799,6 +827,10 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         return sampleDBAdaptor.getIndexedSamples(studyId);
     }
 
+    public IntBitmap getIndexedSampleBitmap(int studyId) {
+        return sampleDBAdaptor.getIndexedSampleBitmap(studyId);
+    }
+
 //    public BiMap<String, Integer> getIndexedSamples(int studyId, int... fileIds) {
 //        return studyDBAdaptor.getIndexedSamples(studyId);
 //    }
@@ -851,6 +883,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateCohortMetadata(int studyId, CohortMetadata cohort) {
         cohort.setStudyId(studyId);
         cohortDBAdaptor.updateCohortMetadata(studyId, cohort, null);
+        increaseMetadataVersion();
     }
 
     public <E extends Exception> CohortMetadata updateCohortMetadata(int studyId, int cohortId, UpdateFunction<CohortMetadata, E> update)
@@ -874,6 +907,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             throw VariantQueryException.cohortNotFound(cohort.toString(), studyId, this);
         }
         cohortDBAdaptor.removeCohort(studyId, cohortId);
+        increaseMetadataVersion();
     }
 
     public Integer getCohortId(int studyId, String cohortName) {
@@ -945,19 +979,26 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
         boolean newCohort;
         Integer cohortId = getCohortId(studyId, cohortName);
+        IntBitmap oldSampleBitmap;
         if (cohortId == null) {
             newCohort = true;
             cohortId = newCohortId(studyId);
             unsecureUpdateCohortMetadata(studyId, new CohortMetadata(studyId, cohortId, cohortName,
                     Collections.emptyList(),
                     Collections.emptyList()));
+            oldSampleBitmap = new IntBitmap();
         } else {
             newCohort = false;
+            oldSampleBitmap = getCohortMetadata(studyId, cohortId).getSampleBitmap();
+            if (oldSampleBitmap == null) {
+                oldSampleBitmap = new IntBitmap();
+            }
         }
+        IntBitmap sampleBitmap = IntBitmap.of(sampleIds);
 
-        // First register cohort in samples
-        for (Integer sampleId : sampleIds) {
-            Integer finalCohortId = cohortId;
+        // First register cohort in samples. Samples already in the cohort are already registered.
+        Integer finalCohortId = cohortId;
+        for (Integer sampleId : sampleBitmap.andNot(oldSampleBitmap)) {
             if (secondaryIndexCohort) {
                 updateSampleMetadata(studyId, sampleId, sampleMetadata -> sampleMetadata.addSecondaryIndexCohort(finalCohortId));
             } else {
@@ -968,57 +1009,44 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         // Check removed samples from the cohort
         // If replacing samples, and the cohort is not new, this operation may remove some samples from the cohort.
         if (!addSamples && !newCohort) {
-            CohortMetadata cohortMetadata = getCohortMetadata(studyId, cohortId);
-
-            for (Integer sampleFromCohort : cohortMetadata.getSamples()) {
-                Integer finalCohortId = cohortId;
-                if (!sampleIds.contains(sampleFromCohort)) {
-                    if (secondaryIndexCohort) {
-                        updateSampleMetadata(studyId, sampleFromCohort, sampleMetadata -> {
-                            sampleMetadata.getSecondaryIndexCohorts().remove(finalCohortId);
-                            return sampleMetadata;
-                        });
-                    } else {
-                        updateSampleMetadata(studyId, sampleFromCohort, sampleMetadata -> {
-                            sampleMetadata.getCohorts().remove(finalCohortId);
-                            return sampleMetadata;
-                        });
-                    }
+            for (Integer sampleFromCohort : oldSampleBitmap.andNot(sampleBitmap)) {
+                if (secondaryIndexCohort) {
+                    updateSampleMetadata(studyId, sampleFromCohort, sampleMetadata -> {
+                        sampleMetadata.getSecondaryIndexCohorts().remove(finalCohortId);
+                        return sampleMetadata;
+                    });
+                } else {
+                    updateSampleMetadata(studyId, sampleFromCohort, sampleMetadata -> {
+                        sampleMetadata.getCohorts().remove(finalCohortId);
+                        return sampleMetadata;
+                    });
                 }
             }
         }
-        List<Integer> fileIds = new ArrayList<>(getFileIdsFromSampleIds(studyId, sampleIds));
+        IntBitmap fileBitmap = IntBitmap.of(getFileIdsFromSampleIds(studyId, sampleIds));
 
         // Then, add samples to the cohort
         return updateCohortMetadata(studyId, cohortId,
                 cohort -> {
-                    List<Integer> sampleIdsList = new ArrayList<>(sampleIds);
-                    sampleIdsList.sort(Integer::compareTo);
-
-                    List<Integer> oldSamples = cohort.getSamples();
-                    List<Integer> oldFiles = cohort.getFiles();
-                    oldSamples.sort(Integer::compareTo);
-                    final List<Integer> newSamples;
-                    final List<Integer> newFiles;
+                    IntBitmap oldSamples = cohort.getSampleBitmap();
+                    if (oldSamples == null) {
+                        oldSamples = new IntBitmap();
+                    }
+                    IntBitmap oldFiles = IntBitmap.of(cohort.getFiles());
+                    final IntBitmap newSamples;
+                    final IntBitmap newFiles;
                     if (addSamples) {
-                        Set<Integer> allSamples = new HashSet<>(oldSamples.size() + sampleIds.size());
-                        allSamples.addAll(oldSamples);
-                        allSamples.addAll(sampleIds);
-                        newSamples = new ArrayList<>(allSamples);
-
-                        Set<Integer> allFiles = new HashSet<>(oldFiles.size() + fileIds.size());
-                        allFiles.addAll(oldFiles);
-                        allFiles.addAll(fileIds);
-                        newFiles = new ArrayList<>(allFiles);
+                        newSamples = oldSamples.or(sampleBitmap);
+                        newFiles = oldFiles.or(fileBitmap);
                     } else {
-                        newSamples = sampleIdsList;
-                        newFiles = fileIds;
+                        newSamples = sampleBitmap;
+                        newFiles = fileBitmap;
                     }
-                    cohort.setSamples(newSamples);
-                    cohort.setFiles(newFiles);
+                    cohort.setSampleBitmap(newSamples);
+                    cohort.setFiles(newFiles.toList());
 
                     if (cohort.isStatsReady()) {
-                        if (!oldSamples.equals(sampleIdsList) || !oldFiles.equals(fileIds)) {
+                        if (!oldSamples.equals(newSamples) || !oldFiles.equals(newFiles)) {
                             // Cohort has been modified! Invalidate stats
                             cohort.setStatsStatus(TaskMetadata.Status.ERROR);
                         }
@@ -1349,8 +1377,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             if (alreadyIndexedSamples.size() == samples.size() && searchIndexSampleSets.size() == 1) {
                 id = searchIndexSampleSets.iterator().next();
                 CohortMetadata secondaryIndexCohort = getCohortMetadata(studyId, id);
-                if (secondaryIndexCohort.getSamples().size() != sampleIds.size()
-                        || !secondaryIndexCohort.getSamples().containsAll(sampleIds)) {
+                if (!IntBitmap.of(sampleIds).equals(secondaryIndexCohort.getSampleBitmap())) {
                     System.out.println("secondaryIndexCohort = " + secondaryIndexCohort.getSamples());
                     System.out.println("sampleIds = " + sampleIds);
                     throw new StorageEngineException("Must provide all the samples from the secondary index: "
@@ -35,4 +35,13 @@ public interface ProjectMetadataAdaptor extends AutoCloseable {
     }
 
     int generateId(Integer studyId, String idType) throws StorageEngineException;
+
+    /**
+     * Get the current value of a counter increased by {@link #generateId(Integer, String)}, without modifying it.
+     *
+     * @param studyId Study id. Might be null
+     * @param idType  Counter name
+     * @return Current value of the counter, or 0 if missing
+     */
+    int getCounter(Integer studyId, String idType);
 }
@@ -5,6 +5,7 @@ import com.google.common.collect.HashBiMap;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.models.Lock;
 import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.utils.IntBitmap;
 
 import java.util.*;
 
@@ -42,6 +43,16 @@ public interface SampleMetadataDBAdaptor {
         return samples;
     }
 
+    default IntBitmap getIndexedSampleBitmap(int studyId) {
+        IntBitmap samples = new IntBitmap();
+        sampleMetadataIterator(studyId).forEachRemaining(s -> {
+            if (s.isIndexed()) {
+                samples.add(s.getId());
+            }
+        });
+        return samples;
+    }
+
     Integer getSampleId(int studyId, String sampleName);
 
     Lock lock(int studyId, int id, long lockDuration, long timeout) throws StorageEngineException;
@@ -1,5 +1,10 @@
 package org.opencb.opencga.storage.core.metadata.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.opencb.opencga.storage.core.utils.IntBitmap;
+
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -13,6 +18,8 @@ public class CohortMetadata extends StudyResourceMetadata<CohortMetadata> {
 //    private int id;
 //    private String name;
 
+    // Cohorts may have hundreds of thousands of samples. Store them as a bitmap, and materialize the list only on demand
+    private IntBitmap sampleBitmap;
     private List<Integer> samples;
     private List<Integer> files;
 
@@ -23,19 +30,62 @@ public class CohortMetadata extends StudyResourceMetadata<CohortMetadata> {
 
     public CohortMetadata(int studyId, int id, String name, List<Integer> samples, List<Integer> files) {
         super(studyId, id, name);
-        this.samples = samples;
+        setSamples(samples);
         this.files = files;
     }
 
+    /**
+     * Get the samples from this cohort.
+     *
+     * @return Unmodifiable list of sample ids, sorted by id
+     */
+    @JsonIgnore
     public List<Integer> getSamples() {
+        if (samples == null) {
+            if (sampleBitmap == null) {
+                return null;
+            }
+            samples = Collections.unmodifiableList(sampleBitmap.toList());
+        }
         return samples;
     }
 
+    @JsonIgnore
     public CohortMetadata setSamples(List<Integer> samples) {
-        this.samples = samples;
+        if (samples == null) {
+            return setSampleBitmap(null);
+        } else {
+            return setSampleBitmap(IntBitmap.of(samples));
+        }
+    }
+
+    public IntBitmap getSampleBitmap() {
+        return sampleBitmap;
+    }
+
+    public CohortMetadata setSampleBitmap(IntBitmap sampleBitmap) {
+        this.sampleBitmap = sampleBitmap;
+        this.samples = null;
         return this;
     }
 
+    @JsonIgnore
+    public int getNumSamples() {
+        if (sampleBitmap == null) {
+            return 0;
+        } else {
+            return sampleBitmap.size();
+        }
+    }
+
+    // Read cohorts stored before the bitmap. Old fields may remain in the stored document, so the bitmap has preference
+    @JsonProperty("samples")
+    private void setLegacySamples(List<Integer> legacySamples) {
+        if (sampleBitmap == null) {
+            setSamples(legacySamples);
+        }
+    }
+
     public List<Integer> getFiles() {
         return files;
     }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of CellBase lookups, stored in a local directory.
+ *
+ * There is one directory for each species, assembly and CellBase version, so the cached values are never mixed
+ * between releases. The entries of each type are split into a fixed number of bucket files by the hash of the key.
+ * Each bucket is a tab separated file of key-value pairs, where new entries are appended and the last value of a key wins.
+ * Only the buckets required by a batch of keys are read, so the cache does not need to be kept in memory.
+ *
+ * The directory can be shared by several processes. Buckets are read under a shared file lock and written under an
+ * exclusive file lock. Lines that can not be parsed are skipped, and an incomplete last line from an interrupted write is
+ * removed by the next writer.
+ */
+public class CellBaseDiskCache {
+
+    public static final String GENE_REGION = "gene_region";
+    public static final String VARIANT_ID = "variant_id";
+
+    private static final int NUM_BUCKETS = 256;
+    // File locks are held by the whole JVM. Threads of the same process are serialized by bucket file.
+    private static final Map<Path, Object> BUCKET_LOCKS = new ConcurrentHashMap<>();
+    private final Path directory;
+
+    public CellBaseDiskCache(Path baseDirectory, String species, String assembly, String version) {
+        this.directory = baseDirectory.resolve(normalize(species) + '_' + normalize(assembly) + '_' + normalize(version));
+    }
+
+    /**
+     * Get the cached values for a batch of keys. Each bucket file is read only once.
+     *
+     * @param type Type of entries
+     * @param keys Keys to look for
+     * @return Found values. Missing keys are not included.
+     */
+    public Map<String, String> get(String type, Collection<String> keys) {
+        Map<String, String> values = new HashMap<>(keys.size());
+        for (Map.Entry<Integer, Set<String>> entry : groupByBucket(keys).entrySet()) {
+            Path bucket = getBucket(type, entry.getKey());
+            if (!Files.exists(bucket)) {
+                continue;
+            }
+            Set<String> bucketKeys = entry.getValue();
+            synchronized (getBucketLock(bucket)) {
+                try (FileChannel channel = FileChannel.open(bucket, StandardOpenOption.READ);
+                     FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+                    BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.name()));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        int idx = line.indexOf('\t');
+                        if (idx <= 0) {
+                            continue;
+                        }
+                        String key = line.substring(0, idx);
+                        String value = line.substring(idx + 1);
+                        if (bucketKeys.contains(key) && isValid(value)) {
+                            values.put(key, value);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error reading CellBase cache " + bucket, e);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Append new entries to the cache.
+     *
+     * @param type    Type of entries
+     * @param entries Entries to add
+     */
+    public void put(String type, Map<String, String> entries) {
+        Map<Integer, Set<String>> buckets = groupByBucket(entries.keySet());
+        try {
+            Files.createDirectories(directory);
+            for (Map.Entry<Integer, Set<String>> entry : buckets.entrySet()) {
+                StringBuilder sb = new StringBuilder();
+                for (String key : entry.getValue()) {
+                    String value = entries.get(key);
+                    if (isValid(key) && value != null && isValid(value)) {
+                        sb.append(key).append('\t').append(value).append('\n');
+                    }
+                }
+                if (sb.length() > 0) {
+                    append(getBucket(type, entry.getKey()), sb.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing CellBase cache " + directory, e);
+        }
+    }
+
+    /**
+     * Append a block of lines to a bucket holding an exclusive lock, so concurrent writers never interleave their lines.
+     * If the bucket does not end with a new line, because a previous write was interrupted, the incomplete line is removed first.
+     */
+    private void append(Path bucket, byte[] lines) throws IOException {
+        synchronized (getBucketLock(bucket)) {
+            try (FileChannel channel = FileChannel.open(bucket, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                long position = getEndOfLastLine(channel);
+                if (position < channel.size()) {
+                    channel.truncate(position);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(lines);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the position after the last new line of the file.
+     */
+    private static long getEndOfLastLine(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear();
+            buffer.limit((int) (end - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                continue;
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    private static Object getBucketLock(Path bucket) {
+        return BUCKET_LOCKS.computeIfAbsent(bucket.toAbsolutePath().normalize(), k -> new Object());
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public boolean isEmpty(String type) {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            if (Files.exists(getBucket(type, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<Integer, Set<String>> groupByBucket(Collection<String> keys) {
+        Map<Integer, Set<String>> buckets = new HashMap<>();
+        for (String key : keys) {
+            int bucket = Math.floorMod(key.hashCode(), NUM_BUCKETS);
+            buckets.computeIfAbsent(bucket, k -> new HashSet<>()).add(key);
+        }
+        return buckets;
+    }
+
+    private Path getBucket(String type, int bucket) {
+        return directory.resolve(type + '_' + bucket + ".tsv");
+    }
+
+    private static boolean isValid(String str) {
+        return !str.isEmpty() && str.indexOf('\t') < 0 && str.indexOf('\n') < 0 && str.indexOf('\r') < 0;
+    }
+
+    private static String normalize(String str) {
+        return str == null ? "default" : str.replaceAll("[^a-zA-Z0-9.\\-]", "_");
+    }
+}
@@ -16,8 +16,11 @@
 
 package org.opencb.opencga.storage.core.utils;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.opencb.biodata.models.core.Gene;
 import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.core.Transcript;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.exceptions.NonStandardCompliantSampleField;
 import org.opencb.biodata.tools.variant.VariantNormalizer;
@@ -32,9 +35,15 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Created on 30/03/17.
@@ -50,11 +59,101 @@ public class CellBaseUtils {
     public static final QueryOptions GENE_QUERY_OPTIONS = new QueryOptions(QueryOptions.INCLUDE,
             "id,name,chromosome,start,end,transcripts.id,transcripts.name,transcripts.proteinId");
 
-    private ConcurrentHashMap<String, Region> cache = new ConcurrentHashMap<>();
+    private static final int CACHE_SIZE = 10000;
+    private static final long CACHE_TTL_MILLIS = 60 * 60 * 1000L; // 1 hour
+
+    private final ExpiringLruCache<String, Region> cache = new ExpiringLruCache<>("GeneRegionCache", CACHE_SIZE, CACHE_TTL_MILLIS);
+    private final ExpiringLruCache<String, Set<String>> goCache = new ExpiringLruCache<>("GoCache", CACHE_SIZE, CACHE_TTL_MILLIS);
+    private final ExpiringLruCache<String, Set<String>> expressionCache =
+            new ExpiringLruCache<>("ExpressionCache", CACHE_SIZE, CACHE_TTL_MILLIS);
+
+    private final ExpiringLruCache<String, Variant> variantCache = new ExpiringLruCache<>("VariantIdCache", CACHE_SIZE, CACHE_TTL_MILLIS);
+    private final CellBaseDiskCache diskCache;
 
     public CellBaseUtils(CellBaseClient cellBaseClient, String assembly) {
+        this(cellBaseClient, assembly, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cellBaseClient CellBase client
+     * @param assembly       Assembly
+     * @param diskCache      Persistent cache of CellBase lookups. Might be null.
+     */
+    public CellBaseUtils(CellBaseClient cellBaseClient, String assembly, CellBaseDiskCache diskCache) {
         this.cellBaseClient = cellBaseClient;
         this.assembly = assembly;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Fill the persistent cache with the regions of all the genes from a CellBase gene dump.
+     * The dump is a file with one JSON gene per line, optionally gzipped.
+     *
+     * Keys shared by genes with different regions are not loaded. These are resolved with CellBase, which may return
+     * more than one gene, so the right one is picked by {@link #getGeneRegion(List, boolean)}.
+     *
+     * @param geneDump Gene dump file
+     * @return Number of loaded genes
+     * @throws IOException if the file can not be read
+     */
+    public int preloadGeneRegions(Path geneDump) throws IOException {
+        if (diskCache == null) {
+            throw new IllegalStateException("Missing disk cache to preload gene regions");
+        }
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        int genes = 0;
+        // Keep all the keys in memory to detect duplicated names across the whole dump
+        Map<String, String> entries = new HashMap<>();
+        Set<String> ambiguousKeys = new HashSet<>();
+        try (InputStream is = geneDump.toString().endsWith(".gz")
+                ? new GZIPInputStream(Files.newInputStream(geneDump))
+                : Files.newInputStream(geneDump);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Gene gene = objectMapper.readValue(line, Gene.class);
+                String region = toRegion(gene).toString();
+                for (String key : getGeneKeys(gene)) {
+                    String previous = entries.putIfAbsent(key, region);
+                    if (previous != null && !previous.equals(region)) {
+                        ambiguousKeys.add(key);
+                    }
+                }
+                genes++;
+            }
+        }
+        entries.keySet().removeAll(ambiguousKeys);
+        diskCache.put(CellBaseDiskCache.GENE_REGION, entries);
+        logger.info("Loaded {} genes from {} into {}. Skip {} keys shared by genes with different regions",
+                genes, geneDump, diskCache.getDirectory(), ambiguousKeys.size());
+        return genes;
+    }
+
+    private static Region toRegion(Gene gene) {
+        int start = Math.max(0, gene.getStart() - GENE_EXTRA_REGION);
+        int end = gene.getEnd() + GENE_EXTRA_REGION;
+        return new Region(gene.getChromosome(), start, end);
+    }
+
+    private static Set<String> getGeneKeys(Gene gene) {
+        Set<String> keys = new HashSet<>();
+        keys.add(gene.getId());
+        keys.add(gene.getName());
+        if (gene.getTranscripts() != null) {
+            for (Transcript transcript : gene.getTranscripts()) {
+                keys.add(transcript.getId());
+                keys.add(transcript.getName());
+                keys.add(transcript.getProteinID());
+            }
+        }
+        keys.remove(null);
+        keys.remove("");
+        return keys;
     }
 
     public Region getGeneRegion(String geneStr) {
@@ -78,6 +177,20 @@ public class CellBaseUtils {
                 iterator.remove();
             }
         }
+        if (!geneStrs.isEmpty() && diskCache != null) {
+            Map<String, String> diskRegions = diskCache.get(CellBaseDiskCache.GENE_REGION, geneStrs);
+            iterator = geneStrs.iterator();
+            while (iterator.hasNext()) {
+                String gene = iterator.next();
+                String regionStr = diskRegions.get(gene);
+                if (regionStr != null) {
+                    Region region = Region.parseRegion(regionStr);
+                    regions.add(region);
+                    cache.put(gene, region);
+                    iterator.remove();
+                }
+            }
+        }
         if (geneStrs.isEmpty()) {
             return regions;
         }
@@ -88,6 +201,7 @@ public class CellBaseUtils {
             logger.info("Query genes from CellBase " + cellBaseClient.getSpecies() + ":" + assembly + " " + geneStrs + "  -> "
                     + (System.currentTimeMillis() - ts) / 1000.0 + "s ");
             List<String> missingGenes = null;
+            Map<String, String> newDiskEntries = new HashMap<>();
             for (QueryResult<Gene> result : response.getResponse()) {
                 Gene gene = null;
                 String geneStr = result.getId();
@@ -131,13 +245,20 @@ public class CellBaseUtils {
                     missingGenes.add(result.getId());
                     continue;
                 }
-                int start = Math.max(0, gene.getStart() - GENE_EXTRA_REGION);
-                int end = gene.getEnd() + GENE_EXTRA_REGION;
-                Region region = new Region(gene.getChromosome(), start, end);
+                Region region = toRegion(gene);
                 regions.add(region);
                 cache.put(gene.getName(), region);
                 cache.put(gene.getId(), region);
                 cache.put(geneStr, region);
+                // Same keys as the in-memory cache. Other transcript names or ids of this gene might be ambiguous
+                for (String key : Arrays.asList(gene.getName(), gene.getId(), geneStr)) {
+                    if (key != null) {
+                        newDiskEntries.put(key, region.toString());
+                    }
+                }
+            }
+            if (diskCache != null && !newDiskEntries.isEmpty()) {
+                diskCache.put(CellBaseDiskCache.GENE_REGION, newDiskEntries);
             }
             if (!skipMissing && missingGenes != null) {
                 throw VariantQueryException.geneNotFound(String.join(",", missingGenes));
@@ -150,14 +271,29 @@ public class CellBaseUtils {
 
     public Set<String> getGenesByGo(List<String> goValues) {
         Set<String> genes = new HashSet<>();
+        List<String> missingGoValues = new ArrayList<>(goValues.size());
+        for (String goValue : goValues) {
+            Set<String> goGenes = goCache.get(goValue);
+            if (goGenes == null) {
+                missingGoValues.add(goValue);
+            } else {
+                genes.addAll(goGenes);
+            }
+        }
+        if (missingGoValues.isEmpty()) {
+            return genes;
+        }
         QueryOptions params = new QueryOptions(QueryOptions.INCLUDE, "name,chromosome,start,end");
         try {
-            List<QueryResult<Gene>> responses = cellBaseClient.getGeneClient().get(goValues, params)
+            List<QueryResult<Gene>> responses = cellBaseClient.getGeneClient().get(missingGoValues, params)
                     .getResponse();
             for (QueryResult<Gene> response : responses) {
+                Set<String> goGenes = new HashSet<>();
                 for (Gene gene : response.getResult()) {
-                    genes.add(gene.getName());
+                    goGenes.add(gene.getName());
                 }
+                goCache.put(response.getId(), Collections.unmodifiableSet(goGenes));
+                genes.addAll(goGenes);
             }
         } catch (IOException e) {
             throw VariantQueryException.internalException(e);
@@ -174,6 +310,12 @@ public class CellBaseUtils {
             try {
                 String[] split = expressionValue.split(":");
                 expressionValue = split[0];
+                Set<String> expressionGenes = expressionCache.get(expressionValue);
+                if (expressionGenes != null) {
+                    genes.addAll(expressionGenes);
+                    continue;
+                }
+                expressionGenes = new HashSet<>();
                 Query cellbaseQuery = new Query(2)
                         .append(GeneDBAdaptor.QueryParams.ANNOTATION_EXPRESSION_TISSUE.key(), expressionValue)
                         .append(GeneDBAdaptor.QueryParams.ANNOTATION_EXPRESSION_VALUE.key(), "UP");
@@ -181,9 +323,11 @@ public class CellBaseUtils {
                         .getResponse();
                 for (QueryResult<Gene> response : responses) {
                     for (Gene gene : response.getResult()) {
-                        genes.add(gene.getName());
+                        expressionGenes.add(gene.getName());
                     }
                 }
+                expressionCache.put(expressionValue, Collections.unmodifiableSet(expressionGenes));
+                genes.addAll(expressionGenes);
             } catch (IOException e) {
                 throw VariantQueryException.internalException(e);
             }
@@ -191,6 +335,10 @@ public class CellBaseUtils {
         return genes;
     }
 
+    public ExpiringLruCache<String, Region> getGeneRegionCache() {
+        return cache;
+    }
+
     public CellBaseClient getCellBaseClient() {
         return cellBaseClient;
     }
@@ -200,7 +348,38 @@ public class CellBaseUtils {
     }
 
     public List<Variant> getVariants(List<String> variantsStr) {
+        Map<String, Variant> variantsMap = new HashMap<>(variantsStr.size());
+        List<String> missingVariants = new ArrayList<>(variantsStr.size());
+        for (String variantStr : variantsStr) {
+            Variant variant = variantCache.get(variantStr);
+            if (variant == null) {
+                missingVariants.add(variantStr);
+            } else {
+                variantsMap.put(variantStr, variant);
+            }
+        }
+        if (!missingVariants.isEmpty() && diskCache != null) {
+            Map<String, String> diskVariants = diskCache.get(CellBaseDiskCache.VARIANT_ID, missingVariants);
+            for (Map.Entry<String, String> entry : diskVariants.entrySet()) {
+                Variant variant = new Variant(entry.getValue());
+                variantCache.put(entry.getKey(), variant);
+                variantsMap.put(entry.getKey(), variant);
+            }
+            missingVariants.removeAll(diskVariants.keySet());
+        }
+        if (!missingVariants.isEmpty()) {
+            variantsMap.putAll(fetchVariants(missingVariants));
+        }
         List<Variant> variants = new ArrayList<>(variantsStr.size());
+        for (String variantStr : variantsStr) {
+            variants.add(variantsMap.get(variantStr));
+        }
+        return variants;
+    }
+
+    private Map<String, Variant> fetchVariants(List<String> variantsStr) {
+        Map<String, Variant> variants = new HashMap<>(variantsStr.size());
+        Map<String, String> newDiskEntries = new HashMap<>();
         List<QueryResult<Variant>> response = null;
         try {
             response = cellBaseClient.getVariationClient().get(variantsStr,
@@ -220,17 +399,26 @@ public class CellBaseUtils {
             if (result.getResult().size() == 1) {
                 Variant variant = result.getResult().get(0);
                 try {
-                    variants.add(variantNormalizer.normalize(Collections.singletonList(variant), true).get(0));
+                    variant = variantNormalizer.normalize(Collections.singletonList(variant), true).get(0);
                 } catch (NonStandardCompliantSampleField e) {
                     throw VariantQueryException.internalException(e);
                 }
+                variants.put(result.getId(), variant);
+                variantCache.put(result.getId(), variant);
+                if (variant.getSv() == null) {
+                    // Only simple variants can be rebuilt from the string
+                    newDiskEntries.put(result.getId(), variant.toString());
+                }
             } else if (result.getResult().isEmpty()) {
                 throw new VariantQueryException("Unknown variant '" + result.getId() + "'");
             } else {
                 throw new VariantQueryException("Not unique variant identifier '" + result.getId() + "'."
-                        + " Found " + variants.size() + " results: " + variants);
+                        + " Found " + result.getResult().size() + " results: " + result.getResult());
             }
         }
+        if (diskCache != null && !newDiskEntries.isEmpty()) {
+            diskCache.put(CellBaseDiskCache.VARIANT_ID, newDiskEntries);
+        }
         return variants;
     }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe LRU cache with a maximum size, where each entry expires after a fixed time to live.
+ *
+ * Counts the number of hits and misses, to monitor the effectiveness of the cache.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final String name;
+    private final long ttlMillis;
+    private final Map<K, Entry<V>> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ExpiringLruCache(String name, int maxSize, long ttlMillis) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a value from the cache, if present and not expired.
+     *
+     * @param key Key
+     * @return Cached value, or null if missing
+     */
+    public V get(K key) {
+        synchronized (cache) {
+            Entry<V> entry = cache.get(key);
+            if (entry != null && entry.expiration < System.currentTimeMillis()) {
+                cache.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            } else {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+        }
+    }
+
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long hits = this.hits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{size=" + size() + ", hits=" + hits + ", misses=" + misses + '}';
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiration;
+
+        private Entry(V value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Set of non negative integers, like sample or file ids, stored as a bitmap.
+ *
+ * Internal ids are small and dense within a study, so the bitmap takes a few bytes per thousand elements, and set operations
+ * do not need to box any value. The serialized form is the deflated bitmap encoded in base64, so long runs of consecutive
+ * ids are reduced to a few bytes.
+ */
+public final class IntBitmap implements Iterable<Integer> {
+
+    private final BitSet bitSet;
+
+    public IntBitmap() {
+        this(new BitSet());
+    }
+
+    private IntBitmap(BitSet bitSet) {
+        this.bitSet = bitSet;
+    }
+
+    public static IntBitmap of(Collection<Integer> values) {
+        IntBitmap bitmap = new IntBitmap();
+        if (values != null) {
+            for (Integer value : values) {
+                bitmap.add(value);
+            }
+        }
+        return bitmap;
+    }
+
+    public static IntBitmap of(int... values) {
+        IntBitmap bitmap = new IntBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    public IntBitmap add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Unable to add negative value " + value);
+        }
+        bitSet.set(value);
+        return this;
+    }
+
+    public IntBitmap remove(int value) {
+        if (value >= 0) {
+            bitSet.clear(value);
+        }
+        return this;
+    }
+
+    public boolean contains(int value) {
+        return value >= 0 && bitSet.get(value);
+    }
+
+    public int size() {
+        return bitSet.cardinality();
+    }
+
+    public boolean isEmpty() {
+        return bitSet.isEmpty();
+    }
+
+    /**
+     * Union of two bitmaps.
+     *
+     * @param other Other bitmap
+     * @return New bitmap with the values from both bitmaps
+     */
+    public IntBitmap or(IntBitmap other) {
+        BitSet result = (BitSet) bitSet.clone();
+        result.or(other.bitSet);
+        return new IntBitmap(result);
+    }
+
+    /**
+     * Intersection of two bitmaps.
+     *
+     * @param other Other bitmap
+     * @return New bitmap with the values present in both bitmaps
+     */
+    public IntBitmap and(IntBitmap other) {
+        BitSet result = (BitSet) bitSet.clone();
+        result.and(other.bitSet);
+        return new IntBitmap(result);
+    }
+
+    /**
+     * Difference of two bitmaps.
+     *
+     * @param other Other bitmap
+     * @return New bitmap with the values from this bitmap not present in the other one
+     */
+    public IntBitmap andNot(IntBitmap other) {
+        BitSet result = (BitSet) bitSet.clone();
+        result.andNot(other.bitSet);
+        return new IntBitmap(result);
+    }
+
+    public boolean containsAll(IntBitmap other) {
+        return other.andNot(this).isEmpty();
+    }
+
+    public IntStream stream() {
+        return bitSet.stream();
+    }
+
+    public void forEachInt(IntConsumer consumer) {
+        bitSet.stream().forEach(consumer);
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return bitSet.stream().iterator();
+    }
+
+    /**
+     * Materialize all the values.
+     *
+     * @return Sorted list with all the values
+     */
+    public List<Integer> toList() {
+        List<Integer> list = new ArrayList<>(size());
+        forEachInt(list::add);
+        return list;
+    }
+
+    @JsonValue
+    public String encode() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(bitSet.toByteArray());
+        deflater.finish();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        while (!deflater.finished()) {
+            os.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        return Base64.getEncoder().encodeToString(os.toByteArray());
+    }
+
+    @JsonCreator
+    public static IntBitmap decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new IntBitmap();
+        }
+        Inflater inflater = new Inflater();
+        inflater.setInput(Base64.getDecoder().decode(encoded));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated bitmap");
+                }
+                os.write(chunk, 0, length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Malformed bitmap", e);
+        } finally {
+            inflater.end();
+        }
+        return new IntBitmap(BitSet.valueOf(os.toByteArray()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return bitSet.equals(((IntBitmap) o).bitSet);
+    }
+
+    @Override
+    public int hashCode() {
+        return bitSet.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return bitSet.toString();
+    }
+}
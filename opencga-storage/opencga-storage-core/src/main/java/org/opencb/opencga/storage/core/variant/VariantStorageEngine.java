@@ -39,7 +39,9 @@ import org.opencb.opencga.storage.core.metadata.StudyConfiguration;
 import org.opencb.opencga.storage.core.metadata.VariantMetadataFactory;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.*;
+import org.opencb.opencga.storage.core.utils.CellBaseDiskCache;
 import org.opencb.opencga.storage.core.utils.CellBaseUtils;
+import org.opencb.opencga.storage.core.utils.IntBitmap;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.MultiVariantDBIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
@@ -67,6 +69,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -801,20 +804,19 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
                 metadataManager.setStatus(studyMetadata.getId(), taskId, TaskMetadata.Status.READY);
                 metadataManager.removeIndexedFiles(studyMetadata.getId(), fileIds);
 
-                Set<Integer> removedSamples = new HashSet<>();
+                IntBitmap removedSamples = new IntBitmap();
                 for (Integer fileId : fileIds) {
-                    removedSamples.addAll(metadataManager.getFileMetadata(studyMetadata.getId(), fileId).getSamples());
+                    for (Integer sampleId : metadataManager.getFileMetadata(studyMetadata.getId(), fileId).getSamples()) {
+                        removedSamples.add(sampleId);
+                    }
                 }
                 List<Integer> cohortsToInvalidate = new LinkedList<>();
                 for (CohortMetadata cohort : metadataManager.getCalculatedCohorts(studyMetadata.getId())) {
-                    for (Integer removedSample : removedSamples) {
-                        if (cohort.getSamples().contains(removedSample)) {
-                            logger.info("Invalidating statistics of cohort "
-                                    + cohort.getName()
-                                    + " (" + cohort.getId() + ')');
-                            cohortsToInvalidate.add(cohort.getId());
-                            break;
-                        }
+                    if (cohort.getSampleBitmap() != null && !cohort.getSampleBitmap().and(removedSamples).isEmpty()) {
+                        logger.info("Invalidating statistics of cohort "
+                                + cohort.getName()
+                                + " (" + cohort.getId() + ')');
+                        cohortsToInvalidate.add(cohort.getId());
                     }
                 }
                 for (Integer cohortId : cohortsToInvalidate) {
@@ -824,7 +826,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
                 // Restore default cohort with indexed samples
                 metadataManager.setSamplesToCohort(studyMetadata.getId(), StudyEntry.DEFAULT_COHORT,
-                        metadataManager.getIndexedSamples(studyMetadata.getId()));
+                        metadataManager.getIndexedSampleBitmap(studyMetadata.getId()).toList());
 
 
                 for (Integer fileId : fileIds) {
@@ -864,7 +866,24 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
                 species = clientConfiguration.getDefaultSpecies();
             }
             species = toCellBaseSpeciesName(species);
-            cellBaseUtils = new CellBaseUtils(new CellBaseClient(species, assembly, clientConfiguration), assembly);
+            CellBaseClient cellBaseClient = new CellBaseClient(species, assembly, clientConfiguration);
+
+            String cacheDir = getOptions().getString(CELLBASE_CACHE_DIR.key());
+            if (StringUtils.isEmpty(cacheDir)) {
+                cellBaseUtils = new CellBaseUtils(cellBaseClient, assembly);
+            } else {
+                CellBaseDiskCache diskCache = new CellBaseDiskCache(Paths.get(cacheDir), species, assembly,
+                        clientConfiguration.getVersion());
+                cellBaseUtils = new CellBaseUtils(cellBaseClient, assembly, diskCache);
+                String geneDump = getOptions().getString(CELLBASE_CACHE_GENE_DUMP.key());
+                if (StringUtils.isNotEmpty(geneDump) && diskCache.isEmpty(CellBaseDiskCache.GENE_REGION)) {
+                    try {
+                        cellBaseUtils.preloadGeneRegions(Paths.get(geneDump));
+                    } catch (IOException e) {
+                        throw new StorageEngineException("Error loading CellBase gene dump " + geneDump, e);
+                    }
+                }
+            }
         }
         return cellBaseUtils;
     }
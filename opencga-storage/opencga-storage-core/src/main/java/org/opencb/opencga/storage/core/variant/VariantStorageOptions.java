@@ -18,10 +18,12 @@ public enum VariantStorageOptions implements ConfigurationOption {
 
     TRANSFORM_BATCH_SIZE("transform.batchSize", 200),
     TRANSFORM_THREADS("transform.numThreads", 4),
+    TRANSFORM_DECOMPRESS_THREADS("transform.decompress.numThreads", 2),
     TRANSFORM_FORMAT("transform.format", "avro"),
     TRANSFORM_FAIL_ON_MALFORMED_VARIANT("transform.failOnMalformed", true),
     TRANSFORM_COMPRESSION("transform.compression", "gzip"),
     TRANSFORM_ISOLATE("transform.isolate", false), // Do not store file in metadata
+    TRANSFORM_PRUNE_FORMAT_FIELDS("transform.pruneFormatFields", false), // Only transform the FORMAT fields from include.extra-fields
 
     LOAD_BATCH_SIZE("load.batchSize", 100),
     LOAD_THREADS("load.numThreads", 6),
@@ -42,6 +44,9 @@ public enum VariantStorageOptions implements ConfigurationOption {
 
     ANNOTATE("annotate", false), // Do annotate after step.
     ANNOTATION_BATCH_SIZE("annotation.batchSize", 100),
+    ANNOTATION_BATCH_SIZE_ADAPTIVE("annotation.batchSize.adaptive", false),  // Size the annotation batches to a target latency
+    ANNOTATION_BATCH_SIZE_MAX("annotation.batchSize.max", 1000),            // Max batch size when using adaptive batches
+    ANNOTATION_TARGET_LATENCY("annotation.targetLatency", 10000),           // Target latency per batch, in milliseconds
     ANNOTATION_FILE_FORMAT("annotation.file.format", "json"),
     ANNOTATION_NUM_THREADS("annotation.numThreads", 8),
     ANNOTATION_OVERWEITE("annotation.overwrite"),
@@ -53,6 +58,9 @@ public enum VariantStorageOptions implements ConfigurationOption {
     ANNOTATOR_CELLBASE_EXCLUDE("annotator.cellbase.exclude"),
     ANNOTATOR_CELLBASE_IMPRECISE_VARIANTS("annotator.cellbase.impreciseVariants"),
 
+    CELLBASE_CACHE_DIR("cellbase.cache.dir"),                    // Local directory to persist the CellBase gene and variant lookups
+    CELLBASE_CACHE_GENE_DUMP("cellbase.cache.geneDump"),         // CellBase gene dump to preload the gene regions cache
+
     INDEX_SEARCH("indexSearch", false), // Build secondary indexes using search engine.
 
     QUERY_DEFAULT_TIMEOUT("query.timeout.default", 10000), // Default timeout for DBAdaptor operations. Only used if none is provided.
@@ -61,6 +69,12 @@ public enum VariantStorageOptions implements ConfigurationOption {
     QUERY_LIMIT_MAX("query.limit.max", 5000),
     QUERY_SAMPLE_LIMIT_DEFAULT("query.sample.limit.default", 100),
     QUERY_SAMPLE_LIMIT_MAX("query.sample.limit.max", 1000),
+    QUERY_PLAN_CACHE_SIZE("query.planCache.size", 500),          // Max number of parsed queries to cache in the DBAdaptor. 0 to disable
+    QUERY_PLAN_CACHE_TTL("query.planCache.ttl", 60000),          // Max time in milliseconds to reuse a parsed query. Any metadata change
+                                                                 // discards the cached queries
+
+    EXPORT_NUM_THREADS("export.numThreads", 1),                  // Export in concurrent genomic partitions if greater than 1
+    EXPORT_PARTITION_SIZE("export.partitionSize", 10000000),     // Size in bases of each partition
 
     // Search intersect options
     INTERSECT_ACTIVE("search.intersect.active", true),                       // Allow intersect queries with the SearchEngine (Solr)
@@ -271,15 +271,20 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         }
         ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
         stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
+        stringReader.setDecompressThreads(options.getInt(
+                VariantStorageOptions.TRANSFORM_DECOMPRESS_THREADS.key(),
+                VariantStorageOptions.TRANSFORM_DECOMPRESS_THREADS.defaultValue()));
 
         VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(studyId, metadata);
 
         logger.info("Using HTSJDK to read variants.");
         Pair<VCFHeader, VCFHeaderVersion> header = variantReaderUtils.readHtsHeader(input, stdin);
+        List<String> includeFormats = getTransformIncludeFormats();
         Supplier<Task<String, Variant>> task = () ->
                 new VariantTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculator, generateReferenceBlocks)
                 .setFailOnError(failOnError)
                 .addMalformedErrorHandler(malformedHandler)
+                .setIncludeFormats(includeFormats)
                 .setIncludeSrc(false);
 
         ParallelTaskRunner ptr;
@@ -352,6 +357,27 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         return outputVariantsFile;
     }
 
+    /**
+     * Get the FORMAT fields to include in the transformed file, only if {@link VariantStorageOptions#TRANSFORM_PRUNE_FORMAT_FIELDS}
+     * is enabled and the {@link VariantStorageOptions#EXTRA_FORMAT_FIELDS} are explicitly given.
+     *
+     * @return List of FORMAT fields to include, or null to include all of them.
+     */
+    protected List<String> getTransformIncludeFormats() {
+        if (!options.getBoolean(VariantStorageOptions.TRANSFORM_PRUNE_FORMAT_FIELDS.key(),
+                VariantStorageOptions.TRANSFORM_PRUNE_FORMAT_FIELDS.defaultValue())) {
+            return null;
+        }
+        String extraFormatFields = options.getString(VariantStorageOptions.EXTRA_FORMAT_FIELDS.key());
+        if (StringUtils.isEmpty(extraFormatFields) || extraFormatFields.equals(VariantQueryUtils.ALL)) {
+            return null;
+        } else if (extraFormatFields.equals(VariantQueryUtils.NONE)) {
+            return Collections.emptyList();
+        } else {
+            return options.getAsStringList(VariantStorageOptions.EXTRA_FORMAT_FIELDS.key());
+        }
+    }
+
     protected <W> ParallelTaskRunner<?, W> buildTransformPtr(boolean parallelParse,
                                                      DataReader<String> stringReader,
                                                      Supplier<Task<String, Variant>> task,
@@ -131,6 +131,19 @@ public final class VariantQueryUtils {
             SAMPLE_SKIP
     )));
 
+    /**
+     * Location params not taking part in the query plan caches. Their values are bound to the cached plan on every query.
+     */
+    public static final Set<QueryParam> PLAN_CACHE_BOUND_PARAMS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            REGION,
+            GENE,
+            ID,
+            ANNOT_XREF,
+            ANNOT_CLINVAR,
+            ANNOT_COSMIC,
+            ANNOT_GENE_REGIONS
+    )));
+
     public static final String SKIP_MISSING_GENES = "skipMissingGenes";
 
     private static Logger logger = LoggerFactory.getLogger(VariantQueryUtils.class);
@@ -1612,6 +1625,44 @@ public final class VariantQueryUtils {
         }
     }
 
+    /**
+     * Build a normalized key for a query, to be used by query caches.
+     * Params are sorted, and null or empty values are discarded.
+     *
+     * @param query          Query
+     * @param options        QueryOptions. Might be null
+     * @param ignoredOptions Options that should not take part in the key
+     * @return Normalized key
+     */
+    public static String buildQueryCacheKey(Query query, QueryOptions options, Collection<String> ignoredOptions) {
+        StringBuilder sb = new StringBuilder();
+        appendCacheKey(sb, query, Collections.emptySet());
+        sb.append('|');
+        appendCacheKey(sb, options, ignoredOptions);
+        return sb.toString();
+    }
+
+    private static void appendCacheKey(StringBuilder sb, ObjectMap map, Collection<String> ignoredKeys) {
+        if (map == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : new TreeMap<>(map).entrySet()) {
+            Object value = entry.getValue();
+            if (value == null || ignoredKeys.contains(entry.getKey())
+                    || value instanceof String && ((String) value).isEmpty()
+                    || value instanceof Collection && ((Collection) value).isEmpty()) {
+                continue;
+            }
+            sb.append(entry.getKey()).append('=');
+            if (value instanceof Collection) {
+                sb.append(((Collection<?>) value).stream().map(String::valueOf).collect(Collectors.joining(",")));
+            } else {
+                sb.append(value);
+            }
+            sb.append(';');
+        }
+    }
+
     public static QueryOptions addDefaultLimit(QueryOptions queryOptions, ObjectMap configuration) {
         return addDefaultLimit(QueryOptions.LIMIT, queryOptions == null ? new QueryOptions() : queryOptions,
                 configuration.getInt(QUERY_LIMIT_MAX.key(), QUERY_LIMIT_MAX.defaultValue()),
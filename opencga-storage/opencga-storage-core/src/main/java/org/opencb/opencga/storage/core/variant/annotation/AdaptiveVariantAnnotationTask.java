@@ -0,0 +1,324 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.annotation;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.run.Task;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Annotates variants in sub-batches sized to a target latency.
+ *
+ * The cost of annotating a variant depends on its type. Each batch is partitioned by {@link CostClass}, and each class is
+ * annotated in sub-batches whose size is estimated from the observed time per variant of that class, so a batch of
+ * structural variants does not take much longer than a batch of SNVs.
+ *
+ * A sub-batch failing because of its variants is split in two halves, which are annotated separately, until the failing
+ * variant is found. A single variant is retried once before failing the whole batch. If both halves fail, the error is not
+ * caused by a single variant, and the whole batch fails.
+ * Errors from the annotation service, like timeouts or connection errors, are retried once without splitting the sub-batch.
+ * The number of failed calls to the annotator in each batch is limited by {@link #MAX_FAILURES_PER_BATCH}.
+ *
+ * This task is thread safe, and can be shared by all the threads of a {@link org.opencb.commons.run.ParallelTaskRunner}.
+ */
+public class AdaptiveVariantAnnotationTask implements Task<Variant, VariantAnnotation> {
+
+    public enum CostClass {
+        SNV,
+        INDEL,
+        SV
+    }
+
+    // Upper bounds of the latency histogram buckets, in milliseconds
+    static final long[] LATENCY_BUCKETS = {100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, Long.MAX_VALUE};
+    private static final double ALPHA = 0.3;
+    static final int MAX_FAILURES_PER_BATCH = 20;
+    static final int MAX_SERVICE_ERROR_RETRIES = 1;
+    private static final int MAX_SINGLE_VARIANT_RETRIES = 1;
+
+    private static Logger logger = LoggerFactory.getLogger(AdaptiveVariantAnnotationTask.class);
+
+    private final VariantAnnotator variantAnnotator;
+    private final long targetLatencyMs;
+    private final int initialBatchSize;
+    private final int maxBatchSize;
+    private final Map<CostClass, ClassStats> stats = new EnumMap<>(CostClass.class);
+    private final long startTime = System.nanoTime();
+
+    public AdaptiveVariantAnnotationTask(VariantAnnotator variantAnnotator, long targetLatencyMs, int initialBatchSize,
+                                         int maxBatchSize) {
+        this.variantAnnotator = variantAnnotator;
+        this.targetLatencyMs = targetLatencyMs;
+        this.initialBatchSize = Math.max(1, Math.min(initialBatchSize, maxBatchSize));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        for (CostClass costClass : CostClass.values()) {
+            stats.put(costClass, new ClassStats());
+        }
+    }
+
+    public static CostClass getCostClass(Variant variant) {
+        switch (variant.getType()) {
+            case SNV:
+            case SNP:
+            case MNV:
+            case MNP:
+            case NO_VARIATION:
+                return CostClass.SNV;
+            case INDEL:
+            case INSERTION:
+            case DELETION:
+                if (variant.getLength() < Variant.SV_THRESHOLD) {
+                    return CostClass.INDEL;
+                } else {
+                    return CostClass.SV;
+                }
+            default:
+                return CostClass.SV;
+        }
+    }
+
+    @Override
+    public List<VariantAnnotation> apply(List<Variant> batch) throws VariantAnnotatorException {
+        Map<CostClass, List<Variant>> partitions = new EnumMap<>(CostClass.class);
+        for (Variant variant : batch) {
+            partitions.computeIfAbsent(getCostClass(variant), k -> new ArrayList<>()).add(variant);
+        }
+
+        List<VariantAnnotation> annotations = new ArrayList<>(batch.size());
+        AtomicInteger failures = new AtomicInteger();
+        for (Map.Entry<CostClass, List<Variant>> entry : partitions.entrySet()) {
+            CostClass costClass = entry.getKey();
+            List<Variant> variants = entry.getValue();
+            int from = 0;
+            while (from < variants.size()) {
+                int to = Math.min(variants.size(), from + getBatchSize(costClass));
+                annotate(costClass, variants.subList(from, to), annotations, failures, false);
+                from = to;
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * Annotate a sub-batch of variants, splitting it in case of failure.
+     *
+     * @param costClass     Cost class of the variants
+     * @param variants      Variants to annotate
+     * @param annotations   List to add the annotations
+     * @param failures      Number of failed calls to the annotator in the current batch
+     * @param siblingFailed If the other half of the parent sub-batch failed
+     * @return If the first attempt to annotate the variants failed
+     * @throws VariantAnnotatorException if the variants could not be annotated
+     */
+    private boolean annotate(CostClass costClass, List<Variant> variants, List<VariantAnnotation> annotations, AtomicInteger failures,
+                             boolean siblingFailed)
+            throws VariantAnnotatorException {
+        ClassStats classStats = stats.get(costClass);
+        Exception error = tryAnnotate(costClass, variants, annotations, failures);
+        if (error == null) {
+            return false;
+        }
+        if (isServiceError(error)) {
+            // Splitting the sub-batch would not help
+            for (int retry = 0; retry < MAX_SERVICE_ERROR_RETRIES && error != null; retry++) {
+                logger.warn("Error annotating batch of {} {} variants. Retry. {}", variants.size(), costClass, error.getMessage());
+                classStats.retries.incrementAndGet();
+                error = tryAnnotate(costClass, variants, annotations, failures);
+            }
+            if (error != null) {
+                throw new VariantAnnotatorException("Error annotating batch of " + variants.size() + " variants", error);
+            }
+        } else if (siblingFailed) {
+            throw new VariantAnnotatorException("Error annotating both halves of a batch of variants. "
+                    + "The error is not caused by a single variant", error);
+        } else if (variants.size() > 1) {
+            int half = variants.size() / 2;
+            logger.warn("Error annotating batch of {} {} variants. Split in two batches and retry. {}",
+                    variants.size(), costClass, error.getMessage());
+            classStats.splits.incrementAndGet();
+            boolean firstHalfFailed = annotate(costClass, variants.subList(0, half), annotations, failures, false);
+            annotate(costClass, variants.subList(half, variants.size()), annotations, failures, firstHalfFailed);
+        } else {
+            for (int retry = 0; retry < MAX_SINGLE_VARIANT_RETRIES && error != null; retry++) {
+                logger.warn("Error annotating variant {}. Retry. {}", variants.get(0), error.getMessage());
+                classStats.retries.incrementAndGet();
+                error = tryAnnotate(costClass, variants, annotations, failures);
+            }
+            if (error != null) {
+                throw new VariantAnnotatorException("Error annotating variant " + variants.get(0), error);
+            }
+        }
+        return true;
+    }
+
+    private Exception tryAnnotate(CostClass costClass, List<Variant> variants, List<VariantAnnotation> annotations,
+                                  AtomicInteger failures)
+            throws VariantAnnotatorException {
+        ClassStats classStats = stats.get(costClass);
+        long start = System.nanoTime();
+        List<VariantAnnotation> result;
+        try {
+            result = variantAnnotator.annotate(variants);
+        } catch (VariantAnnotatorException | RuntimeException e) {
+            classStats.onFailure(variants.size(), targetLatencyMs);
+            if (failures.incrementAndGet() >= MAX_FAILURES_PER_BATCH) {
+                throw new VariantAnnotatorException("Too many errors annotating batch of variants. "
+                        + "Last error annotating " + variants.size() + " variants", e);
+            }
+            return e;
+        }
+        classStats.onSuccess(variants.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        annotations.addAll(result);
+        return null;
+    }
+
+    /**
+     * Check if an error was caused by the annotation service, e.g. timeouts or connection errors, instead of by the variants.
+     *
+     * @param e Error
+     * @return If any of the causes is an IOException or a TimeoutException
+     */
+    static boolean isServiceError(Throwable e) {
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Get the size of the next sub-batch of variants of the given class.
+     *
+     * @param costClass Cost class
+     * @return Number of variants expected to be annotated in the target latency
+     */
+    public int getBatchSize(CostClass costClass) {
+        double msPerVariant = stats.get(costClass).getMsPerVariant();
+        if (msPerVariant <= 0) {
+            return initialBatchSize;
+        }
+        long batchSize = Math.round(targetLatencyMs / msPerVariant);
+        return (int) Math.max(1, Math.min(maxBatchSize, batchSize));
+    }
+
+    public long getNumVariants(CostClass costClass) {
+        return stats.get(costClass).variants.get();
+    }
+
+    public long getNumSplits(CostClass costClass) {
+        return stats.get(costClass).splits.get();
+    }
+
+    /**
+     * Build a summary of the throughput and latency histogram of each cost class.
+     *
+     * @return Human readable summary
+     */
+    public String getStatsSummary() {
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+        StringBuilder sb = new StringBuilder("Annotation stats:");
+        for (Map.Entry<CostClass, ClassStats> entry : stats.entrySet()) {
+            ClassStats classStats = entry.getValue();
+            long variants = classStats.variants.get();
+            long batches = classStats.batches.get();
+            if (variants == 0 && classStats.failures.get() == 0) {
+                continue;
+            }
+            sb.append('\n').append(" - ").append(entry.getKey()).append(": ")
+                    .append(variants).append(" variants in ").append(batches).append(" batches, ")
+                    .append(String.format("%.1f", variants / Math.max(elapsedSeconds, 0.001))).append(" variants/s, ")
+                    .append(String.format("%.1f", classStats.getMsPerVariant())).append(" ms/variant, ")
+                    .append(classStats.failures.get()).append(" failures, ")
+                    .append(classStats.splits.get()).append(" splits, ")
+                    .append(classStats.retries.get()).append(" retries, ")
+                    .append("next batch size ").append(getBatchSize(entry.getKey()))
+                    .append('\n').append("   latency (ms):");
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                sb.append(' ');
+                if (LATENCY_BUCKETS[i] == Long.MAX_VALUE) {
+                    sb.append('>').append(LATENCY_BUCKETS[i - 1]);
+                } else {
+                    sb.append("<=").append(LATENCY_BUCKETS[i]);
+                }
+                sb.append(':').append(classStats.latencyHistogram.get(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class ClassStats {
+        private final AtomicLong variants = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong splits = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS.length);
+        // Exponentially weighted moving average of the time per variant. Negative if unknown
+        private double msPerVariant = -1;
+
+        private synchronized double getMsPerVariant() {
+            return msPerVariant;
+        }
+
+        private void onSuccess(int numVariants, long latencyMs) {
+            variants.addAndGet(numVariants);
+            batches.incrementAndGet();
+            int bucket = 0;
+            while (latencyMs > LATENCY_BUCKETS[bucket]) {
+                bucket++;
+            }
+            latencyHistogram.incrementAndGet(bucket);
+            double observed = Math.max(latencyMs, 1) / (double) numVariants;
+            synchronized (this) {
+                if (msPerVariant < 0) {
+                    msPerVariant = observed;
+                } else {
+                    msPerVariant = ALPHA * observed + (1 - ALPHA) * msPerVariant;
+                }
+            }
+        }
+
+        private void onFailure(int numVariants, long targetLatencyMs) {
+            failures.incrementAndGet();
+            // Failures are usually timeouts. Reduce the size of the next batches
+            synchronized (this) {
+                if (msPerVariant > 0) {
+                    msPerVariant *= 2;
+                } else {
+                    msPerVariant = 2.0 * targetLatencyMs / numVariants;
+                }
+            }
+        }
+    }
+}
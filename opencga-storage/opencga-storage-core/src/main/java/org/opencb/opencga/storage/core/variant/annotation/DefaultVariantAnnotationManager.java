@@ -151,12 +151,15 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
             loadAnnotation(annotationFile, params);
             logger.info("Finished annotation load {}ms", System.currentTimeMillis() - start);
 
-            if (doCreate) {
-                dbAdaptor.getMetadataManager().updateProjectMetadata(projectMetadata -> {
+            long ts = System.currentTimeMillis();
+            boolean annotationCreated = doCreate;
+            dbAdaptor.getMetadataManager().updateProjectMetadata(projectMetadata -> {
+                if (annotationCreated) {
                     updateCurrentAnnotation(variantAnnotator, projectMetadata, overwrite);
-                    return projectMetadata;
-                });
-            }
+                }
+                projectMetadata.getAttributes().put(LAST_ANNOTATION_TS, ts);
+                return projectMetadata;
+            });
         }
 
         return numAnnotationsToLoad.get();
@@ -191,6 +194,22 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
         int numThreads = params.getInt(
                 VariantStorageOptions.ANNOTATION_NUM_THREADS.key(),
                 VariantStorageOptions.ANNOTATION_NUM_THREADS.defaultValue());
+        final AdaptiveVariantAnnotationTask adaptiveTask;
+        if (params.getBoolean(VariantStorageOptions.ANNOTATION_BATCH_SIZE_ADAPTIVE.key(),
+                VariantStorageOptions.ANNOTATION_BATCH_SIZE_ADAPTIVE.defaultValue())) {
+            int maxBatchSize = params.getInt(
+                    VariantStorageOptions.ANNOTATION_BATCH_SIZE_MAX.key(),
+                    VariantStorageOptions.ANNOTATION_BATCH_SIZE_MAX.defaultValue());
+            int targetLatency = params.getInt(
+                    VariantStorageOptions.ANNOTATION_TARGET_LATENCY.key(),
+                    VariantStorageOptions.ANNOTATION_TARGET_LATENCY.defaultValue());
+            logger.info("Using adaptive annotation batches. Target latency {}ms, max batch size {}", targetLatency, maxBatchSize);
+            // Read big batches. The adaptive task splits them in sub-batches of the right size
+            adaptiveTask = new AdaptiveVariantAnnotationTask(variantAnnotator, targetLatency, batchSize, maxBatchSize);
+            batchSize = maxBatchSize;
+        } else {
+            adaptiveTask = null;
+        }
 
         try {
             DataReader<Variant> variantDataReader = getVariantDataReader(query, iteratorQueryOptions, params);
@@ -211,7 +230,11 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
                 List<VariantAnnotation> variantAnnotationList;
                 long start = System.currentTimeMillis();
                 logger.debug("Annotating batch of {} genomic variants.", variantList.size());
-                variantAnnotationList = variantAnnotator.annotate(variantList);
+                if (adaptiveTask == null) {
+                    variantAnnotationList = variantAnnotator.annotate(variantList);
+                } else {
+                    variantAnnotationList = adaptiveTask.apply(variantList);
+                }
                 progressLogger.increment(variantList.size(),
                         () -> ", up to position " + variantList.get(variantList.size() - 1).toString());
                 numAnnotationsToLoad.addAndGet(variantList.size());
@@ -243,6 +266,10 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
             parallelTaskRunner.run();
         } catch (ExecutionException e) {
             throw new VariantAnnotatorException("Error creating annotations", e);
+        } finally {
+            if (adaptiveTask != null) {
+                logger.info(adaptiveTask.getStatsSummary());
+            }
         }
 
         return fileUri;
@@ -49,6 +49,8 @@ public abstract class VariantAnnotationManager {
     public static final String LOAD_FILE = "annotation.load.file";
     public static final String CUSTOM_ANNOTATION_KEY = "custom_annotation_key";
     public static final String CURRENT = "CURRENT";
+    // Timestamp of the last annotation load, stored in the ProjectMetadata attributes
+    public static final String LAST_ANNOTATION_TS = "lastAnnotationTs";
 
     private static Logger logger = LoggerFactory.getLogger(VariantAnnotationManager.class);
 
@@ -84,7 +84,7 @@ public class CellBaseRestVariantAnnotator extends AbstractCellBaseVariantAnnotat
                     .getAnnotationByVariantIds(variants.stream().map(variantSerializer).collect(Collectors.toList()), queryOptions, true);
             return queryResponse.getResponse();
         } catch (IOException e) {
-            throw new VariantAnnotatorException("Error fetching variants from Client");
+            throw new VariantAnnotatorException("Error fetching variants from Client", e);
         }
     }
 
@@ -18,10 +18,13 @@ package org.opencb.opencga.storage.core.variant.io;
 
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.formats.variant.vcf4.io.VariantVcfReader;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.metadata.Individual;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.commons.ProgressLogger;
@@ -34,7 +37,12 @@ import org.opencb.opencga.core.common.UriUtils;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantMetadataFactory;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat;
 import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
 import org.slf4j.Logger;
@@ -43,10 +51,16 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.io.*;
 import java.net.URI;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.EXPORT_NUM_THREADS;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.EXPORT_PARTITION_SIZE;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
 
 /**
  * Prints the result of a given query in the selected output format, and the associated metadata.
@@ -65,6 +79,7 @@ public class VariantExporter {
     protected final VariantWriterFactory variantWriterFactory;
     protected final VariantMetadataFactory metadataFactory;
     protected final IOConnectorProvider ioConnectorProvider;
+    private static final int PARTITION_BATCH_SIZE = 100;
 
     private final Logger logger = LoggerFactory.getLogger(VariantExporter.class);
 
@@ -99,9 +114,26 @@ public class VariantExporter {
             ioConnectorProvider.checkWritable(outputFile);
         }
 
-        try (OutputStream os = VariantWriterFactory.getOutputStream(outputFile, outputFormat, ioConnectorProvider)) {
-            boolean logProgress = !VariantWriterFactory.isStandardOutput(outputFile);
-            exportData(os, outputFormat, variantsFile, query, queryOptions, logProgress);
+        int numThreads = queryOptions == null
+                ? engine.getOptions().getInt(EXPORT_NUM_THREADS.key(), EXPORT_NUM_THREADS.defaultValue())
+                : queryOptions.getInt(EXPORT_NUM_THREADS.key(),
+                        engine.getOptions().getInt(EXPORT_NUM_THREADS.key(), EXPORT_NUM_THREADS.defaultValue()));
+        List<Region> partitions = numThreads > 1 && variantsFile == null
+                ? getPartitions(outputFormat, query, queryOptions)
+                : Collections.emptyList();
+        if (partitions.isEmpty()) {
+            try (OutputStream os = VariantWriterFactory.getOutputStream(outputFile, outputFormat, ioConnectorProvider)) {
+                boolean logProgress = !VariantWriterFactory.isStandardOutput(outputFile);
+                exportData(os, outputFormat, variantsFile, query, queryOptions, logProgress);
+            }
+        } else {
+            // Parts are already compressed. Write them into the raw output
+            OutputStream rawOutputStream = VariantWriterFactory.isStandardOutput(outputFile)
+                    ? new VariantWriterFactory.UnclosableOutputStream(System.out)
+                    : ioConnectorProvider.newOutputStreamRaw(outputFile);
+            try (OutputStream os = new BufferedOutputStream(rawOutputStream)) {
+                exportPartitioned(os, outputFormat, query, queryOptions, partitions, numThreads);
+            }
         }
         if (metadataFactory != null && !VariantWriterFactory.isStandardOutput(outputFile)) {
             VariantMetadata metadata = metadataFactory.makeVariantMetadata(query, queryOptions);
@@ -172,6 +204,219 @@ public class VariantExporter {
 
     }
 
+    /**
+     * Split the export in genomic partitions, using the contigs from the header of the included studies.
+     *
+     * Only text formats that can be concatenated are partitioned. Queries with a limit, a skip, or already restricted to
+     * a set of regions, genes or ids are not partitioned. Contigs without a declared length are exported in one partition.
+     * The export is not partitioned if any included study does not declare its contigs, or if there are variants in
+     * contigs not declared in the header.
+     *
+     * @param outputFormat  Variant output format
+     * @param query         Query with the variants to export
+     * @param queryOptions  Query options
+     * @return Partitions in genomic order, or an empty list if the export can not be partitioned
+     * @throws StorageEngineException  If there is any error counting the variants
+     */
+    protected List<Region> getPartitions(VariantOutputFormat outputFormat, Query query, QueryOptions queryOptions)
+            throws StorageEngineException {
+        switch (outputFormat) {
+            case VCF:
+            case VCF_GZ:
+            case JSON:
+            case JSON_GZ:
+                break;
+            default:
+                return Collections.emptyList();
+        }
+        query = query == null ? new Query() : query;
+        queryOptions = queryOptions == null ? new QueryOptions() : queryOptions;
+        if (queryOptions.containsKey(QueryOptions.LIMIT) || queryOptions.containsKey(QueryOptions.SKIP)) {
+            return Collections.emptyList();
+        }
+        for (VariantQueryParam param : Arrays.asList(REGION, GENE, ID, ANNOT_XREF)) {
+            if (VariantQueryUtils.isValidParam(query, param)) {
+                return Collections.emptyList();
+            }
+        }
+
+        VariantStorageMetadataManager metadataManager = engine.getMetadataManager();
+        Map<String, Integer> contigs = new LinkedHashMap<>();
+        for (Integer studyId : VariantQueryUtils.getIncludeStudies(query, queryOptions, metadataManager)) {
+            StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+            int numContigs = 0;
+            if (studyMetadata.getVariantHeader() != null) {
+                for (VariantFileHeaderComplexLine line : studyMetadata.getVariantHeader().getComplexLines()) {
+                    if (line.getKey().equalsIgnoreCase("contig")) {
+                        String length = line.getGenericFields() == null ? null : line.getGenericFields().get("length");
+                        // Unknown length. Export the whole contig in one partition
+                        int contigLength = StringUtils.isNumeric(length) ? Integer.parseInt(length) : 0;
+                        contigs.merge(line.getId(), contigLength, Math::max);
+                        numContigs++;
+                    }
+                }
+            }
+            if (numContigs == 0) {
+                logger.info("Unable to partition the export. Missing contigs in the header of study '{}'", studyMetadata.getName());
+                return Collections.emptyList();
+            }
+        }
+
+        // Check that all the variants are in the declared contigs before writing anything
+        long numVariants = engine.count(query).first();
+        long numVariantsInContigs = engine.count(new Query(query).append(REGION.key(), String.join(",", contigs.keySet()))).first();
+        if (numVariants != numVariantsInContigs) {
+            logger.warn("Unable to partition the export. Found {} variants in contigs not declared in the header",
+                    numVariants - numVariantsInContigs);
+            return Collections.emptyList();
+        }
+
+        int partitionSize = queryOptions.getInt(EXPORT_PARTITION_SIZE.key(),
+                engine.getOptions().getInt(EXPORT_PARTITION_SIZE.key(), EXPORT_PARTITION_SIZE.defaultValue()));
+        List<Region> partitions = new ArrayList<>();
+        for (Map.Entry<String, Integer> contig : contigs.entrySet()) {
+            long start = 1;
+            while (start + partitionSize <= contig.getValue()) {
+                partitions.add(new Region(contig.getKey(), (int) start, (int) (start + partitionSize - 1)));
+                start += partitionSize;
+            }
+            // Last partition up to the end, in case of variants after the declared length
+            partitions.add(new Region(contig.getKey(), (int) start, Integer.MAX_VALUE));
+        }
+        return partitions;
+    }
+
+    /**
+     * Export the variants running one iterator per partition concurrently.
+     *
+     * Each partition is encoded into a temporary part, compressed as an independent gzip member if needed.
+     * Parts are appended to the output in genomic order without re-compression.
+     *
+     * @param outputStream  Raw output stream
+     * @param outputFormat  Variant output format
+     * @param query         Query with the variants to export
+     * @param queryOptions  Query options
+     * @param partitions    Partitions, in genomic order
+     * @param numThreads    Number of concurrent partitions
+     * @throws IOException  If there is any IO error
+     * @throws StorageEngineException  If there is any error exporting variants
+     */
+    protected void exportPartitioned(OutputStream outputStream, VariantOutputFormat outputFormat, Query query, QueryOptions queryOptions,
+                                     List<Region> partitions, int numThreads)
+            throws IOException, StorageEngineException {
+        Query finalQuery = query == null ? new Query() : query;
+        QueryOptions finalQueryOptions = queryOptions == null ? new QueryOptions() : queryOptions;
+        logger.info("Export variants in {} partitions using {} threads", partitions.size(), numThreads);
+
+        Path tmpDir = Files.createTempDirectory("opencga_export_");
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        AtomicLong numVariants = new AtomicLong();
+        ProgressLogger progressLogger = new ProgressLogger("Export variants. Partitions:", partitions.size());
+        Deque<Future<Path>> parts = new ArrayDeque<>();
+        try {
+            int submitted = 0;
+            for (Region partition : partitions) {
+                // Keep a bounded number of parts in the temporary folder
+                while (submitted < partitions.size() && parts.size() < numThreads * 2) {
+                    int idx = submitted++;
+                    parts.add(executor.submit(() -> exportPartition(tmpDir, idx, partitions.get(idx), outputFormat,
+                            finalQuery, finalQueryOptions, numVariants)));
+                }
+                Path part = parts.removeFirst().get();
+                Files.copy(part, outputStream);
+                Files.delete(part);
+                progressLogger.increment(1, () -> "up to region " + partition);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageEngineException("Error exporting variants", e);
+        } catch (ExecutionException e) {
+            throw new StorageEngineException("Error exporting variants", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            org.apache.commons.io.FileUtils.deleteQuietly(tmpDir.toFile());
+        }
+        logger.info("Exported {} variants", numVariants.get());
+    }
+
+    private Path exportPartition(Path tmpDir, int idx, Region region, VariantOutputFormat outputFormat, Query query,
+                                 QueryOptions queryOptions, AtomicLong numVariants) throws Exception {
+        Path part = tmpDir.resolve("part_" + idx);
+        Query partitionQuery = new Query(query).append(REGION.key(), region.toString());
+
+        OutputStream os = new BufferedOutputStream(Files.newOutputStream(part));
+        if (outputFormat.isGzip()) {
+            os = new GZIPOutputStream(os);
+        }
+        if (idx > 0 && (outputFormat == VariantOutputFormat.VCF || outputFormat == VariantOutputFormat.VCF_GZ)) {
+            // The header is only written by the first part
+            os = new HeaderSkippingOutputStream(os);
+        }
+        try (OutputStream partOutputStream = os;
+             VariantDBIterator iterator = engine.iterator(partitionQuery, queryOptions)) {
+            DataWriter<Variant> writer = variantWriterFactory.newDataWriter(outputFormat, partOutputStream, query, queryOptions);
+            writer.open();
+            writer.pre();
+            List<Variant> batch = new ArrayList<>(PARTITION_BATCH_SIZE);
+            while (iterator.hasNext()) {
+                Variant variant = iterator.next();
+                // Variants overlapping two partitions are only exported from the partition where they start
+                if (variant.getStart() < region.getStart()) {
+                    continue;
+                }
+                batch.add(variant);
+                if (batch.size() == PARTITION_BATCH_SIZE) {
+                    writer.write(batch);
+                    numVariants.addAndGet(batch.size());
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writer.write(batch);
+                numVariants.addAndGet(batch.size());
+            }
+            writer.post();
+            writer.close();
+        }
+        return part;
+    }
+
+    /**
+     * Drops the leading header lines (starting with '#') of a VCF part.
+     */
+    private static class HeaderSkippingOutputStream extends FilterOutputStream {
+        private boolean skipping = true;
+        private boolean lineStart = true;
+
+        HeaderSkippingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (skipping) {
+                if (lineStart && b != '#') {
+                    skipping = false;
+                } else {
+                    lineStart = b == '\n';
+                    return;
+                }
+            }
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int i = off;
+            while (skipping && i < off + len) {
+                write(b[i++]);
+            }
+            if (i < off + len) {
+                out.write(b, i, off + len - i);
+            }
+        }
+    }
+
     protected void writeMetadata(VariantMetadata metadata, URI metadataFile) throws IOException {
         if (metadataFile.toString().endsWith(TFAM_FILE_EXTENSION)) {
             // Write .tfam file
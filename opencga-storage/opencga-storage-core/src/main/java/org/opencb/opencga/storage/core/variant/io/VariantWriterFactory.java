@@ -79,6 +79,8 @@ public class VariantWriterFactory {
         AVRO_SNAPPY("avro.snappy"),
         PARQUET("parquet"),
         PARQUET_GZ("parquet.gz"),
+        FLAT_PARQUET("flat.parquet", false),
+        FLAT_PARQUET_GZ("flat.parquet.gz", false),
         STATS("stats.tsv", false),
         STATS_GZ("stats.tsv.gz", false),
         CELLBASE("frequencies.json"),
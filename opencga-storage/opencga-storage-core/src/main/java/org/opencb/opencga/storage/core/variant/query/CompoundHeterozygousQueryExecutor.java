@@ -2,7 +2,6 @@ package org.opencb.opencga.storage.core.variant.query;
 
 import com.google.common.collect.Iterators;
 import org.opencb.biodata.models.variant.Variant;
-import org.opencb.biodata.tools.pedigree.ModeOfInheritance;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotationUtils;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.ObjectMap;
@@ -13,7 +12,6 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
-import org.opencb.opencga.storage.core.variant.adaptors.iterators.UnionMultiVariantKeyIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIteratorWithCounts;
 import org.slf4j.Logger;
@@ -142,11 +140,12 @@ public class CompoundHeterozygousQueryExecutor extends AbstractTwoPhasedVariantQ
                 = new VariantDBIteratorWithCounts(getRawIterator(proband, father, mother, query, options));
 
         // Filter compound heterozygous
-        List<Variant> compoundHeterozygous = ModeOfInheritance.compoundHeterozygous(unfilteredIterator,
+        List<Variant> compoundHeterozygous = new CompoundHeterozygousTrioFilter(
                 includeSample.indexOf(proband),
-                includeSample.indexOf(mother),
                 includeSample.indexOf(father),
-                Math.max(limit + skip, samplingSize), cts, biotypes);
+                includeSample.indexOf(mother),
+                biotypes, cts)
+                .filter(unfilteredIterator, Math.max(limit + skip, samplingSize));
 
 //        logger.debug("Got " + compoundHeterozygous.size() + " compHet groups with "
 //                + compoundHeterozygous.values().stream().mapToInt(List::size).sum() + " variants, "
@@ -252,19 +251,14 @@ public class CompoundHeterozygousQueryExecutor extends AbstractTwoPhasedVariantQ
 
             return iterable.iterator(query, options);
         } else {
-            // Multi parent iterator
-            Query query1 = new Query(query)
-                    .append(VariantQueryParam.GENOTYPE.key(), proband + IS + HET + AND + father + IS + HET + AND + mother + IS + REF)
-                    .append(VariantQueryUtils.SAMPLE_COMPOUND_HETEROZYGOUS.key(), null); // Remove CH filter
-            Query query2 = new Query(query)
-                    .append(VariantQueryParam.GENOTYPE.key(), proband + IS + HET + AND + father + IS + REF + AND + mother + IS + HET)
+            // Both parents in one single query. The origin of each variant is resolved by the CompoundHeterozygousTrioFilter
+            query = new Query(query)
+                    .append(VariantQueryParam.GENOTYPE.key(), proband + IS + HET
+                            + AND + father + IS + REF + OR + HET
+                            + AND + mother + IS + REF + OR + HET)
                     .append(VariantQueryUtils.SAMPLE_COMPOUND_HETEROZYGOUS.key(), null); // Remove CH filter
 
-            VariantDBIterator iterator1 = iterable.iterator(query1, new QueryOptions(options).append(QueryOptions.SORT, true));
-            VariantDBIterator iterator2 = iterable.iterator(query2, new QueryOptions(options).append(QueryOptions.SORT, true));
-
-            return new UnionMultiVariantKeyIterator(Arrays.asList(iterator1, iterator2));
-//            return Iterators.concat(iterator1, iterator2);
+            return iterable.iterator(query, new QueryOptions(options).append(QueryOptions.SORT, true));
         }
     }
 }
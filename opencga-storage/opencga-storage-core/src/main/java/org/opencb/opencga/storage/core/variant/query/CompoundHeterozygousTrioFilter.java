@@ -0,0 +1,227 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
+
+import java.util.*;
+
+/**
+ * Streaming compound heterozygous filter for a trio.
+ *
+ * Reads a sorted iterator of variants, where the proband is heterozygous, in one single pass.
+ * Each variant is assigned to the parent it was inherited from by looking at the parents genotypes,
+ * and buffered by gene. A gene is compound heterozygous if it has variants inherited from both parents.
+ *
+ * Genes are resolved at the end of each chromosome. The buffer of each gene is bounded by the number of
+ * requested results, as the variants after the first N variants of one gene can never be part of the first N results.
+ * The iteration stops once there are enough results from the completed chromosomes.
+ */
+public class CompoundHeterozygousTrioFilter {
+
+    public static final Set<String> HET_GENOTYPES = new HashSet<>(Arrays.asList(CompoundHeterozygousQueryExecutor.HET.split(",")));
+    public static final Set<String> REF_GENOTYPES = new HashSet<>(Arrays.asList(CompoundHeterozygousQueryExecutor.REF.split(",")));
+
+    private final int probandIdx;
+    private final int fatherIdx;
+    private final int motherIdx;
+    private final Set<String> biotypes;
+    private final Set<String> consequenceTypes;
+
+    private enum Origin {
+        FATHER, MOTHER
+    }
+
+    /**
+     * Build a new filter.
+     *
+     * @param probandIdx        Position of the proband in the returned samples
+     * @param fatherIdx         Position of the father in the returned samples, or -1 if missing
+     * @param motherIdx         Position of the mother in the returned samples, or -1 if missing
+     * @param biotypes          Biotypes of the genes to consider. Empty for any.
+     * @param consequenceTypes  Consequence type names to consider. Empty for any.
+     */
+    public CompoundHeterozygousTrioFilter(int probandIdx, int fatherIdx, int motherIdx,
+                                          Collection<String> biotypes, Collection<String> consequenceTypes) {
+        if (probandIdx < 0) {
+            throw new IllegalArgumentException("Missing proband");
+        }
+        if (fatherIdx < 0 && motherIdx < 0) {
+            throw new IllegalArgumentException("Require at least one parent to get compound heterozygous");
+        }
+        this.probandIdx = probandIdx;
+        this.fatherIdx = fatherIdx;
+        this.motherIdx = motherIdx;
+        this.biotypes = biotypes == null ? Collections.emptySet() : new HashSet<>(biotypes);
+        this.consequenceTypes = consequenceTypes == null ? Collections.emptySet() : new HashSet<>(consequenceTypes);
+    }
+
+    /**
+     * Filter the compound heterozygous variants from a sorted iterator.
+     *
+     * @param iterator  Variants iterator, sorted by chromosome and position
+     * @param limit     Max number of variants to return
+     * @return          Sorted list of compound heterozygous variants
+     */
+    public List<Variant> filter(Iterator<Variant> iterator, int limit) {
+        List<Variant> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        Map<String, GeneBuffer> genes = new HashMap<>();
+        String chromosome = null;
+        int variantIdx = 0;
+        while (iterator.hasNext()) {
+            Variant variant = iterator.next();
+            if (!variant.getChromosome().equals(chromosome)) {
+                resolve(genes, result, limit);
+                if (result.size() >= limit) {
+                    break;
+                }
+                chromosome = variant.getChromosome();
+            }
+            Origin origin = getOrigin(variant);
+            if (origin == null) {
+                continue;
+            }
+            Set<String> variantGenes = getGenes(variant);
+            if (variantGenes.isEmpty()) {
+                continue;
+            }
+            for (String gene : variantGenes) {
+                genes.computeIfAbsent(gene, k -> new GeneBuffer()).add(variantIdx, variant, origin, limit);
+            }
+            variantIdx++;
+        }
+        resolve(genes, result, limit);
+        return result;
+    }
+
+    private void resolve(Map<String, GeneBuffer> genes, List<Variant> result, int limit) {
+        if (genes.isEmpty()) {
+            return;
+        }
+        // Sort by arrival order, which is the genomic order. Removes duplicated variants from overlapping genes.
+        TreeMap<Integer, Variant> chromosomeResult = new TreeMap<>();
+        for (GeneBuffer gene : genes.values()) {
+            if (gene.isCompoundHeterozygous()) {
+                for (int i = 0; i < gene.variants.size(); i++) {
+                    chromosomeResult.put(gene.variantIdx.get(i), gene.variants.get(i));
+                }
+            }
+        }
+        genes.clear();
+        for (Variant variant : chromosomeResult.values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(variant);
+        }
+    }
+
+    private Origin getOrigin(Variant variant) {
+        if (variant.getStudies() == null || variant.getStudies().isEmpty()) {
+            return null;
+        }
+        StudyEntry studyEntry = variant.getStudies().get(0);
+        if (studyEntry.getFormat() == null || studyEntry.getFormat().isEmpty() || !studyEntry.getFormat().get(0).equals("GT")) {
+            return null;
+        }
+        if (!HET_GENOTYPES.contains(getGenotype(studyEntry, probandIdx))) {
+            return null;
+        }
+        if (fatherIdx < 0 || motherIdx < 0) {
+            // Single parent
+            boolean fatherPresent = fatherIdx >= 0;
+            String parentGt = getGenotype(studyEntry, fatherPresent ? fatherIdx : motherIdx);
+            if (HET_GENOTYPES.contains(parentGt)) {
+                return fatherPresent ? Origin.FATHER : Origin.MOTHER;
+            } else if (REF_GENOTYPES.contains(parentGt)) {
+                return fatherPresent ? Origin.MOTHER : Origin.FATHER;
+            } else {
+                return null;
+            }
+        } else {
+            String fatherGt = getGenotype(studyEntry, fatherIdx);
+            String motherGt = getGenotype(studyEntry, motherIdx);
+            if (HET_GENOTYPES.contains(fatherGt) && REF_GENOTYPES.contains(motherGt)) {
+                return Origin.FATHER;
+            } else if (REF_GENOTYPES.contains(fatherGt) && HET_GENOTYPES.contains(motherGt)) {
+                return Origin.MOTHER;
+            } else {
+                return null;
+            }
+        }
+    }
+
+    private String getGenotype(StudyEntry studyEntry, int sampleIdx) {
+        List<List<String>> samplesData = studyEntry.getSamplesData();
+        if (samplesData == null || samplesData.size() <= sampleIdx) {
+            return null;
+        }
+        List<String> sampleData = samplesData.get(sampleIdx);
+        if (sampleData == null || sampleData.isEmpty()) {
+            return null;
+        }
+        return sampleData.get(0);
+    }
+
+    private Set<String> getGenes(Variant variant) {
+        if (variant.getAnnotation() == null || variant.getAnnotation().getConsequenceTypes() == null) {
+            return Collections.emptySet();
+        }
+        Set<String> genes = new HashSet<>();
+        for (ConsequenceType ct : variant.getAnnotation().getConsequenceTypes()) {
+            String gene = StringUtils.isNotEmpty(ct.getEnsemblGeneId()) ? ct.getEnsemblGeneId() : ct.getGeneName();
+            if (StringUtils.isEmpty(gene)) {
+                continue;
+            }
+            if (!biotypes.isEmpty() && !biotypes.contains(ct.getBiotype())) {
+                continue;
+            }
+            if (!consequenceTypes.isEmpty() && !matchConsequenceType(ct)) {
+                continue;
+            }
+            genes.add(gene);
+        }
+        return genes;
+    }
+
+    private boolean matchConsequenceType(ConsequenceType ct) {
+        if (ct.getSequenceOntologyTerms() == null) {
+            return false;
+        }
+        for (SequenceOntologyTerm term : ct.getSequenceOntologyTerms()) {
+            if (consequenceTypes.contains(term.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class GeneBuffer {
+        private boolean fromFather = false;
+        private boolean fromMother = false;
+        private final List<Integer> variantIdx = new ArrayList<>();
+        private final List<Variant> variants = new ArrayList<>();
+
+        private void add(int idx, Variant variant, Origin origin, int limit) {
+            if (origin == Origin.FATHER) {
+                fromFather = true;
+            } else {
+                fromMother = true;
+            }
+            // Only the first "limit" variants of each gene may be returned
+            if (variants.size() < limit) {
+                variantIdx.add(idx);
+                variants.add(variant);
+            }
+        }
+
+        private boolean isCompoundHeterozygous() {
+            return fromFather && fromMother;
+        }
+    }
+}
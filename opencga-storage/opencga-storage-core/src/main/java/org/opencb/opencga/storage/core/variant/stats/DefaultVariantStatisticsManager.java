@@ -204,6 +204,7 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         VariantStorageMetadataManager metadataManager = dbAdaptor.getMetadataManager();
         preCalculateStats(metadataManager, studyMetadata, cohorts, overwrite, updateStats, options);
         overwrite = checkOverwrite(metadataManager, studyMetadata, cohorts, overwrite);
+        Map<String, Set<String>> cohortFiles = getCohortFiles(metadataManager, studyMetadata, cohorts.keySet());
 
         VariantSourceStats variantSourceStats = new VariantSourceStats(null/*FILE_ID*/, Integer.toString(studyMetadata.getId()));
 
@@ -219,8 +220,8 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         List<Task<Variant, String>> tasks = new ArrayList<>(numTasks);
         ProgressLogger progressLogger = buildCreateStatsProgressLogger(dbAdaptor, readerQuery, readerOptions);
         for (int i = 0; i < numTasks; i++) {
-            tasks.add(new VariantStatsWrapperTask(overwrite, cohorts, studyMetadata, variantSourceStats, tagmap, progressLogger,
-                    aggregation));
+            tasks.add(new VariantStatsWrapperTask(overwrite, cohorts, cohortFiles, studyMetadata, variantSourceStats, tagmap,
+                    progressLogger, aggregation));
         }
         StringDataWriter writer = buildVariantStatsStringDataWriter(output);
 
@@ -247,6 +248,30 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         return output;
     }
 
+    /**
+     * Get the names of the files of each cohort. These are the only files used for the FILTER and QUAL stats of the cohort.
+     *
+     * @param metadataManager Metadata manager
+     * @param studyMetadata   Study metadata
+     * @param cohorts         Cohort names
+     * @return Map from cohort name to file names. Cohorts without files registered are not included.
+     */
+    private Map<String, Set<String>> getCohortFiles(VariantStorageMetadataManager metadataManager, StudyMetadata studyMetadata,
+                                                    Collection<String> cohorts) {
+        Map<String, Set<String>> cohortFiles = new HashMap<>(cohorts.size());
+        for (String cohort : cohorts) {
+            CohortMetadata cohortMetadata = metadataManager.getCohortMetadata(studyMetadata.getId(), cohort);
+            if (cohortMetadata != null && cohortMetadata.getFiles() != null) {
+                Set<String> files = new HashSet<>();
+                for (Integer fileId : cohortMetadata.getFiles()) {
+                    files.add(metadataManager.getFileName(studyMetadata.getId(), fileId));
+                }
+                cohortFiles.put(cohort, files);
+            }
+        }
+        return cohortFiles;
+    }
+
     protected ProgressLogger buildCreateStatsProgressLogger(VariantDBAdaptor variantDBAdaptor, Query readerQuery, QueryOptions options) {
         boolean skipCount = options.getBoolean(QueryOptions.SKIP_COUNT, false);
         return new ProgressLogger("Calculated stats:",
@@ -270,6 +295,7 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
 
         private boolean overwrite;
         private Map<String, Set<String>> cohorts;
+        private Map<String, Set<String>> cohortFiles;
         private StudyMetadata studyMetadata;
         private final ProgressLogger progressLogger;
         //        private String fileId;
@@ -279,11 +305,12 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         private Properties tagmap;
         private VariantStatisticsCalculator variantStatisticsCalculator;
 
-        VariantStatsWrapperTask(boolean overwrite, Map<String, Set<String>> cohorts,
+        VariantStatsWrapperTask(boolean overwrite, Map<String, Set<String>> cohorts, Map<String, Set<String>> cohortFiles,
                                 StudyMetadata studyMetadata, VariantSourceStats variantSourceStats, Properties tagmap,
                                 ProgressLogger progressLogger, Aggregation aggregation) {
             this.overwrite = overwrite;
             this.cohorts = cohorts;
+            this.cohortFiles = cohortFiles;
             this.studyMetadata = studyMetadata;
             this.progressLogger = progressLogger;
             jsonObjectMapper = new ObjectMapper(new JsonFactory());
@@ -303,7 +330,7 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
             boolean defaultCohortAbsent = false;
 
             List<VariantStatsWrapper> variantStatsWrappers = variantStatisticsCalculator.calculateBatch(variants,
-                    studyMetadata.getName(), cohorts);
+                    studyMetadata.getName(), cohorts, cohortFiles);
 
             long start = System.currentTimeMillis();
             for (VariantStatsWrapper variantStatsWrapper : variantStatsWrappers) {
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.feature.Genotype;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
+
+import java.util.*;
+
+/**
+ * Calculates the stats of multiple cohorts with one single pass over the samples of each variant.
+ *
+ * Each genotype is decoded once into a genotype code. Samples are mapped to the cohorts they belong to with precomputed
+ * index arrays, so the genotypes of all the cohorts are counted at the same time with primitive counters. The counts are then
+ * given to {@link VariantStatsCalculator}, so the resulting stats are the same as computing each cohort separately.
+ * FILTER and QUAL stats of each cohort are computed from the files of the cohort only, if provided.
+ *
+ * Not thread safe.
+ */
+public class FusedVariantStatsCalculator {
+
+    private final String[] cohortNames;
+    private final List<Set<String>> cohortSamples;
+    // File names of each cohort. Null to use all the files.
+    private final List<Set<String>> cohortFiles;
+    private final boolean multiAllelic;
+
+    // Index arrays, cached for the last samples position map
+    private Map<String, Integer> samplesPosition;
+    private int[][] sampleCohorts;
+
+    // Genotype codes of the current variant
+    private final Map<String, Integer> gtCodes = new HashMap<>();
+    private final List<String> gtStrings = new ArrayList<>();
+    private int[][] counts;
+
+    public FusedVariantStatsCalculator(Map<String, Set<String>> cohorts) {
+        this(cohorts, false);
+    }
+
+    public FusedVariantStatsCalculator(Map<String, Set<String>> cohorts, boolean multiAllelic) {
+        this(cohorts, null, multiAllelic);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cohorts       Samples of each cohort
+     * @param cohortFiles   Files of each cohort, used for the FILTER and QUAL stats. If null, or missing for a cohort,
+     *                      all the files from the study entry are used.
+     * @param multiAllelic  Count secondary alternates
+     */
+    public FusedVariantStatsCalculator(Map<String, Set<String>> cohorts, Map<String, Set<String>> cohortFiles, boolean multiAllelic) {
+        this.cohortNames = cohorts.keySet().toArray(new String[0]);
+        this.cohortSamples = new ArrayList<>(cohorts.values());
+        this.cohortFiles = new ArrayList<>(cohortNames.length);
+        for (String cohortName : cohortNames) {
+            if (cohortFiles == null) {
+                this.cohortFiles.add(null);
+            } else {
+                this.cohortFiles.add(cohortFiles.get(cohortName));
+            }
+        }
+        this.multiAllelic = multiAllelic;
+        this.counts = new int[cohortNames.length][4];
+    }
+
+    /**
+     * Calculate the stats of all the cohorts for the given variant.
+     *
+     * @param variant Variant
+     * @param study   Study entry from the variant with the samples data
+     * @return Map from cohort name to stats
+     */
+    public Map<String, VariantStats> calculate(Variant variant, StudyEntry study) {
+        Map<String, VariantStats> stats = new HashMap<>(cohortNames.length);
+        if (cohortNames.length == 0) {
+            return stats;
+        }
+        countGenotypes(study);
+
+        for (int cohort = 0; cohort < cohortNames.length; cohort++) {
+            Map<Genotype, Integer> gtCount = new HashMap<>();
+            for (int code = 0; code < gtStrings.size(); code++) {
+                int count = counts[cohort][code];
+                if (count > 0) {
+                    gtCount.merge(new Genotype(gtStrings.get(code)), count, Integer::sum);
+                }
+            }
+            VariantStats variantStats = VariantStatsCalculator.calculate(variant, gtCount, multiAllelic);
+            calculateFileStats(study, cohortFiles.get(cohort), variantStats);
+            stats.put(cohortNames[cohort], variantStats);
+        }
+        return stats;
+    }
+
+    private void countGenotypes(StudyEntry study) {
+        gtCodes.clear();
+        gtStrings.clear();
+        Integer gtIdx = study.getFormatPositions().get("GT");
+        if (gtIdx == null) {
+            return;
+        }
+        int[][] sampleCohorts = getSampleCohorts(study.getSamplesPosition());
+        List<List<String>> samplesData = study.getSamplesData();
+        for (int sample = 0; sample < sampleCohorts.length; sample++) {
+            int[] cohorts = sampleCohorts[sample];
+            if (cohorts.length == 0) {
+                continue;
+            }
+            String gt = samplesData.get(sample).get(gtIdx);
+            Integer code = gtCodes.get(gt);
+            if (code == null) {
+                code = gtStrings.size();
+                gtCodes.put(gt, code);
+                gtStrings.add(gt);
+                if (code == counts[0].length) {
+                    for (int cohort = 0; cohort < counts.length; cohort++) {
+                        counts[cohort] = Arrays.copyOf(counts[cohort], code * 2);
+                    }
+                }
+                for (int[] cohortCounts : counts) {
+                    cohortCounts[code] = 0;
+                }
+            }
+            for (int cohort : cohorts) {
+                counts[cohort][code]++;
+            }
+        }
+    }
+
+    private int[][] getSampleCohorts(Map<String, Integer> samplesPosition) {
+        if (samplesPosition == this.samplesPosition || samplesPosition.equals(this.samplesPosition)) {
+            this.samplesPosition = samplesPosition;
+            return sampleCohorts;
+        }
+        int[][] sampleCohorts = new int[samplesPosition.size()][];
+        int[] buffer = new int[cohortNames.length];
+        for (Map.Entry<String, Integer> entry : samplesPosition.entrySet()) {
+            int numCohorts = 0;
+            for (int cohort = 0; cohort < cohortNames.length; cohort++) {
+                if (cohortSamples.get(cohort).contains(entry.getKey())) {
+                    buffer[numCohorts++] = cohort;
+                }
+            }
+            sampleCohorts[entry.getValue()] = Arrays.copyOf(buffer, numCohorts);
+        }
+        this.samplesPosition = samplesPosition;
+        this.sampleCohorts = sampleCohorts;
+        return sampleCohorts;
+    }
+
+    private void calculateFileStats(StudyEntry study, Set<String> files, VariantStats variantStats) {
+        int numFiles = 0;
+        int numQualFiles = 0;
+        double qualitySum = 0;
+        for (FileEntry file : study.getFiles()) {
+            if (files != null && !files.contains(file.getFileId())) {
+                continue;
+            }
+            String filter = file.getAttributes().get(StudyEntry.FILTER);
+            // Ensure missing filters are counted
+            if (StringUtils.isEmpty(filter)) {
+                filter = ".";
+            }
+            VariantStatsCalculator.addFileFilter(filter, variantStats.getFilterCount());
+            numFiles++;
+
+            String qual = file.getAttributes().get(StudyEntry.QUAL);
+            if (StringUtils.isNotEmpty(qual) && !qual.equals(".")) {
+                qualitySum += Double.parseDouble(qual);
+                numQualFiles++;
+            }
+        }
+        VariantStatsCalculator.calculateFilterFreq(variantStats, numFiles);
+        if (numQualFiles > 0) {
+            variantStats.setQualityAvg((float) (qualitySum / numQualFiles));
+        }
+    }
+}
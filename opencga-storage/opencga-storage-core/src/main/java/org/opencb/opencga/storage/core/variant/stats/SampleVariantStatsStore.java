@@ -0,0 +1,322 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.opencb.biodata.models.clinical.pedigree.Member;
+import org.opencb.biodata.models.clinical.pedigree.Pedigree;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
+import org.opencb.biodata.tools.variant.stats.SampleVariantStatsCalculator;
+import org.opencb.commons.ProgressLogger;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Incrementally maintained per-sample variant stats.
+ *
+ * Together with the {@link SampleVariantStats} stored in the {@link SampleMetadata}, this store keeps the raw counters
+ * required to merge new data (ti, tv and quality sums) and the list of files already included in the stats.
+ * Samples whose stats already include all their files are served from the metadata. Samples with new files are updated
+ * with a delta scan over the variants of the new files only. The rest of the samples are computed from scratch.
+ *
+ * Stats computed before the last annotation are computed from scratch, as the consequence type and biotype counts
+ * depend on the annotation. Delta scans are only valid if the new files do not share variants with the files already
+ * included, e.g. files split by chromosome or region. If a shared variant is found, the samples are computed from scratch.
+ */
+public class SampleVariantStatsStore {
+
+    public static final String STATS_FILES = "sampleStats.files";
+    public static final String STATS_TI = "sampleStats.ti";
+    public static final String STATS_TV = "sampleStats.tv";
+    public static final String STATS_QUAL_COUNT = "sampleStats.qualCount";
+    public static final String STATS_QUAL_SUM = "sampleStats.qualSum";
+    public static final String STATS_QUAL_SUM_SQ = "sampleStats.qualSumSq";
+    public static final String STATS_ANNOTATION_TS = "sampleStats.annotationTs";
+
+    private static final int BATCH_SIZE = 100;
+
+    private final VariantStorageMetadataManager metadataManager;
+    private final BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory;
+    private final Logger logger = LoggerFactory.getLogger(SampleVariantStatsStore.class);
+
+    public SampleVariantStatsStore(VariantStorageMetadataManager metadataManager,
+                                   BiFunction<Query, QueryOptions, VariantDBIterator> iteratorFactory) {
+        this.metadataManager = metadataManager;
+        this.iteratorFactory = iteratorFactory;
+    }
+
+    /**
+     * Get the stats of the given samples, computing only what is missing since the last computation.
+     *
+     * @param study   Study
+     * @param samples Samples
+     * @return Stats of each sample, in the same order
+     * @throws StorageEngineException on error updating the metadata
+     */
+    public List<SampleVariantStats> get(String study, List<String> samples) throws StorageEngineException {
+        return get(study, samples, false);
+    }
+
+    /**
+     * Get the stats of the given samples.
+     *
+     * @param study   Study
+     * @param samples Samples
+     * @param force   Compute the stats of all the samples from scratch
+     * @return Stats of each sample, in the same order
+     * @throws StorageEngineException on error updating the metadata
+     */
+    public List<SampleVariantStats> get(String study, List<String> samples, boolean force) throws StorageEngineException {
+        int studyId = metadataManager.getStudyId(study);
+        long annotationTs = getLastAnnotationTs(metadataManager);
+
+        List<SampleMetadata> fullScan = new ArrayList<>();
+        Map<Set<Integer>, List<SampleMetadata>> deltaScans = new HashMap<>();
+        for (String sample : samples) {
+            Integer sampleId = metadataManager.getSampleId(studyId, sample);
+            if (sampleId == null) {
+                throw VariantQueryException.sampleNotFound(sample, study);
+            }
+            SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyId, sampleId);
+            Set<Integer> statsFiles = getStatsFiles(sampleMetadata);
+            if (force || statsFiles == null || sampleMetadata.getStats() == null
+                    || !sampleMetadata.getFiles().containsAll(statsFiles)
+                    || sampleMetadata.getAttributes().getLong(STATS_ANNOTATION_TS, 0) < annotationTs) {
+                fullScan.add(sampleMetadata);
+            } else if (!statsFiles.containsAll(sampleMetadata.getFiles())) {
+                Set<Integer> newFiles = new TreeSet<>(sampleMetadata.getFiles());
+                newFiles.removeAll(statsFiles);
+                deltaScans.computeIfAbsent(newFiles, k -> new ArrayList<>()).add(sampleMetadata);
+            }
+        }
+
+        logger.info("Sample stats: {} up to date, {} delta updates, {} computed from scratch",
+                samples.size() - fullScan.size() - deltaScans.values().stream().mapToInt(List::size).sum(),
+                deltaScans.values().stream().mapToInt(List::size).sum(), fullScan.size());
+        for (Map.Entry<Set<Integer>, List<SampleMetadata>> entry : deltaScans.entrySet()) {
+            if (!compute(studyId, entry.getValue(), entry.getKey(), annotationTs)) {
+                logger.info("New files {} share variants with files already included in the stats. "
+                        + "Compute {} samples from scratch", entry.getKey(), entry.getValue().size());
+                fullScan.addAll(entry.getValue());
+            }
+        }
+        if (!fullScan.isEmpty()) {
+            compute(studyId, fullScan, null, annotationTs);
+        }
+
+        List<SampleVariantStats> stats = new ArrayList<>(samples.size());
+        for (String sample : samples) {
+            stats.add(metadataManager.getSampleMetadata(studyId, metadataManager.getSampleId(studyId, sample)).getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Compute the stats of the given samples, and store them in the metadata.
+     *
+     * @param studyId      Study id
+     * @param samples      Samples
+     * @param newFiles     Files to scan in a delta update. Null to compute from scratch
+     * @param annotationTs Timestamp of the last annotation
+     * @return false if the delta update was discarded because the new files share variants with the files already included
+     * @throws StorageEngineException on error updating the metadata
+     */
+    private boolean compute(int studyId, List<SampleMetadata> samples, Set<Integer> newFiles, long annotationTs)
+            throws StorageEngineException {
+        Set<String> includeSamples = new LinkedHashSet<>();
+        Map<String, String> sampleFileMap = new HashMap<>();
+        Set<String> includedFiles = new HashSet<>();
+        List<Member> members = new ArrayList<>();
+        List<String> sampleNames = new ArrayList<>(samples.size());
+        for (SampleMetadata sampleMetadata : samples) {
+            String name = sampleMetadata.getName();
+            sampleNames.add(name);
+            includeSamples.add(name);
+            for (Integer fileId : sampleMetadata.getFiles()) {
+                if (newFiles == null || newFiles.contains(fileId)) {
+                    sampleFileMap.putIfAbsent(name, metadataManager.getFileName(studyId, fileId));
+                } else {
+                    includedFiles.add(metadataManager.getFileName(studyId, fileId));
+                }
+            }
+            if (sampleMetadata.getFather() != null || sampleMetadata.getMother() != null) {
+                // Make sure parents are included in the query
+                Member member = new Member(name, name, Member.Sex.UNKNOWN, Member.AffectionStatus.UNKNOWN);
+                if (sampleMetadata.getFather() != null) {
+                    String father = metadataManager.getSampleName(studyId, sampleMetadata.getFather());
+                    includeSamples.add(father);
+                    member.setFather(new Member(father, father, Member.Sex.MALE, Member.AffectionStatus.UNKNOWN));
+                }
+                if (sampleMetadata.getMother() != null) {
+                    String mother = metadataManager.getSampleName(studyId, sampleMetadata.getMother());
+                    includeSamples.add(mother);
+                    member.setMother(new Member(mother, mother, Member.Sex.FEMALE, Member.AffectionStatus.UNKNOWN));
+                }
+                members.add(member);
+            }
+        }
+        Pedigree pedigree = new Pedigree();
+        pedigree.setMembers(members);
+
+        Query query = new Query()
+                .append(VariantQueryParam.STUDY.key(), studyId)
+                .append(VariantQueryParam.INCLUDE_SAMPLE.key(), new ArrayList<>(includeSamples));
+        if (newFiles != null) {
+            query.append(VariantQueryParam.FILE.key(), new ArrayList<>(newFiles));
+            // Include the files already in the stats to detect shared variants
+            List<String> includeFiles = new ArrayList<>(includedFiles);
+            newFiles.forEach(fileId -> includeFiles.add(metadataManager.getFileName(studyId, fileId)));
+            query.append(VariantQueryParam.INCLUDE_FILE.key(), includeFiles);
+        }
+        QueryOptions options = new QueryOptions(QueryOptions.EXCLUDE, VariantField.STUDIES_STATS);
+
+        IncrementalCalculator calculator = new IncrementalCalculator(pedigree, sampleNames, sampleFileMap);
+        calculator.pre();
+        if (newFiles != null) {
+            calculator.init(samples);
+        }
+        ProgressLogger progressLogger = new ProgressLogger("Sample stats. Variants processed:");
+        try (VariantDBIterator iterator = iteratorFactory.apply(query, options)) {
+            List<Variant> batch = new ArrayList<>(BATCH_SIZE);
+            while (iterator.hasNext()) {
+                Variant variant = iterator.next();
+                if (newFiles != null && isIncluded(variant, includedFiles)) {
+                    return false;
+                }
+                batch.add(variant);
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    calculator.apply(batch);
+                    progressLogger.increment(batch.size());
+                    batch.clear();
+                }
+            }
+        } catch (Exception e) {
+            throw new StorageEngineException("Error calculating sample stats", e);
+        }
+        calculator.post();
+
+        List<SampleVariantStats> stats = calculator.getSampleVariantStats();
+        for (int i = 0; i < samples.size(); i++) {
+            SampleVariantStats sampleStats = stats.get(i);
+            int ti = calculator.ti[i];
+            int tv = calculator.tv[i];
+            int qualCount = calculator.qualCount[i];
+            double qualSum = calculator.qualSum[i];
+            double qualSumSq = calculator.qualSumSq[i];
+            metadataManager.updateSampleMetadata(studyId, samples.get(i).getId(), sampleMetadata -> {
+                sampleMetadata.setStats(sampleStats);
+                setPartialStats(sampleMetadata, sampleMetadata.getFiles(), ti, tv, qualCount, qualSum, qualSumSq, annotationTs);
+                return sampleMetadata;
+            });
+        }
+        return true;
+    }
+
+    private static boolean isIncluded(Variant variant, Set<String> includedFiles) {
+        if (includedFiles.isEmpty()) {
+            return false;
+        }
+        for (StudyEntry studyEntry : variant.getStudies()) {
+            for (FileEntry fileEntry : studyEntry.getFiles()) {
+                if (includedFiles.contains(fileEntry.getFileId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the timestamp of the last annotation of the project.
+     *
+     * @param metadataManager Metadata manager
+     * @return Timestamp, or 0 if the project was never annotated
+     */
+    public static long getLastAnnotationTs(VariantStorageMetadataManager metadataManager) {
+        return metadataManager.getProjectMetadata().getAttributes().getLong(VariantAnnotationManager.LAST_ANNOTATION_TS, 0);
+    }
+
+    /**
+     * Store the raw counters used to merge new data into the stats of the sample.
+     *
+     * @param sampleMetadata Sample metadata
+     * @param files          Files included in the stats
+     * @param ti             Transitions
+     * @param tv             Transversions
+     * @param qualCount      Number of variants with quality
+     * @param qualSum        Sum of qualities
+     * @param qualSumSq      Sum of squared qualities
+     * @param annotationTs   Timestamp of the annotation used to compute the stats
+     */
+    public static void setPartialStats(SampleMetadata sampleMetadata, Collection<Integer> files, int ti, int tv,
+                                       int qualCount, double qualSum, double qualSumSq, long annotationTs) {
+        ObjectMap attributes = sampleMetadata.getAttributes();
+        attributes.put(STATS_FILES, new ArrayList<>(files));
+        attributes.put(STATS_TI, ti);
+        attributes.put(STATS_TV, tv);
+        attributes.put(STATS_QUAL_COUNT, qualCount);
+        attributes.put(STATS_QUAL_SUM, qualSum);
+        attributes.put(STATS_QUAL_SUM_SQ, qualSumSq);
+        attributes.put(STATS_ANNOTATION_TS, annotationTs);
+    }
+
+    private static Set<Integer> getStatsFiles(SampleMetadata sampleMetadata) {
+        if (!sampleMetadata.getAttributes().containsKey(STATS_FILES)) {
+            return null;
+        }
+        return new HashSet<>(sampleMetadata.getAttributes().getAsIntegerList(STATS_FILES));
+    }
+
+    /**
+     * Calculator that can start from the stats already stored in the metadata.
+     */
+    private static class IncrementalCalculator extends SampleVariantStatsCalculator {
+
+        IncrementalCalculator(Pedigree pedigree, List<String> samples, Map<String, String> sampleFileMap) {
+            super(pedigree, samples, sampleFileMap);
+        }
+
+        void init(List<SampleMetadata> samples) {
+            for (int i = 0; i < samples.size(); i++) {
+                SampleMetadata sampleMetadata = samples.get(i);
+                ObjectMap attributes = sampleMetadata.getAttributes();
+                statsList.set(i, SampleVariantStats.newBuilder(sampleMetadata.getStats()).build());
+                ti[i] = attributes.getInt(STATS_TI);
+                tv[i] = attributes.getInt(STATS_TV);
+                qualCount[i] = attributes.getInt(STATS_QUAL_COUNT);
+                qualSum[i] = attributes.getDouble(STATS_QUAL_SUM);
+                qualSumSq[i] = attributes.getDouble(STATS_QUAL_SUM_SQ);
+            }
+        }
+    }
+}
@@ -34,6 +34,9 @@ public class VariantStatisticsCalculator {
     private boolean overwrite;
     private VariantAggregatedStatsCalculator aggregatedCalculator;
     private Aggregation aggregation;
+    private FusedVariantStatsCalculator fusedCalculator;
+    private Map<String, Set<String>> fusedCohorts;
+    private Map<String, Set<String>> fusedCohortFiles;
 
     public VariantStatisticsCalculator() {
         this(false);
@@ -111,6 +114,22 @@ public class VariantStatisticsCalculator {
      */
     public List<VariantStatsWrapper> calculateBatch(List<Variant> variants, String studyId,
                                                     Map<String, Set<String>> samples) {
+        return calculateBatch(variants, studyId, samples, null);
+    }
+
+    /**
+     * computes the VariantStats for each subset of samples.
+     *
+     * @param variants variants to to calculate stats from
+     * @param studyId  needed to choose the VariantSourceEntry in the variants
+     * @param samples  keys are cohort names, values are sets of samples names. groups of samples (cohorts) for each to compute
+     *                 VariantStats.
+     * @param files    keys are cohort names, values are sets of file names. Only these files are used for the FILTER and QUAL
+     *                 stats of each cohort. If null, all the files of the variant are used.
+     * @return list of VariantStatsWrapper. may be shorter than the list of variants if there is no source for some variant
+     */
+    public List<VariantStatsWrapper> calculateBatch(List<Variant> variants, String studyId,
+                                                    Map<String, Set<String>> samples, Map<String, Set<String>> files) {
         List<VariantStatsWrapper> variantStatsWrappers = new ArrayList<>(variants.size());
 
         for (Variant variant : variants) {
@@ -129,12 +148,15 @@ public class VariantStatisticsCalculator {
             study.setStats(new HashMap<>());
 
             if (!AggregationUtils.isAggregated(aggregation) && samples != null) {
-                for (Map.Entry<String, Set<String>> cohort : samples.entrySet()) {
-                    if (overwrite || study.getStats(cohort.getKey()) == null) {
-
-                        VariantStats variantStats = VariantStatsCalculator.calculate(variant, study, cohort.getValue());
-                        study.setStats(cohort.getKey(), variantStats);
-
+                // All the cohorts are calculated in one single pass over the samples
+                if (fusedCalculator == null || fusedCohorts != samples || fusedCohortFiles != files) {
+                    fusedCalculator = new FusedVariantStatsCalculator(samples, files, false);
+                    fusedCohorts = samples;
+                    fusedCohortFiles = files;
+                }
+                for (Map.Entry<String, VariantStats> entry : fusedCalculator.calculate(variant, study).entrySet()) {
+                    if (overwrite || study.getStats(entry.getKey()) == null) {
+                        study.setStats(entry.getKey(), entry.getValue());
                     }
                 }
             } else if (aggregatedCalculator != null) { // another way to say that the study is aggregated (!Aggregation
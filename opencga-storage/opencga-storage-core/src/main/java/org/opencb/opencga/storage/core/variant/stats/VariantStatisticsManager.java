@@ -26,6 +26,7 @@ import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.utils.IntBitmap;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
@@ -203,7 +204,7 @@ public abstract class VariantStatisticsManager {
                     throw new StorageEngineException("Duplicated samples in cohort " + cohortName + ":" + cohortId);
                 }
 
-                if (!sampleIds.equals(new HashSet<>(cohort.getSamples()))) {
+                if (!IntBitmap.of(sampleIds).equals(cohort.getSampleBitmap())) {
                     if (!cohort.isInvalid() && cohort.isStatsReady()) {
                         //If provided samples are different than the stored in the StudyMetadata, and the cohort was not invalid.
                         throw new StorageEngineException("Different samples in cohort " + cohortName + ":" + cohortId + ". "
@@ -70,6 +70,7 @@ public class VariantTransformTask implements Task<String, Variant> {
     protected final AtomicLong normTime = new AtomicLong(0);
     protected final List<BiConsumer<String, RuntimeException>> errorHandlers = new ArrayList<>();
     protected boolean failOnError = true;
+    protected VcfSampleDataPruner sampleDataPruner;
     private VariantStudyMetadata metadata;
 
     public VariantTransformTask(VariantFactory factory,
@@ -138,7 +139,7 @@ public class VariantTransformTask implements Task<String, Variant> {
                 List<Variant> variants;
                 try {
                     curr = System.currentTimeMillis();
-                    variants = factory.create(metadata, line);
+                    variants = factory.create(metadata, prune(line));
                     this.biodataConvertTime.addAndGet(System.currentTimeMillis() - curr);
 
                     for (Variant variant : variants) {
@@ -173,7 +174,7 @@ public class VariantTransformTask implements Task<String, Variant> {
                     continue;
                 }
                 try {
-                    variantContexts.add(vcfCodec.decode(line));
+                    variantContexts.add(vcfCodec.decode(prune(line)));
                 } catch (RuntimeException e) {
                     onError(e, line);
                 }
@@ -194,6 +195,14 @@ public class VariantTransformTask implements Task<String, Variant> {
         return transformedVariants;
     }
 
+    private String prune(String line) {
+        if (sampleDataPruner == null) {
+            return line;
+        } else {
+            return sampleDataPruner.prune(line);
+        }
+    }
+
     public List<Variant> normalize(List<Variant> variants) {
         long curr;
         curr = System.currentTimeMillis();
@@ -272,4 +281,15 @@ public class VariantTransformTask implements Task<String, Variant> {
         return this;
     }
 
+    /**
+     * Only parse the given FORMAT fields from the samples data. The genotype is always included.
+     *
+     * @param includeFormats FORMAT fields to include, or null to include all
+     * @return this
+     */
+    public VariantTransformTask setIncludeFormats(Collection<String> includeFormats) {
+        this.sampleDataPruner = includeFormats == null ? null : new VcfSampleDataPruner(includeFormats);
+        return this;
+    }
+
 }
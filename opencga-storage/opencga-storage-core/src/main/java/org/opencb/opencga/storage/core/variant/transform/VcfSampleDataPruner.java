@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.transform;
+
+import htsjdk.variant.vcf.VCFConstants;
+
+import java.util.*;
+
+/**
+ * Removes from a VCF line the FORMAT fields that are not going to be loaded, before parsing the line.
+ *
+ * The line is tokenized in one single pass over the chars, without splitting it. The parsed FORMAT column is cached,
+ * as it is usually the same for most of the lines of a file. Lines where all the FORMAT fields are kept are returned as they are.
+ * The genotype (GT) is always kept.
+ *
+ * Not thread safe. Each {@link VariantTransformTask} should use its own instance.
+ */
+public class VcfSampleDataPruner {
+
+    private static final int FORMAT_COLUMN = 8;
+    private static final String MISSING_VALUE = VCFConstants.MISSING_VALUE_v4;
+
+    private final Set<String> includeFormats;
+    private final Map<String, PrunedFormat> formatsCache = new HashMap<>();
+    private final StringBuilder scratch = new StringBuilder();
+    private PrunedFormat lastFormat;
+
+    public VcfSampleDataPruner(Collection<String> includeFormats) {
+        this.includeFormats = new HashSet<>(includeFormats);
+        this.includeFormats.add(VCFConstants.GENOTYPE_KEY);
+    }
+
+    /**
+     * Remove the not included FORMAT fields from the line.
+     *
+     * @param line VCF data line
+     * @return the same line if there is nothing to remove, or a new line with only the included FORMAT fields
+     */
+    public String prune(String line) {
+        int formatStart = 0;
+        for (int column = 0; column < FORMAT_COLUMN; column++) {
+            formatStart = line.indexOf('\t', formatStart) + 1;
+            if (formatStart == 0) {
+                // Sites only VCF
+                return line;
+            }
+        }
+        int formatEnd = line.indexOf('\t', formatStart);
+        if (formatEnd < 0) {
+            // No samples
+            return line;
+        }
+        PrunedFormat format = getFormat(line, formatStart, formatEnd);
+        if (format.keepAll) {
+            return line;
+        }
+
+        StringBuilder sb = scratch;
+        sb.setLength(0);
+        sb.append(line, 0, formatStart).append(format.format);
+        int length = line.length();
+        int fieldStart = formatEnd;
+        while (fieldStart < length) {
+            // Skip tab
+            fieldStart++;
+            sb.append('\t');
+            int sampleStart = sb.length();
+            int fieldIdx = 0;
+            boolean first = true;
+            int i = fieldStart;
+            for (; i <= length; i++) {
+                char c = i == length ? '\t' : line.charAt(i);
+                if (c == ':' || c == '\t') {
+                    if (fieldIdx < format.keep.length && format.keep[fieldIdx]) {
+                        if (!first) {
+                            sb.append(':');
+                        }
+                        sb.append(line, fieldStart, i);
+                        first = false;
+                    }
+                    fieldIdx++;
+                    fieldStart = i + 1;
+                    if (c == '\t') {
+                        break;
+                    }
+                }
+            }
+            if (sb.length() == sampleStart) {
+                sb.append(MISSING_VALUE);
+            }
+            // Point to the tab
+            fieldStart = i;
+        }
+        return sb.toString();
+    }
+
+    private PrunedFormat getFormat(String line, int formatStart, int formatEnd) {
+        int formatLength = formatEnd - formatStart;
+        if (lastFormat != null && lastFormat.original.length() == formatLength
+                && line.regionMatches(formatStart, lastFormat.original, 0, formatLength)) {
+            return lastFormat;
+        }
+        String original = line.substring(formatStart, formatEnd);
+        lastFormat = formatsCache.computeIfAbsent(original, this::buildFormat);
+        return lastFormat;
+    }
+
+    private PrunedFormat buildFormat(String original) {
+        String[] keys = original.split(":");
+        boolean[] keep = new boolean[keys.length];
+        StringJoiner format = new StringJoiner(":");
+        boolean keepAll = true;
+        for (int i = 0; i < keys.length; i++) {
+            keep[i] = includeFormats.contains(keys[i]);
+            if (keep[i]) {
+                format.add(keys[i]);
+            } else {
+                keepAll = false;
+            }
+        }
+        if (format.length() == 0) {
+            // Keep the first field, so the line still has a valid FORMAT column
+            keep[0] = true;
+            format.add(keys[0]);
+        }
+        return new PrunedFormat(original, format.toString(), keep, keepAll);
+    }
+
+    private static final class PrunedFormat {
+        private final String original;
+        private final String format;
+        private final boolean[] keep;
+        private final boolean keepAll;
+
+        private PrunedFormat(String original, String format, boolean[] keep, boolean keepAll) {
+            this.original = original;
+            this.format = format;
+            this.keep = keep;
+            this.keepAll = keepAll;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.opencb.opencga.storage.core.alignment.local;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.alignment.RegionCoverage;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.tools.alignment.BamManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class CoverageTileStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testAggregate() {
+        float[][] values = new float[][]{
+                {1, 3, 2, 2},
+                {1, 2, 0, 2},
+                {2, 5, 4, 2}};
+        float[][] aggregated = CoverageTileStore.aggregate(values, 2);
+        assertArrayEquals(new float[]{2, 2}, aggregated[0], 0.0001f);
+        assertArrayEquals(new float[]{1, 0}, aggregated[1], 0.0001f);
+        assertArrayEquals(new float[]{5, 4}, aggregated[2], 0.0001f);
+    }
+
+    @Test
+    public void testWindows() throws Exception {
+        Path bam = copyBam();
+
+        int windowSize = CoverageTileStore.LEVELS[1];
+        Region region = new Region("20", 60001 - 60000 % windowSize, 60000 - 60000 % windowSize + 10 * windowSize);
+        BamManager bamManager = new BamManager(bam);
+        RegionCoverage expected = bamManager.coverage(region, 1);
+        bamManager.close();
+
+        try (CoverageTileStore store = new CoverageTileStore(bam, Paths.get(bam + CoverageTileStore.TILES_SUFFIX))) {
+            float[][] windows = store.windows(region, windowSize, false);
+            assertNotNull(windows);
+            assertEquals(10, windows[0].length);
+            for (int w = 0; w < windows[0].length; w++) {
+                float sum = 0;
+                float min = Float.MAX_VALUE;
+                float max = 0;
+                for (int i = w * windowSize; i < (w + 1) * windowSize; i++) {
+                    float value = i < expected.getValues().length ? expected.getValues()[i] : 0;
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                assertEquals(sum / windowSize, windows[0][w], 0.01);
+                assertEquals(min, windows[1][w], 0.0001);
+                assertEquals(max, windows[2][w], 0.0001);
+            }
+
+            // Tiles are ready. Served from the tiles
+            assertNotNull(store.coverage(region, windowSize));
+        }
+    }
+
+    @Test
+    public void testUnalignedWindows() throws Exception {
+        Path bam = copyBam();
+
+        // Window size and region start not aligned with the smallest level
+        int binSize = CoverageTileStore.LEVELS[0];
+        int windowSize = 1000;
+        Region region = new Region("20", 60038, 60038 + 10 * windowSize - 300);
+        Region binsRegion = new Region("20", region.getStart() - (region.getStart() - 1) % binSize, region.getEnd() + binSize);
+        BamManager bamManager = new BamManager(bam);
+        RegionCoverage expected = bamManager.coverage(binsRegion, 1);
+        bamManager.close();
+
+        try (CoverageTileStore store = new CoverageTileStore(bam, Paths.get(bam + CoverageTileStore.TILES_SUFFIX))) {
+            float[][] windows = store.windows(region, windowSize, false);
+            assertNotNull(windows);
+            assertEquals(10, windows[0].length);
+            for (int w = 0; w < windows[0].length; w++) {
+                int windowStart = region.getStart() + w * windowSize;
+                int windowEnd = Math.min(region.getEnd(), windowStart + windowSize - 1);
+                // Partially covered bins are weighted by the number of bases in the window
+                double sum = 0;
+                float min = Float.MAX_VALUE;
+                float max = 0;
+                for (int position = windowStart; position <= windowEnd; position++) {
+                    int binStart = position - (position - 1) % binSize;
+                    float binSum = 0;
+                    for (int i = binStart; i < binStart + binSize; i++) {
+                        binSum += getValue(expected, binsRegion, i);
+                    }
+                    sum += binSum / binSize;
+                    float value = getValue(expected, binsRegion, position);
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                assertEquals(sum / (windowEnd - windowStart + 1), windows[0][w], 0.01);
+                // Min and max of the partially covered bins include bases out of the window
+                assertTrue(windows[1][w] <= min);
+                assertTrue(windows[2][w] >= max);
+            }
+        }
+    }
+
+    @Test
+    public void testReferenceCount() throws Exception {
+        Path bam = copyBam();
+        int windowSize = CoverageTileStore.LEVELS[1];
+        Region region = new Region("20", 60001, 60000 + 10 * windowSize);
+
+        CoverageTileStore store = CoverageTileStore.get(bam);
+        assertNotNull(store);
+        CoverageTileStore other = CoverageTileStore.get(bam);
+        assertSame(store, other);
+
+        // Closing one reference does not close the store for the other readers
+        other.close();
+        assertNotNull(store.windows(region, windowSize, false));
+        store.close();
+
+        // The cache still holds a reference
+        store = CoverageTileStore.get(bam);
+        assertSame(other, store);
+        assertNotNull(store.windows(region, windowSize, false));
+        store.close();
+    }
+
+    private Path copyBam() throws Exception {
+        Path bam = temporaryFolder.getRoot().toPath().resolve("HG00096.chrom20.small.bam");
+        Files.copy(Paths.get(getClass().getResource("/HG00096.chrom20.small.bam").toURI()), bam);
+        Files.copy(Paths.get(getClass().getResource("/HG00096.chrom20.small.bam.bai").toURI()), Paths.get(bam + ".bai"));
+        return bam;
+    }
+
+    private float getValue(RegionCoverage coverage, Region region, int position) {
+        int i = position - region.getStart();
+        return i < coverage.getValues().length ? coverage.getValues()[i] : 0;
+    }
+}
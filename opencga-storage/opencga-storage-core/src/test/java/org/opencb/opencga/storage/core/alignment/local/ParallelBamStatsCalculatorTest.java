@@ -0,0 +1,47 @@
+package org.opencb.opencga.storage.core.alignment.local;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelBamStatsCalculatorTest {
+
+    @Test
+    public void testCompute() throws Exception {
+        Path bam = Paths.get(getClass().getResource("/HG00096.chrom20.small.bam").toURI());
+
+        long records = 0;
+        long unmapped = 0;
+        long totalLength = 0;
+        try (SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(bam.toFile())) {
+            for (SAMRecord record : reader) {
+                if (!record.isSecondaryOrSupplementary()) {
+                    records++;
+                    totalLength += record.getReadLength();
+                    if (record.getReadUnmappedFlag()) {
+                        unmapped++;
+                    }
+                }
+            }
+        }
+
+        ParallelBamStatsCalculator.BamStats single = new ParallelBamStatsCalculator(bam, 1, Integer.MAX_VALUE).compute();
+        ParallelBamStatsCalculator.BamStats sharded = new ParallelBamStatsCalculator(bam, 4, 100000).compute();
+
+        for (ParallelBamStatsCalculator.BamStats stats : new ParallelBamStatsCalculator.BamStats[]{single, sharded}) {
+            assertEquals(records, stats.getRawTotalSequences());
+            assertEquals(unmapped, stats.getReadsUnmapped());
+            assertEquals(records - unmapped, stats.getReadsMapped());
+            assertEquals(totalLength, stats.getTotalLength());
+        }
+        assertEquals(single.getBasesMappedCigar(), sharded.getBasesMappedCigar());
+        assertEquals(single.getReadsDuplicated(), sharded.getReadsDuplicated());
+    }
+}
@@ -98,6 +98,18 @@ public class BitStreamTest {
         inputStream.readByte(3);
     }
 
+    @Test
+    public void testSkip() {
+        for (int i = 0; i < LENGTH * Byte.SIZE - 13; i += 13) {
+            // Skip 10 bits, read 3
+            inputStream.skip(10);
+            byte read = inputStream.readByte(3);
+            assertEquals("[" + (i + 10) / 8 + "," + (i + 10) % 8 + "]", bits[i + 10] | bits[i + 11] << 1 | bits[i + 12] << 2, read);
+        }
+        thrown.expect(IllegalArgumentException.class);
+        inputStream.skip(13);
+    }
+
     @Test
     public void testReadAll() {
         Assert.assertArrayEquals(bytes, inputStream.read(LENGTH * Byte.SIZE));
@@ -0,0 +1,89 @@
+package org.opencb.opencga.storage.core.io.plain;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class StringDataReaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadBgzf() throws IOException {
+        List<String> lines = buildLines();
+        File file = temporaryFolder.newFile("input.vcf.gz");
+        try (PrintStream out = new PrintStream(new BlockCompressedOutputStream(file))) {
+            writeLines(out, lines);
+        }
+
+        checkRead(file.toPath(), lines, 4);
+        checkRead(file.toPath(), lines, 1);
+    }
+
+    @Test
+    public void testReadPlainGzip() throws IOException {
+        List<String> lines = buildLines();
+        File file = temporaryFolder.newFile("input.vcf.gz");
+        try (PrintStream out = new PrintStream(new GZIPOutputStream(Files.newOutputStream(file.toPath())))) {
+            writeLines(out, lines);
+        }
+
+        checkRead(file.toPath(), lines, 4);
+    }
+
+    private void checkRead(Path path, List<String> expected, int decompressThreads) throws IOException {
+        AtomicLong readBytes = new AtomicLong();
+        StringDataReader reader = new StringDataReader(path)
+                .setDecompressThreads(decompressThreads)
+                .setReadBytesListener((total, delta) -> readBytes.addAndGet(delta));
+        reader.open();
+        List<String> actual = new ArrayList<>(expected.size());
+        List<String> batch;
+        do {
+            batch = reader.read(100);
+            actual.addAll(batch);
+        } while (!batch.isEmpty());
+        reader.close();
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        assertEquals(Files.size(path), readBytes.get());
+    }
+
+    private List<String> buildLines() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            if (i % 10000 == 0) {
+                // Lines larger than one BGZF block
+                lines.add(StringUtils.repeat("ACGT", 50000));
+            } else if (i % 1000 == 0) {
+                lines.add("");
+            } else {
+                lines.add("1\t" + i + "\t.\tA\tC\t.\tPASS\t.\tGT\t0/1");
+            }
+        }
+        return lines;
+    }
+
+    private void writeLines(PrintStream out, List<String> lines) {
+        for (String line : lines) {
+            out.print(line);
+            out.print('\n');
+        }
+    }
+}
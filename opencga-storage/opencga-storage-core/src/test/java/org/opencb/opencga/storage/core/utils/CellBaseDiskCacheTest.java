@@ -0,0 +1,159 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.cellbase.client.config.ClientConfiguration;
+import org.opencb.cellbase.client.config.RestConfig;
+import org.opencb.cellbase.client.rest.CellBaseClient;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class CellBaseDiskCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testGetPut() throws Exception {
+        Path baseDir = temporaryFolder.getRoot().toPath();
+        CellBaseDiskCache cache = new CellBaseDiskCache(baseDir, "hsapiens", "grch37", "v4");
+        assertTrue(cache.isEmpty(CellBaseDiskCache.GENE_REGION));
+
+        Map<String, String> entries = new HashMap<>();
+        entries.put("BRCA2", "13:32884611-32978805");
+        entries.put("BRCA1", "17:41191312-41327543");
+        cache.put(CellBaseDiskCache.GENE_REGION, entries);
+        cache.put(CellBaseDiskCache.GENE_REGION, Collections.singletonMap("BRCA1", "17:1-2"));
+
+        Map<String, String> values = cache.get(CellBaseDiskCache.GENE_REGION, Arrays.asList("BRCA1", "BRCA2", "TP53"));
+        assertEquals(2, values.size());
+        assertEquals("13:32884611-32978805", values.get("BRCA2"));
+        // Last value wins
+        assertEquals("17:1-2", values.get("BRCA1"));
+
+        // Other releases do not share the cache
+        CellBaseDiskCache otherCache = new CellBaseDiskCache(baseDir, "hsapiens", "grch38", "v4");
+        assertTrue(otherCache.get(CellBaseDiskCache.GENE_REGION, Arrays.asList("BRCA1", "BRCA2")).isEmpty());
+        assertTrue(cache.get(CellBaseDiskCache.VARIANT_ID, Arrays.asList("BRCA1", "BRCA2")).isEmpty());
+    }
+
+    @Test
+    public void testSkipMalformedLines() throws Exception {
+        CellBaseDiskCache cache = new CellBaseDiskCache(temporaryFolder.getRoot().toPath(), "hsapiens", "grch37", "v4");
+        cache.put(CellBaseDiskCache.GENE_REGION, Collections.singletonMap("BRCA2", "13:32884611-32978805"));
+        Path bucket;
+        try (Stream<Path> files = Files.list(cache.getDirectory())) {
+            bucket = files.findFirst().get();
+        }
+        // Interrupted write, without the final new line
+        Files.write(bucket, "malformed\nBRCA2\t13:9".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        cache.put(CellBaseDiskCache.GENE_REGION, Collections.singletonMap("BRCA2", "13:1-2"));
+
+        // The incomplete line is discarded by the next write
+        assertEquals(Arrays.asList("BRCA2\t13:32884611-32978805", "malformed", "BRCA2\t13:1-2"),
+                Files.readAllLines(bucket, StandardCharsets.UTF_8));
+        Map<String, String> values = cache.get(CellBaseDiskCache.GENE_REGION, Arrays.asList("malformed", "BRCA2"));
+        assertEquals(Collections.singletonMap("BRCA2", "13:1-2"), values);
+    }
+
+    @Test
+    public void testConcurrentPut() throws Exception {
+        Path baseDir = temporaryFolder.getRoot().toPath();
+        int numThreads = 4;
+        int numEntries = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < numThreads; thread++) {
+            int t = thread;
+            // One instance per thread, as different processes would do
+            CellBaseDiskCache cache = new CellBaseDiskCache(baseDir, "hsapiens", "grch37", "v4");
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < numEntries; i += 100) {
+                    Map<String, String> entries = new HashMap<>();
+                    for (int j = i; j < i + 100; j++) {
+                        entries.put("key_" + t + "_" + j, "1:" + j + "-" + (j + 1));
+                    }
+                    cache.put(CellBaseDiskCache.VARIANT_ID, entries);
+                }
+            }));
+        }
+        executor.shutdown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (int thread = 0; thread < numThreads; thread++) {
+            for (int i = 0; i < numEntries; i++) {
+                keys.add("key_" + thread + "_" + i);
+            }
+        }
+        Map<String, String> values = new CellBaseDiskCache(baseDir, "hsapiens", "grch37", "v4")
+                .get(CellBaseDiskCache.VARIANT_ID, keys);
+        assertEquals(keys.size(), values.size());
+        assertEquals("1:10-11", values.get("key_3_10"));
+    }
+
+    @Test
+    public void testPreloadAmbiguousGeneNames() throws Exception {
+        Path geneDump = temporaryFolder.newFile("genes.json").toPath();
+        Files.write(geneDump, Arrays.asList(
+                "{\"id\":\"ENSG00000001\",\"name\":\"GENE1\",\"chromosome\":\"1\",\"start\":100000,\"end\":200000,"
+                        + "\"transcripts\":[{\"id\":\"ENST00000001\",\"name\":\"SHARED-001\"}]}",
+                "{\"id\":\"ENSG00000002\",\"name\":\"GENE1\",\"chromosome\":\"X\",\"start\":100000,\"end\":200000,"
+                        + "\"transcripts\":[{\"id\":\"ENST00000002\",\"name\":\"SHARED-001\"}]}"), StandardCharsets.UTF_8);
+
+        CellBaseClient cellBaseClient = new CellBaseClient("hsapiens", "grch37", new ClientConfiguration().setVersion("v4").setRest(
+                new RestConfig(Collections.singletonList("http://localhost:1/cellbase"), 10)));
+        CellBaseDiskCache diskCache = new CellBaseDiskCache(temporaryFolder.newFolder().toPath(), "hsapiens", "grch37", "v4");
+        assertEquals(2, new CellBaseUtils(cellBaseClient, "grch37", diskCache).preloadGeneRegions(geneDump));
+
+        Map<String, String> values = diskCache.get(CellBaseDiskCache.GENE_REGION,
+                Arrays.asList("GENE1", "SHARED-001", "ENSG00000001", "ENSG00000002", "ENST00000001", "ENST00000002"));
+        // Duplicated names are left to CellBase
+        assertFalse(values.containsKey("GENE1"));
+        assertFalse(values.containsKey("SHARED-001"));
+        assertEquals("1:95000-205000", values.get("ENSG00000001"));
+        assertEquals("X:95000-205000", values.get("ENSG00000002"));
+        assertEquals("1:95000-205000", values.get("ENST00000001"));
+        assertEquals("X:95000-205000", values.get("ENST00000002"));
+    }
+
+    @Test
+    public void testPreloadGeneRegions() throws Exception {
+        Path geneDump = temporaryFolder.newFile("genes.json").toPath();
+        Files.write(geneDump, Collections.singletonList("{\"id\":\"ENSG00000139618\",\"name\":\"BRCA2\",\"chromosome\":\"13\","
+                + "\"start\":32889611,\"end\":32973805,\"biotype\":\"protein_coding\","
+                + "\"transcripts\":[{\"id\":\"ENST00000380152\",\"name\":\"BRCA2-001\"}]}"), StandardCharsets.UTF_8);
+
+        // Unreachable CellBase. All the lookups must be resolved from the cache
+        CellBaseClient cellBaseClient = new CellBaseClient("hsapiens", "grch37", new ClientConfiguration().setVersion("v4").setRest(
+                new RestConfig(Collections.singletonList("http://localhost:1/cellbase"), 10)));
+        CellBaseDiskCache diskCache = new CellBaseDiskCache(temporaryFolder.newFolder().toPath(), "hsapiens", "grch37", "v4");
+        CellBaseUtils cellBaseUtils = new CellBaseUtils(cellBaseClient, "grch37", diskCache);
+
+        assertEquals(1, cellBaseUtils.preloadGeneRegions(geneDump));
+
+        Region expected = new Region("13", 32884611, 32978805);
+        assertEquals(expected, cellBaseUtils.getGeneRegion("BRCA2"));
+        assertEquals(Arrays.asList(expected, expected),
+                cellBaseUtils.getGeneRegion(Arrays.asList("ENSG00000139618", "ENST00000380152"), false));
+
+        // Values read from disk are kept in memory
+        assertEquals(0, cellBaseUtils.getGeneRegionCache().getHits());
+        assertEquals(expected, cellBaseUtils.getGeneRegion("BRCA2"));
+        assertEquals(1, cellBaseUtils.getGeneRegionCache().getHits());
+    }
+}
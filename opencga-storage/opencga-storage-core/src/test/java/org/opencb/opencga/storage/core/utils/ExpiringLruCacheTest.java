@@ -0,0 +1,38 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExpiringLruCacheTest {
+
+    @Test
+    public void testGet() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>("test", 2, 60000);
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, cache.get("a").intValue());
+
+        // "b" is the least recently used
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c").intValue());
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>("test", 10, 100);
+        cache.put("a", 1);
+        assertEquals(1, cache.get("a").intValue());
+        Thread.sleep(200);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,77 @@
+package org.opencb.opencga.storage.core.utils;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class IntBitmapTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+
+    @Test
+    public void testSetOperations() {
+        IntBitmap a = IntBitmap.of(1, 2, 3, 100);
+        IntBitmap b = IntBitmap.of(3, 4, 100, 1000);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 100, 1000), a.or(b).toList());
+        assertEquals(Arrays.asList(3, 100), a.and(b).toList());
+        assertEquals(Arrays.asList(1, 2), a.andNot(b).toList());
+        // Operations do not modify the operands
+        assertEquals(Arrays.asList(1, 2, 3, 100), a.toList());
+
+        assertTrue(a.or(b).containsAll(a));
+        assertFalse(a.containsAll(b));
+        assertTrue(a.contains(100));
+        assertFalse(a.contains(-1));
+        assertEquals(4, a.size());
+        assertEquals(IntBitmap.of(Arrays.asList(100, 3, 2, 1)), a);
+    }
+
+    @Test
+    public void testEncode() {
+        IntBitmap empty = new IntBitmap();
+        assertEquals(empty, IntBitmap.decode(empty.encode()));
+        assertEquals(empty, IntBitmap.decode(null));
+
+        IntBitmap bitmap = IntBitmap.of(IntStream.range(0, 100000).boxed().collect(Collectors.toList())).add(200000);
+        String encoded = bitmap.encode();
+        assertEquals(bitmap, IntBitmap.decode(encoded));
+        // Consecutive ids are compressed
+        assertTrue(encoded.length() < 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValue() {
+        IntBitmap.of(1, -2);
+    }
+
+    @Test
+    public void testCohortMetadataJson() throws Exception {
+        CohortMetadata cohort = new CohortMetadata(1, 2, "ALL", Arrays.asList(5, 3, 4), Collections.singletonList(1));
+        String json = objectMapper.writeValueAsString(cohort);
+        assertFalse(json.contains("\"samples\""));
+
+        CohortMetadata read = objectMapper.readValue(json, CohortMetadata.class);
+        assertEquals(Arrays.asList(3, 4, 5), read.getSamples());
+        assertEquals(3, read.getNumSamples());
+
+        // Cohorts stored with a list of samples
+        read = objectMapper.readValue("{\"studyId\":1,\"id\":2,\"name\":\"ALL\",\"samples\":[3,4,5],\"files\":[1]}", CohortMetadata.class);
+        assertEquals(Arrays.asList(3, 4, 5), read.getSamples());
+
+        // Stale list of samples along with the bitmap
+        String bitmap = IntBitmap.of(3, 4).encode();
+        read = objectMapper.readValue("{\"sampleBitmap\":\"" + bitmap + "\",\"samples\":[3,4,5]}", CohortMetadata.class);
+        assertEquals(Arrays.asList(3, 4), read.getSamples());
+        read = objectMapper.readValue("{\"samples\":[3,4,5],\"sampleBitmap\":\"" + bitmap + "\"}", CohortMetadata.class);
+        assertEquals(Arrays.asList(3, 4), read.getSamples());
+    }
+}
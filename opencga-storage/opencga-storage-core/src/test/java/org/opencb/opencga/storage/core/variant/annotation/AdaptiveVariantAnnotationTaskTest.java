@@ -0,0 +1,187 @@
+package org.opencb.opencga.storage.core.variant.annotation;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.core.variant.annotation.AdaptiveVariantAnnotationTask.CostClass;
+import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotator;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveVariantAnnotationTaskTest {
+
+    @Test
+    public void testCostClass() {
+        assertEquals(CostClass.SNV, AdaptiveVariantAnnotationTask.getCostClass(new Variant("1:100:A:C")));
+        assertEquals(CostClass.INDEL, AdaptiveVariantAnnotationTask.getCostClass(new Variant("1:100:A:ACGT")));
+        assertEquals(CostClass.INDEL, AdaptiveVariantAnnotationTask.getCostClass(new Variant("1:100:ACGT:-")));
+        assertEquals(CostClass.SV, AdaptiveVariantAnnotationTask.getCostClass(new Variant("1:100-1000:A:<DEL>")));
+    }
+
+    @Test
+    public void testAnnotate() throws Exception {
+        FailingAnnotator annotator = new FailingAnnotator(null);
+        AdaptiveVariantAnnotationTask task = new AdaptiveVariantAnnotationTask(annotator, 1000, 10, 100);
+
+        List<Variant> variants = variants(50);
+        variants.add(new Variant("1:100:A:ACGT"));
+        List<VariantAnnotation> annotations = task.apply(variants);
+
+        assertEquals(toStrings(variants), annotations.stream().map(this::toString).collect(Collectors.toSet()));
+        assertEquals(50, task.getNumVariants(CostClass.SNV));
+        assertEquals(1, task.getNumVariants(CostClass.INDEL));
+        assertEquals(0, task.getNumSplits(CostClass.SNV));
+        // SNVs and INDELs are never annotated together
+        for (List<Variant> batch : annotator.batches) {
+            assertEquals(1, batch.stream().map(AdaptiveVariantAnnotationTask::getCostClass).distinct().count());
+            assertTrue(batch.size() <= 100);
+        }
+        assertTrue(task.getStatsSummary().contains("SNV: 50 variants"));
+    }
+
+    @Test
+    public void testSplitFailingBatch() throws Exception {
+        FailingAnnotator annotator = new FailingAnnotator("1:120:A:C");
+        AdaptiveVariantAnnotationTask task = new AdaptiveVariantAnnotationTask(annotator, 1000, 10, 100);
+
+        List<Variant> variants = variants(50);
+        List<VariantAnnotation> annotations = task.apply(variants);
+
+        assertEquals(toStrings(variants), annotations.stream().map(this::toString).collect(Collectors.toSet()));
+        assertTrue(task.getNumSplits(CostClass.SNV) > 0);
+    }
+
+    @Test(expected = VariantAnnotatorException.class)
+    public void testFailingVariant() throws Exception {
+        FailingAnnotator annotator = new FailingAnnotator("1:120:A:C");
+        annotator.failAlways = true;
+        AdaptiveVariantAnnotationTask task = new AdaptiveVariantAnnotationTask(annotator, 1000, 10, 100);
+
+        task.apply(variants(50));
+    }
+
+    @Test
+    public void testAlwaysFailingAnnotator() throws Exception {
+        FailingAnnotator annotator = new FailingAnnotator(null);
+        annotator.error = new VariantAnnotatorException("Invalid request");
+        AdaptiveVariantAnnotationTask task = new AdaptiveVariantAnnotationTask(annotator, 1000, 100, 100);
+
+        try {
+            task.apply(variants(1000));
+            fail("Expected VariantAnnotatorException");
+        } catch (VariantAnnotatorException e) {
+            // Split 100 variants down to a single variant (7 calls), and retry it once
+            assertEquals(8, annotator.batches.size());
+        }
+    }
+
+    @Test
+    public void testServiceError() throws Exception {
+        FailingAnnotator annotator = new FailingAnnotator(null);
+        annotator.error = new VariantAnnotatorException("Error fetching variants", new SocketTimeoutException("Read timed out"));
+        AdaptiveVariantAnnotationTask task = new AdaptiveVariantAnnotationTask(annotator, 1000, 100, 100);
+
+        try {
+            task.apply(variants(1000));
+            fail("Expected VariantAnnotatorException");
+        } catch (VariantAnnotatorException e) {
+            // Service errors are retried without splitting the batch
+            assertEquals(1 + AdaptiveVariantAnnotationTask.MAX_SERVICE_ERROR_RETRIES, annotator.batches.size());
+            assertEquals(0, task.getNumSplits(CostClass.SNV));
+        }
+    }
+
+    @Test(expected = VariantAnnotatorException.class)
+    public void testFailingBothHalves() throws Exception {
+        FailingAnnotator annotator = new FailingAnnotator("1:120:A:C");
+        annotator.secondPoison = "1:170:A:C";
+        AdaptiveVariantAnnotationTask task = new AdaptiveVariantAnnotationTask(annotator, 1000, 100, 100);
+
+        task.apply(variants(100));
+    }
+
+    private List<Variant> variants(int size) {
+        List<Variant> variants = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            variants.add(new Variant("1:" + (100 + i) + ":A:C"));
+        }
+        return variants;
+    }
+
+    private Set<String> toStrings(List<Variant> variants) {
+        return variants.stream().map(Variant::toString).collect(Collectors.toSet());
+    }
+
+    private String toString(VariantAnnotation annotation) {
+        return new Variant(annotation.getChromosome(), annotation.getStart(), annotation.getReference(), annotation.getAlternate())
+                .toString();
+    }
+
+    /**
+     * Fails any batch with more than one variant containing the poison variant.
+     * The poison variant alone fails only the first time, unless {@link #failAlways}.
+     * Fails every batch if {@link #error} is defined.
+     */
+    private static class FailingAnnotator extends VariantAnnotator {
+
+        private final String poison;
+        private String secondPoison;
+        private VariantAnnotatorException error;
+        private boolean failAlways = false;
+        private boolean failedAlone = false;
+        private final List<List<Variant>> batches = new ArrayList<>();
+
+        FailingAnnotator(String poison) throws VariantAnnotatorException {
+            super(null, null, new ObjectMap());
+            this.poison = poison;
+        }
+
+        @Override
+        public List<VariantAnnotation> annotate(List<Variant> variants) throws VariantAnnotatorException {
+            batches.add(new ArrayList<>(variants));
+            if (error != null) {
+                throw error;
+            }
+            if (variants.stream().anyMatch(v -> v.toString().equals(secondPoison))) {
+                throw new VariantAnnotatorException("Error annotating " + variants.size() + " variants");
+            }
+            if (variants.stream().anyMatch(v -> v.toString().equals(poison))) {
+                if (variants.size() > 1 || failAlways || !failedAlone) {
+                    if (variants.size() == 1) {
+                        failedAlone = true;
+                    }
+                    throw new VariantAnnotatorException("Error annotating " + variants.size() + " variants");
+                }
+            }
+            List<VariantAnnotation> annotations = new ArrayList<>(variants.size());
+            for (Variant variant : variants) {
+                VariantAnnotation annotation = new VariantAnnotation();
+                annotation.setChromosome(variant.getChromosome());
+                annotation.setStart(variant.getStart());
+                annotation.setReference(variant.getReference());
+                annotation.setAlternate(variant.getAlternate());
+                annotations.add(annotation);
+            }
+            return annotations;
+        }
+
+        @Override
+        public ProjectMetadata.VariantAnnotatorProgram getVariantAnnotatorProgram() {
+            return new ProjectMetadata.VariantAnnotatorProgram("FailingAnnotator", "1", null);
+        }
+
+        @Override
+        public List<ObjectMap> getVariantAnnotatorSourceVersion() {
+            return Collections.emptyList();
+        }
+    }
+}
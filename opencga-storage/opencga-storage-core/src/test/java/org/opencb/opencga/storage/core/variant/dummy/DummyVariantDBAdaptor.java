@@ -34,6 +34,7 @@ import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
 import org.slf4j.Logger;
@@ -96,7 +97,25 @@ public class DummyVariantDBAdaptor implements VariantDBAdaptor {
 
     @Override
     public DataResult<Long> count(Query query) {
-        return new DataResult<>(0, Collections.emptyList(), 1, Collections.singletonList((long) TEMPLATES.size()), 1);
+        List<Region> regions = getRegions(query);
+        long count = TEMPLATES.stream().filter(template -> overlaps(regions, template)).count();
+        return new DataResult<>(0, Collections.emptyList(), 1, Collections.singletonList(count), 1);
+    }
+
+    private static List<Region> getRegions(Query query) {
+        if (VariantQueryUtils.isValidParam(query, VariantQueryParam.REGION)) {
+            return Region.parseRegions(query.getString(VariantQueryParam.REGION.key()));
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    private static boolean overlaps(List<Region> regions, String template) {
+        if (regions.isEmpty()) {
+            return true;
+        }
+        Variant variant = new Variant(template);
+        return regions.stream().anyMatch(r -> r.overlaps(variant.getChromosome(), variant.getStart(), variant.getEnd()));
     }
 
     @Override
@@ -112,8 +131,9 @@ public class DummyVariantDBAdaptor implements VariantDBAdaptor {
 
         List<Variant> variants = new ArrayList<>(TEMPLATES.size());
         HashSet<String> variantIds = new HashSet<>(query.getAsStringList(VariantQueryParam.ID.key()));
+        List<Region> regions = getRegions(query);
         for (String template : TEMPLATES) {
-            if (!variantIds.isEmpty() && !variantIds.contains(template)) {
+            if (!variantIds.isEmpty() && !variantIds.contains(template) || !overlaps(regions, template)) {
                 // Skip this variant
                 continue;
             }
@@ -19,7 +19,10 @@ package org.opencb.opencga.storage.core.variant.io;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeader;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
@@ -31,10 +34,9 @@ import org.opencb.opencga.storage.core.variant.io.json.VariantJsonReader;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.hasItem;
@@ -121,6 +123,71 @@ public class VariantExporterTest extends VariantStorageBaseTest implements Dummy
         assertEquals(expectedVariants.size(), numVariants);
     }
 
+    @Test
+    public void exportPartitionedTest() throws Exception {
+        setContigs(contigs());
+        QueryOptions options = new QueryOptions(VariantStorageOptions.EXPORT_PARTITION_SIZE.key(), 500);
+
+        List<Region> partitions = newVariantExporter().getPartitions(VariantOutputFormat.JSON, new Query(), options);
+        // Contig "1" has a declared length. The rest are exported in one partition
+        assertEquals(Arrays.asList(new Region("1", 1, 500), new Region("1", 501, 1000), new Region("1", 1001, 1500),
+                new Region("1", 1501, Integer.MAX_VALUE), new Region("2", 1, Integer.MAX_VALUE)).toString(),
+                partitions.subList(0, 5).toString());
+        assertEquals(contigs().size() + 3, partitions.size());
+
+        assertEquals(exportJson(new QueryOptions(options).append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 1)),
+                exportJson(new QueryOptions(options).append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 4)));
+    }
+
+    @Test
+    public void exportPartitionedMissingContigTest() throws Exception {
+        // Contig "MT" not declared in the header
+        setContigs(contigs("MT"));
+
+        QueryOptions options = new QueryOptions(VariantStorageOptions.EXPORT_PARTITION_SIZE.key(), 500);
+        assertEquals(Collections.emptyList(), newVariantExporter().getPartitions(VariantOutputFormat.JSON, new Query(), options));
+
+        List<String> sequential = exportJson(new QueryOptions(options).append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 1));
+        List<String> partitioned = exportJson(new QueryOptions(options).append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 4));
+        assertEquals(sequential, partitioned);
+        assertTrue(partitioned.stream().anyMatch(line -> line.contains("\"chromosome\":\"MT\"")));
+    }
+
+    private VariantExporter newVariantExporter() throws Exception {
+        return new VariantExporter(variantStorageEngine, variantStorageEngine.getIOManagerProvider());
+    }
+
+    private List<String> exportJson(QueryOptions options) throws Exception {
+        URI output = newOutputUri().resolve("variant.json");
+        variantStorageEngine.exportData(output, VariantOutputFormat.JSON, null, new Query(), options);
+        return Files.readAllLines(Paths.get(output));
+    }
+
+    private List<String> contigs(String... exclude) {
+        List<String> contigs = new ArrayList<>();
+        for (int chr = 1; chr <= 22; chr++) {
+            contigs.add(String.valueOf(chr));
+        }
+        contigs.addAll(Arrays.asList("X", "Y", "MT"));
+        contigs.removeAll(Arrays.asList(exclude));
+        return contigs;
+    }
+
+    private void setContigs(List<String> contigs) throws Exception {
+        List<VariantFileHeaderComplexLine> lines = new ArrayList<>();
+        for (String contig : contigs) {
+            Map<String, String> genericFields = new HashMap<>();
+            if (contig.equals("1")) {
+                genericFields.put("length", "2000");
+            }
+            lines.add(new VariantFileHeaderComplexLine("contig", contig, null, null, null, genericFields));
+        }
+        variantStorageEngine.getMetadataManager().updateStudyMetadata(STUDY_NAME, studyMetadata -> {
+            studyMetadata.setVariantHeader(new VariantFileHeader("VCFv4.2", lines, new ArrayList<>()));
+            return studyMetadata;
+        });
+    }
+
     @Test
     public void exportTpedTest() throws Exception {
         URI output = newOutputUri().resolve("variant" + VariantExporter.TPED_FILE_EXTENSION);
@@ -0,0 +1,100 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompoundHeterozygousTrioFilterTest {
+
+    private static final String PROTEIN_CODING = "protein_coding";
+
+    @Test
+    public void testTrio() {
+        List<Variant> variants = Arrays.asList(
+                variant("1:100:A:C", "GENE1", "0/1", "0/1", "0/0"),
+                variant("1:200:A:C", "GENE1", "0/1", "0/0", "0/1"),
+                variant("1:300:A:C", "GENE2", "0/1", "0/1", "0/0"),
+                variant("1:400:A:C", "GENE2", "0/1", "0/1", "0/1"), // Both parents HET. Discard
+                variant("2:100:A:C", "GENE3", "0/1", "0/1", "0/0"),
+                variant("2:200:A:C", "GENE4", "0/1", "0/0", "0/1"),
+                variant("2:300:A:C", "GENE3", "0|1", "0/0", "1|0")
+        );
+
+        CompoundHeterozygousTrioFilter filter = new CompoundHeterozygousTrioFilter(0, 1, 2, Collections.emptySet(),
+                Collections.emptySet());
+        assertEquals(Arrays.asList("1:100:A:C", "1:200:A:C", "2:100:A:C", "2:300:A:C"), ids(filter.filter(variants.iterator(), 10)));
+        assertEquals(Arrays.asList("1:100:A:C"), ids(filter.filter(variants.iterator(), 1)));
+        assertEquals(Arrays.asList("1:100:A:C", "1:200:A:C", "2:100:A:C"), ids(filter.filter(variants.iterator(), 3)));
+    }
+
+    @Test
+    public void testSingleParent() {
+        List<Variant> variants = Arrays.asList(
+                variant("1:100:A:C", "GENE1", "0/1", "0/1"),
+                variant("1:200:A:C", "GENE1", "0/1", "0/0"),
+                variant("1:300:A:C", "GENE2", "0/1", "0/1"),
+                variant("1:400:A:C", "GENE2", "0/1", "1/1")
+        );
+
+        CompoundHeterozygousTrioFilter filter = new CompoundHeterozygousTrioFilter(0, -1, 1, Collections.emptySet(),
+                Collections.emptySet());
+        assertEquals(Arrays.asList("1:100:A:C", "1:200:A:C"), ids(filter.filter(variants.iterator(), 10)));
+    }
+
+    @Test
+    public void testOverlappingGenesAndBiotypes() {
+        List<Variant> variants = Arrays.asList(
+                variant("1:100:A:C", "GENE1", "0/1", "0/1", "0/0"),
+                variant("1:150:A:C", "GENE2", "0/1", "0/1", "0/0"),
+                variant("1:200:A:C", Arrays.asList("GENE1", "GENE2"), "lincRNA", "0/1", "0/0", "0/1"),
+                variant("1:300:A:C", "GENE1", "0/1", "0/0", "0/1")
+        );
+
+        CompoundHeterozygousTrioFilter filter = new CompoundHeterozygousTrioFilter(0, 1, 2, Collections.emptySet(),
+                Collections.emptySet());
+        assertEquals(Arrays.asList("1:100:A:C", "1:150:A:C", "1:200:A:C", "1:300:A:C"), ids(filter.filter(variants.iterator(), 10)));
+
+        filter = new CompoundHeterozygousTrioFilter(0, 1, 2, Collections.singleton(PROTEIN_CODING), Collections.emptySet());
+        assertEquals(Arrays.asList("1:100:A:C", "1:300:A:C"), ids(filter.filter(variants.iterator(), 10)));
+    }
+
+    private static List<String> ids(List<Variant> variants) {
+        return variants.stream().map(Variant::toString).collect(Collectors.toList());
+    }
+
+    private static Variant variant(String id, String gene, String... gts) {
+        return variant(id, Collections.singletonList(gene), PROTEIN_CODING, gts);
+    }
+
+    private static Variant variant(String id, List<String> genes, String biotype, String... gts) {
+        Variant variant = new Variant(id);
+        StudyEntry studyEntry = new StudyEntry("s1", Collections.emptyList(), Collections.singletonList("GT"));
+        List<List<String>> samplesData = new ArrayList<>(gts.length);
+        for (String gt : gts) {
+            samplesData.add(Collections.singletonList(gt));
+        }
+        studyEntry.setSamplesData(samplesData);
+        variant.setStudies(Collections.singletonList(studyEntry));
+
+        VariantAnnotation annotation = new VariantAnnotation();
+        List<ConsequenceType> cts = new ArrayList<>(genes.size());
+        for (String gene : genes) {
+            ConsequenceType ct = new ConsequenceType();
+            ct.setEnsemblGeneId(gene);
+            ct.setBiotype(biotype);
+            ct.setSequenceOntologyTerms(Collections.singletonList(new SequenceOntologyTerm("SO:0001583", "missense_variant")));
+            cts.add(ct);
+        }
+        annotation.setConsequenceTypes(cts);
+        variant.setAnnotation(annotation);
+        return variant;
+    }
+}
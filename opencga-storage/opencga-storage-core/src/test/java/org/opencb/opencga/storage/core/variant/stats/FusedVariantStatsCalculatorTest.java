@@ -0,0 +1,144 @@
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.junit.Test;
+import org.opencb.biodata.models.feature.Genotype;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class FusedVariantStatsCalculatorTest {
+
+    @Test
+    public void testCalculate() {
+        String[] gts = {"0/0", "0/1", "1/1", "./.", "0/1", "0/0", "0|1", "1/1", "0/0", "0/1"};
+        Variant variant = new Variant("1:1000:A:C");
+        StudyEntry studyEntry = new StudyEntry("s1", Collections.emptyList(), Arrays.asList("GT", "DP"));
+        LinkedHashMap<String, Integer> samplesPosition = new LinkedHashMap<>();
+        List<List<String>> samplesData = new ArrayList<>();
+        for (int i = 0; i < gts.length; i++) {
+            samplesPosition.put("S" + i, i);
+            samplesData.add(Arrays.asList(gts[i], "10"));
+        }
+        studyEntry.setSamplesPosition(samplesPosition);
+        studyEntry.setSamplesData(samplesData);
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put(StudyEntry.FILTER, "PASS");
+        attributes.put(StudyEntry.QUAL, "50");
+        studyEntry.setFiles(Collections.singletonList(new FileEntry("file1.vcf", null, attributes)));
+        variant.setStudies(Collections.singletonList(studyEntry));
+
+        Map<String, Set<String>> cohorts = new LinkedHashMap<>();
+        cohorts.put("ALL", samplesPosition.keySet());
+        cohorts.put("EVEN", new HashSet<>(Arrays.asList("S0", "S2", "S4", "S6", "S8")));
+        cohorts.put("FIRST", new HashSet<>(Arrays.asList("S0", "S1", "S2", "UNKNOWN")));
+        cohorts.put("EMPTY", Collections.emptySet());
+
+        FusedVariantStatsCalculator calculator = new FusedVariantStatsCalculator(cohorts);
+        // Run twice to check the reuse of the internal counters
+        calculator.calculate(variant, studyEntry);
+        Map<String, VariantStats> stats = calculator.calculate(variant, studyEntry);
+
+        assertEquals(cohorts.keySet(), stats.keySet());
+        for (Map.Entry<String, Set<String>> cohort : cohorts.entrySet()) {
+            Map<Genotype, Integer> gtCount = new HashMap<>();
+            for (String sample : cohort.getValue()) {
+                Integer position = samplesPosition.get(sample);
+                if (position != null) {
+                    gtCount.merge(new Genotype(gts[position]), 1, Integer::sum);
+                }
+            }
+            VariantStats expected = VariantStatsCalculator.calculate(variant, gtCount, false);
+            VariantStats actual = stats.get(cohort.getKey());
+
+            assertEquals(cohort.getKey(), expected.getGenotypeCount(), actual.getGenotypeCount());
+            assertEquals(cohort.getKey(), expected.getGenotypeFreq(), actual.getGenotypeFreq());
+            assertEquals(cohort.getKey(), expected.getAltAlleleFreq(), actual.getAltAlleleFreq());
+            assertEquals(cohort.getKey(), expected.getMaf(), actual.getMaf());
+            assertEquals(cohort.getKey(), Integer.valueOf(1), actual.getFilterCount().get("PASS"));
+            assertEquals(cohort.getKey(), 50f, actual.getQualityAvg(), 0.0001);
+        }
+    }
+
+    @Test
+    public void testCalculateMultiFileCohorts() {
+        String[] gts = {"0/0", "0/1", "1/1", "./.", "0/1", "0/0", "0|1", "1/1", "0/0", "0/1"};
+        String[] sampleFiles = {"f1", "f1", "f1", "f1", "f2", "f2", "f2", "f2", "f3", "f3"};
+        Variant variant = new Variant("1:1000:A:C");
+        LinkedHashMap<String, Integer> samplesPosition = new LinkedHashMap<>();
+        List<List<String>> samplesData = new ArrayList<>();
+        for (int i = 0; i < gts.length; i++) {
+            samplesPosition.put("S" + i, i);
+            samplesData.add(Arrays.asList(gts[i], "10"));
+        }
+        List<FileEntry> files = Arrays.asList(
+                fileEntry("f1", "PASS", "50"),
+                fileEntry("f2", "LowQual", "10"),
+                fileEntry("f3", null, "30"));
+        StudyEntry studyEntry = studyEntry(samplesPosition, samplesData, files);
+        variant.setStudies(Collections.singletonList(studyEntry));
+
+        Map<String, Set<String>> cohorts = new LinkedHashMap<>();
+        cohorts.put("ALL", samplesPosition.keySet());
+        cohorts.put("C1", new HashSet<>(Arrays.asList("S0", "S1", "S2", "S3")));
+        cohorts.put("C2", new HashSet<>(Arrays.asList("S2", "S3", "S4", "S5", "S6")));
+        cohorts.put("C3", new HashSet<>(Arrays.asList("S8", "S9")));
+        Map<String, Set<String>> cohortFiles = new HashMap<>();
+        for (Map.Entry<String, Set<String>> cohort : cohorts.entrySet()) {
+            Set<String> cohortFileNames = new HashSet<>();
+            for (String sample : cohort.getValue()) {
+                cohortFileNames.add(sampleFiles[samplesPosition.get(sample)]);
+            }
+            cohortFiles.put(cohort.getKey(), cohortFileNames);
+        }
+
+        Map<String, VariantStats> stats = new FusedVariantStatsCalculator(cohorts, cohortFiles, false).calculate(variant, studyEntry);
+
+        assertEquals(cohorts.keySet(), stats.keySet());
+        for (Map.Entry<String, Set<String>> cohort : cohorts.entrySet()) {
+            // Same as calculating each cohort separately, with the files of the cohort
+            List<FileEntry> filesInCohort = new ArrayList<>();
+            for (FileEntry file : files) {
+                if (cohortFiles.get(cohort.getKey()).contains(file.getFileId())) {
+                    filesInCohort.add(file);
+                }
+            }
+            StudyEntry cohortStudyEntry = studyEntry(samplesPosition, samplesData, filesInCohort);
+            VariantStats expected = VariantStatsCalculator.calculate(variant, cohortStudyEntry, cohort.getValue());
+            VariantStats actual = stats.get(cohort.getKey());
+
+            assertEquals(cohort.getKey(), expected.getGenotypeCount(), actual.getGenotypeCount());
+            assertEquals(cohort.getKey(), expected.getGenotypeFreq(), actual.getGenotypeFreq());
+            assertEquals(cohort.getKey(), expected.getAltAlleleFreq(), actual.getAltAlleleFreq());
+            assertEquals(cohort.getKey(), expected.getMaf(), actual.getMaf());
+            assertEquals(cohort.getKey(), expected.getFilterCount(), actual.getFilterCount());
+            assertEquals(cohort.getKey(), expected.getFilterFreq(), actual.getFilterFreq());
+            assertEquals(cohort.getKey(), expected.getQualityAvg(), actual.getQualityAvg());
+        }
+        assertEquals(Collections.singletonMap("PASS", 1), stats.get("C1").getFilterCount());
+        assertEquals(3, stats.get("ALL").getFilterCount().size());
+    }
+
+    private static FileEntry fileEntry(String fileId, String filter, String qual) {
+        Map<String, String> attributes = new HashMap<>();
+        if (filter != null) {
+            attributes.put(StudyEntry.FILTER, filter);
+        }
+        attributes.put(StudyEntry.QUAL, qual);
+        return new FileEntry(fileId, null, attributes);
+    }
+
+    private static StudyEntry studyEntry(LinkedHashMap<String, Integer> samplesPosition, List<List<String>> samplesData,
+                                         List<FileEntry> files) {
+        StudyEntry studyEntry = new StudyEntry("s1", Collections.emptyList(), Arrays.asList("GT", "DP"));
+        studyEntry.setSamplesPosition(samplesPosition);
+        studyEntry.setSamplesData(samplesData);
+        studyEntry.setFiles(files);
+        return studyEntry;
+    }
+}
@@ -0,0 +1,188 @@
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManager;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SampleVariantStatsStoreTest {
+
+    private static final String STUDY = "study";
+    private static final List<String> SAMPLES = Arrays.asList("S1", "S2");
+
+    private VariantStorageMetadataManager metadataManager;
+    private SampleVariantStatsStore store;
+    // Variant -> files containing the variant
+    private final Map<String, List<String>> variants = new LinkedHashMap<>();
+    private final List<Query> scans = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        metadataManager = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory(true));
+        metadataManager.unsecureUpdateStudyMetadata(new StudyMetadata(1, STUDY));
+        metadataManager.unsecureUpdateSampleMetadata(1, new SampleMetadata(1, 1, "S1"));
+        metadataManager.unsecureUpdateSampleMetadata(1, new SampleMetadata(1, 2, "S2"));
+        addFile(1, "file1.vcf", "1:100:A:C", "1:200:A:G", "1:300:C:T");
+        addFile(2, "file2.vcf", "2:100:A:C", "2:200:G:T");
+        // Shares 1:100:A:C with file1
+        addFile(3, "file3.vcf", "1:100:A:C", "3:100:A:G");
+
+        store = new SampleVariantStatsStore(metadataManager, this::iterator);
+        setSampleFiles(1);
+    }
+
+    @Test
+    public void testFullScan() throws Exception {
+        List<SampleVariantStats> stats = store.get(STUDY, SAMPLES);
+
+        assertEquals(1, scans.size());
+        assertFalse(scans.get(0).containsKey(VariantQueryParam.FILE.key()));
+        assertEquals(2, stats.size());
+        assertEquals(3, stats.get(0).getNumVariants().intValue());
+        assertEquals(Collections.singletonList(1), getSampleMetadata("S1").getAttributes()
+                .getAsIntegerList(SampleVariantStatsStore.STATS_FILES));
+    }
+
+    @Test
+    public void testUpToDate() throws Exception {
+        List<SampleVariantStats> expected = store.get(STUDY, SAMPLES);
+        scans.clear();
+
+        List<SampleVariantStats> stats = store.get(STUDY, SAMPLES);
+        assertEquals(0, scans.size());
+        assertEquals(expected, stats);
+
+        // Force recompute
+        stats = store.get(STUDY, SAMPLES, true);
+        assertEquals(1, scans.size());
+        assertFalse(scans.get(0).containsKey(VariantQueryParam.FILE.key()));
+        assertEquals(expected, stats);
+    }
+
+    @Test
+    public void testDeltaScan() throws Exception {
+        store.get(STUDY, SAMPLES);
+        scans.clear();
+
+        setSampleFiles(1, 2);
+        List<SampleVariantStats> stats = store.get(STUDY, SAMPLES);
+        assertEquals(1, scans.size());
+        assertEquals(Collections.singletonList(2), scans.get(0).getAsIntegerList(VariantQueryParam.FILE.key()));
+        assertEquals(5, stats.get(0).getNumVariants().intValue());
+
+        // Same result as computing from scratch
+        assertEquals(stats, store.get(STUDY, SAMPLES, true));
+    }
+
+    @Test
+    public void testDeltaScanSharedVariants() throws Exception {
+        store.get(STUDY, SAMPLES);
+        scans.clear();
+
+        setSampleFiles(1, 3);
+        List<SampleVariantStats> stats = store.get(STUDY, SAMPLES);
+        // Delta scan discarded, and computed from scratch
+        assertEquals(2, scans.size());
+        assertEquals(Collections.singletonList(3), scans.get(0).getAsIntegerList(VariantQueryParam.FILE.key()));
+        assertFalse(scans.get(1).containsKey(VariantQueryParam.FILE.key()));
+        assertEquals(4, stats.get(0).getNumVariants().intValue());
+
+        assertEquals(stats, store.get(STUDY, SAMPLES, true));
+    }
+
+    @Test
+    public void testAnnotationInvalidatesStats() throws Exception {
+        store.get(STUDY, SAMPLES);
+        scans.clear();
+
+        metadataManager.updateProjectMetadata(projectMetadata -> {
+            projectMetadata.getAttributes().put(VariantAnnotationManager.LAST_ANNOTATION_TS, System.currentTimeMillis());
+            return projectMetadata;
+        });
+        store.get(STUDY, SAMPLES);
+        assertEquals(1, scans.size());
+        assertFalse(scans.get(0).containsKey(VariantQueryParam.FILE.key()));
+
+        scans.clear();
+        store.get(STUDY, SAMPLES);
+        assertEquals(0, scans.size());
+    }
+
+    private void addFile(int fileId, String name, String... fileVariants) {
+        metadataManager.unsecureUpdateFileMetadata(1, new FileMetadata(1, fileId, name)
+                .setSamples(new LinkedHashSet<>(Arrays.asList(1, 2))));
+        for (String variant : fileVariants) {
+            variants.computeIfAbsent(variant, k -> new ArrayList<>()).add(name);
+        }
+    }
+
+    private void setSampleFiles(Integer... fileIds) throws Exception {
+        for (int sampleId = 1; sampleId <= SAMPLES.size(); sampleId++) {
+            metadataManager.updateSampleMetadata(1, sampleId, sampleMetadata -> {
+                sampleMetadata.setFiles(new LinkedHashSet<>(Arrays.asList(fileIds)));
+                return sampleMetadata;
+            });
+        }
+    }
+
+    private SampleMetadata getSampleMetadata(String sample) {
+        return metadataManager.getSampleMetadata(1, metadataManager.getSampleId(1, sample));
+    }
+
+    private VariantDBIterator iterator(Query query, QueryOptions options) {
+        scans.add(new Query(query));
+        Set<String> fileFilter = null;
+        if (query.containsKey(VariantQueryParam.FILE.key())) {
+            fileFilter = new HashSet<>();
+            for (Integer fileId : query.getAsIntegerList(VariantQueryParam.FILE.key())) {
+                fileFilter.add(metadataManager.getFileName(1, fileId));
+            }
+        }
+        List<Variant> result = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : variants.entrySet()) {
+            if (fileFilter == null || entry.getValue().stream().anyMatch(fileFilter::contains)) {
+                result.add(buildVariant(entry.getKey(), entry.getValue()));
+            }
+        }
+        return VariantDBIterator.wrapper(result.iterator());
+    }
+
+    private Variant buildVariant(String variantStr, List<String> files) {
+        Variant variant = new Variant(variantStr);
+        StudyEntry studyEntry = new StudyEntry(STUDY, Collections.emptyList(), Collections.singletonList("GT"));
+        LinkedHashMap<String, Integer> samplesPosition = new LinkedHashMap<>();
+        List<List<String>> samplesData = new ArrayList<>();
+        for (String sample : SAMPLES) {
+            samplesPosition.put(sample, samplesPosition.size());
+            samplesData.add(Collections.singletonList("0/1"));
+        }
+        studyEntry.setSamplesPosition(samplesPosition);
+        studyEntry.setSamplesData(samplesData);
+        List<FileEntry> fileEntries = new ArrayList<>();
+        for (String file : files) {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put(StudyEntry.FILTER, "PASS");
+            attributes.put(StudyEntry.QUAL, "50");
+            fileEntries.add(new FileEntry(file, null, attributes));
+        }
+        studyEntry.setFiles(fileEntries);
+        variant.setStudies(Collections.singletonList(studyEntry));
+        return variant;
+    }
+}
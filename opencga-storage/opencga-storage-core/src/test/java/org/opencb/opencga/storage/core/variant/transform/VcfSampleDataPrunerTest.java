@@ -0,0 +1,32 @@
+package org.opencb.opencga.storage.core.variant.transform;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class VcfSampleDataPrunerTest {
+
+    private static final String SITE = "1\t100\t.\tA\tC\t.\tPASS\t.";
+
+    @Test
+    public void testPrune() {
+        VcfSampleDataPruner pruner = new VcfSampleDataPruner(Collections.singletonList("DP"));
+        assertEquals(SITE + "\tGT:DP\t0/1:7\t./.\t1/1:5", pruner.prune(SITE + "\tGT:AD:DP\t0/1:3,4:7\t./.\t1/1:0,5:5"));
+        // Cached format
+        assertEquals(SITE + "\tGT:DP\t0/1:8\t0/0:3", pruner.prune(SITE + "\tGT:AD:DP\t0/1:3,4:8\t0/0:3,0:3"));
+        // No FORMAT field to include. Keep the first one
+        assertEquals(SITE + "\tAD\t3,4\t.", pruner.prune(SITE + "\tAD:GQ\t3,4:7\t."));
+    }
+
+    @Test
+    public void testKeepLine() {
+        VcfSampleDataPruner pruner = new VcfSampleDataPruner(Arrays.asList("DP", "AD"));
+        String line = SITE + "\tGT:AD:DP\t0/1:3,4:7\t./.";
+        assertSame(line, pruner.prune(line));
+        assertSame(SITE, pruner.prune(SITE));
+    }
+}
@@ -388,12 +388,22 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         boolean includeReferenceVariantsData = getOptions().getBoolean(
                 VARIANT_TABLE_LOAD_REFERENCE.key(),
                 VARIANT_TABLE_LOAD_REFERENCE.defaultValue());
+        int packedSamplesBatchSize = getOptions().getInt(
+                VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE.key(),
+                VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE.defaultValue());
+        if (packedSamplesBatchSize > 0) {
+            // Register the layout in the FileMetadata, so the packed columns can be found when reading
+            getMetadataManager().updateFileMetadata(getStudyId(), getFileId(), fileMetadata -> {
+                fileMetadata.getAttributes().put(VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE.key(), packedSamplesBatchSize);
+                return fileMetadata;
+            });
+        }
         return new VariantHadoopDBWriter(
                 dbAdaptor.getGenomeHelper(),
                 dbAdaptor.getCredentials().getTable(),
                 getStudyId(),
                 getMetadataManager(),
-                dbAdaptor.getHBaseManager(), includeReferenceVariantsData);
+                dbAdaptor.getHBaseManager(), includeReferenceVariantsData, packedSamplesBatchSize);
     }
 
     protected static class GroupedVariantsTask implements Task<ImmutablePair<Long, List<Variant>>, VcfSlice> {
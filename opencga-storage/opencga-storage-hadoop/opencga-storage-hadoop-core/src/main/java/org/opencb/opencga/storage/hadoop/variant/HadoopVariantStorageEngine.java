@@ -42,6 +42,7 @@ import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantMetadataFactory;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
 import org.opencb.opencga.storage.core.utils.CellBaseUtils;
@@ -70,6 +71,7 @@ import org.opencb.opencga.storage.hadoop.utils.DeleteHBaseColumnDriver;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.HBaseColumnIntersectVariantQueryExecutor;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.sample.HBaseVariantSampleDataManager;
 import org.opencb.opencga.storage.hadoop.variant.annotation.HadoopDefaultVariantAnnotationManager;
@@ -471,6 +473,14 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
         int studyId = studyMetadata.getId();
 
         String jobOperationName = fillGaps ? FILL_GAPS_OPERATION_NAME : FILL_MISSING_OPERATION_NAME;
+        for (Integer fileId : fileIds) {
+            FileMetadata fileMetadata = metadataManager.getFileMetadata(studyId, fileId);
+            if (VariantPhoenixHelper.getPackedSamplesBatchSize(fileMetadata) > 0) {
+                // Gaps would be written as sample columns, mixed with the packed samples columns of the file
+                throw new StorageEngineException("Unable to execute " + jobOperationName + " operation. File '"
+                        + fileMetadata.getName() + "' was loaded with packed samples");
+            }
+        }
         List<Integer> fileIdsList = new ArrayList<>(fileIds);
         fileIdsList.sort(Integer::compareTo);
 
@@ -655,9 +665,13 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
                 String family = Bytes.toString(GenomeHelper.COLUMN_FAMILY_BYTES);
                 for (Integer fileId : fileIds) {
                     variantsColumns.add(family + ':' + VariantPhoenixHelper.getFileColumn(studyId, fileId).column());
-                    for (Integer sampleId : metadataManager.getFileMetadata(sm.getId(), fileId).getSamples()) {
+                    FileMetadata fileMetadata = metadataManager.getFileMetadata(sm.getId(), fileId);
+                    for (Integer sampleId : fileMetadata.getSamples()) {
                         variantsColumns.add(family + ':' + VariantPhoenixHelper.getSampleColumn(studyId, sampleId).column());
                     }
+                    for (PhoenixHelper.Column column : VariantPhoenixHelper.getPackedSamplesColumns(studyId, fileMetadata)) {
+                        variantsColumns.add(family + ':' + column.column());
+                    }
                 }
                 if (removeWholeStudy) {
                     variantsColumns.add(family + ':' + VariantPhoenixHelper.getStudyColumn(studyId).column());
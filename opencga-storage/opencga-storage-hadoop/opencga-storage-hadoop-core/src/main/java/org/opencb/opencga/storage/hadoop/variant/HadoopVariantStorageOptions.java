@@ -40,9 +40,14 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     MR_HBASE_SCAN_CACHING("storage.hadoop.mr.scan.caching", 50),
 
     /**
-     * MapReduce executor. Could be either 'system' or 'ssh'.
+     * MapReduce executor. Could be either 'system', 'ssh' or 'local'.
      */
     MR_EXECUTOR("storage.hadoop.mr.executor", "system"),
+    /**
+     * Run the jobs within the current JVM if the input table is smaller than this size, in bytes. Disabled if <= 0.
+     */
+    MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE("storage.hadoop.mr.executor.local.maxInputSize", 0L),
+    MR_EXECUTOR_LOCAL_THREADS("storage.hadoop.mr.executor.local.threads", 4),
 
     MR_EXECUTOR_SSH_HOST("storage.hadoop.mr.executor.ssh.host"),
     MR_EXECUTOR_SSH_USER("storage.hadoop.mr.executor.ssh.user"),
@@ -61,6 +66,9 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     // Do not create phoenix indexes. Testing purposes only
     VARIANT_TABLE_INDEXES_SKIP("storage.hadoop.variant.table.indexes.skip"),
     VARIANT_TABLE_LOAD_REFERENCE("storage.hadoop.variant.table.load.reference", false),
+    // Store the sample data of new loaded files packed in one cell per batch of samples, instead of one cell per sample.
+    // Number of samples per cell. Disabled if <= 0
+    VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE("storage.hadoop.variant.table.load.packedSamples.batchSize", 0),
 
     /////////////////////////
     // Archive table configuration
@@ -86,6 +94,19 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     ANNOTATION_INDEX_TABLE_COMPRESSION("storage.hadoop.annotationIndex.table.compression", Compression.Algorithm.SNAPPY.getName()),
     PENDING_ANNOTATION_TABLE_COMPRESSION("storage.hadoop.pendingAnnotation.table.compression", Compression.Algorithm.SNAPPY.getName()),
 
+    /////////////////////////
+    // Annotation load
+    /////////////////////////
+    /**
+     * Load the annotation with HBase Puts, using several concurrent writers, instead of Phoenix UPSERTs.
+     * Phoenix secondary indexes, if any, are not updated.
+     */
+    ANNOTATION_LOAD_HBASE("storage.hadoop.annotation.load.hbase", false),
+    ANNOTATION_LOAD_HBASE_WRITERS("storage.hadoop.annotation.load.hbase.writers", 4),
+    ANNOTATION_LOAD_HBASE_FLUSH_SIZE("storage.hadoop.annotation.load.hbase.flushSize", 100000),
+    // Only write the annotation columns that changed
+    ANNOTATION_LOAD_HBASE_DIFF("storage.hadoop.annotation.load.hbase.diff", false),
+
     /////////////////////////
     // Other
     /////////////////////////
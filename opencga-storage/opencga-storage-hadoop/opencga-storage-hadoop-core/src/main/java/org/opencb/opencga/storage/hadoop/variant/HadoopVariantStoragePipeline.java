@@ -309,6 +309,7 @@ public abstract class HadoopVariantStoragePipeline extends VariantStoragePipelin
                 BiMap<String, Integer> indexedSamples = metadataManager.getIndexedSamplesMap(studyId);
                 Set<Integer> previouslyIndexedSamples = indexedSamples.values();
                 Set<Integer> newSamples = new HashSet<>();
+                List<PhoenixHelper.Column> packedSamplesColumns = new ArrayList<>();
                 for (Integer fileId : fileIds) {
                     FileMetadata fileMetadata = metadataManager.getFileMetadata(studyId, fileId);
                     for (Integer sampleId : fileMetadata.getSamples()) {
@@ -316,9 +317,13 @@ public abstract class HadoopVariantStoragePipeline extends VariantStoragePipelin
                             newSamples.add(sampleId);
                         }
                     }
+                    packedSamplesColumns.addAll(VariantPhoenixHelper.getPackedSamplesColumns(studyId, fileMetadata));
                 }
                 phoenixHelper.registerNewFiles(jdbcConnection, variantsTableName, studyId, fileIds,
                         newSamples);
+                if (!packedSamplesColumns.isEmpty()) {
+                    phoenixHelper.addMissingColumns(jdbcConnection, variantsTableName, packedSamplesColumns, true);
+                }
 
                 int release = metadataManager.getProjectMetadata().getRelease();
                 phoenixHelper.registerRelease(jdbcConnection, variantsTableName, release);
@@ -377,6 +377,10 @@ public class VariantHBaseQueryParser {
                 Set<Integer> fileIds = metadataManager.getFileIdsFromSampleIds(studyId, sampleIds);
                 for (Integer fileId : fileIds) {
                     scan.addColumn(family, buildFileColumnKey(studyId, fileId));
+                    for (PhoenixHelper.Column column
+                            : VariantPhoenixHelper.getPackedSamplesColumns(studyId, metadataManager.getFileMetadata(studyId, fileId))) {
+                        scan.addColumn(family, column.bytes());
+                    }
                 }
             });
 
@@ -443,6 +447,7 @@ public class VariantHBaseQueryParser {
                 if (sampleId == null) {
                     throw VariantQueryException.sampleNotFound(entry.getKey(), defaultStudy.getName());
                 }
+                VariantPhoenixHelper.checkNotPackedSamples(metadataManager, studyId, sampleId, GENOTYPE);
                 List<String> genotypes = entry.getValue();
 
                 if (genotypes.stream().allMatch(VariantQueryUtils::isNegated)) {
@@ -38,6 +38,7 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryFields;
@@ -126,6 +127,13 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         clientSideSkip = !options.getBoolean(PhoenixHelper.PHOENIX_SERVER_OFFSET_AVAILABLE, true);
         this.queryParser = new VariantSqlQueryParser(genomeHelper, this.variantTable,
                 studyConfigurationManager.get(), clientSideSkip);
+        int planCacheSize = options.getInt(VariantStorageOptions.QUERY_PLAN_CACHE_SIZE.key(),
+                VariantStorageOptions.QUERY_PLAN_CACHE_SIZE.defaultValue());
+        if (planCacheSize > 0) {
+            long planCacheTtl = options.getLong(VariantStorageOptions.QUERY_PLAN_CACHE_TTL.key(),
+                    VariantStorageOptions.QUERY_PLAN_CACHE_TTL.<Integer>defaultValue());
+            this.queryParser.enablePlanCache(planCacheSize, planCacheTtl);
+        }
 
         phoenixFetchSize = options.getInt(
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.key(),
@@ -25,11 +25,17 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.types.*;
+import org.opencb.commons.datastore.core.QueryParam;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper.Column;
 import org.opencb.opencga.storage.hadoop.variant.converters.AbstractPhoenixConverter;
+import org.opencb.opencga.storage.hadoop.variant.converters.study.PackedSamplesDataConverter;
 import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +63,8 @@ public class VariantPhoenixHelper {
     public static final String FUNCTIONAL_SCORE_PREFIX = ANNOTATION_PREFIX + "FS_";
     public static final String SAMPLE_DATA_SUFIX = "_S";
     public static final byte[] SAMPLE_DATA_SUFIX_BYTES = Bytes.toBytes(SAMPLE_DATA_SUFIX);
+    public static final String PACKED_SAMPLES_SUFIX = "_PS";
+    public static final byte[] PACKED_SAMPLES_SUFIX_BYTES = Bytes.toBytes(PACKED_SAMPLES_SUFIX);
     public static final String FILE_SUFIX = "_F";
     public static final byte[] FILE_SUFIX_BYTES = Bytes.toBytes(FILE_SUFIX);
     public static final String STUDY_SUFIX = "_ST";
@@ -798,6 +806,135 @@ public class VariantPhoenixHelper {
                 VariantPhoenixHelper.SAMPLE_DATA_SUFIX_BYTES);
     }
 
+    public static byte[] buildPackedSamplesColumnKey(int studyId, int fileId, int batch) {
+        return Bytes.toBytes(buildPackedSamplesColumnKey(studyId, fileId, batch, new StringBuilder()).toString());
+    }
+
+    public static StringBuilder buildPackedSamplesColumnKey(int studyId, int fileId, int batch, StringBuilder stringBuilder) {
+        return buildStudyColumnsPrefix(studyId, stringBuilder)
+                .append(fileId).append(COLUMN_KEY_SEPARATOR)
+                .append(batch).append(PACKED_SAMPLES_SUFIX);
+    }
+
+    public static Column getPackedSamplesColumn(int studyId, int fileId, int batch) {
+        return Column.build(buildPackedSamplesColumnKey(studyId, fileId, batch, new StringBuilder()).toString(), PVarbinary.INSTANCE);
+    }
+
+    /**
+     * Get the packed samples columns of a file, if any.
+     *
+     * @param studyId       Study id
+     * @param fileMetadata  File metadata
+     * @return  List of columns. Empty if the file was not loaded with packed samples.
+     * @see HadoopVariantStorageOptions#VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE
+     */
+    public static List<Column> getPackedSamplesColumns(int studyId, FileMetadata fileMetadata) {
+        int batchSize = getPackedSamplesBatchSize(fileMetadata);
+        if (batchSize <= 0) {
+            return Collections.emptyList();
+        }
+        int numBatches = PackedSamplesDataConverter.getNumBatches(fileMetadata.getSamples().size(), batchSize);
+        List<Column> columns = new ArrayList<>(numBatches);
+        for (int batch = 0; batch < numBatches; batch++) {
+            columns.add(getPackedSamplesColumn(studyId, fileMetadata.getId(), batch));
+        }
+        return columns;
+    }
+
+    public static int getPackedSamplesBatchSize(FileMetadata fileMetadata) {
+        return fileMetadata.getAttributes().getInt(HadoopVariantStorageOptions.VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE.key(), 0);
+    }
+
+    /**
+     * Get the packed samples columns containing any of the given samples.
+     * Only the batches with at least one of the samples are returned.
+     *
+     * @param metadataManager Metadata manager
+     * @param studyId         Study id
+     * @param sampleIds       Sample ids
+     * @return  List of columns. Empty if none of the samples was loaded with packed samples.
+     */
+    public static List<Column> getPackedSamplesColumns(VariantStorageMetadataManager metadataManager, int studyId,
+                                                       Collection<Integer> sampleIds) {
+        Set<Integer> sampleIdsSet = new HashSet<>(sampleIds);
+        List<Column> columns = new ArrayList<>();
+        for (Integer fileId : metadataManager.getFileIdsFromSampleIds(studyId, sampleIdsSet)) {
+            FileMetadata fileMetadata = metadataManager.getFileMetadata(studyId, fileId);
+            int batchSize = getPackedSamplesBatchSize(fileMetadata);
+            if (batchSize <= 0) {
+                continue;
+            }
+            int samplePosition = 0;
+            int lastBatch = -1;
+            for (Integer sampleId : fileMetadata.getSamples()) {
+                int batch = samplePosition / batchSize;
+                if (batch != lastBatch && sampleIdsSet.contains(sampleId)) {
+                    columns.add(getPackedSamplesColumn(studyId, fileId, batch));
+                    lastBatch = batch;
+                }
+                samplePosition++;
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Check if any of the given samples was loaded with packed samples.
+     *
+     * @param metadataManager Metadata manager
+     * @param studyId         Study id
+     * @param sampleIds       Sample ids
+     * @return  true if any of the files of the samples has the packed samples layout
+     */
+    public static boolean hasPackedSamples(VariantStorageMetadataManager metadataManager, int studyId, Collection<Integer> sampleIds) {
+        for (Integer fileId : metadataManager.getFileIdsFromSampleIds(studyId, sampleIds)) {
+            if (getPackedSamplesBatchSize(metadataManager.getFileMetadata(studyId, fileId)) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Packed samples columns can not be filtered by the HBase or Phoenix filters. Fail if the sample was loaded with packed samples.
+     *
+     * @param metadataManager Metadata manager
+     * @param studyId         Study id
+     * @param sampleId        Sample id
+     * @param param           Query param filtering by this sample
+     * @throws VariantQueryException if the sample was loaded with packed samples
+     */
+    public static void checkNotPackedSamples(VariantStorageMetadataManager metadataManager, int studyId, int sampleId,
+                                             QueryParam param) {
+        if (hasPackedSamples(metadataManager, studyId, Collections.singletonList(sampleId))) {
+            throw VariantQueryException.unsupportedVariantQueryFilter(param, HadoopVariantStorageEngine.STORAGE_ENGINE_ID,
+                    "Sample '" + metadataManager.getSampleName(studyId, sampleId) + "' was loaded with packed samples. "
+                            + "Genotype filters for this sample require the sample index.");
+        }
+    }
+
+    public static boolean isPackedSamplesCell(Cell cell) {
+        return AbstractPhoenixConverter.endsWith(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength(),
+                VariantPhoenixHelper.PACKED_SAMPLES_SUFIX_BYTES);
+    }
+
+    /**
+     * Extract the file id from a packed samples column. Column format: {@code <study>_<file>_<batch>_PS} .
+     *
+     * @param columnKey Column key
+     * @return File id
+     */
+    public static int extractPackedSamplesFileId(String columnKey) {
+        if (!columnKey.endsWith(PACKED_SAMPLES_SUFIX)) {
+            throw new IllegalArgumentException("Not a packed samples column: " + columnKey);
+        }
+        String[] split = columnKey.split(COLUMN_KEY_SEPARATOR_STR);
+        if (split.length != 4 || !StringUtils.isNumeric(split[1])) {
+            throw new IllegalStateException("Integer expected for file ID from " + columnKey);
+        }
+        return Integer.parseInt(split[1]);
+    }
+
     public static byte[] buildFileColumnKey(int studyId, int fileId) {
         return Bytes.toBytes(buildFileColumnKey(studyId, fileId, new StringBuilder()).toString());
     }
@@ -34,6 +34,7 @@ import org.opencb.commons.datastore.core.QueryParam;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.metadata.models.VariantScoreMetadata;
+import org.opencb.opencga.storage.core.utils.ExpiringLruCache;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
@@ -82,6 +83,9 @@ public class VariantSqlQueryParser {
     private final Logger logger = LoggerFactory.getLogger(VariantSqlQueryParser.class);
     private final VariantStorageMetadataManager metadataManager;
     private final boolean clientSideSkip;
+    private ExpiringLruCache<String, VariantPhoenixSQLQuery> planCache;
+    // LIMIT and OFFSET are appended to the cached plans
+    private static final Set<String> PLAN_CACHE_IGNORED_OPTIONS = new HashSet<>(Arrays.asList(QueryOptions.LIMIT, QueryOptions.SKIP));
 
     private static final Map<String, String> SQL_OPERATOR;
 
@@ -100,6 +104,10 @@ public class VariantSqlQueryParser {
     public static class VariantPhoenixSQLQuery {
         private String sql;
         private VariantQueryFields select;
+        // Parts of a cached plan. Region filters, LIMIT and OFFSET are added on every query
+        private String selectFrom;
+        private List<String> filters;
+        private String orderBy;
 
         public String getSql() {
             return sql;
@@ -122,7 +130,85 @@ public class VariantSqlQueryParser {
         this.clientSideSkip = clientSideSkip;
     }
 
+    /**
+     * Reuse the SQL generated for queries with the same params and options.
+     * Region filters ({@link VariantQueryUtils#PLAN_CACHE_BOUND_PARAMS}) do not take part in the cache key, and are parsed on
+     * every query. Cached plans are discarded whenever the metadata changes.
+     *
+     * @param maxSize   Max number of cached plans
+     * @param ttlMillis Time to live of each plan
+     * @return this
+     */
+    public VariantSqlQueryParser enablePlanCache(int maxSize, long ttlMillis) {
+        planCache = new ExpiringLruCache<>("PhoenixQueryPlanCache", maxSize, ttlMillis);
+        return this;
+    }
+
+    public ExpiringLruCache<String, VariantPhoenixSQLQuery> getPlanCache() {
+        return planCache;
+    }
+
     public VariantPhoenixSQLQuery parse(Query query, QueryOptions options) {
+        List<String> regionFilters;
+        try {
+            // Might modify the query
+            regionFilters = getRegionFilters(query);
+        } catch (VariantQueryException e) {
+            e.setQuery(query);
+            throw e;
+        }
+
+        VariantPhoenixSQLQuery plan;
+        if (planCache == null) {
+            plan = parsePlan(query, options);
+        } else {
+            Query planQuery = new Query(query);
+            for (QueryParam param : PLAN_CACHE_BOUND_PARAMS) {
+                planQuery.remove(param.key());
+            }
+            String cacheKey = metadataManager.getMetadataVersion() + "|"
+                    + VariantQueryUtils.buildQueryCacheKey(planQuery, options, PLAN_CACHE_IGNORED_OPTIONS);
+            plan = planCache.get(cacheKey);
+            if (plan == null) {
+                plan = parsePlan(planQuery, options);
+                planCache.put(cacheKey, plan);
+            } else {
+                logger.debug("Reuse query plan. {}", planCache);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(plan.selectFrom);
+        appendWhereStatement(sb, regionFilters, plan.filters);
+        sb.append(plan.orderBy);
+        if (clientSideSkip) {
+            int skip = Math.max(0, options.getInt(QueryOptions.SKIP));
+            if (options.getInt(QueryOptions.LIMIT, -1) >= 0) {
+                sb.append(" LIMIT ").append(skip + options.getInt(QueryOptions.LIMIT));
+            }
+        } else {
+            if (options.getInt(QueryOptions.LIMIT, -1) >= 0) {
+                sb.append(" LIMIT ").append(options.getInt(QueryOptions.LIMIT));
+            }
+
+            if (options.getInt(QueryOptions.SKIP, -1) >= 0) {
+                sb.append(" OFFSET ").append(options.getInt(QueryOptions.SKIP));
+            }
+        }
+
+        VariantPhoenixSQLQuery phoenixSQLQuery = new VariantPhoenixSQLQuery();
+        phoenixSQLQuery.sql = sb.toString();
+        phoenixSQLQuery.select = plan.select;
+        return phoenixSQLQuery;
+    }
+
+    /**
+     * Build the SQL query, without region filters, LIMIT and OFFSET.
+     *
+     * @param query   Query to parse, after extracting the region filters
+     * @param options other options
+     * @return VariantPhoenixSQLQuery
+     */
+    private VariantPhoenixSQLQuery parsePlan(Query query, QueryOptions options) {
 
         StringBuilder sb = new StringBuilder("SELECT ");
         VariantPhoenixSQLQuery phoenixSQLQuery = new VariantPhoenixSQLQuery();
@@ -130,7 +216,6 @@ public class VariantSqlQueryParser {
         try {
 
             Set<Column> dynamicColumns = new HashSet<>();
-            List<String> regionFilters = getRegionFilters(query);
             List<String> filters = getOtherFilters(query, options, dynamicColumns);
 
             List<HintNode.Hint> hints = new ArrayList<>();
@@ -149,13 +234,15 @@ public class VariantSqlQueryParser {
 
             appendProjectedColumns(sb, query, options, phoenixSQLQuery);
             appendFromStatement(sb, dynamicColumns);
-            appendWhereStatement(sb, regionFilters, filters);
+            phoenixSQLQuery.selectFrom = sb.toString();
+            phoenixSQLQuery.filters = filters;
 
         } catch (VariantQueryException e) {
             e.setQuery(query);
             throw e;
         }
 
+        sb = new StringBuilder();
         if (options.getBoolean(QueryOptions.SORT)) {
             sb.append(" ORDER BY ").append(VariantColumn.CHROMOSOME.column()).append(',').append(VariantColumn.POSITION.column());
 
@@ -167,22 +254,7 @@ public class VariantSqlQueryParser {
             }
         }
 
-        if (clientSideSkip) {
-            int skip = Math.max(0, options.getInt(QueryOptions.SKIP));
-            if (options.getInt(QueryOptions.LIMIT, -1) >= 0) {
-                sb.append(" LIMIT ").append(skip + options.getInt(QueryOptions.LIMIT));
-            }
-        } else {
-            if (options.getInt(QueryOptions.LIMIT, -1) >= 0) {
-                sb.append(" LIMIT ").append(options.getInt(QueryOptions.LIMIT));
-            }
-
-            if (options.getInt(QueryOptions.SKIP, -1) >= 0) {
-                sb.append(" OFFSET ").append(options.getInt(QueryOptions.SKIP));
-            }
-        }
-
-        phoenixSQLQuery.sql = sb.toString();
+        phoenixSQLQuery.orderBy = sb.toString();
         return phoenixSQLQuery;
     }
 
@@ -251,6 +323,11 @@ public class VariantSqlQueryParser {
                     // If don't, add it to the return list.
                     Set<Integer> fileIds = metadataManager.getFileIdsFromSampleIds(studyId, sampleIds);
                     List<Integer> includeFiles = queryFields.getFiles().get(studyId);
+                    for (Integer fileId : fileIds) {
+                        for (Column column : getPackedSamplesColumns(studyId, metadataManager.getFileMetadata(studyId, fileId))) {
+                            sb.append(",\"").append(column.column()).append('"');
+                        }
+                    }
                     for (Integer fileId : fileIds) {
                         if (!includeFiles.contains(fileId)) {
                             sb.append(",\"");
@@ -971,6 +1048,7 @@ public class VariantSqlQueryParser {
                 }
                 int studyId = defaultStudyMetadata.getId();
                 int sampleId = metadataManager.getSampleId(studyId, entry.getKey());
+                checkNotPackedSamples(metadataManager, studyId, sampleId, GENOTYPE);
 
                 List<String> genotypes = GenotypeClass.filter(entry.getValue(), loadedGenotypes);
 
@@ -1137,6 +1215,7 @@ public class VariantSqlQueryParser {
 
                 String formatValues = entry.getValue();
                 int sampleId = metadataManager.getSampleId(defaultStudyMetadata.getId(), entry.getKey());
+                checkNotPackedSamples(metadataManager, defaultStudyMetadata.getId(), sampleId, FORMAT);
                 Pair<QueryOperation, List<String>> formatPair = splitValue(formatValues);
                 for (String formatValue : formatPair.getValue()) {
 
@@ -86,6 +86,16 @@ public class HBaseVariantSampleDataManager extends VariantSampleDataManager {
         int skip = Math.max(0, options.getInt(QueryOptions.SKIP, 0));
         int limit = Math.max(0, options.getInt(QueryOptions.LIMIT, 10));
 
+        // Packed samples columns can not be filtered by genotype nor paginated by the server. Paginate after merging both layouts
+        final List<PhoenixHelper.Column> packedSamplesColumns;
+        if (includeAllSamples) {
+            packedSamplesColumns = VariantPhoenixHelper.getPackedSamplesColumns(metadataManager, studyId,
+                    metadataManager.getIndexedSamples(studyId));
+        } else {
+            packedSamplesColumns = VariantPhoenixHelper.getPackedSamplesColumns(metadataManager, studyId, includeSampleIds);
+        }
+        boolean hasPackedSamples = !packedSamplesColumns.isEmpty();
+
         try {
             List<Integer> samples = new ArrayList<>(limit);
             List<Pair<Integer, List<String>>> sampleDataMap = new ArrayList<>(limit);
@@ -120,7 +130,11 @@ public class HBaseVariantSampleDataManager extends VariantSampleDataManager {
                     }
                 }
 
-                filters.add(new ColumnPaginationFilter(limit, skip));
+                if (hasPackedSamples) {
+                    filters.add(new ColumnPaginationFilter(limit + skip, 0));
+                } else {
+                    filters.add(new ColumnPaginationFilter(limit, skip));
+                }
                 get.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, filters));
                 if (!includeAllSamples) {
                     for (Integer sampleId : includeSampleIds) {
@@ -140,6 +154,37 @@ public class HBaseVariantSampleDataManager extends VariantSampleDataManager {
                 }
             });
 
+            if (hasPackedSamples) {
+                dbAdaptor.getHBaseManager().act(dbAdaptor.getVariantTable(), table -> {
+                    Get get = new Get(VariantPhoenixKeyFactory.generateVariantRowKey(variant));
+                    for (PhoenixHelper.Column column : packedSamplesColumns) {
+                        get.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+                    }
+                    Result result = table.get(get);
+                    if (!result.isEmpty()) {
+                        Set<Integer> readSamples = new HashSet<>(samples);
+                        VariantRow.walker(result)
+                                .onSample(sampleColumn -> {
+                                    int sampleId = sampleColumn.getSampleId();
+                                    if (sampleColumn.getStudyId() == studyId
+                                            && (includeAllSamples || includeSampleIds.contains(sampleId))
+                                            && (!studyWithGts || matchGenotype(sampleColumn.getGT(), genotypes))
+                                            && readSamples.add(sampleId)) {
+                                        samples.add(sampleId);
+                                        sampleDataMap.add(Pair.of(sampleId, sampleColumn.getMutableSampleData()));
+                                    }
+                                }).walk();
+                    }
+                });
+                // Paginate
+                int from = Math.min(skip, samples.size());
+                int to = Math.min(skip + limit, samples.size());
+                samples.subList(to, samples.size()).clear();
+                samples.subList(0, from).clear();
+                sampleDataMap.subList(to, sampleDataMap.size()).clear();
+                sampleDataMap.subList(0, from).clear();
+            }
+
             // Query files, stats and annotation
             List<Pair<String, PhoenixArray>> filesMap = new ArrayList<>();
             Set<Integer> fileIdsFromSampleIds = metadataManager.getFileIdsFromSampleIds(studyId, samples);
@@ -202,6 +247,14 @@ public class HBaseVariantSampleDataManager extends VariantSampleDataManager {
         }
     }
 
+    private static boolean matchGenotype(String gt, Set<String> genotypes) {
+        if (gt == null || gt.isEmpty()) {
+            return genotypes.contains(GenotypeClass.NA_GT_VALUE);
+        } else {
+            return genotypes.contains(gt);
+        }
+    }
+
     protected Map<String, Collection<String>> getGenotypeGroups(int studyId, Set<String> genotypes, boolean merge) {
         Map<String, Collection<String>> gtGroups = new LinkedHashMap<>(genotypes.size());
         List<String> loadedGts = metadataManager.getStudyMetadata(studyId).getAttributes()
@@ -175,7 +175,9 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
     protected ParallelTaskRunner<VariantAnnotation, ?> buildLoadAnnotationParallelTaskRunner(
             DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params) {
 
-        if (VariantPhoenixHelper.DEFAULT_TABLE_TYPE == PTableType.VIEW
+        boolean loadHBase = params.getBoolean(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE.key(),
+                HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE.defaultValue());
+        if (loadHBase || VariantPhoenixHelper.DEFAULT_TABLE_TYPE == PTableType.VIEW
                 || params.getBoolean(HadoopVariantStorageOptions.VARIANT_TABLE_INDEXES_SKIP.key(), false)) {
             int currentAnnotationId = dbAdaptor.getMetadataManager().getProjectMetadata()
                     .getAnnotation().getCurrent().getId();
@@ -186,6 +188,20 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
 
             Task<VariantAnnotation, Put> task = Task.join(hBaseConverter, annotationIndexDBLoader.asTask(true));
 
+            if (loadHBase) {
+                int numWriters = params.getInt(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_WRITERS.key(),
+                        HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_WRITERS.defaultValue());
+                int flushSize = params.getInt(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_FLUSH_SIZE.key(),
+                        HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_FLUSH_SIZE.defaultValue());
+                boolean diff = params.getBoolean(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_DIFF.key(),
+                        HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_DIFF.defaultValue());
+                logger.info("Load annotation with {} HBase writers{}", numWriters, diff ? ", writing only modified columns" : "");
+                VariantAnnotationHBaseParallelWriter writer = new VariantAnnotationHBaseParallelWriter(
+                        dbAdaptor.getHBaseManager(),
+                        dbAdaptor.getTableNameGenerator(),
+                        GenomeHelper.COLUMN_FAMILY_BYTES, numWriters, flushSize, diff);
+                return new ParallelTaskRunner<>(reader, task, writer, config);
+            }
             VariantAnnotationHadoopDBWriter writer = new VariantAnnotationHadoopDBWriter(
                     dbAdaptor.getHBaseManager(),
                     dbAdaptor.getTableNameGenerator(),
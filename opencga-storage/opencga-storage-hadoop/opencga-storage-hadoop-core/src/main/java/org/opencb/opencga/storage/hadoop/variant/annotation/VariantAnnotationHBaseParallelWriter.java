@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.hadoop.variant.annotation;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.*;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.annotation.pending.PendingVariantsToAnnotateDBCleaner;
+import org.opencb.opencga.storage.hadoop.variant.search.HadoopVariantSearchIndexUtils;
+import org.opencb.opencga.storage.hadoop.variant.utils.HBaseVariantTableNameGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the annotation Puts directly into the variants table, using several concurrent writers.
+ *
+ * Each writer owns a BufferedMutator. Batches are distributed between the writers, and all of them are flushed
+ * every "flushSize" variants, right before removing the written variants from the pending variants to annotate table.
+ *
+ * In diff mode, the current value of the annotation columns is read before writing, and only the columns that
+ * changed are written. Variants with no changes are not written at all, so they are not marked as pending to
+ * synchronize with the secondary index.
+ *
+ * Phoenix secondary indexes are not updated by this writer.
+ */
+public class VariantAnnotationHBaseParallelWriter implements DataWriter<Put> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VariantAnnotationHBaseParallelWriter.class);
+
+    private final HBaseManager hBaseManager;
+    private final String variantTable;
+    private final byte[] columnFamily;
+    private final int numWriters;
+    private final int flushSize;
+    private final boolean diff;
+    private final PendingVariantsToAnnotateDBCleaner pendingVariantsCleaner;
+
+    private final List<ExecutorService> writers;
+    private final List<BufferedMutator> mutators;
+    private final Queue<Future<?>> pendingWrites = new LinkedList<>();
+    private final List<byte[]> loadedVariants = new ArrayList<>();
+    private int nextWriter = 0;
+
+    private final AtomicLong writtenVariants = new AtomicLong();
+    private final AtomicLong unchangedVariants = new AtomicLong();
+    private final AtomicLong skippedCells = new AtomicLong();
+
+    public VariantAnnotationHBaseParallelWriter(HBaseManager hBaseManager, HBaseVariantTableNameGenerator nameGenerator,
+                                                byte[] columnFamily, int numWriters, int flushSize, boolean diff) {
+        this.hBaseManager = new HBaseManager(hBaseManager);
+        this.variantTable = nameGenerator.getVariantTableName();
+        this.columnFamily = columnFamily;
+        this.numWriters = Math.max(1, numWriters);
+        this.flushSize = flushSize;
+        this.diff = diff;
+        this.writers = new ArrayList<>(this.numWriters);
+        this.mutators = new ArrayList<>(this.numWriters);
+
+        pendingVariantsCleaner = new PendingVariantsToAnnotateDBCleaner(hBaseManager, nameGenerator.getPendingAnnotationTableName());
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            for (int i = 0; i < numWriters; i++) {
+                mutators.add(hBaseManager.getConnection().getBufferedMutator(TableName.valueOf(variantTable)));
+                writers.add(Executors.newSingleThreadExecutor(r -> {
+                    Thread thread = new Thread(r, "annotation-hbase-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to connect to Hbase", e);
+        }
+        return pendingVariantsCleaner.open();
+    }
+
+    @Override
+    public boolean pre() {
+        VariantAnnotationHadoopDBWriter.updateAnnotationColumns(hBaseManager, variantTable, columnFamily);
+        return pendingVariantsCleaner.pre();
+    }
+
+    @Override
+    public boolean write(List<Put> puts) {
+        int writerIdx = nextWriter;
+        nextWriter = (nextWriter + 1) % numWriters;
+        BufferedMutator mutator = mutators.get(writerIdx);
+        pendingWrites.add(writers.get(writerIdx).submit(() -> {
+            writeBatch(mutator, puts);
+            return null;
+        }));
+        for (Put put : puts) {
+            loadedVariants.add(put.getRow());
+        }
+
+        if (loadedVariants.size() >= flushSize) {
+            flush();
+        } else {
+            // Do not let the writers fall behind
+            while (pendingWrites.size() > numWriters * 2) {
+                waitFor(pendingWrites.poll());
+            }
+        }
+        return true;
+    }
+
+    private void writeBatch(BufferedMutator mutator, List<Put> puts) throws IOException {
+        List<Put> mutations = diff ? diff(puts) : puts;
+        for (Put put : mutations) {
+            HadoopVariantSearchIndexUtils.addNotSyncStatus(put, columnFamily);
+        }
+        mutator.mutate(mutations);
+        writtenVariants.addAndGet(mutations.size());
+    }
+
+    private List<Put> diff(List<Put> puts) throws IOException {
+        List<Get> gets = new ArrayList<>(puts.size());
+        for (Put put : puts) {
+            Get get = new Get(put.getRow());
+            for (List<Cell> cells : put.getFamilyCellMap().values()) {
+                for (Cell cell : cells) {
+                    get.addColumn(CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell));
+                }
+            }
+            gets.add(get);
+        }
+        Result[] results = hBaseManager.act(variantTable, (HBaseManager.HBaseTableFunction<Result[]>) table -> table.get(gets));
+
+        List<Put> mutations = new ArrayList<>(puts.size());
+        for (int i = 0; i < puts.size(); i++) {
+            Put put = puts.get(i);
+            Put diffPut = diff(put, results[i]);
+            if (diffPut == null) {
+                unchangedVariants.incrementAndGet();
+            } else {
+                skippedCells.addAndGet(put.size() - diffPut.size());
+                mutations.add(diffPut);
+            }
+        }
+        return mutations;
+    }
+
+    /**
+     * Remove from the Put the cells with the same value as the current one.
+     *
+     * @param put       Put to write
+     * @param current   Current value of the columns from the Put
+     * @return          Put with the modified cells, or null if nothing changed
+     * @throws IOException if the cells can not be added to the new Put
+     */
+    static Put diff(Put put, Result current) throws IOException {
+        if (current == null || current.isEmpty()) {
+            return put;
+        }
+        Put diffPut = new Put(put.getRow());
+        for (List<Cell> cells : put.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                Cell currentCell = current.getColumnLatestCell(CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell));
+                if (currentCell == null || !CellUtil.matchingValue(cell, currentCell)) {
+                    diffPut.add(cell);
+                }
+            }
+        }
+        return diffPut.isEmpty() ? null : diffPut;
+    }
+
+    private void flush() {
+        while (!pendingWrites.isEmpty()) {
+            waitFor(pendingWrites.poll());
+        }
+        try {
+            for (BufferedMutator mutator : mutators) {
+                mutator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Only remove from the pending table the variants already flushed
+        pendingVariantsCleaner.write(loadedVariants);
+        loadedVariants.clear();
+    }
+
+    private static void waitFor(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean post() {
+        flush();
+        if (diff) {
+            LOGGER.info("Annotation written for {} variants. Skipped {} unchanged variants and {} unchanged columns",
+                    writtenVariants.get(), unchangedVariants.get(), skippedCells.get());
+        }
+        return pendingVariantsCleaner.post();
+    }
+
+    @Override
+    public boolean close() {
+        try {
+            for (ExecutorService writer : writers) {
+                writer.shutdown();
+            }
+            for (BufferedMutator mutator : mutators) {
+                mutator.close();
+            }
+            hBaseManager.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return pendingVariantsCleaner.close();
+    }
+}
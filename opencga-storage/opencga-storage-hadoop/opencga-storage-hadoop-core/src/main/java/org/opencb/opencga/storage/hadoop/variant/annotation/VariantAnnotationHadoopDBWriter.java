@@ -43,10 +43,22 @@ public class VariantAnnotationHadoopDBWriter extends HBaseDataWriter<Put> {
     @Override
     public boolean pre() {
         super.pre();
+        updateAnnotationColumns(hBaseManager, tableName, columnFamily);
+        pendingVariantsCleaner.pre();
+        return true;
+    }
+
+    /**
+     * Register in Phoenix the annotation columns that might be missing in the variants table.
+     *
+     * @param hBaseManager  HBaseManager
+     * @param variantTable  Variants table
+     * @param columnFamily  Column family
+     */
+    static void updateAnnotationColumns(HBaseManager hBaseManager, String variantTable, byte[] columnFamily) {
         try {
             VariantPhoenixHelper variantPhoenixHelper = new VariantPhoenixHelper(columnFamily, hBaseManager.getConf());
             Connection connection = variantPhoenixHelper.newJdbcConnection();
-            String variantTable = super.tableName;
 
             variantPhoenixHelper.getPhoenixHelper().addMissingColumns(connection, variantTable,
                     VariantPhoenixHelper.getHumanPopulationFrequenciesColumns(), true, VariantPhoenixHelper.DEFAULT_TABLE_TYPE);
@@ -55,8 +67,6 @@ public class VariantAnnotationHadoopDBWriter extends HBaseDataWriter<Put> {
         } catch (SQLException | ClassNotFoundException e) {
             throw Throwables.propagate(e);
         }
-        pendingVariantsCleaner.pre();
-        return true;
     }
 
     @Override
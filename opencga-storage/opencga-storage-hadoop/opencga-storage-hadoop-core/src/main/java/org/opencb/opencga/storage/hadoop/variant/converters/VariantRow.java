@@ -2,6 +2,7 @@ package org.opencb.opencga.storage.hadoop.variant.converters;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
@@ -17,12 +18,15 @@ import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
 import org.opencb.opencga.storage.hadoop.variant.converters.annotation.HBaseToVariantAnnotationConverter;
 import org.opencb.opencga.storage.hadoop.variant.converters.study.HBaseToStudyEntryConverter;
+import org.opencb.opencga.storage.hadoop.variant.converters.study.PackedSamplesDataConverter;
 import org.opencb.opencga.storage.hadoop.variant.gaps.VariantOverlappingStatus;
 
 import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.BiConsumer;
@@ -106,6 +110,9 @@ public class VariantRow {
                         walker.file(new BytesFileColumn(bytes, extractStudyId(columnName), extractFileId(columnName)));
                     } else if (columnName.endsWith(SAMPLE_DATA_SUFIX)) {
                         walker.sample(new BytesSampleColumn(bytes, extractStudyId(columnName), extractSampleId(columnName)));
+                    } else if (columnName.endsWith(PACKED_SAMPLES_SUFIX)) {
+                        walker.packedSamples(new BytesPackedSamplesColumn(bytes, extractStudyId(columnName),
+                                extractPackedSamplesFileId(columnName)));
                     } else if (columnName.endsWith(STUDY_SUFIX)) {
                         walker.study(extractStudyId(columnName));
                     } else if (columnName.endsWith(COHORT_STATS_PROTOBUF_SUFFIX)) {
@@ -130,6 +137,9 @@ public class VariantRow {
                     walker.file(new BytesFileColumn(cell, extractStudyId(columnName), extractFileId(columnName)));
                 } else if (columnName.endsWith(SAMPLE_DATA_SUFIX)) {
                     walker.sample(new BytesSampleColumn(cell, extractStudyId(columnName), extractSampleId(columnName)));
+                } else if (columnName.endsWith(PACKED_SAMPLES_SUFIX)) {
+                    walker.packedSamples(new BytesPackedSamplesColumn(cell, extractStudyId(columnName),
+                            extractPackedSamplesFileId(columnName)));
                 } else if (columnName.endsWith(STUDY_SUFIX)) {
                     walker.study(extractStudyId(columnName));
                 } else if (columnName.endsWith(COHORT_STATS_PROTOBUF_SUFFIX)) {
@@ -152,6 +162,7 @@ public class VariantRow {
         private IntConsumer studyConsumer = r -> { };
         private Consumer<FileColumn> fileConsumer = r -> { };
         private Consumer<SampleColumn> sampleConsumer = r -> { };
+        private Consumer<PackedSamplesColumn> packedSamplesConsumer = null;
         private Consumer<StatsColumn> statsConsumer = r -> { };
         private Consumer<VariantScoreColumn> variantScoreConsumer = r -> { };
         private BiConsumer<Integer, Integer> fillMissingConsumer = (k, v) -> { };
@@ -178,6 +189,17 @@ public class VariantRow {
             sampleConsumer.accept(sampleColumn);
         }
 
+        protected void packedSamples(PackedSamplesColumn packedSamplesColumn) {
+            if (packedSamplesConsumer == null) {
+                // By default, walk each packed sample as a regular sample column
+                for (SampleColumn sampleColumn : packedSamplesColumn.getSamples()) {
+                    sampleConsumer.accept(sampleColumn);
+                }
+            } else {
+                packedSamplesConsumer.accept(packedSamplesColumn);
+            }
+        }
+
         protected void stats(StatsColumn statsColumn) {
             statsConsumer.accept(statsColumn);
         }
@@ -214,6 +236,17 @@ public class VariantRow {
             return this;
         }
 
+        /**
+         * Consumer for packed samples columns. If not defined, each packed sample will be sent to the sample consumer.
+         *
+         * @param consumer Packed samples consumer
+         * @return this
+         */
+        public VariantRowWalker onPackedSamples(Consumer<PackedSamplesColumn> consumer) {
+            packedSamplesConsumer = consumer;
+            return this;
+        }
+
         public VariantRowWalker onCohortStats(Consumer<StatsColumn> consumer) {
             statsConsumer = consumer;
             return this;
@@ -274,6 +307,14 @@ public class VariantRow {
 
     }
 
+    public interface PackedSamplesColumn extends Column {
+        int getStudyId();
+
+        int getFileId();
+
+        List<SampleColumn> getSamples();
+    }
+
     public interface StatsColumn extends Column {
         int getStudyId();
 
@@ -482,6 +523,80 @@ public class VariantRow {
         }
     }
 
+    private static class BytesPackedSamplesColumn extends BytesColumn implements PackedSamplesColumn {
+        private final int studyId;
+        private final int fileId;
+
+        BytesPackedSamplesColumn(Cell cell, int studyId, int fileId) {
+            super(cell);
+            this.studyId = studyId;
+            this.fileId = fileId;
+        }
+
+        BytesPackedSamplesColumn(byte[] value, int studyId, int fileId) {
+            super(value);
+            this.studyId = studyId;
+            this.fileId = fileId;
+        }
+
+        @Override
+        public int getStudyId() {
+            return studyId;
+        }
+
+        @Override
+        public int getFileId() {
+            return fileId;
+        }
+
+        @Override
+        public List<SampleColumn> getSamples() {
+            List<Pair<Integer, List<String>>> samples = PackedSamplesDataConverter.decode(valueArray, valueOffset, valueLength);
+            List<SampleColumn> columns = new ArrayList<>(samples.size());
+            for (Pair<Integer, List<String>> sample : samples) {
+                columns.add(new ListSampleColumn(studyId, sample.getKey(), sample.getValue()));
+            }
+            return columns;
+        }
+    }
+
+    private static class ListSampleColumn implements SampleColumn {
+        private final int studyId;
+        private final int sampleId;
+        private final List<String> sampleData;
+
+        ListSampleColumn(int studyId, int sampleId, List<String> sampleData) {
+            this.studyId = studyId;
+            this.sampleId = sampleId;
+            this.sampleData = sampleData;
+        }
+
+        @Override
+        public int getStudyId() {
+            return studyId;
+        }
+
+        @Override
+        public int getSampleId() {
+            return sampleId;
+        }
+
+        @Override
+        public List<String> getSampleData() {
+            return Collections.unmodifiableList(sampleData);
+        }
+
+        @Override
+        public List<String> getMutableSampleData() {
+            return new ArrayList<>(sampleData);
+        }
+
+        @Override
+        public String getSampleData(int idx) {
+            return idx < sampleData.size() ? sampleData.get(idx) : null;
+        }
+    }
+
     private static class BytesStatsColumn extends BytesColumn implements StatsColumn {
         private final int studyId;
         private final int cohortId;
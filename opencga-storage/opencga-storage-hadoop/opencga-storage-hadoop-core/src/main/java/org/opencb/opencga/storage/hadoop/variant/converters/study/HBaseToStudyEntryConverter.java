@@ -207,6 +207,18 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
                     sampleDataMap.computeIfAbsent(sampleColumn.getStudyId(), s -> new ArrayList<>())
                             .add(Pair.of(sampleColumn.getSampleId(), sampleColumn.getMutableSampleData()));
                 })
+                .onPackedSamples(packedSamplesColumn -> {
+                    int studyId = packedSamplesColumn.getStudyId();
+                    studies.add(studyId);
+                    // Packed columns may contain samples not included in the query
+                    Set<Integer> returnedSampleIds = getReturnedSampleIds(studyId);
+                    List<Pair<Integer, List<String>>> samplesData = sampleDataMap.computeIfAbsent(studyId, s -> new ArrayList<>());
+                    for (VariantRow.SampleColumn sampleColumn : packedSamplesColumn.getSamples()) {
+                        if (returnedSampleIds.contains(sampleColumn.getSampleId())) {
+                            samplesData.add(Pair.of(sampleColumn.getSampleId(), sampleColumn.getMutableSampleData()));
+                        }
+                    }
+                })
                 .onFile(fileColumn -> {
                     studies.add(fileColumn.getStudyId());
                     filesMap.computeIfAbsent(fileColumn.getStudyId(), s -> new ArrayList<>())
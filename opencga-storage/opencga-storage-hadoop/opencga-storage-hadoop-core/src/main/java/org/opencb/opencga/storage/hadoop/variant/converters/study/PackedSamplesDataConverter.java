@@ -0,0 +1,121 @@
+package org.opencb.opencga.storage.hadoop.variant.converters.study;
+
+import com.google.protobuf.CodedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.opencb.opencga.storage.hadoop.variant.models.protobuf.PackedSampleFields;
+import org.opencb.opencga.storage.hadoop.variant.models.protobuf.PackedSamplesData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Converts the sample data from a batch of samples of the same file into one single cell.
+ *
+ * Samples are grouped in batches by its position in the file. Each batch is serialized
+ * as a {@link PackedSamplesData} protobuf message, with the first field (usually GT) dictionary encoded.
+ */
+public class PackedSamplesDataConverter {
+
+    private final int batchSize;
+    private final Map<Integer, BatchBuilder> batches = new TreeMap<>();
+
+    public PackedSamplesDataConverter(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Expected batch size > 0. Got " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Add the sample data of one sample.
+     *
+     * @param samplePosition Position of the sample in the file
+     * @param sampleId       Sample id
+     * @param sampleData     Sample data, following the fixed format of the study
+     */
+    public void add(int samplePosition, int sampleId, List<String> sampleData) {
+        batches.computeIfAbsent(samplePosition / batchSize, b -> new BatchBuilder()).add(sampleId, sampleData);
+    }
+
+    public boolean isEmpty() {
+        return batches.isEmpty();
+    }
+
+    /**
+     * Build the serialized batches. Resets the content of this converter.
+     *
+     * @return Map from batch number to serialized {@link PackedSamplesData}
+     */
+    public Map<Integer, byte[]> build() {
+        Map<Integer, byte[]> map = new LinkedHashMap<>(batches.size());
+        for (Map.Entry<Integer, BatchBuilder> entry : batches.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().builder.build().toByteArray());
+        }
+        batches.clear();
+        return map;
+    }
+
+    public static int getNumBatches(int numSamples, int batchSize) {
+        return (numSamples + batchSize - 1) / batchSize;
+    }
+
+    /**
+     * Decode a serialized {@link PackedSamplesData}.
+     *
+     * @param bytes  Byte array
+     * @param offset Offset
+     * @param length Length
+     * @return List of pairs sampleId - sampleData. The sample data lists are mutable.
+     */
+    public static List<Pair<Integer, List<String>>> decode(byte[] bytes, int offset, int length) {
+        PackedSamplesData packedSamplesData;
+        try {
+            packedSamplesData = PackedSamplesData.parseFrom(CodedInputStream.newInstance(bytes, offset, length));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int numSamples = packedSamplesData.getSampleIdsCount();
+        List<Pair<Integer, List<String>>> samples = new ArrayList<>(numSamples);
+        int sampleId = 0;
+        for (int i = 0; i < numSamples; i++) {
+            sampleId += packedSamplesData.getSampleIds(i);
+            PackedSampleFields otherFields = packedSamplesData.getOtherFields(i);
+            List<String> sampleData = new ArrayList<>(otherFields.getValuesCount() + 1);
+            String firstField = packedSamplesData.getFirstFieldDictionary(packedSamplesData.getFirstField(i));
+            sampleData.add(firstField.isEmpty() ? null : firstField);
+            for (String value : otherFields.getValuesList()) {
+                sampleData.add(value.isEmpty() ? null : value);
+            }
+            samples.add(Pair.of(sampleId, sampleData));
+        }
+        return samples;
+    }
+
+    private static final class BatchBuilder {
+        private final PackedSamplesData.Builder builder = PackedSamplesData.newBuilder();
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private int lastSampleId = 0;
+
+        private void add(int sampleId, List<String> sampleData) {
+            builder.addSampleIds(sampleId - lastSampleId);
+            lastSampleId = sampleId;
+
+            String firstField = sampleData.isEmpty() ? "" : StringUtils.defaultString(sampleData.get(0));
+            Integer idx = dictionary.get(firstField);
+            if (idx == null) {
+                idx = dictionary.size();
+                dictionary.put(firstField, idx);
+                builder.addFirstFieldDictionary(firstField);
+            }
+            builder.addFirstField(idx);
+
+            PackedSampleFields.Builder fields = PackedSampleFields.newBuilder();
+            for (int i = 1; i < sampleData.size(); i++) {
+                fields.addValues(StringUtils.defaultString(sampleData.get(i)));
+            }
+            builder.addOtherFields(fields);
+        }
+    }
+}
@@ -60,6 +60,7 @@ public class StudyEntryToHBaseConverter extends AbstractPhoenixConverter impleme
     private final LinkedListMultimap<Integer, Integer> sampleToFileMap;
     private boolean addSecondaryAlternates;
     private final PhoenixHelper.Column releaseColumn;
+    private int packedSamplesBatchSize = 0;
 
     public StudyEntryToHBaseConverter(byte[] columnFamily, int studyId, VariantStorageMetadataManager metadataManager,
                                       boolean addSecondaryAlternates, Integer release, boolean includeReferenceVariantsData) {
@@ -102,6 +103,23 @@ public class StudyEntryToHBaseConverter extends AbstractPhoenixConverter impleme
         }
     }
 
+    public int getPackedSamplesBatchSize() {
+        return packedSamplesBatchSize;
+    }
+
+    /**
+     * Write the sample data packed in one cell per batch of samples, instead of one cell per sample.
+     * Only applies to variants with one single file.
+     *
+     * @param packedSamplesBatchSize Number of samples per cell. Disabled if <= 0
+     * @return this
+     * @see PackedSamplesDataConverter
+     */
+    public StudyEntryToHBaseConverter setPackedSamplesBatchSize(int packedSamplesBatchSize) {
+        this.packedSamplesBatchSize = packedSamplesBatchSize;
+        return this;
+    }
+
     @Override
     public Put convert(Variant variant) {
         byte[] rowKey = VariantPhoenixKeyFactory.generateVariantRowKey(variant);
@@ -154,10 +172,13 @@ public class StudyEntryToHBaseConverter extends AbstractPhoenixConverter impleme
         boolean writeAllFileAttributes = samplesName.isEmpty();
         boolean writeFileAttributes = writeAllFileAttributes;
         Set<Integer> filesToWrite = new HashSet<>();
+        PackedSamplesDataConverter packedSamples = null;
+        if (packedSamplesBatchSize > 0 && studyEntry.getFiles().size() == 1) {
+            packedSamples = new PackedSamplesDataConverter(packedSamplesBatchSize);
+        }
         for (String sampleName : samplesName) {
             Integer sampleId = sampleIdsMap.get(sampleName);
             if (sampleIds == null || sampleIds.contains(sampleId)) {
-                byte[] column = VariantPhoenixHelper.buildSampleColumnKey(studyMetadata.getId(), sampleId);
                 List<String> sampleData = studyEntry.getSamplesData().get(sampleIdx);
                 // Write sample data if the is no genotype information, or if the genotype is equals to the default genotype
                 if (gtIdx == null || !defaultGenotypes.contains(sampleData.get(gtIdx))) {
@@ -167,7 +188,12 @@ public class StudyEntryToHBaseConverter extends AbstractPhoenixConverter impleme
                         // Trim all leading null values
                         sampleData = trimLeadingNullValues(sampleData, 1);
                     }
-                    addVarcharArray(put, column, sampleData);
+                    if (packedSamples == null) {
+                        byte[] column = VariantPhoenixHelper.buildSampleColumnKey(studyMetadata.getId(), sampleId);
+                        addVarcharArray(put, column, sampleData);
+                    } else {
+                        packedSamples.add(sampleIdx, sampleId, sampleData);
+                    }
                     // Write file attributes if at least one sample is written.
                     writeFileAttributes = true;
                     filesToWrite.addAll(sampleToFileMap.get(sampleId));
@@ -175,6 +201,13 @@ public class StudyEntryToHBaseConverter extends AbstractPhoenixConverter impleme
             }
             sampleIdx++;
         }
+        if (packedSamples != null && !packedSamples.isEmpty()) {
+            int fileId = Integer.parseInt(studyEntry.getFiles().get(0).getFileId());
+            for (Map.Entry<Integer, byte[]> entry : packedSamples.build().entrySet()) {
+                byte[] column = VariantPhoenixHelper.buildPackedSamplesColumnKey(studyMetadata.getId(), fileId, entry.getKey());
+                put.addColumn(columnFamily, column, entry.getValue());
+            }
+        }
         if (writeFileAttributes) {
             for (FileEntry fileEntry : studyEntry.getFiles()) {
                 int fileId = Integer.parseInt(fileEntry.getFileId());
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.hadoop.variant.executors;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.util.RegionSizeCalculator;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.tools.ant.types.Commandline;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.MR_EXECUTOR_LOCAL_THREADS;
+
+/**
+ * Executes the MapReduce jobs within the current JVM, using the hadoop local job runner.
+ *
+ * Avoids the JVM and YARN startup of small jobs. Mappers run in a pool of threads, reading directly from HBase.
+ */
+public class LocalMRExecutor extends MRExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalMRExecutor.class);
+
+    private final Configuration configuration;
+
+    public LocalMRExecutor() {
+        this(HBaseConfiguration.create());
+    }
+
+    public LocalMRExecutor(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public <T extends Tool> int run(Class<T> execClass, String[] args, ObjectMap options) throws StorageEngineException {
+        Configuration conf = new Configuration(false);
+        HBaseConfiguration.merge(conf, configuration);
+        conf.set("mapreduce.framework.name", "local");
+        int threads = options.getInt(MR_EXECUTOR_LOCAL_THREADS.key(), MR_EXECUTOR_LOCAL_THREADS.defaultValue());
+        conf.setInt("mapreduce.local.map.tasks.maximum", threads);
+        conf.setInt("mapreduce.local.reduce.tasks.maximum", threads);
+        // All the classes are already in the classpath
+        conf.setBoolean(HadoopVariantStorageOptions.MR_ADD_DEPENDENCY_JARS.key(), false);
+
+        LOGGER.info("Executing {} in local mode with {} threads", execClass.getSimpleName(), threads);
+        try {
+            return ToolRunner.run(conf, execClass.newInstance(), args);
+        } catch (Exception e) {
+            throw new StorageEngineException("Error executing MapReduce " + execClass.getSimpleName() + " in local mode", e);
+        }
+    }
+
+    @Override
+    public int run(String executable, String args) throws StorageEngineException {
+        String className = executable.substring(executable.lastIndexOf(' ') + 1);
+        try {
+            Class<? extends Tool> execClass = Class.forName(className).asSubclass(Tool.class);
+            return run(execClass, Commandline.translateCommandline(args), getOptions());
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new StorageEngineException("Unable to execute '" + executable + "' in local mode", e);
+        }
+    }
+
+    /**
+     * Estimate the input size of a job, as the size in HBase of the table to read.
+     *
+     * @param conf  Configuration
+     * @param table Table to read
+     * @return Size in bytes, or -1 if unknown
+     */
+    public static long estimateInputSize(Configuration conf, String table) {
+        try (Connection connection = ConnectionFactory.createConnection(conf);
+             Admin admin = connection.getAdmin()) {
+            TableName tableName = TableName.valueOf(table);
+            if (!admin.tableExists(tableName)) {
+                return -1;
+            }
+            try (RegionLocator regionLocator = connection.getRegionLocator(tableName)) {
+                RegionSizeCalculator calculator = new RegionSizeCalculator(regionLocator, admin);
+                long size = 0;
+                for (Long regionSize : calculator.getRegionSizeMap().values()) {
+                    size += regionSize;
+                }
+                return size;
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to estimate size of table " + table, e);
+            return -1;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.opencb.opencga.storage.hadoop.variant.executors;
 
+import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.util.StopWatch;
 import org.apache.hadoop.util.Tool;
 import org.apache.tools.ant.types.Commandline;
@@ -83,6 +84,15 @@ public abstract class MRExecutor {
     }
 
     public <T extends Tool> int run(Class<T> execClass, String[] args, ObjectMap options) throws StorageEngineException {
+        long maxLocalInputSize = options.getLong(MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.key(), MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.defaultValue());
+        if (maxLocalInputSize > 0 && args.length > 0) {
+            // First argument is always the input table
+            long inputSize = LocalMRExecutor.estimateInputSize(HBaseConfiguration.create(), args[0]);
+            if (inputSize >= 0 && inputSize < maxLocalInputSize) {
+                LoggerFactory.getLogger(MRExecutor.class).info("Input table {} of {} bytes. Run in local mode", args[0], inputSize);
+                return new LocalMRExecutor().init(options).run(execClass, args, options);
+            }
+        }
         String hadoopRoute = options.getString(MR_HADOOP_BIN.key(), MR_HADOOP_BIN.defaultValue());
         String jar = getJarWithDependencies(options);
         String executable = hadoopRoute + " jar " + jar + ' ' + execClass.getName();
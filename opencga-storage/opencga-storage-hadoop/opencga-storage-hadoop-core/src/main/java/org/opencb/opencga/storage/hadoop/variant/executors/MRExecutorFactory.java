@@ -23,6 +23,9 @@ public class MRExecutorFactory {
             case "ssh":
                 aClass = SshMRExecutor.class;
                 break;
+            case "local":
+                aClass = LocalMRExecutor.class;
+                break;
             default:
                 try {
                     aClass = Class.forName(executor).asSubclass(MRExecutor.class);
@@ -83,6 +83,33 @@ public final class IndexUtils {
         return (indexValue & indexMask) == indexFilter;
     }
 
+    /**
+     * Test a sequence of index values, 64 values at a time.
+     * Bit "i" of the result is set if the value "i" passes {@link #testIndex(byte, byte, byte)}.
+     *
+     * @param index       Index values
+     * @param offset      Offset of the first value
+     * @param length      Number of values
+     * @param indexMask   Index mask
+     * @param indexFilter Index filter
+     * @return Selection vector
+     */
+    public static long[] testIndex(byte[] index, int offset, int length, byte indexMask, byte indexFilter) {
+        long[] selection = new long[(length + Long.SIZE - 1) / Long.SIZE];
+        for (int word = 0; word < selection.length; word++) {
+            int start = word * Long.SIZE;
+            int end = Math.min(length, start + Long.SIZE);
+            long bits = 0;
+            for (int i = start; i < end; i++) {
+                if ((index[offset + i] & indexMask) == indexFilter) {
+                    bits |= 1L << (i - start);
+                }
+            }
+            selection[word] = bits;
+        }
+        return selection;
+    }
+
     public static boolean testIndexAny(byte indexValue, byte indexMask) {
         return (indexValue & indexMask) != 0;
     }
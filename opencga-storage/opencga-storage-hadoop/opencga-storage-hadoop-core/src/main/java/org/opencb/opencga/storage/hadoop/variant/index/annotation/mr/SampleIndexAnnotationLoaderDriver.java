@@ -14,6 +14,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexAnnotationLoader;
@@ -110,9 +111,18 @@ public class SampleIndexAnnotationLoaderDriver extends AbstractVariantsTableDriv
         for (Integer sampleId : sampleIds) {
             scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixHelper.buildSampleColumnKey(getStudyId(), sampleId));
         }
+        List<PhoenixHelper.Column> packedSamplesColumns =
+                VariantPhoenixHelper.getPackedSamplesColumns(getMetadataManager(), getStudyId(), sampleIds);
+        for (PhoenixHelper.Column column : packedSamplesColumns) {
+            scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+        }
         scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixHelper.VariantColumn.FULL_ANNOTATION.bytes());
 
         SampleIndexAnnotationLoaderMapper.setHasGenotype(job, hasGenotype);
+        if (!packedSamplesColumns.isEmpty()) {
+            // Packed samples columns may contain other samples
+            SampleIndexAnnotationLoaderMapper.setSamples(job, sampleIds);
+        }
 
         VariantMapReduceUtil.configureMapReduceScan(scan, getConf());
 
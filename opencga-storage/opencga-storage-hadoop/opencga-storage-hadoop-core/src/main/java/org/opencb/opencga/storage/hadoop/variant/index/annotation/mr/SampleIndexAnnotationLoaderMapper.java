@@ -1,5 +1,7 @@
 package org.opencb.opencga.storage.hadoop.variant.index.annotation.mr;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
@@ -12,6 +14,7 @@ import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.converters.annotation.HBaseToVariantAnnotationConverter;
+import org.opencb.opencga.storage.hadoop.variant.converters.study.PackedSamplesDataConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexPutBuilder;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexEntry;
@@ -19,8 +22,8 @@ import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantsTableMapReduceHelper;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Created on 26/02/19.
@@ -30,23 +33,44 @@ import java.util.Map;
 public class SampleIndexAnnotationLoaderMapper extends VariantTableSampleIndexOrderMapper<ImmutableBytesWritable, Put> {
 
     private static final String HAS_GENOTYPE = "SampleIndexAnnotationLoaderMapper.hasGenotype";
+    private static final String SAMPLES = "SampleIndexAnnotationLoaderMapper.samples";
     private byte[] family;
     private GenomeHelper helper;
     private Map<Integer, Map<String, AnnotationIndexPutBuilder>> annotationIndices = new HashMap<>();
 
     private boolean hasGenotype;
+    private Set<Integer> samples;
     private AnnotationIndexConverter converter;
 
     public static void setHasGenotype(Job job, boolean hasGenotype) {
         job.getConfiguration().setBoolean(HAS_GENOTYPE, hasGenotype);
     }
 
+    /**
+     * Restrict the samples to update. Required if the scan contains packed samples columns.
+     *
+     * @param job     Job
+     * @param samples Sample ids
+     */
+    public static void setSamples(Job job, Collection<Integer> samples) {
+        job.getConfiguration().set(SAMPLES, samples.stream().map(Object::toString).collect(Collectors.joining(",")));
+    }
+
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
         helper = new GenomeHelper(context.getConfiguration());
         family = GenomeHelper.COLUMN_FAMILY_BYTES;
         hasGenotype = context.getConfiguration().getBoolean(HAS_GENOTYPE, true);
         converter = new AnnotationIndexConverter();
+        int[] samplesArray = context.getConfiguration().getInts(SAMPLES);
+        if (samplesArray == null || samplesArray.length == 0) {
+            samples = null;
+        } else {
+            samples = new HashSet<>(samplesArray.length);
+            for (int sample : samplesArray) {
+                samples.add(sample);
+            }
+        }
     }
 
     @Override
@@ -57,7 +81,20 @@ public class SampleIndexAnnotationLoaderMapper extends VariantTableSampleIndexOr
         // TODO Get stats given index values
 
         for (Cell cell : result.rawCells()) {
-            if (VariantPhoenixHelper.isSampleCell(cell)) {
+            if (VariantPhoenixHelper.isPackedSamplesCell(cell)) {
+                for (Pair<Integer, List<String>> sample
+                        : PackedSamplesDataConverter.decode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength())) {
+                    if (samples != null && !samples.contains(sample.getKey())) {
+                        continue;
+                    }
+                    String gt = sample.getValue().get(0);
+                    if (!hasGenotype || StringUtils.isEmpty(gt)) {
+                        addIndexEntry(sample.getKey(), GenotypeClass.NA_GT_VALUE, indexEntry);
+                    } else if (SampleIndexSchema.isAnnotatedGenotype(gt)) {
+                        addIndexEntry(sample.getKey(), gt, indexEntry);
+                    }
+                }
+            } else if (VariantPhoenixHelper.isSampleCell(cell)) {
                 Integer sampleId = VariantPhoenixHelper.extractSampleId(
                         Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()), true);
 
@@ -82,10 +119,7 @@ public class SampleIndexAnnotationLoaderMapper extends VariantTableSampleIndexOr
                 }
 
                 if (validGt) {
-                    annotationIndices
-                            .computeIfAbsent(sampleId, k -> new HashMap<>())
-                            .computeIfAbsent(gt, k -> new AnnotationIndexPutBuilder()).add(indexEntry);
-
+                    addIndexEntry(sampleId, gt, indexEntry);
                 }
 
             }
@@ -93,6 +127,12 @@ public class SampleIndexAnnotationLoaderMapper extends VariantTableSampleIndexOr
 
     }
 
+    private void addIndexEntry(Integer sampleId, String gt, AnnotationIndexEntry indexEntry) {
+        annotationIndices
+                .computeIfAbsent(sampleId, k -> new HashMap<>())
+                .computeIfAbsent(gt, k -> new AnnotationIndexPutBuilder()).add(indexEntry);
+    }
+
     @Override
     public void flush(Context context, String chromosome, int position) throws IOException, InterruptedException {
         writeIndices(context, chromosome, position);
@@ -3,6 +3,7 @@ package org.opencb.opencga.storage.hadoop.variant.index.family;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
@@ -27,6 +28,7 @@ import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParse
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
+import org.opencb.opencga.storage.hadoop.variant.converters.study.PackedSamplesDataConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.VariantTableSampleIndexOrderMapper;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
 import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexToHBaseConverter;
@@ -157,6 +159,11 @@ public class FamilyIndexDriver extends AbstractVariantsTableDriver {
         for (Integer sampleId : sampleIds) {
             scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixHelper.buildSampleColumnKey(getStudyId(), sampleId));
         }
+        List<Integer> existingSampleIds = sampleIds.stream().filter(sampleId -> sampleId > 0).collect(Collectors.toList());
+        for (PhoenixHelper.Column column
+                : VariantPhoenixHelper.getPackedSamplesColumns(getMetadataManager(), getStudyId(), existingSampleIds)) {
+            scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+        }
 //        scan.addColumn(getHelper().getColumnFamily(), VariantPhoenixHelper.VariantColumn.FULL_ANNOTATION.bytes());
 
 
@@ -243,6 +250,13 @@ public class FamilyIndexDriver extends AbstractVariantsTableDriver {
 
             Map<Integer, String> gtMap = new HashMap<>();
             for (Cell cell : value.rawCells()) {
+                if (VariantPhoenixHelper.isPackedSamplesCell(cell)) {
+                    for (Pair<Integer, List<String>> sample
+                            : PackedSamplesDataConverter.decode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength())) {
+                        gtMap.put(sample.getKey(), StringUtils.defaultString(sample.getValue().get(0)));
+                    }
+                    continue;
+                }
                 Integer sampleId = VariantPhoenixHelper
                         .extractSampleIdOrNull(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
                 if (sampleId != null) {
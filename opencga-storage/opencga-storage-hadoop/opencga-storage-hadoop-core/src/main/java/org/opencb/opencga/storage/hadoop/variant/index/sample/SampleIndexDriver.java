@@ -3,6 +3,7 @@ package org.opencb.opencga.storage.hadoop.variant.index.sample;
 import com.google.common.collect.BiMap;
 import htsjdk.variant.vcf.VCFConstants;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
@@ -39,6 +40,7 @@ import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenix
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
 import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
 import org.opencb.opencga.storage.hadoop.variant.converters.study.HBaseToStudyEntryConverter;
+import org.opencb.opencga.storage.hadoop.variant.converters.study.PackedSamplesDataConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.annotation.mr.VariantTableSampleIndexOrderMapper;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantAlignedInputFormat;
 import org.opencb.opencga.storage.hadoop.variant.mr.VariantMapReduceUtil;
@@ -81,6 +83,10 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
 
     private static final String SAMPLE_ID_TO_FILE_ID_MAP = "SampleIndexDriver.sampleIdToFileIdMap";
     private static final String FIXED_ATTRIBUTES = "SampleIndexDriver.fixedAttributes";
+    // Genotypes discarded by the scan filter.
+    // Packed samples cells contain several samples and can not be filtered by the scan, so these are discarded by the mapper.
+    private static final List<String> SKIP_GENOTYPES = Arrays.asList("0|0", "0/0", "./.", ".|.", ".");
+    private static final List<String> SKIP_SECONDARY_ONLY_GENOTYPES = Arrays.asList("0/1", "1/1", "1/2", "1");
     private int study;
     private int[] samples;
     private String outputTable;
@@ -204,23 +210,20 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
     @Override
     protected Job setupJob(Job job, String archiveTable, String table) throws IOException {
         FilterList filter = new FilterList(FilterList.Operator.MUST_PASS_ALL,
-                new QualifierFilter(EQUAL, new BinaryPrefixComparator(Bytes.toBytes(VariantPhoenixHelper.buildStudyColumnsPrefix(study)))),
-                new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'0', '|', '0', SEPARATOR_BYTE})),
-                new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'0', '/', '0', SEPARATOR_BYTE})),
-                new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'.', '/', '.', SEPARATOR_BYTE})),
-                new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'.', '|', '.', SEPARATOR_BYTE})),
-                new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'.', SEPARATOR_BYTE}))
-        );
-
-        if (secondaryOnly) {
-            filter.addFilter(new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'0', '/', '1', SEPARATOR_BYTE})));
-            filter.addFilter(new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'1', '/', '1', SEPARATOR_BYTE})));
-            filter.addFilter(new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'1', '/', '2', SEPARATOR_BYTE})));
-            filter.addFilter(new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(new byte[]{'1', SEPARATOR_BYTE})));
+                new QualifierFilter(EQUAL, new BinaryPrefixComparator(Bytes.toBytes(VariantPhoenixHelper.buildStudyColumnsPrefix(study)))));
+        for (String gt : getSkipGenotypes(secondaryOnly)) {
+            // Match the first element of the phoenix array
+            byte[] gtPrefix = Bytes.add(Bytes.toBytes(gt), new byte[]{SEPARATOR_BYTE});
+            filter.addFilter(new ValueFilter(NOT_EQUAL, new BinaryPrefixComparator(gtPrefix)));
         }
+        VariantStorageMetadataManager metadataManager = getMetadataManager();
 
         List<Scan> scans;
         if (multiScan) {
+            if (VariantPhoenixHelper.hasPackedSamples(metadataManager, study, sampleIds)) {
+                // Each packed samples cell would be read by several scans, duplicating the samples
+                throw new IllegalStateException("Unable to use multiple scans with packed samples");
+            }
             // FIXME: This will fail for large number of samples. Has to be fixed to use filters instead of explicit columns
             double numScans = Math.ceil(sampleIds.size() / partialScanSize);
             int samplesPerScan = (int) Math.ceil(sampleIds.size() / numScans);
@@ -267,6 +270,9 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
                         scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, fileColumn);
                     }
                 }
+                for (PhoenixHelper.Column column : VariantPhoenixHelper.getPackedSamplesColumns(metadataManager, study, sampleIds)) {
+                    scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, column.bytes());
+                }
             }
             scans = Collections.singletonList(scan);
         }
@@ -304,6 +310,7 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
             sb.append(',');
         }
         job.getConfiguration().setBoolean(SampleIndexerMapper.HAS_GENOTYPE, hasGenotype);
+        job.getConfiguration().setBoolean(SampleIndexerMapper.SECONDARY_ONLY, secondaryOnly);
         job.getConfiguration().set(SAMPLE_ID_TO_FILE_ID_MAP, sb.toString());
         job.getConfiguration().set(FIXED_ATTRIBUTES, String.join(",", fixedAttributes));
         if (allSamples) {
@@ -315,6 +322,14 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
         return job;
     }
 
+    private static List<String> getSkipGenotypes(boolean secondaryOnly) {
+        List<String> skipGenotypes = new ArrayList<>(SKIP_GENOTYPES);
+        if (secondaryOnly) {
+            skipGenotypes.addAll(SKIP_SECONDARY_ONLY_GENOTYPES);
+        }
+        return skipGenotypes;
+    }
+
     @Override
     protected void preExecution() throws IOException, StorageEngineException {
         super.preExecution();
@@ -336,6 +351,7 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
     public static class SampleIndexerMapper extends VariantTableSampleIndexOrderMapper<ImmutableBytesWritable, Put> {
 
         private static final String HAS_GENOTYPE = "SampleIndexerMapper.hasGenotype";
+        private static final String SECONDARY_ONLY = "SampleIndexerMapper.secondaryOnly";
         public static final int SAMPLES_TO_COUNT = 2;
         private byte[] family;
         private Set<Integer> samplesSet;
@@ -345,6 +361,7 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
         private List<String> fixedAttributes;
         private Map<Integer, List<Integer>> sampleIdToFileIdMap;
         private boolean hasGenotype;
+        private Set<String> skipGenotypes;
 
         private Map<Integer, Map<String, ByteArrayOutputStream>> sampleGtMap = new HashMap<>();
         private Map<Integer, Map<String, Integer>> sampleGtCountMap = new HashMap<>();
@@ -355,6 +372,7 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
             new GenomeHelper(context.getConfiguration());
             family = GenomeHelper.COLUMN_FAMILY_BYTES;
             hasGenotype = context.getConfiguration().getBoolean(HAS_GENOTYPE, true);
+            skipGenotypes = new HashSet<>(getSkipGenotypes(context.getConfiguration().getBoolean(SECONDARY_ONLY, false)));
             fileIndexConverter = new VariantFileIndexConverter();
 
             int[] samples = context.getConfiguration().getInts(SAMPLES);
@@ -415,6 +433,26 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
             }
 
             for (Cell cell : result.rawCells()) {
+                if (VariantPhoenixHelper.isPackedSamplesCell(cell)) {
+                    for (Pair<Integer, List<String>> sample
+                            : PackedSamplesDataConverter.decode(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength())) {
+                        Integer sampleId = sample.getKey();
+                        if (samplesSet != null && !samplesSet.contains(sampleId)) {
+                            continue;
+                        }
+                        if (hasGenotype) {
+                            String gt = sample.getValue().get(0);
+                            if (StringUtils.isEmpty(gt)) {
+                                addGenotype(context, variant, sampleId, GenotypeClass.NA_GT_VALUE, fileIndexMap);
+                            } else if (!skipGenotypes.contains(gt) && SampleIndexSchema.isAnnotatedGenotype(gt)) {
+                                addGenotype(context, variant, sampleId, gt, fileIndexMap);
+                            }
+                        } else {
+                            addGenotype(context, variant, sampleId, GenotypeClass.NA_GT_VALUE, fileIndexMap);
+                        }
+                    }
+                    continue;
+                }
                 Integer sampleId = VariantPhoenixHelper
                         .extractSampleIdOrNull(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
                 if (sampleId != null && (samplesSet == null || samplesSet.contains(sampleId))) {
@@ -438,38 +476,42 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
                         validGt = true;
                     }
                     if (validGt) {
-                        ByteArrayOutputStream stream = sampleGtMap
-                                .computeIfAbsent(sampleId, k -> new HashMap<>())
-                                .computeIfAbsent(gt, k -> new ByteArrayOutputStream(2000));
-                        variantsConverter.toBytes(variant, stream);
-
-                        // Increase counters
-                        sampleGtCountMap.computeIfAbsent(sampleId, k -> new HashMap<>()).merge(gt, 1, Integer::sum);
-
-                        // Add fileIndex value for this genotype
-                        Byte fileIndex = null;
-                        for (Integer fileId : sampleIdToFileIdMap.get(sampleId)) {
-                            fileIndex = fileIndexMap.get(fileId);
-                            if (fileIndex != null) {
-                                break;
-                            }
-                        }
-                        if (fileIndex == null) {
-                            throw new IllegalStateException("File " + sampleIdToFileIdMap.get(sampleId) + " not found for sample "
-                                    + sampleId + " in variant " + variant);
-                        }
-                        sampleFileIndexMap
-                                .computeIfAbsent(sampleId, k -> new HashMap<>())
-                                .computeIfAbsent(gt, k -> new ByteArrayOutputStream(50)).write(fileIndex);
+                        addGenotype(context, variant, sampleId, gt, fileIndexMap);
+                    }
+                }
+            }
 
+        }
 
-                        if (samplesToCount.contains(sampleId)) {
-                            context.getCounter(COUNTER_GROUP_NAME, "SAMPLE_" + sampleId + '_' + gt).increment(1);
-                        }
-                    }
+        private void addGenotype(Context context, Variant variant, Integer sampleId, String gt, Map<Integer, Byte> fileIndexMap)
+                throws IOException {
+            ByteArrayOutputStream stream = sampleGtMap
+                    .computeIfAbsent(sampleId, k -> new HashMap<>())
+                    .computeIfAbsent(gt, k -> new ByteArrayOutputStream(2000));
+            variantsConverter.toBytes(variant, stream);
+
+            // Increase counters
+            sampleGtCountMap.computeIfAbsent(sampleId, k -> new HashMap<>()).merge(gt, 1, Integer::sum);
+
+            // Add fileIndex value for this genotype
+            Byte fileIndex = null;
+            for (Integer fileId : sampleIdToFileIdMap.get(sampleId)) {
+                fileIndex = fileIndexMap.get(fileId);
+                if (fileIndex != null) {
+                    break;
                 }
             }
+            if (fileIndex == null) {
+                throw new IllegalStateException("File " + sampleIdToFileIdMap.get(sampleId) + " not found for sample "
+                        + sampleId + " in variant " + variant);
+            }
+            sampleFileIndexMap
+                    .computeIfAbsent(sampleId, k -> new HashMap<>())
+                    .computeIfAbsent(gt, k -> new ByteArrayOutputStream(50)).write(fileIndex);
 
+            if (samplesToCount.contains(sampleId)) {
+                context.getCounter(COUNTER_GROUP_NAME, "SAMPLE_" + sampleId + '_' + gt).increment(1);
+            }
         }
 
         @Override
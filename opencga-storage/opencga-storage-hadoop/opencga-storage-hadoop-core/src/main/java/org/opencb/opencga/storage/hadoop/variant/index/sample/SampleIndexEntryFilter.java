@@ -119,10 +119,24 @@ public class SampleIndexEntryFilter {
 
             MutableInt expectedResultsFromAnnotation = new MutableInt(getExpectedResultsFromAnnotation(gtEntry));
 
+            // Selection vector from the summary annotation index. Variants not selected are skipped without decoding.
+            BitSet selection = getAnnotationSelection(gtEntry);
+            int lastSelected = selection == null ? Integer.MAX_VALUE : selection.length() - 1;
+
             SampleIndexEntryIterator variantIterator = gtEntry.iterator(countIterator);
             ArrayList<Variant> variants = new ArrayList<>(variantIterator.getApproxSize());
             variantsByGt.add(variants);
             while (expectedResultsFromAnnotation.intValue() > 0 && variantIterator.hasNext()) {
+                if (selection != null) {
+                    int idx = variantIterator.nextIndex();
+                    if (idx > lastSelected) {
+                        // No more selected variants in this genotype
+                        break;
+                    } else if (!selection.get(idx)) {
+                        variantIterator.skip();
+                        continue;
+                    }
+                }
                 Variant variant = filter(variantIterator, expectedResultsFromAnnotation);
                 if (variant != null) {
                     variants.add(variant);
@@ -150,6 +164,32 @@ public class SampleIndexEntryFilter {
         return variants;
     }
 
+    /**
+     * Evaluate the summary annotation index (and the clinical flag, if needed) for all the variants of the genotype,
+     * 64 variants at a time.
+     *
+     * @param gtEntry Genotype entry
+     * @return Selection of variants that might pass the annotation filters, or null if there is no annotation filter to apply.
+     */
+    protected BitSet getAnnotationSelection(SampleIndexGtEntry gtEntry) {
+        if (gtEntry.getAnnotationIndex() == null) {
+            return null;
+        }
+        byte mask = query.getAnnotationIndexMask();
+        byte index = query.getAnnotationIndex();
+        if (query.getAnnotationIndexQuery().getClinicalMask() != EMPTY_MASK
+                && (mask & AnnotationIndexConverter.CLINICAL_MASK) == 0) {
+            // Clinical filter requires the variant to be clinical
+            mask |= AnnotationIndexConverter.CLINICAL_MASK;
+            index |= AnnotationIndexConverter.CLINICAL_MASK;
+        }
+        if (mask == EMPTY_MASK) {
+            return null;
+        }
+        return BitSet.valueOf(IndexUtils.testIndex(gtEntry.getAnnotationIndex(), gtEntry.getAnnotationIndexOffset(),
+                gtEntry.getAnnotationIndexLength(), mask, index));
+    }
+
     private int getExpectedResultsFromAnnotation(SampleIndexGtEntry gtEntry) {
         int expectedResultsFromAnnotation = Integer.MAX_VALUE;
         if (gtEntry.getAnnotationCounts() != null) {
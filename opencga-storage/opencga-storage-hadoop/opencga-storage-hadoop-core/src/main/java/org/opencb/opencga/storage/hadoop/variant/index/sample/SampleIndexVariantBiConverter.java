@@ -298,6 +298,30 @@ public class SampleIndexVariantBiConverter {
             return annotationIndexEntry;
         }
 
+        /**
+         * Move the annotation index streams over the next element without decoding its AnnotationIndexEntry.
+         */
+        protected void skipAnnotationIndexEntry() {
+            int idx = nextIndex();
+            if (annotationIndexEntryIdx == idx) {
+                // Already read
+                return;
+            }
+            if (ctBtIndex != null && gtEntry.getAnnotationIndex() != null
+                    && gtEntry.getConsequenceTypeIndex() != null && gtEntry.getBiotypeIndex() != null
+                    && SampleIndexEntryFilter.isNonIntergenic(gtEntry.getAnnotationIndex(idx))) {
+                int nextNonIntergenic = nextNonIntergenicIndex();
+                int numCt = Integer.bitCount(Short.toUnsignedInt(gtEntry.getConsequenceTypeIndex(nextNonIntergenic)));
+                int numBt = Integer.bitCount(Byte.toUnsignedInt(gtEntry.getBiotypeIndex(nextNonIntergenic)));
+                if (numCt != 0 && numBt != 0) {
+                    ctBtIndex.skip(numCt * numBt);
+                }
+            }
+            if (popFreq != null) {
+                popFreq.skip(configuration.getPopulationRanges().size() * AnnotationIndexConverter.POP_FREQ_SIZE);
+            }
+        }
+
         @Override
         public int nextNonIntergenicIndex() {
             if (gtEntry.getAnnotationIndex() == null) {
@@ -436,7 +460,7 @@ public class SampleIndexVariantBiConverter {
 
         @Override
         public void skip() {
-            nextAnnotationIndexEntry(); // ensure read annotation
+            skipAnnotationIndexEntry(); // ensure annotation streams are moved
             increaseCounters();
             variants.next();
         }
@@ -492,7 +516,7 @@ public class SampleIndexVariantBiConverter {
 
         @Override
         public void skip() {
-            nextAnnotationIndexEntry(); // ensure read annotation
+            skipAnnotationIndexEntry(); // ensure annotation streams are moved
             increaseCounters();
             i++;
         }
@@ -565,7 +589,7 @@ public class SampleIndexVariantBiConverter {
 
         @Override
         public void skip() {
-            nextAnnotationIndexEntry(); // ensure read annotation
+            skipAnnotationIndexEntry(); // ensure annotation streams are moved
             increaseCounters();
             movePointer();
         }
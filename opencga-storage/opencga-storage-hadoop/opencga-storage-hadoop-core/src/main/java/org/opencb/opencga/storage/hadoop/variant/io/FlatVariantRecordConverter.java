@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.hadoop.variant.io;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.EvidenceEntry;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.util.*;
+
+/**
+ * Converts variants into flat records, with one column per annotation field and a genotype matrix.
+ *
+ * The genotype matrix is a nested record with one string column per sample. Once written in Parquet, each sample is a
+ * separate dictionary-encoded column, so a query reading a few samples does not need to decode the rest of them.
+ * Chromosome and position are plain primitive columns, so the min/max statistics of each row group can be used
+ * to prune by region.
+ *
+ * Only one study is supported, as the genotype matrix is defined by the samples of the study.
+ */
+public class FlatVariantRecordConverter {
+
+    public static final String SAMPLE_PROP = "sample";
+    public static final String GENOTYPES = "genotypes";
+
+    private final Schema schema;
+    private final Schema genotypesSchema;
+    private final String[] samples;
+
+    // Sample positions, cached for the last samples position map
+    private Map<String, Integer> samplesPosition;
+    private int[] positions;
+
+    public FlatVariantRecordConverter(Schema schema) {
+        this.schema = schema;
+        this.genotypesSchema = schema.getField(GENOTYPES).schema();
+        List<Schema.Field> fields = genotypesSchema.getFields();
+        samples = new String[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            samples[i] = fields.get(i).getProp(SAMPLE_PROP);
+        }
+    }
+
+    /**
+     * Build the flat schema for the given samples.
+     *
+     * @param samples Samples to include in the genotype matrix, in order
+     * @return Avro schema
+     */
+    public static Schema createSchema(List<String> samples) {
+        SchemaBuilder.FieldAssembler<Schema> genotypes = SchemaBuilder.record("Genotypes").fields();
+        Set<String> fieldNames = new HashSet<>();
+        for (String sample : samples) {
+            String fieldName = toFieldName(sample);
+            while (!fieldNames.add(fieldName)) {
+                fieldName = fieldName + '_';
+            }
+            genotypes = genotypes.name(fieldName).prop(SAMPLE_PROP, sample).type().optional().stringType();
+        }
+
+        return SchemaBuilder.record("FlatVariant").namespace("org.opencb.opencga.storage.variant")
+                .fields()
+                .requiredString("chromosome")
+                .requiredInt("start")
+                .requiredInt("end")
+                .requiredString("reference")
+                .requiredString("alternate")
+                .requiredString("type")
+                .optionalString("id")
+                .name("genes").type().array().items().stringType().noDefault()
+                .name("consequenceTypes").type().array().items().stringType().noDefault()
+                .name("biotypes").type().array().items().stringType().noDefault()
+                .name("populationFrequencies").type().map().values().floatType().noDefault()
+                .name("clinicalSignificance").type().array().items().stringType().noDefault()
+                .name(GENOTYPES).type(genotypes.endRecord()).noDefault()
+                .endRecord();
+    }
+
+    /**
+     * Convert a variant into a flat record.
+     *
+     * @param variant Variant
+     * @return Flat record
+     */
+    public GenericRecord convert(Variant variant) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("chromosome", variant.getChromosome());
+        record.put("start", variant.getStart());
+        record.put("end", variant.getEnd());
+        record.put("reference", variant.getReference());
+        record.put("alternate", variant.getAlternate());
+        record.put("type", variant.getType().name());
+        record.put("id", variant.getAnnotation() == null ? null : variant.getAnnotation().getId());
+
+        Set<String> genes = new LinkedHashSet<>();
+        Set<String> consequenceTypes = new LinkedHashSet<>();
+        Set<String> biotypes = new LinkedHashSet<>();
+        Map<String, Float> populationFrequencies = new HashMap<>();
+        Set<String> clinicalSignificance = new LinkedHashSet<>();
+        VariantAnnotation annotation = variant.getAnnotation();
+        if (annotation != null) {
+            if (annotation.getConsequenceTypes() != null) {
+                for (ConsequenceType ct : annotation.getConsequenceTypes()) {
+                    if (ct.getGeneName() != null) {
+                        genes.add(ct.getGeneName());
+                    }
+                    if (ct.getBiotype() != null) {
+                        biotypes.add(ct.getBiotype());
+                    }
+                    if (ct.getSequenceOntologyTerms() != null) {
+                        for (SequenceOntologyTerm term : ct.getSequenceOntologyTerms()) {
+                            consequenceTypes.add(term.getName());
+                        }
+                    }
+                }
+            }
+            if (annotation.getPopulationFrequencies() != null) {
+                for (PopulationFrequency frequency : annotation.getPopulationFrequencies()) {
+                    populationFrequencies.put(frequency.getStudy() + ':' + frequency.getPopulation(), frequency.getAltAlleleFreq());
+                }
+            }
+            if (annotation.getTraitAssociation() != null) {
+                for (EvidenceEntry evidenceEntry : annotation.getTraitAssociation()) {
+                    if (evidenceEntry.getVariantClassification() != null
+                            && evidenceEntry.getVariantClassification().getClinicalSignificance() != null) {
+                        clinicalSignificance.add(evidenceEntry.getVariantClassification().getClinicalSignificance().name());
+                    }
+                }
+            }
+        }
+        record.put("genes", new ArrayList<>(genes));
+        record.put("consequenceTypes", new ArrayList<>(consequenceTypes));
+        record.put("biotypes", new ArrayList<>(biotypes));
+        record.put("populationFrequencies", populationFrequencies);
+        record.put("clinicalSignificance", new ArrayList<>(clinicalSignificance));
+
+        GenericRecord genotypes = new GenericData.Record(genotypesSchema);
+        if (variant.getStudies() != null && !variant.getStudies().isEmpty()) {
+            StudyEntry study = variant.getStudies().get(0);
+            Integer gtIdx = study.getFormatPositions().get("GT");
+            if (gtIdx != null) {
+                int[] positions = getPositions(study.getSamplesPosition());
+                List<List<String>> samplesData = study.getSamplesData();
+                for (int i = 0; i < positions.length; i++) {
+                    if (positions[i] >= 0) {
+                        genotypes.put(i, samplesData.get(positions[i]).get(gtIdx));
+                    }
+                }
+            }
+        }
+        record.put(GENOTYPES, genotypes);
+        return record;
+    }
+
+    private int[] getPositions(Map<String, Integer> samplesPosition) {
+        if (samplesPosition == this.samplesPosition || samplesPosition.equals(this.samplesPosition)) {
+            this.samplesPosition = samplesPosition;
+            return positions;
+        }
+        int[] positions = new int[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            positions[i] = samplesPosition.getOrDefault(samples[i], -1);
+        }
+        this.samplesPosition = samplesPosition;
+        this.positions = positions;
+        return positions;
+    }
+
+    private static String toFieldName(String sample) {
+        StringBuilder sb = new StringBuilder(sample.length() + 1);
+        if (sample.isEmpty() || !Character.isLetter(sample.charAt(0))) {
+            sb.append('_');
+        }
+        for (int i = 0; i < sample.length(); i++) {
+            char c = sample.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) && c < 128 ? c : '_');
+        }
+        return sb.toString();
+    }
+}
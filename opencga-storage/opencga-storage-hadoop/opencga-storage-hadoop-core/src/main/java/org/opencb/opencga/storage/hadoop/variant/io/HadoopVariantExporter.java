@@ -67,11 +67,21 @@ public class HadoopVariantExporter extends VariantExporter {
             }
         }
 
+        // Flat parquet is only produced by the MapReduce export
+        boolean mrOnlyFormat = outputFormat == VariantWriterFactory.VariantOutputFormat.FLAT_PARQUET
+                || outputFormat == VariantWriterFactory.VariantOutputFormat.FLAT_PARQUET_GZ;
+
         if ((outputFileUri == null)
                 || (variantsFile != null)
-                || smallQuery
+                || (smallQuery && !mrOnlyFormat)
                 || queryOptions.getBoolean("skipMapReduce", false)
                 || (!(ioConnector instanceof HDFSIOConnector) && !(ioConnector instanceof LocalIOConnector))) {
+            if (mrOnlyFormat) {
+                // Do not fall back to the default export, which is unable to write this format
+                throw new StorageEngineException(outputFormat + " requires MapReduce export to a file. "
+                        + "Output to stdout, input variants file, 'skipMapReduce' and output file systems other than "
+                        + "HDFS or local are not supported. Output: '" + outputFileUri + "'");
+            }
             super.export(outputFileUri, outputFormat, variantsFile, query, queryOptions);
         } else {
             Path outputPath = new Path(outputFileUri);
@@ -1,6 +1,8 @@
 package org.opencb.opencga.storage.hadoop.variant.io;
 
+import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.mapred.AvroKey;
 import org.apache.avro.mapred.AvroValue;
 import org.apache.avro.mapreduce.AvroJob;
@@ -23,7 +25,9 @@ import org.opencb.biodata.models.variant.avro.VariantAvro;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
@@ -37,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Handler;
@@ -63,6 +68,9 @@ public class VariantExporterDriver extends AbstractVariantsTableDriver {
     public static final String OUTPUT_FORMAT_PARAM = "of";
     public static final String OUTPUT_PARAM = "output";
     public static final String CONCAT_OUTPUT_PARAM = "concat-output";
+    public static final String FLAT_SCHEMA = "opencga.variant.export.flat.schema";
+    public static final String FLAT_PARQUET_ROW_GROUP_SIZE = "flat-parquet-row-group-size";
+    public static final int FLAT_PARQUET_ROW_GROUP_SIZE_DEFAULT = 32 * 1024 * 1024;
     private VariantOutputFormat outputFormat;
     private Path outdir;
     private Path localOutput;
@@ -149,6 +157,27 @@ public class VariantExporterDriver extends AbstractVariantsTableDriver {
                     reducerClass = null;
                 }
                 break;
+            case FLAT_PARQUET_GZ:
+                ParquetOutputFormat.setCompression(job, CompressionCodecName.GZIP);
+                // do not break
+            case FLAT_PARQUET:
+                Schema flatSchema = FlatVariantRecordConverter.createSchema(getIncludeSamples());
+                job.getConfiguration().set(FLAT_SCHEMA, flatSchema.toString());
+                job.setOutputFormatClass(AvroParquetOutputFormat.class);
+                AvroParquetOutputFormat.setSchema(job, flatSchema);
+                // Dictionary encoding for the genotype columns, and small row groups to allow pruning by region
+                ParquetOutputFormat.setEnableDictionary(job, true);
+                ParquetOutputFormat.setBlockSize(job, getConf().getInt(FLAT_PARQUET_ROW_GROUP_SIZE, FLAT_PARQUET_ROW_GROUP_SIZE_DEFAULT));
+                if (useReduceStep) {
+                    job.setMapOutputKeyClass(NullWritable.class);
+                    AvroJob.setMapOutputValueSchema(job, VariantAvro.getClassSchema());
+                    mapperClass = ParquetVariantExporterMapper.class;
+                    reducerClass = FlatParquetVariantExporterReducer.class;
+                } else {
+                    mapperClass = FlatParquetVariantExporterDirectMapper.class;
+                    reducerClass = null;
+                }
+                break;
             default:
                 if (useReduceStep) {
                     job.setMapOutputKeyClass(NullWritable.class);
@@ -213,6 +242,21 @@ public class VariantExporterDriver extends AbstractVariantsTableDriver {
         return job;
     }
 
+    private List<String> getIncludeSamples() {
+        VariantStorageMetadataManager metadataManager = getMetadataManager();
+        Map<Integer, List<Integer>> includeSamples = VariantQueryUtils.getIncludeSamples(query, options, metadataManager);
+        if (includeSamples.size() > 1) {
+            throw new IllegalArgumentException("Unable to export more than one study as " + outputFormat);
+        }
+        List<String> samples = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> entry : includeSamples.entrySet()) {
+            for (Integer sampleId : entry.getValue()) {
+                samples.add(metadataManager.getSampleName(entry.getKey(), sampleId));
+            }
+        }
+        return samples;
+    }
+
     @Override
     protected void postExecution(boolean succeed) throws IOException, StorageEngineException {
         super.postExecution(succeed);
@@ -388,6 +432,55 @@ public class VariantExporterDriver extends AbstractVariantsTableDriver {
         }
     }
 
+    /**
+     * Mapper to convert to flat records.
+     * The output of this mapper should be connected directly to the {@link AvroParquetOutputFormat}
+     * This mapper can not work with a reduce step.
+     * @see FlatVariantRecordConverter
+     */
+    public static class FlatParquetVariantExporterDirectMapper extends VariantMapper<Void, GenericRecord> {
+        private FlatVariantRecordConverter converter;
+
+        @Override
+        protected void setup(Context context) throws IOException, InterruptedException {
+            super.setup(context);
+            context.getCounter(COUNTER_GROUP_NAME, "variants").increment(0);
+            converter = new FlatVariantRecordConverter(new Schema.Parser().parse(context.getConfiguration().get(FLAT_SCHEMA)));
+            silenceParquet();
+        }
+
+        @Override
+        protected void map(Object key, Variant value, Context context) throws IOException, InterruptedException {
+            context.getCounter(COUNTER_GROUP_NAME, "variants").increment(1);
+            context.write(null, converter.convert(value));
+        }
+    }
+
+    /**
+     * Reducer to join all VariantAvro and generate flat records.
+     * The output of this reducer should be connected directly to the {@link AvroParquetOutputFormat}
+     * @see ParquetVariantExporterMapper
+     * @see FlatVariantRecordConverter
+     */
+    public static class FlatParquetVariantExporterReducer extends Reducer<NullWritable, AvroValue<VariantAvro>, Void, GenericRecord> {
+        private FlatVariantRecordConverter converter;
+
+        @Override
+        protected void setup(Context context) throws IOException, InterruptedException {
+            super.setup(context);
+            converter = new FlatVariantRecordConverter(new Schema.Parser().parse(context.getConfiguration().get(FLAT_SCHEMA)));
+            silenceParquet();
+        }
+
+        @Override
+        protected void reduce(NullWritable key, Iterable<AvroValue<VariantAvro>> values, Context context)
+                throws IOException, InterruptedException {
+            for (AvroValue<VariantAvro> value : values) {
+                context.write(null, converter.convert(new Variant(value.datum())));
+            }
+        }
+    }
+
     private static void silenceParquet() {
         java.util.logging.Logger logger = java.util.logging.Logger.getLogger(Log.class.getPackage().getName());
         logger.setLevel(Level.WARNING);
@@ -58,11 +58,17 @@ public class VariantHadoopDBWriter extends AbstractHBaseDataWriter<Variant, Put>
 
     public VariantHadoopDBWriter(GenomeHelper helper, String tableName, int studyId, VariantStorageMetadataManager metadataManager,
                                  HBaseManager hBaseManager, boolean includeReferenceVariantsData) {
+        this(helper, tableName, studyId, metadataManager, hBaseManager, includeReferenceVariantsData, 0);
+    }
+
+    public VariantHadoopDBWriter(GenomeHelper helper, String tableName, int studyId, VariantStorageMetadataManager metadataManager,
+                                 HBaseManager hBaseManager, boolean includeReferenceVariantsData, int packedSamplesBatchSize) {
         super(hBaseManager, tableName);
         this.helper = helper;
         int release = metadataManager.getProjectMetadata().getRelease();
         converter = new StudyEntryToHBaseConverter(GenomeHelper.COLUMN_FAMILY_BYTES, studyId, metadataManager, true, release,
-                includeReferenceVariantsData);
+                includeReferenceVariantsData)
+                .setPackedSamplesBatchSize(packedSamplesBatchSize);
     }
 
     @Override
@@ -140,4 +140,22 @@ public class HBaseProjectMetadataDBAdaptor extends AbstractHBaseDBAdaptor implem
         }
     }
 
+    @Override
+    public int getCounter(Integer studyId, String idType) {
+        try {
+            ensureTableExists();
+            return hBaseManager.act(tableName, (table) -> {
+                byte[] column = getCounterColumn(studyId, idType);
+                Result result = table.get(new Get(getProjectRowKey()).addColumn(family, column));
+                byte[] value = result.getValue(family, column);
+                if (value == null) {
+                    return 0;
+                }
+                return (int) Bytes.toLong(value);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
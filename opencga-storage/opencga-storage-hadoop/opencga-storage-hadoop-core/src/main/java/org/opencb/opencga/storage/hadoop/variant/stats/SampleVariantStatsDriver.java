@@ -25,6 +25,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.stats.SampleVariantStatsStore;
 import org.opencb.opencga.storage.hadoop.utils.AvroWritable;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.VariantTableAggregationDriver;
@@ -53,6 +54,7 @@ public class SampleVariantStatsDriver extends VariantTableAggregationDriver {
     //    public static final boolean STATS_PARTIAL_RESULTS_DEFAULT = true;
     private static final String TRIOS = "trios";
     private static final String WRITE_TO_DISK = "write";
+    private static final String ANNOTATION_TS = "annotationTs";
     private static final String STATS_OPERATION_NAME = "sample_stats";
     private List<Integer> sampleIds;
     private String trios;
@@ -212,6 +214,7 @@ public class SampleVariantStatsDriver extends VariantTableAggregationDriver {
         job.getConfiguration().set(SAMPLES, sampleIds.stream().map(Objects::toString).collect(Collectors.joining(",")));
         job.getConfiguration().setInt(STUDY_ID, getStudyId());
         job.getConfiguration().set(TRIOS, trios);
+        job.getConfiguration().setLong(ANNOTATION_TS, SampleVariantStatsStore.getLastAnnotationTs(getMetadataManager()));
         if (outdir != null) {
             job.getConfiguration().setBoolean(WRITE_TO_DISK, true);
         }
@@ -425,11 +428,13 @@ public class SampleVariantStatsDriver extends VariantTableAggregationDriver {
         private VariantStorageMetadataManager vsm;
         private VariantsTableMapReduceHelper mrHelper;
         private boolean write;
+        private long annotationTs;
 
         @Override
         protected void setup(Context context) throws IOException, InterruptedException {
             studyId = context.getConfiguration().getInt(STUDY_ID, -1);
             write = context.getConfiguration().getBoolean(WRITE_TO_DISK, false);
+            annotationTs = context.getConfiguration().getLong(ANNOTATION_TS, 0);
 
             mrHelper = new VariantsTableMapReduceHelper(context);
             vsm = mrHelper.getMetadataManager();
@@ -475,6 +480,9 @@ public class SampleVariantStatsDriver extends VariantTableAggregationDriver {
 
                         // Update all but missingCount!
                     }
+                    // Keep raw counters, so the stats can be incrementally updated with new files
+                    SampleVariantStatsStore.setPartialStats(sampleMetadata, sampleMetadata.getFiles(), statsWritable.ti, statsWritable.tv,
+                            statsWritable.qualCount, statsWritable.qualSum, statsWritable.qualSumSq, annotationTs);
 
                     return sampleMetadata;
                 });
@@ -96,6 +96,11 @@ public class SaturationStatsDriver extends AbstractVariantsTableDriver {
         Map<Integer, Integer> sampleIdsPad = new HashMap<>(studyIds.size());
         int maxSampleId = 0;
         for (Integer id : studyIds) {
+            if (VariantPhoenixHelper.hasPackedSamples(metadataManager, id, metadataManager.getIndexedSamples(id))) {
+                // Values are discarded by the KeyOnlyFilter, so the packed samples can not be decoded
+                throw new IllegalArgumentException("Unable to compute saturation stats for study "
+                        + metadataManager.getStudyName(id) + ". Study contains files loaded with packed samples");
+            }
             int maxSampleIdInStudy = 0;
             for (Integer sampleId : metadataManager.getIndexedSamples(id)) {
                 scan.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixHelper.buildSampleColumnKey(id, sampleId));
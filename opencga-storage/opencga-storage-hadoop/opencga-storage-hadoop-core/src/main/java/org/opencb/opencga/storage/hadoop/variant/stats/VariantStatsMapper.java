@@ -40,6 +40,7 @@ public class VariantStatsMapper extends VariantMapper<ImmutableBytesWritable, Pu
     private String study;
     private VariantStatisticsCalculator calculator;
     private Map<String, Set<String>> samples;
+    private Map<String, Set<String>> files;
     private VariantTableHelper helper;
     private StudyMetadata studyMetadata;
     private VariantStatsToHBaseConverter converter;
@@ -64,6 +65,7 @@ public class VariantStatsMapper extends VariantMapper<ImmutableBytesWritable, Pu
         Collection<Integer> cohorts = getCohorts(context.getConfiguration());
         Map<String, Integer> cohortIds = new HashMap<>(cohorts.size());
         samples = new HashMap<>(cohorts.size());
+        files = new HashMap<>(cohorts.size());
 
         cohorts.forEach(cohortId -> {
             CohortMetadata cohortMetadata = metadataManager.getCohortMetadata(studyMetadata.getId(), cohortId);
@@ -74,6 +76,13 @@ public class VariantStatsMapper extends VariantMapper<ImmutableBytesWritable, Pu
                     .map(s -> metadataManager.getSampleName(studyMetadata.getId(), s))
                     .collect(Collectors.toSet());
             samples.put(cohort, samplesInCohort);
+
+            if (cohortMetadata.getFiles() != null) {
+                Set<String> filesInCohort = cohortMetadata.getFiles().stream()
+                        .map(f -> metadataManager.getFileName(studyMetadata.getId(), f))
+                        .collect(Collectors.toSet());
+                files.put(cohort, filesInCohort);
+            }
         });
 
         converter = new VariantStatsToHBaseConverter(studyMetadata, cohortIds);
@@ -83,7 +92,8 @@ public class VariantStatsMapper extends VariantMapper<ImmutableBytesWritable, Pu
     @Override
     protected void map(Object key, Variant variant, Context context) throws IOException, InterruptedException {
         try {
-            List<VariantStatsWrapper> variantStatsWrappers = calculator.calculateBatch(Collections.singletonList(variant), study, samples);
+            List<VariantStatsWrapper> variantStatsWrappers = calculator.calculateBatch(Collections.singletonList(variant), study, samples,
+                    files);
             if (variantStatsWrappers.isEmpty()) {
                 return;
             }
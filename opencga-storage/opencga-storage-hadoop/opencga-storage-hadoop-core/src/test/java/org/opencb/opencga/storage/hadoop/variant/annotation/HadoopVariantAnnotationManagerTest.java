@@ -12,6 +12,7 @@ import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManagerTest;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
 import org.opencb.opencga.storage.hadoop.variant.VariantHbaseTestUtils;
 import org.opencb.opencga.storage.hadoop.variant.annotation.pending.DiscoverPendingVariantsToAnnotateDriver;
@@ -70,4 +71,25 @@ public class HadoopVariantAnnotationManagerTest extends VariantAnnotationManager
         Assert.assertEquals(0L, engine.annotate(new Query(), new ObjectMap()));
         Assert.assertEquals(variants, engine.annotate(new Query(), new ObjectMap(VariantStorageOptions.ANNOTATION_OVERWEITE.key(), true)));
     }
+
+    @Test
+    public void hbaseAnnotationLoadTest() throws Exception {
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+        runDefaultETL(getPlatinumFile(0), engine, null, new ObjectMap(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false));
+
+        ObjectMap params = new ObjectMap(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE.key(), true)
+                .append(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_WRITERS.key(), 2)
+                .append(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_FLUSH_SIZE.key(), 100);
+        long variants = engine.count(new Query()).first();
+        Assert.assertEquals(variants, engine.annotate(new Query(), new ObjectMap(params)));
+        Assert.assertEquals(0L, engine.count(new Query(VariantQueryParam.ANNOTATION_EXISTS.key(), false)).first().longValue());
+        Assert.assertEquals(0L, new PendingVariantsToAnnotateReader(engine.getDBAdaptor(), new Query()).stream().count());
+
+        // Re-annotate writing only the modified columns
+        params.append(HadoopVariantStorageOptions.ANNOTATION_LOAD_HBASE_DIFF.key(), true)
+                .append(VariantStorageOptions.ANNOTATION_OVERWEITE.key(), true);
+        Assert.assertEquals(variants, engine.annotate(new Query(), new ObjectMap(params)));
+        Assert.assertEquals(variants, engine.count(new Query(VariantQueryParam.ANNOTATION_EXISTS.key(), true)).first().longValue());
+    }
 }
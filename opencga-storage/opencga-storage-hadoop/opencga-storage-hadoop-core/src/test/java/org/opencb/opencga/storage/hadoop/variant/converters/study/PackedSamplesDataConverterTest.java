@@ -0,0 +1,53 @@
+package org.opencb.opencga.storage.hadoop.variant.converters.study;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PackedSamplesDataConverterTest {
+
+    @Test
+    public void encodeDecode() {
+        PackedSamplesDataConverter converter = new PackedSamplesDataConverter(2);
+        converter.add(0, 10, Arrays.asList("0/1", "30", "PASS"));
+        converter.add(1, 5, Arrays.asList("1/1", null, "LowQual"));
+        converter.add(3, 7, Arrays.asList("0/1"));
+        converter.add(4, 100, Arrays.asList("0/1", "12"));
+
+        Map<Integer, byte[]> batches = converter.build();
+        assertTrue(converter.isEmpty());
+        assertEquals(Arrays.asList(0, 1, 2), Arrays.asList(batches.keySet().toArray()));
+
+        byte[] bytes = batches.get(0);
+        List<Pair<Integer, List<String>>> samples = PackedSamplesDataConverter.decode(bytes, 0, bytes.length);
+        assertEquals(2, samples.size());
+        assertEquals(Pair.of(10, Arrays.asList("0/1", "30", "PASS")), samples.get(0));
+        assertEquals(Pair.of(5, Arrays.asList("1/1", null, "LowQual")), samples.get(1));
+
+        bytes = batches.get(1);
+        samples = PackedSamplesDataConverter.decode(bytes, 0, bytes.length);
+        assertEquals(1, samples.size());
+        assertEquals(Pair.of(7, Arrays.asList("0/1")), samples.get(0));
+
+        // Decode with offset
+        byte[] batch = batches.get(2);
+        bytes = new byte[batch.length + 3];
+        System.arraycopy(batch, 0, bytes, 3, batch.length);
+        samples = PackedSamplesDataConverter.decode(bytes, 3, batch.length);
+        assertEquals(1, samples.size());
+        assertEquals(Pair.of(100, Arrays.asList("0/1", "12")), samples.get(0));
+    }
+
+    @Test
+    public void getNumBatches() {
+        assertEquals(0, PackedSamplesDataConverter.getNumBatches(0, 10));
+        assertEquals(1, PackedSamplesDataConverter.getNumBatches(1, 10));
+        assertEquals(1, PackedSamplesDataConverter.getNumBatches(10, 10));
+        assertEquals(2, PackedSamplesDataConverter.getNumBatches(11, 10));
+    }
+}
@@ -19,6 +19,24 @@ public class IndexUtilsTest {
         assertFalse(IndexUtils.testIndex((byte) 0b00000000, (byte) 0b00000111, (byte) 0b00000001));
     }
 
+    @Test
+    public void testTestIndexBatch() {
+        byte[] index = new byte[150];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = (byte) i;
+        }
+        byte mask = (byte) 0b00000111;
+        byte filter = (byte) 0b00000101;
+        // Use an offset to check the selection is relative to it
+        int offset = 3;
+        long[] selection = IndexUtils.testIndex(index, offset, index.length - offset, mask, filter);
+        assertEquals(3, selection.length);
+        for (int i = 0; i < index.length - offset; i++) {
+            boolean selected = (selection[i / Long.SIZE] & (1L << (i % Long.SIZE))) != 0;
+            assertEquals(String.valueOf(i), IndexUtils.testIndex(index[offset + i], mask, filter), selected);
+        }
+    }
+
     @Test
     public void testCountPerBit() {
         int[] expectedCounts = new int[]{2, 1, 1, 3, 2, 1, 3, 1};
@@ -0,0 +1,167 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+
+/**
+ * Loads the same file with and without packed samples columns, and checks that the sample index
+ * built from the variants table and the queries over it return the same data for both layouts.
+ */
+public class SampleIndexPackedSamplesTest extends VariantStorageBaseTest implements HadoopVariantStorageTest {
+
+    @ClassRule
+    public static ExternalResource externalResource = new HadoopExternalResource();
+
+    private static final String PACKED_STUDY_NAME = STUDY_NAME + "_packed";
+    private static final List<String> SAMPLE_NAMES = Arrays.asList("NA19600", "NA19660", "NA19661", "NA19685");
+    private static boolean loaded = false;
+    private VariantHadoopDBAdaptor dbAdaptor;
+
+    @Before
+    public void before() throws Exception {
+        dbAdaptor = getVariantStorageEngine().getDBAdaptor();
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+    }
+
+    public void load() throws Exception {
+        clearDB(DB_NAME);
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+
+        runETL(engine, smallInputUri, outputUri, new ObjectMap()
+                .append(VariantStorageOptions.STUDY.key(), PACKED_STUDY_NAME)
+                .append(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                .append(HadoopVariantStorageOptions.VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE.key(), 3), true, true, true);
+
+        runETL(engine, smallInputUri, outputUri, new ObjectMap()
+                .append(VariantStorageOptions.STUDY.key(), STUDY_NAME)
+                .append(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                .append(HadoopVariantStorageOptions.VARIANT_TABLE_LOAD_PACKED_SAMPLES_BATCH_SIZE.key(), 0), true, true, true);
+    }
+
+    @Test
+    public void regenerateSampleIndexFromPackedSamples() throws Exception {
+        int studyId = dbAdaptor.getMetadataManager().getStudyId(PACKED_STUDY_NAME);
+        String orig = dbAdaptor.getTableNameGenerator().getSampleIndexTableName(studyId);
+        String copy = orig + "_copy";
+
+        dbAdaptor.getHBaseManager().createTableIfNeeded(copy, Bytes.toBytes(GenomeHelper.COLUMN_FAMILY),
+                Compression.Algorithm.NONE);
+
+        ObjectMap options = new ObjectMap()
+                .append(SampleIndexDriver.OUTPUT, copy)
+                .append(SampleIndexDriver.SAMPLES, "all");
+        new TestMRExecutor().run(SampleIndexDriver.class, SampleIndexDriver.buildArgs(
+                dbAdaptor.getArchiveTableName(studyId),
+                dbAdaptor.getVariantTable(),
+                studyId,
+                Collections.emptySet(), options), options);
+
+        Connection c = dbAdaptor.getHBaseManager().getConnection();
+        int rows = 0;
+        try (ResultScanner origScanner = c.getTable(TableName.valueOf(orig)).getScanner(new Scan());
+             ResultScanner copyScanner = c.getTable(TableName.valueOf(copy)).getScanner(new Scan())) {
+            while (true) {
+                Result origValue = origScanner.next();
+                Result copyValue = copyScanner.next();
+                if (origValue == null) {
+                    assertNull(copyValue);
+                    break;
+                }
+                assertNotNull(copyValue);
+                assertArrayEquals(origValue.getRow(), copyValue.getRow());
+                NavigableMap<byte[], byte[]> origFamily = origValue.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+                NavigableMap<byte[], byte[]> copyFamily = copyValue.getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+
+                assertEquals(origFamily.keySet().stream().map(Bytes::toString).collect(toList()),
+                        copyFamily.keySet().stream().map(Bytes::toString).collect(toList()));
+                for (byte[] key : origFamily.keySet()) {
+                    assertArrayEquals(Bytes.toString(key), origFamily.get(key), copyFamily.get(key));
+                }
+                rows++;
+            }
+        }
+        assertTrue(rows > 0);
+    }
+
+    @Test
+    public void querySampleIndex() throws Exception {
+        for (String sample : SAMPLE_NAMES) {
+            checkQuery(new Query(SAMPLE.key(), sample));
+            checkQuery(new Query(GENOTYPE.key(), sample + ":0/1"));
+            checkQuery(new Query(GENOTYPE.key(), sample + ":1/1,0/1"));
+        }
+        checkQuery(new Query(GENOTYPE.key(), SAMPLE_NAMES.get(0) + ":0/1;" + SAMPLE_NAMES.get(1) + ":1/1"));
+    }
+
+    @Test
+    public void getSampleData() throws Exception {
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+        List<Variant> variants = engine.get(new Query(STUDY.key(), STUDY_NAME), new QueryOptions(QueryOptions.LIMIT, 20)).getResults();
+        assertFalse(variants.isEmpty());
+        for (Variant variant : variants) {
+            for (String genotype : Arrays.asList("0/1,1/1", "0/0")) {
+                QueryOptions options = new QueryOptions(GENOTYPE.key(), genotype);
+                StudyEntry expected = engine.getSampleData(variant.toString(), STUDY_NAME, options).first().getStudies().get(0);
+                StudyEntry actual = engine.getSampleData(variant.toString(), PACKED_STUDY_NAME, options).first().getStudies().get(0);
+
+                assertEquals(variant + " " + genotype, expected.getOrderedSamplesName(), actual.getOrderedSamplesName());
+                assertEquals(variant + " " + genotype, expected.getSamplesData(), actual.getSamplesData());
+            }
+        }
+    }
+
+    @Test
+    public void aggregateFamilyPackedSamplesFail() throws Exception {
+        thrown.expect(StorageEngineException.class);
+        thrown.expectMessage("packed samples");
+        getVariantStorageEngine().aggregateFamily(PACKED_STUDY_NAME, SAMPLE_NAMES.subList(0, 2), new ObjectMap());
+    }
+
+    private void checkQuery(Query query) throws Exception {
+        HadoopVariantStorageEngine engine = getVariantStorageEngine();
+        QueryOptions options = new QueryOptions(QueryOptions.EXCLUDE, "annotation");
+
+        List<Variant> expected = engine.get(new Query(query).append(STUDY.key(), STUDY_NAME), options).getResults();
+        List<Variant> actual = engine.get(new Query(query).append(STUDY.key(), PACKED_STUDY_NAME), options).getResults();
+
+        assertEquals(query.toJson(), expected.stream().map(Variant::toString).collect(toList()),
+                actual.stream().map(Variant::toString).collect(toList()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(query.toJson(), expected.get(i).getStudies().get(0).getSamplesData(),
+                    actual.get(i).getStudies().get(0).getSamplesData());
+        }
+    }
+}
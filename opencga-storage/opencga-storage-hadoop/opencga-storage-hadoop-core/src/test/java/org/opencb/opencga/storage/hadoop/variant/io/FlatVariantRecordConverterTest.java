@@ -0,0 +1,58 @@
+package org.opencb.opencga.storage.hadoop.variant.io;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+import org.opencb.biodata.models.variant.avro.SequenceOntologyTerm;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FlatVariantRecordConverterTest {
+
+    @Test
+    public void testConvert() {
+        Variant variant = new Variant("1:1000:A:C");
+        StudyEntry studyEntry = new StudyEntry("s1", Collections.emptyList(), Collections.singletonList("GT"));
+        LinkedHashMap<String, Integer> samplesPosition = new LinkedHashMap<>();
+        samplesPosition.put("S1", 0);
+        samplesPosition.put("S-2", 1);
+        studyEntry.setSamplesPosition(samplesPosition);
+        studyEntry.setSamplesData(Arrays.asList(Collections.singletonList("0/1"), Collections.singletonList("1/1")));
+        variant.setStudies(Collections.singletonList(studyEntry));
+
+        VariantAnnotation annotation = new VariantAnnotation();
+        ConsequenceType ct = new ConsequenceType();
+        ct.setGeneName("BRCA2");
+        ct.setBiotype("protein_coding");
+        ct.setSequenceOntologyTerms(Collections.singletonList(new SequenceOntologyTerm("SO:0001583", "missense_variant")));
+        annotation.setConsequenceTypes(Collections.singletonList(ct));
+        PopulationFrequency frequency = new PopulationFrequency();
+        frequency.setStudy("GNOMAD_GENOMES");
+        frequency.setPopulation("ALL");
+        frequency.setAltAlleleFreq(0.25f);
+        annotation.setPopulationFrequencies(Collections.singletonList(frequency));
+        variant.setAnnotation(annotation);
+
+        Schema schema = FlatVariantRecordConverter.createSchema(Arrays.asList("S-2", "S1", "S3"));
+        GenericRecord record = new FlatVariantRecordConverter(schema).convert(variant);
+
+        assertEquals("1", record.get("chromosome"));
+        assertEquals(1000, record.get("start"));
+        assertEquals(Collections.singletonList("BRCA2"), record.get("genes"));
+        assertEquals(Collections.singletonList("missense_variant"), record.get("consequenceTypes"));
+        assertEquals(Collections.singletonMap("GNOMAD_GENOMES:ALL", 0.25f), record.get("populationFrequencies"));
+
+        GenericRecord genotypes = (GenericRecord) record.get(FlatVariantRecordConverter.GENOTYPES);
+        assertEquals("1/1", genotypes.get(0));
+        assertEquals("0/1", genotypes.get(1));
+        assertNull(genotypes.get(2));
+    }
+}
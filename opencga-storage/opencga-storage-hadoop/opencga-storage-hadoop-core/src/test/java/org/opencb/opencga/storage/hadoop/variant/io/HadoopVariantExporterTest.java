@@ -19,6 +19,7 @@ import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
 import org.opencb.opencga.storage.hadoop.variant.VariantHbaseTestUtils;
+import org.opencb.opencga.storage.hadoop.variant.executors.LocalMRExecutor;
 
 import java.io.IOException;
 import java.net.URI;
@@ -164,6 +165,29 @@ public class HadoopVariantExporterTest extends VariantStorageBaseTest implements
         copyToLocal(fileName, uri);
     }
 
+    @Test
+    public void exportFlatParquet() throws Exception {
+        String fileName = "variants.flat.parquet";
+        URI uri = getOutputUri(fileName);
+        variantStorageEngine.exportData(uri, VariantWriterFactory.VariantOutputFormat.FLAT_PARQUET_GZ, null, new Query(STUDY.key(), study1), new QueryOptions());
+
+        copyToLocal(fileName, uri);
+    }
+
+    @Test
+    public void exportLocalMRExecutor() throws Exception {
+        String fileName = "variants.local_mr.json";
+        URI uri = getOutputUri(fileName);
+        ObjectMap options = new ObjectMap(variantStorageEngine.getOptions())
+                .append(VariantExporterDriver.OUTPUT_PARAM, uri.toString())
+                .append(VariantExporterDriver.OUTPUT_FORMAT_PARAM, VariantWriterFactory.VariantOutputFormat.JSON.toString())
+                .append(STUDY.key(), study1);
+        String[] args = VariantExporterDriver.buildArgs(variantStorageEngine.getVariantTableName(), options);
+        new LocalMRExecutor(configuration.get()).init(options).run(VariantExporterDriver.class, args, options, "Export variants");
+
+        copyToLocal(fileName, uri);
+    }
+
     @Test
     public void exportIndex() throws Exception {
         String fileName = "some_variants.sample_index.avro";
@@ -18,6 +18,7 @@ import org.opencb.opencga.storage.core.metadata.models.Lock;
 import org.opencb.opencga.storage.mongodb.utils.MongoLockManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
@@ -81,10 +82,24 @@ public class AbstractMongoDBAdaptor<T> {
     }
 
     protected void update(Object privateId, T object) {
+        update(privateId, object, Collections.emptyList());
+    }
+
+    /**
+     * Update the object, removing some obsolete fields that might remain from previous versions of the model.
+     *
+     * @param privateId     Document id
+     * @param object        New object
+     * @param removedFields Fields to remove from the stored document
+     */
+    protected void update(Object privateId, T object, List<String> removedFields) {
         Document document = converter.convertToStorageType(object);
         Document query = new Document("_id", privateId);
-        List<Bson> updates = new ArrayList<>(document.size());
+        List<Bson> updates = new ArrayList<>(document.size() + removedFields.size());
         document.forEach((s, o) -> updates.add(new Document("$set", new Document(s, o))));
+        for (String removedField : removedFields) {
+            updates.add(Updates.unset(removedField));
+        }
         collection.update(query, Updates.combine(updates), new QueryOptions(UPSERT, true));
     }
 
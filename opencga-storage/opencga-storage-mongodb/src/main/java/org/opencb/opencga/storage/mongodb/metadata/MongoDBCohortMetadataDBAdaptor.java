@@ -4,13 +4,18 @@ import org.opencb.commons.datastore.mongodb.MongoDataStore;
 import org.opencb.opencga.storage.core.metadata.adaptors.CohortMetadataDBAdaptor;
 import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Created by jacobo on 20/01/19.
  */
 public class MongoDBCohortMetadataDBAdaptor extends AbstractMongoDBAdaptor<CohortMetadata> implements CohortMetadataDBAdaptor {
 
+    // Samples are stored as a bitmap in "sampleBitmap"
+    private static final List<String> LEGACY_FIELDS = Collections.singletonList("samples");
+
     MongoDBCohortMetadataDBAdaptor(MongoDataStore db, String collectionName) {
         super(db, collectionName, CohortMetadata.class);
         createIdNameIndex();
@@ -23,7 +28,7 @@ public class MongoDBCohortMetadataDBAdaptor extends AbstractMongoDBAdaptor<Cohor
 
     @Override
     public void updateCohortMetadata(int studyId, CohortMetadata cohort, Long timeStamp) {
-        super.update(studyId, cohort.getId(), cohort);
+        super.update(buildPrivateId(studyId, cohort.getId()), cohort, LEGACY_FIELDS);
     }
 
     @Override
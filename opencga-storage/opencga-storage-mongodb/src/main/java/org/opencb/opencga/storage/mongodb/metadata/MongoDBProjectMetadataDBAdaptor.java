@@ -81,6 +81,21 @@ public class MongoDBProjectMetadataDBAdaptor implements ProjectMetadataAdaptor {
         return generateId(idType, true);
     }
 
+    @Override
+    public int getCounter(Integer studyId, String idType) {
+        // Ignore study configuration. Same ID counter for all studies in the same database
+        String field = COUNTERS_FIELD + '.' + idType;
+        Document document = collection.find(QUERY, new Document(field, true), new QueryOptions()).first();
+        if (document == null || document.get(COUNTERS_FIELD, Document.class) == null) {
+            return 0;
+        }
+        Integer counter = document.get(COUNTERS_FIELD, Document.class).getInteger(idType);
+        if (counter == null) {
+            return 0;
+        }
+        return counter;
+    }
+
     private int generateId(String idType, boolean retry) throws StorageEngineException {
         String field = COUNTERS_FIELD + '.' + idType;
         Document projection = new Document(field, true);
@@ -1,11 +1,17 @@
 package org.opencb.opencga.storage.mongodb.metadata;
 
+import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDataStore;
 import org.opencb.opencga.storage.core.metadata.adaptors.SampleMetadataDBAdaptor;
 import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.utils.IntBitmap;
 
 import java.util.Iterator;
 
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+
 /**
  * Created by jacobo on 20/01/19.
  */
@@ -33,6 +39,17 @@ public class MongoDBSampleMetadataDBAdaptor extends AbstractMongoDBAdaptor<Sampl
         return iterator(buildQuery(studyId), null);
     }
 
+    @Override
+    public IntBitmap getIndexedSampleBitmap(int studyId) {
+        // Read only the sample ids
+        IntBitmap samples = new IntBitmap();
+        collection.nativeQuery()
+                .find(and(buildQuery(studyId), eq("status.index", TaskMetadata.Status.READY.name())),
+                        new QueryOptions(QueryOptions.INCLUDE, "id"))
+                .forEachRemaining(document -> samples.add(document.getInteger("id")));
+        return samples;
+    }
+
     @Override
     public Integer getSampleId(int studyId, String sampleName) {
         SampleMetadata obj = getId(buildQuery(studyId, sampleName));
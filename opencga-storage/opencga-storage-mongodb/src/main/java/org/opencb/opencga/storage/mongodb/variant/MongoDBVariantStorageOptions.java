@@ -36,6 +36,7 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     MERGE_IGNORE_OVERLAPPING_VARIANTS("storage.mongodb.merge.ignoreOverlappingVariants", false),   //Do not look for overlapping variants
     MERGE_PARALLEL_WRITE("storage.mongodb.merge.parallelWrite", false),
     MERGE_BATCH_SIZE("storage.mongodb.merge.batchSize", 10),          //Number of files to merge directly from first to second collection
+    MERGE_PARALLEL_CHROMOSOMES("storage.mongodb.merge.parallelChromosomes", 1), //Number of chromosome partitions to merge concurrently
 
 
     EXTRA_GENOTYPE_FIELDS_COMPRESS("extra-fields.compress", true),    //Compress with gzip other sample information
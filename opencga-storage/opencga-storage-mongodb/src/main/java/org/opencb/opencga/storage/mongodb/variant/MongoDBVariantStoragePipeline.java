@@ -21,6 +21,7 @@ import com.google.common.collect.BiMap;
 import org.apache.commons.lang3.time.StopWatch;
 import org.bson.Document;
 import org.opencb.biodata.formats.variant.io.VariantReader;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantType;
@@ -29,6 +30,7 @@ import org.opencb.biodata.tools.variant.VariantDeduplicationTask;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataReader;
 import org.opencb.commons.run.ParallelTaskRunner;
@@ -63,6 +65,9 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -90,6 +95,9 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 //            VariantType.BREAKEND
     ));
 
+    // TaskMetadata attribute with the chromosomes already merged by the current task
+    private static final String MERGED_CHROMOSOMES = "mergedChromosomes";
+
     private final VariantMongoDBAdaptor dbAdaptor;
     private final ObjectMap loadStats = new ObjectMap();
     private final Logger logger = LoggerFactory.getLogger(MongoDBVariantStoragePipeline.class);
@@ -581,7 +589,12 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             });
             Runtime.getRuntime().addShutdownHook(hook);
             try {
-                writeResult = mergeByChromosome(fileIds, batchSize, loadThreads, studyMetadata);
+                int parallelChromosomes = options.getInt(MERGE_PARALLEL_CHROMOSOMES.key(), MERGE_PARALLEL_CHROMOSOMES.defaultValue());
+                if (parallelChromosomes > 1) {
+                    writeResult = mergeByChromosomeParallel(fileIds, batchSize, loadThreads, parallelChromosomes, studyMetadata);
+                } else {
+                    writeResult = mergeByChromosome(fileIds, batchSize, loadThreads, studyMetadata);
+                }
             } catch (Exception e) {
                 getMetadataManager().atomicSetStatus(getStudyId(), TaskMetadata.Status.ERROR, MERGE.key(), fileIds);
                 throw e;
@@ -638,17 +651,154 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
     private MongoDBVariantWriteResult mergeByChromosome(List<Integer> fileIds, int batchSize, int loadThreads,
                                                         StudyMetadata studyMetadata)
             throws StorageEngineException {
+        MongoDBVariantStageReader reader = newStageReader(fileIds, studyMetadata, null);
+        ProgressLogger progressLogger = new ProgressLogger("Write variants in VARIANTS collection:", reader::countNumVariants, 200);
+        progressLogger.setApproximateTotalCount(reader.countAproxNumVariants());
+
+        logger.info("Merging files " + fileIds);
+        return mergeStagePartition(fileIds, batchSize, loadThreads, studyMetadata, reader, progressLogger);
+    }
+
+    /**
+     * Merge the stage collection split by chromosome.
+     *
+     * Each chromosome is merged with an independent reader, merger and loader pipeline, running up to
+     * {@code parallelChromosomes} pipelines at the same time. Merged chromosomes are registered in the
+     * current {@link TaskMetadata}, so a resumed merge will skip them.
+     * Variants from chromosomes not described in the file stats are merged at the end with a single pipeline.
+     *
+     * @param fileIds               FileIDs of the files to be merged
+     * @param batchSize             Batch size
+     * @param loadThreads           Total number of load threads, shared among all the chromosomes
+     * @param parallelChromosomes   Number of chromosomes to merge concurrently
+     * @param studyMetadata         StudyMetadata
+     * @return                      Write Result with times and count
+     * @throws StorageEngineException  If there is a problem executing any of the {@link ParallelTaskRunner}
+     */
+    private MongoDBVariantWriteResult mergeByChromosomeParallel(List<Integer> fileIds, int batchSize, int loadThreads,
+                                                                int parallelChromosomes, StudyMetadata studyMetadata)
+            throws StorageEngineException {
+        List<String> chromosomes = getStageChromosomes(fileIds, studyMetadata);
+        if (chromosomes.isEmpty()) {
+            logger.info("Unable to get chromosomes from files " + fileIds + ". Merge with one single reader.");
+            return mergeByChromosome(fileIds, batchSize, loadThreads, studyMetadata);
+        }
+
+        Set<String> mergedChromosomes = new HashSet<>();
+        if (isResumeMerge(options)) {
+            mergedChromosomes.addAll(getMetadataManager().getTask(studyMetadata.getId(), currentTask.getId())
+                    .getAttributes().getAsStringList(MERGED_CHROMOSOMES));
+            if (!mergedChromosomes.isEmpty()) {
+                logger.info("Resume merge. Skip already merged chromosomes " + mergedChromosomes);
+            }
+        }
+
+        MongoDBVariantStageReader countReader = newStageReader(fileIds, studyMetadata, null);
+        ProgressLogger progressLogger = new ProgressLogger("Write variants in VARIANTS collection:", countReader::countNumVariants, 200);
+        progressLogger.setApproximateTotalCount(countReader.countAproxNumVariants());
+
+        int chromosomeThreads = Math.max(1, loadThreads / parallelChromosomes);
+        logger.info("Merging files {} by chromosome. {} chromosomes in parallel, {} threads per chromosome",
+                fileIds, parallelChromosomes, chromosomeThreads);
+
+        MongoDBVariantWriteResult result = new MongoDBVariantWriteResult();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelChromosomes);
+        try {
+            List<Future<MongoDBVariantWriteResult>> futures = new ArrayList<>(chromosomes.size());
+            for (String chromosome : chromosomes) {
+                if (mergedChromosomes.contains(chromosome)) {
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    logger.info("Merging chromosome " + chromosome);
+                    MongoDBVariantStageReader reader = newStageReader(fileIds, studyMetadata, Collections.singletonList(chromosome));
+                    MongoDBVariantWriteResult chromosomeResult = mergeStagePartition(fileIds, batchSize, chromosomeThreads,
+                            studyMetadata, reader, progressLogger);
+                    getMetadataManager().updateTask(studyMetadata.getId(), currentTask.getId(), task -> {
+                        List<String> merged = new ArrayList<>(task.getAttributes().getAsStringList(MERGED_CHROMOSOMES));
+                        merged.add(chromosome);
+                        task.getAttributes().put(MERGED_CHROMOSOMES, merged);
+                        return task;
+                    });
+                    return chromosomeResult;
+                }));
+            }
+            executor.shutdown();
+            for (Future<MongoDBVariantWriteResult> future : futures) {
+                result.merge(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageEngineException("Interrupted while merging chromosomes", e);
+        } catch (ExecutionException e) {
+            throw new StorageEngineException("Error while merging chromosomes", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Merge any remaining variant from chromosomes not found in the file stats
+        logger.info("Merging variants from other chromosomes");
+        MongoDBVariantStageReader reader = newStageReader(fileIds, studyMetadata, null)
+                .setExcludeChromosomes(chromosomes);
+        result.merge(mergeStagePartition(fileIds, batchSize, loadThreads, studyMetadata, reader, progressLogger));
+        return result;
+    }
+
+    /**
+     * Get the chromosomes to be read from the stage collection, using the stats from the {@link VariantFileMetadata}.
+     * Sorted by number of variants, so the biggest chromosomes start first.
+     *
+     * Chromosomes are normalized as in the stage collection ids, so aliases like "chr1" and "1" end in the same partition,
+     * and are never merged by two pipelines at the same time.
+     *
+     * @param fileIds       FileIDs of the files to be merged
+     * @param studyMetadata StudyMetadata
+     * @return              List of chromosomes
+     */
+    private List<String> getStageChromosomes(List<Integer> fileIds, StudyMetadata studyMetadata) {
+        // In BASIC mode, only the files to be loaded are read from the stage collection
+        boolean onlyLoadingFiles = MergeMode.from(studyMetadata.getAttributes()).equals(MergeMode.BASIC);
+        Map<String, Long> chromosomeCounts = new HashMap<>();
+        Iterator<VariantFileMetadata> iterator = getMetadataManager()
+                .variantFileMetadataIterator(studyMetadata.getId(), new QueryOptions());
+        while (iterator.hasNext()) {
+            VariantFileMetadata fileMetadata = iterator.next();
+            if (onlyLoadingFiles && !fileIds.contains(Integer.valueOf(fileMetadata.getId()))) {
+                continue;
+            }
+            if (fileMetadata.getStats() == null || fileMetadata.getStats().getChromosomeCounts() == null) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> entry : fileMetadata.getStats().getChromosomeCounts().entrySet()) {
+                chromosomeCounts.merge(Region.normalizeChromosome(entry.getKey()), entry.getValue().longValue(), Long::sum);
+            }
+        }
+        return chromosomeCounts.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private MongoDBVariantStageReader newStageReader(List<Integer> fileIds, StudyMetadata studyMetadata,
+                                                     Collection<String> chromosomes) {
         MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
-        MongoDBVariantStageReader reader = new MongoDBVariantStageReader(stageCollection, studyMetadata.getId());
+        MongoDBVariantStageReader reader = new MongoDBVariantStageReader(stageCollection, studyMetadata.getId(), chromosomes);
         MergeMode mergeMode = MergeMode.from(studyMetadata.getAttributes());
         if (mergeMode.equals(MergeMode.BASIC)) {
             // Read only files to load when MergeMode is BASIC
             reader.setFileIds(fileIds);
         }
+        return reader;
+    }
+
+    private MongoDBVariantWriteResult mergeStagePartition(List<Integer> fileIds, int batchSize, int loadThreads,
+                                                          StudyMetadata studyMetadata, MongoDBVariantStageReader reader,
+                                                          ProgressLogger progressLogger)
+            throws StorageEngineException {
+        MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
         boolean resume = isResumeMerge(options);
         boolean cleanWhileLoading = options.getBoolean(STAGE_CLEAN_WHILE_LOAD.key(), STAGE_CLEAN_WHILE_LOAD.defaultValue());
-        ProgressLogger progressLogger = new ProgressLogger("Write variants in VARIANTS collection:", reader::countNumVariants, 200);
-        progressLogger.setApproximateTotalCount(reader.countAproxNumVariants());
 
         boolean ignoreOverlapping = studyMetadata.getAttributes().getBoolean(MERGE_IGNORE_OVERLAPPING_VARIANTS.key(),
                 MERGE_IGNORE_OVERLAPPING_VARIANTS.defaultValue());
@@ -676,7 +826,6 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         }
 
         try {
-            logger.info("Merging files " + fileIds);
             ptrMerge.run();
         } catch (ExecutionException e) {
             logger.info("Write result: {}", variantLoader.getResult());
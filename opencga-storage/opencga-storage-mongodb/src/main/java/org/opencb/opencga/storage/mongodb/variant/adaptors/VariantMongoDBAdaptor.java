@@ -63,6 +63,8 @@ import static com.mongodb.client.model.Filters.*;
 import static com.mongodb.client.model.Updates.*;
 import static org.opencb.commons.datastore.mongodb.MongoDBCollection.*;
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.LOADED_GENOTYPES;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_PLAN_CACHE_SIZE;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.QUERY_PLAN_CACHE_TTL;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes.GROUP_NAME;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.AdditionalAttributes.VARIANT_ID;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
@@ -125,6 +127,11 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
                 : storageEngineConfiguration.getOptions();
 
         queryParser = new VariantMongoDBQueryParser(variantStorageMetadataManager);
+        int planCacheSize = this.configuration.getInt(QUERY_PLAN_CACHE_SIZE.key(), QUERY_PLAN_CACHE_SIZE.defaultValue());
+        if (planCacheSize > 0) {
+            long planCacheTtl = this.configuration.getLong(QUERY_PLAN_CACHE_TTL.key(), QUERY_PLAN_CACHE_TTL.<Integer>defaultValue());
+            queryParser.enablePlanCache(planCacheSize, planCacheTtl);
+        }
         NUMBER_INSTANCES.incrementAndGet();
     }
 
@@ -184,7 +191,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
      * @return A DataResult with the number of deleted variants
      */
     public DataResult remove(Query query, QueryOptions options) {
-        Bson mongoQuery = queryParser.parseQuery(query);
+        Bson mongoQuery = queryParser.parseQuery(query, false);
         logger.debug("Delete to be executed: '{}'", mongoQuery.toString());
         return variantsCollection.remove(mongoQuery, options);
     }
@@ -320,6 +327,8 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         long removedVariantsDocuments = removeEmptyVariants();
         logger.info("Updated " + (updatedVariantsDocuments + result2.getNumUpdated()) + " documents from variants");
         logger.info("Removed " + removedVariantsDocuments + " documents from variants");
+        // Cached queries might refer to the removed files
+        queryParser.invalidatePlanCache();
 
         return result2;
     }
@@ -338,7 +347,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         }
 
         Integer studyId = metadataManager.getStudyId(studyName);
-        Bson query = queryParser.parseQuery(new Query(STUDY.key(), studyId));
+        Bson query = queryParser.parseQuery(new Query(STUDY.key(), studyId), false);
 
         boolean purge = options.getBoolean("purge", true);
 
@@ -361,6 +370,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
             logger.info("Remove study from stage collection - step 2/2");
             removeEmptyVariantsFromStage(studyId);
         }
+        queryParser.invalidatePlanCache();
         return result;
     }
 
@@ -1060,7 +1070,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
     @Override
     public DataResult updateCustomAnnotations(Query query, String name, AdditionalAttribute attribute, long timeStamp,
                                                QueryOptions options) {
-        Document queryDocument = queryParser.parseQuery(query);
+        Document queryDocument = queryParser.parseQuery(query, false);
         Document updateDocument = DocumentToVariantAnnotationConverter.convertToStorageType(attribute);
         return variantsCollection.update(queryDocument,
                 combine(set(DocumentToVariantConverter.CUSTOM_ANNOTATION_FIELD + '.' + name, updateDocument),
@@ -1069,7 +1079,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
     }
 
     public DataResult removeAnnotation(String annotationId, Query query, QueryOptions queryOptions) {
-        Document mongoQuery = queryParser.parseQuery(query);
+        Document mongoQuery = queryParser.parseQuery(query, false);
         logger.debug("deleteAnnotation: query = {}", mongoQuery);
 
         Document update = new Document("$set", new Document(DocumentToVariantConverter.ANNOTATION_FIELD + ".0", null));
@@ -1120,7 +1130,8 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
             annotationIds = Collections.emptyMap();
         }
         return new DocumentToVariantConverter(studyEntryConverter,
-                new DocumentToVariantStatsConverter(metadataManager), returnedStudies, annotationIds);
+                new DocumentToVariantStatsConverter(metadataManager), returnedStudies, annotationIds)
+                .setIncludeFields(selectVariantElements.getFields());
     }
 
     public void createIndexes(QueryOptions options) {
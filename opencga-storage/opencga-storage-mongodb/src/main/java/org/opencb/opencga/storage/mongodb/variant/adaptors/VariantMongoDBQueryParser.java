@@ -35,9 +35,11 @@ import org.opencb.biodata.models.variant.avro.ClinicalSignificance;
 import org.opencb.cellbase.core.variant.annotation.VariantAnnotationUtils;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryParam;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.utils.ExpiringLruCache;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageEngine;
@@ -69,6 +71,7 @@ public class VariantMongoDBQueryParser {
     public static final VariantStringIdConverter STRING_ID_CONVERTER = new VariantStringIdConverter();
     protected static Logger logger = LoggerFactory.getLogger(VariantMongoDBQueryParser.class);
     private final VariantStorageMetadataManager metadataManager;
+    private ExpiringLruCache<String, Document> planCache;
     //    private final CellBaseUtils cellBaseUtils;
 
     public VariantMongoDBQueryParser(VariantStorageMetadataManager variantStorageMetadataManager) {
@@ -76,77 +79,84 @@ public class VariantMongoDBQueryParser {
 
     }
 
-    protected Document parseQuery(final Query originalQuery) {
-        QueryBuilder builder = new QueryBuilder();
-        if (originalQuery != null) {
-            // Copy given query. It may be modified
-            Query query = new Query(originalQuery);
-            boolean nonGeneRegionFilter = false;
-            /* VARIANT PARAMS */
+    /**
+     * Reuse the MongoDB query generated for queries with the same params.
+     * Location filters ({@link VariantQueryUtils#PLAN_CACHE_BOUND_PARAMS}) do not take part in the cache key, and are parsed on
+     * every query. Cached queries are discarded whenever the metadata changes.
+     *
+     * @param maxSize   Max number of cached queries
+     * @param ttlMillis Time to live of each query
+     * @return this
+     */
+    public VariantMongoDBQueryParser enablePlanCache(int maxSize, long ttlMillis) {
+        planCache = new ExpiringLruCache<>("MongoDBQueryPlanCache", maxSize, ttlMillis);
+        return this;
+    }
 
-            if (isValidParam(query, REGION)) {
-                nonGeneRegionFilter = true;
-                List<Region> regions = Region.parseRegions(query.getString(REGION.key()), true);
-                if (!regions.isEmpty()) {
-                    getRegionFilter(regions, builder);
-                }
-            }
+    public ExpiringLruCache<String, Document> getPlanCache() {
+        return planCache;
+    }
 
-            // Object with all VariantIds, ids, genes and xrefs from ID, XREF, GENES, ... filters
-            VariantQueryParser.VariantQueryXref variantQueryXref = VariantQueryParser.parseXrefs(query);
+    public void invalidatePlanCache() {
+        if (planCache != null) {
+            planCache.invalidateAll();
+        }
+    }
 
-            if (!variantQueryXref.getIds().isEmpty()) {
-                addQueryStringFilter(DocumentToVariantConverter.ANNOTATION_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.XREFS_FIELD
-                        + '.' + DocumentToVariantAnnotationConverter.XREF_ID_FIELD,
-                        variantQueryXref.getIds(), builder, QueryOperation.OR);
-                addQueryStringFilter(DocumentToVariantConverter.IDS_FIELD, variantQueryXref.getIds(), builder, QueryOperation.OR);
-            }
+    protected Document parseQuery(final Query originalQuery) {
+        return parseQuery(originalQuery, true);
+    }
 
-            if (!variantQueryXref.getOtherXrefs().isEmpty()) {
-                nonGeneRegionFilter = true;
-                addQueryStringFilter(DocumentToVariantConverter.ANNOTATION_FIELD
-                                + '.' + DocumentToVariantAnnotationConverter.XREFS_FIELD
-                                + '.' + DocumentToVariantAnnotationConverter.XREF_ID_FIELD,
-                        variantQueryXref.getOtherXrefs(), builder, QueryOperation.OR);
-            }
+    /**
+     * Parse the query. Write operations must not use cached queries, as they might have been built with outdated metadata.
+     *
+     * @param originalQuery Query
+     * @param useCache      Reuse cached queries, if the cache is enabled
+     * @return MongoDB query
+     */
+    protected Document parseQuery(final Query originalQuery, boolean useCache) {
+        if (planCache == null || !useCache || originalQuery == null) {
+            return parseQueryNoCache(originalQuery);
+        }
+        // Copy given query. It may be modified
+        Query query = new Query(originalQuery);
+        QueryBuilder locationBuilder = new QueryBuilder();
+        parseLocationQueryParams(query, locationBuilder);
+        for (QueryParam param : PLAN_CACHE_BOUND_PARAMS) {
+            query.remove(param.key());
+        }
 
-            if (!variantQueryXref.getVariants().isEmpty()) {
-                nonGeneRegionFilter = true;
-                List<String> mongoIds = new ArrayList<>(variantQueryXref.getVariants().size());
-                for (Variant variant : variantQueryXref.getVariants()) {
-                    mongoIds.add(STRING_ID_CONVERTER.buildId(variant));
-                }
-                if (mongoIds.size() == 1) {
-                    builder.or(new QueryBuilder().and("_id").is(mongoIds.get(0)).get());
-                } else {
-                    builder.or(new QueryBuilder().and("_id").in(mongoIds).get());
-                }
-            }
+        String cacheKey = metadataManager.getMetadataVersion() + "|"
+                + VariantQueryUtils.buildQueryCacheKey(query, null, Collections.emptySet());
+        Document mongoQuery = planCache.get(cacheKey);
+        if (mongoQuery == null) {
+            mongoQuery = parseQueryNoCache(query);
+            planCache.put(cacheKey, mongoQuery);
+        } else {
+            logger.debug("Reuse query plan. {}", planCache);
+        }
 
-            if (!variantQueryXref.getGenes().isEmpty()) {
-                if (isValidParam(query, ANNOT_CONSEQUENCE_TYPE)) {
-                    List<String> soList = query.getAsStringList(ANNOT_CONSEQUENCE_TYPE.key());
-                    Set<String> gnSo = new HashSet<>(variantQueryXref.getGenes().size() * soList.size());
-                    for (String gene : variantQueryXref.getGenes()) {
-                        for (String so : soList) {
-                            int soNumber = parseConsequenceType(so);
-                            gnSo.add(DocumentToVariantAnnotationConverter.buildGeneSO(gene, soNumber));
-                        }
-                    }
-                    builder.or(new BasicDBObject(DocumentToVariantConverter.ANNOTATION_FIELD
-                            + '.' + DocumentToVariantAnnotationConverter.GENE_SO_FIELD, new BasicDBObject("$in", gnSo)));
-                    if (!nonGeneRegionFilter) {
-                        // Filter already present in the GENE_SO_FIELD
-                        query.remove(ANNOT_CONSEQUENCE_TYPE.key());
-                    }
-                } else {
-                    addQueryStringFilter(DocumentToVariantConverter.ANNOTATION_FIELD
-                                    + '.' + DocumentToVariantAnnotationConverter.XREFS_FIELD
-                                    + '.' + DocumentToVariantAnnotationConverter.XREF_ID_FIELD,
-                            variantQueryXref.getGenes(), builder, QueryOperation.OR);
-                }
-            }
+        // Never modify the cached query
+        Document locationQuery = new Document(locationBuilder.get().toMap());
+        if (locationQuery.isEmpty()) {
+            return new Document(mongoQuery);
+        } else if (mongoQuery.isEmpty()) {
+            return locationQuery;
+        } else if (Collections.disjoint(locationQuery.keySet(), mongoQuery.keySet())) {
+            locationQuery.putAll(mongoQuery);
+            return locationQuery;
+        } else {
+            return new Document("$and", Arrays.asList(locationQuery, new Document(mongoQuery)));
+        }
+    }
+
+    private Document parseQueryNoCache(final Query originalQuery) {
+        QueryBuilder builder = new QueryBuilder();
+        if (originalQuery != null) {
+            // Copy given query. It may be modified
+            Query query = new Query(originalQuery);
+            /* VARIANT PARAMS */
+            parseLocationQueryParams(query, builder);
 
             if (isValidParam(query, REFERENCE)) {
                 addQueryStringFilter(DocumentToVariantConverter.REFERENCE_FIELD, query.getString(REFERENCE.key()),
@@ -204,6 +214,80 @@ public class VariantMongoDBQueryParser {
         return mongoQuery;
     }
 
+    /**
+     * Parse the location filters (regions, ids, genes and xrefs), joined with an OR.
+     * The consequence type filter is removed from the query when it is already combined with the genes filter.
+     *
+     * @param query   Query. Might be modified
+     * @param builder QueryBuilder
+     */
+    private void parseLocationQueryParams(Query query, QueryBuilder builder) {
+        boolean nonGeneRegionFilter = false;
+        if (isValidParam(query, REGION)) {
+            nonGeneRegionFilter = true;
+            List<Region> regions = Region.parseRegions(query.getString(REGION.key()), true);
+            if (!regions.isEmpty()) {
+                getRegionFilter(regions, builder);
+            }
+        }
+
+        // Object with all VariantIds, ids, genes and xrefs from ID, XREF, GENES, ... filters
+        VariantQueryParser.VariantQueryXref variantQueryXref = VariantQueryParser.parseXrefs(query);
+
+        if (!variantQueryXref.getIds().isEmpty()) {
+            addQueryStringFilter(DocumentToVariantConverter.ANNOTATION_FIELD
+                    + '.' + DocumentToVariantAnnotationConverter.XREFS_FIELD
+                    + '.' + DocumentToVariantAnnotationConverter.XREF_ID_FIELD,
+                    variantQueryXref.getIds(), builder, QueryOperation.OR);
+            addQueryStringFilter(DocumentToVariantConverter.IDS_FIELD, variantQueryXref.getIds(), builder, QueryOperation.OR);
+        }
+
+        if (!variantQueryXref.getOtherXrefs().isEmpty()) {
+            nonGeneRegionFilter = true;
+            addQueryStringFilter(DocumentToVariantConverter.ANNOTATION_FIELD
+                            + '.' + DocumentToVariantAnnotationConverter.XREFS_FIELD
+                            + '.' + DocumentToVariantAnnotationConverter.XREF_ID_FIELD,
+                    variantQueryXref.getOtherXrefs(), builder, QueryOperation.OR);
+        }
+
+        if (!variantQueryXref.getVariants().isEmpty()) {
+            nonGeneRegionFilter = true;
+            List<String> mongoIds = new ArrayList<>(variantQueryXref.getVariants().size());
+            for (Variant variant : variantQueryXref.getVariants()) {
+                mongoIds.add(STRING_ID_CONVERTER.buildId(variant));
+            }
+            if (mongoIds.size() == 1) {
+                builder.or(new QueryBuilder().and("_id").is(mongoIds.get(0)).get());
+            } else {
+                builder.or(new QueryBuilder().and("_id").in(mongoIds).get());
+            }
+        }
+
+        if (!variantQueryXref.getGenes().isEmpty()) {
+            if (isValidParam(query, ANNOT_CONSEQUENCE_TYPE)) {
+                List<String> soList = query.getAsStringList(ANNOT_CONSEQUENCE_TYPE.key());
+                Set<String> gnSo = new HashSet<>(variantQueryXref.getGenes().size() * soList.size());
+                for (String gene : variantQueryXref.getGenes()) {
+                    for (String so : soList) {
+                        int soNumber = parseConsequenceType(so);
+                        gnSo.add(DocumentToVariantAnnotationConverter.buildGeneSO(gene, soNumber));
+                    }
+                }
+                builder.or(new BasicDBObject(DocumentToVariantConverter.ANNOTATION_FIELD
+                        + '.' + DocumentToVariantAnnotationConverter.GENE_SO_FIELD, new BasicDBObject("$in", gnSo)));
+                if (!nonGeneRegionFilter) {
+                    // Filter already present in the GENE_SO_FIELD
+                    query.remove(ANNOT_CONSEQUENCE_TYPE.key());
+                }
+            } else {
+                addQueryStringFilter(DocumentToVariantConverter.ANNOTATION_FIELD
+                                + '.' + DocumentToVariantAnnotationConverter.XREFS_FIELD
+                                + '.' + DocumentToVariantAnnotationConverter.XREF_ID_FIELD,
+                        variantQueryXref.getGenes(), builder, QueryOperation.OR);
+            }
+        }
+    }
+
     private void parseAnnotationQueryParams(Query query, QueryBuilder builder) {
         if (query != null) {
             if (isValidParam(query, ANNOTATION_EXISTS)) {
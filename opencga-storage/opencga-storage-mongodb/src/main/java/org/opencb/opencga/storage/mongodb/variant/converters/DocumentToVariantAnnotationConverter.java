@@ -34,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter.*;
 
@@ -192,6 +193,11 @@ public class DocumentToVariantAnnotationConverter
             = new VariantTraitAssociationToEvidenceEntryConverter();
     private Integer annotationId = null;
     private Map<Integer, String> annotationIds = Collections.emptyMap();
+    // Annotation fields to convert. If null, convert all
+    private Set<VariantField> includeFields = null;
+    // Gene names, biotypes and SO terms are repeated across variants. Share the same instance
+    private final Map<String, String> internedStrings = new ConcurrentHashMap<>();
+    private static final int MAX_INTERNED_STRINGS = 100000;
 
     public DocumentToVariantAnnotationConverter(Map<Integer, String> annotationIds) {
         this();
@@ -210,6 +216,36 @@ public class DocumentToVariantAnnotationConverter
         writer = jsonObjectMapper.writer();
     }
 
+    /**
+     * Convert only the given annotation fields. Consequence types and population frequencies are converted lazily.
+     *
+     * @param includeFields Fields to include, as returned by {@link VariantField#getIncludeFields}. If null, convert all
+     * @return this
+     */
+    public DocumentToVariantAnnotationConverter setIncludeFields(Set<VariantField> includeFields) {
+        this.includeFields = includeFields;
+        return this;
+    }
+
+    private boolean includes(VariantField field) {
+        return includeFields == null || includeFields.contains(field);
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String interned = internedStrings.putIfAbsent(value, value);
+        if (interned == null) {
+            if (internedStrings.size() > MAX_INTERNED_STRINGS) {
+                internedStrings.clear();
+            }
+            return value;
+        } else {
+            return interned;
+        }
+    }
+
     @Override
     public VariantAnnotation convertToDataModelType(Document object) {
         return convertToDataModelType(object, null, null);
@@ -233,137 +269,83 @@ public class DocumentToVariantAnnotationConverter
         }
 
         //ConsequenceType
-        List<ConsequenceType> consequenceTypes = new LinkedList<>();
-        Object cts = object.get(CONSEQUENCE_TYPE_FIELD);
-        if (cts != null && cts instanceof List) {
-            for (Object o : ((List) cts)) {
-                if (o instanceof Document) {
-                    Document ct = (Document) o;
-
-                    //SO accession name
-                    List<String> soAccessionNames = new LinkedList<>();
-                    if (ct.containsKey(CT_SO_ACCESSION_FIELD)) {
-                        if (ct.get(CT_SO_ACCESSION_FIELD) instanceof List) {
-                            List<Integer> list = (List) ct.get(CT_SO_ACCESSION_FIELD);
-                            for (Integer so : list) {
-                                soAccessionNames.add(ConsequenceTypeMappings.accessionToTerm.get(so));
-                            }
-                        } else {
-                            soAccessionNames.add(ConsequenceTypeMappings.accessionToTerm.get(ct.get(CT_SO_ACCESSION_FIELD)));
-                        }
-                    }
-
-                    //ProteinSubstitutionScores
-                    List<Score> proteinSubstitutionScores = new LinkedList<>();
-                    if (ct.containsKey(CT_PROTEIN_SUBSTITUTION_SCORE_FIELD)) {
-                        List<Document> list = (List) ct.get(CT_PROTEIN_SUBSTITUTION_SCORE_FIELD);
-                        for (Document document : list) {
-                            proteinSubstitutionScores.add(buildScore(document));
-                        }
-                    }
-                    addScore(ct, proteinSubstitutionScores, POLYPHEN, CT_PROTEIN_POLYPHEN_FIELD);
-                    addScore(ct, proteinSubstitutionScores, SIFT, CT_PROTEIN_SIFT_FIELD);
-
-
-                    List<ProteinFeature> features = new ArrayList<>();
-                    if (ct.containsKey(CT_PROTEIN_FEATURE_FIELD)) {
-                        List<Document> featureDocuments = (List) ct.get(CT_PROTEIN_FEATURE_FIELD);
-                        for (Document featureDocument : featureDocuments) {
-                            features.add(new ProteinFeature(
-                                    getDefault(featureDocument, CT_PROTEIN_FEATURE_ID_FIELD, ""),
-                                    getDefault(featureDocument, CT_PROTEIN_FEATURE_START_FIELD, 0),
-                                    getDefault(featureDocument, CT_PROTEIN_FEATURE_END_FIELD, 0),
-                                    getDefault(featureDocument, CT_PROTEIN_FEATURE_TYPE_FIELD, ""),
-                                    getDefault(featureDocument, CT_PROTEIN_FEATURE_DESCRIPTION_FIELD, "")
-                            ));
-                        }
+        if (includes(VariantField.ANNOTATION_CONSEQUENCE_TYPES)) {
+            Object cts = object.get(CONSEQUENCE_TYPE_FIELD);
+            List<Document> ctDocuments;
+            if (cts instanceof List) {
+                ctDocuments = new ArrayList<>(((List) cts).size());
+                for (Object o : ((List) cts)) {
+                    if (o instanceof Document) {
+                        ctDocuments.add((Document) o);
                     }
-
-                    ProteinVariantAnnotation proteinVariantAnnotation = buildProteinVariantAnnotation(
-                            getDefault(ct, CT_PROTEIN_UNIPROT_ACCESSION, (String) null),
-                            getDefault(ct, CT_PROTEIN_UNIPROT_NAME, (String) null),
-                            getDefault(ct, CT_AA_POSITION_FIELD, 0),
-                            getDefault(ct, CT_AA_REFERENCE_FIELD, ""),
-                            getDefault(ct, CT_AA_ALTERNATE_FIELD, ""),
-                            getDefault(ct, CT_PROTEIN_UNIPROT_VARIANT_ID, (String) null),
-                            getDefault(ct, CT_PROTEIN_FUNCTIONAL_DESCRIPTION, (String) null),
-                            proteinSubstitutionScores,
-                            getDefault(ct, CT_PROTEIN_KEYWORDS, Collections.emptyList()),
-                            features);
-                    consequenceTypes.add(buildConsequenceType(
-                            getDefault(ct, CT_GENE_NAME_FIELD, ""),
-                            getDefault(ct, CT_ENSEMBL_GENE_ID_FIELD, ""),
-                            getDefault(ct, CT_ENSEMBL_TRANSCRIPT_ID_FIELD, ""),
-                            getDefault(ct, CT_STRAND_FIELD, "+"),
-                            getDefault(ct, CT_BIOTYPE_FIELD, ""),
-                            getDefault(ct, CT_EXON_OVERLAP_FIELD, Collections.emptyList()),
-                            getDefault(ct, CT_TRANSCRIPT_ANNOT_FLAGS, Collections.emptyList()),
-                            getDefault(ct, CT_C_DNA_POSITION_FIELD, 0),
-                            getDefault(ct, CT_CDS_POSITION_FIELD, 0),
-                            getDefault(ct, CT_CODON_FIELD, ""),
-                            soAccessionNames,
-                            proteinVariantAnnotation));
                 }
+            } else {
+                ctDocuments = Collections.emptyList();
             }
-
+            va.setConsequenceTypes(new LazyConvertedList<>(ctDocuments, this::convertConsequenceType));
         }
-        va.setConsequenceTypes(consequenceTypes);
-        Integer displaySO = object.getInteger(DISPLAY_CONSEQUENCE_TYPE_FIELD);
-        if (displaySO != null) {
-            va.setDisplayConsequenceType(ConsequenceTypeMappings.accessionToTerm.get(displaySO));
+        if (includes(VariantField.ANNOTATION_DISPLAY_CONSEQUENCE_TYPE)) {
+            Integer displaySO = object.getInteger(DISPLAY_CONSEQUENCE_TYPE_FIELD);
+            if (displaySO != null) {
+                va.setDisplayConsequenceType(ConsequenceTypeMappings.accessionToTerm.get(displaySO));
+            }
         }
 
-        va.setHgvs(getDefault(object, HGVS_FIELD, Collections.emptyList()));
+        if (includes(VariantField.ANNOTATION_HGVS)) {
+            va.setHgvs(getDefault(object, HGVS_FIELD, Collections.emptyList()));
+        }
 
-        List<Document> cytobandsDocument = getDefault(object, CYTOBANDS_FIELD, Collections.emptyList());
-        for (Document c : cytobandsDocument) {
-            List<Cytoband> cytobands = new ArrayList<>(cytobandsDocument.size());
-            cytobands.add(new Cytoband(
-                    chromosome,
-                    getDefault(c, CYTOBAND_STAIN_FIELD, ""),
-                    getDefault(c, CYTOBAND_NAME_FIELD, ""),
-                    getDefault(c, CYTOBAND_START_FIELD, 0),
-                    getDefault(c, CYTOBAND_END_FIELD, 0)
-            ));
-            va.setCytoband(cytobands);
+        if (includes(VariantField.ANNOTATION_CYTOBAND)) {
+            List<Document> cytobandsDocument = getDefault(object, CYTOBANDS_FIELD, Collections.emptyList());
+            for (Document c : cytobandsDocument) {
+                List<Cytoband> cytobands = new ArrayList<>(cytobandsDocument.size());
+                cytobands.add(new Cytoband(
+                        chromosome,
+                        getDefault(c, CYTOBAND_STAIN_FIELD, ""),
+                        getDefault(c, CYTOBAND_NAME_FIELD, ""),
+                        getDefault(c, CYTOBAND_START_FIELD, 0),
+                        getDefault(c, CYTOBAND_END_FIELD, 0)
+                ));
+                va.setCytoband(cytobands);
+            }
         }
 
         //Conserved Region Scores
-        List<Score> conservedRegionScores = new LinkedList<>();
-        if (object.containsKey(CONSERVED_REGION_SCORE_FIELD)) {
-            List<Document> list = (List) object.get(CONSERVED_REGION_SCORE_FIELD);
-            for (Document dbObject : list) {
-                conservedRegionScores.add(buildScore(dbObject));
+        if (includes(VariantField.ANNOTATION_CONSERVATION)) {
+            List<Score> conservedRegionScores = new LinkedList<>();
+            if (object.containsKey(CONSERVED_REGION_SCORE_FIELD)) {
+                List<Document> list = (List) object.get(CONSERVED_REGION_SCORE_FIELD);
+                for (Document dbObject : list) {
+                    conservedRegionScores.add(buildScore(dbObject));
+                }
             }
+            addScore(object, conservedRegionScores, PHAST_CONS, CONSERVED_REGION_PHASTCONS_FIELD);
+            addScore(object, conservedRegionScores, PHYLOP, CONSERVED_REGION_PHYLOP_FIELD);
+            addScore(object, conservedRegionScores, GERP, CONSERVED_REGION_GERP_FIELD);
+            va.setConservation(conservedRegionScores);
         }
-        addScore(object, conservedRegionScores, PHAST_CONS, CONSERVED_REGION_PHASTCONS_FIELD);
-        addScore(object, conservedRegionScores, PHYLOP, CONSERVED_REGION_PHYLOP_FIELD);
-        addScore(object, conservedRegionScores, GERP, CONSERVED_REGION_GERP_FIELD);
-        va.setConservation(conservedRegionScores);
 
         //Population frequencies
-        List<PopulationFrequency> populationFrequencies = new LinkedList<>();
-        if (object.containsKey(POPULATION_FREQUENCIES_FIELD)) {
-            List<Document> list = (List) object.get(POPULATION_FREQUENCIES_FIELD);
-            for (Document dbObject : list) {
-                populationFrequencies.add(new PopulationFrequency(
-                        getDefault(dbObject, POPULATION_FREQUENCY_STUDY_FIELD, ""),
-                        getDefault(dbObject, POPULATION_FREQUENCY_POP_FIELD, ""),
-                        reference,
-                        alternate,
-                        getDefault(dbObject, POPULATION_FREQUENCY_REFERENCE_FREQUENCY_FIELD, -1.0F),
-                        getDefault(dbObject, POPULATION_FREQUENCY_ALTERNATE_FREQUENCY_FIELD, -1.0F),
-                        getDefault(dbObject, POPULATION_FREQUENCY_REF_HOM_GT_FIELD, -1.0F),
-                        getDefault(dbObject, POPULATION_FREQUENCY_HET_GT_FIELD, -1.0F),
-                        getDefault(dbObject, POPULATION_FREQUENCY_ALT_HOM_GT_FIELD, -1.0F)
-                ));
-            }
+        if (includes(VariantField.ANNOTATION_POPULATION_FREQUENCIES)) {
+            List<Document> list = getDefault(object, POPULATION_FREQUENCIES_FIELD, Collections.emptyList());
+            String finalReference = reference;
+            String finalAlternate = alternate;
+            va.setPopulationFrequencies(new LazyConvertedList<>(list, dbObject -> new PopulationFrequency(
+                    intern(getDefault(dbObject, POPULATION_FREQUENCY_STUDY_FIELD, "")),
+                    intern(getDefault(dbObject, POPULATION_FREQUENCY_POP_FIELD, "")),
+                    finalReference,
+                    finalAlternate,
+                    getDefault(dbObject, POPULATION_FREQUENCY_REFERENCE_FREQUENCY_FIELD, -1.0F),
+                    getDefault(dbObject, POPULATION_FREQUENCY_ALTERNATE_FREQUENCY_FIELD, -1.0F),
+                    getDefault(dbObject, POPULATION_FREQUENCY_REF_HOM_GT_FIELD, -1.0F),
+                    getDefault(dbObject, POPULATION_FREQUENCY_HET_GT_FIELD, -1.0F),
+                    getDefault(dbObject, POPULATION_FREQUENCY_ALT_HOM_GT_FIELD, -1.0F)
+            )));
         }
-        va.setPopulationFrequencies(populationFrequencies);
 
         // Gene trait association
         List<GeneTraitAssociation> geneTraitAssociations = new LinkedList<>();
-        if (object.containsKey(GENE_TRAIT_FIELD)) {
+        if (includes(VariantField.ANNOTATION_GENE_TRAIT_ASSOCIATION) && object.containsKey(GENE_TRAIT_FIELD)) {
             List<Document> list = (List) object.get(GENE_TRAIT_FIELD);
             for (Document document : list) {
                 geneTraitAssociations.add(new GeneTraitAssociation(
@@ -378,12 +360,14 @@ public class DocumentToVariantAnnotationConverter
                 ));
             }
         }
-        va.setGeneTraitAssociation(geneTraitAssociations);
+        if (includes(VariantField.ANNOTATION_GENE_TRAIT_ASSOCIATION)) {
+            va.setGeneTraitAssociation(geneTraitAssociations);
+        }
 
 
         // Drug-Gene Interactions
         List<GeneDrugInteraction> drugs = new LinkedList<>();
-        if (object.containsKey(DRUG_FIELD)) {
+        if (includes(VariantField.ANNOTATION_GENE_DRUG_INTERACTION) && object.containsKey(DRUG_FIELD)) {
             List<Document> list = (List) object.get(DRUG_FIELD);
             for (Document dbObject : list) {
                 //drugs.add(dbObject.toMap());
@@ -395,11 +379,13 @@ public class DocumentToVariantAnnotationConverter
                         getDefault(dbObject, DRUG_TYPE_FIELD, DEFAULT_DRUG_TYPE)));
             }
         }
-        va.setGeneDrugInteraction(drugs);
+        if (includes(VariantField.ANNOTATION_GENE_DRUG_INTERACTION)) {
+            va.setGeneDrugInteraction(drugs);
+        }
 
         //XREfs
         Object xrs = object.get(XREFS_FIELD);
-        if (xrs != null && xrs instanceof List) {
+        if ((includes(VariantField.ANNOTATION_XREFS) || includes(VariantField.ANNOTATION_ID)) && xrs instanceof List) {
             List<Xref> xrefs = new LinkedList<>();
             for (Object o : (List) xrs) {
                 if (o instanceof Document) {
@@ -416,19 +402,22 @@ public class DocumentToVariantAnnotationConverter
         }
 
         //Functional score
-        List<Score> functionalScore = new LinkedList<>();
-        if (object.containsKey(FUNCTIONAL_SCORE)) {
-            List<Document> scores = object.get(FUNCTIONAL_SCORE, List.class);
-            for (Document document : scores) {
-                functionalScore.add(buildScore(document));
+        if (includes(VariantField.ANNOTATION_FUNCTIONAL_SCORE)) {
+            List<Score> functionalScore = new LinkedList<>();
+            if (object.containsKey(FUNCTIONAL_SCORE)) {
+                List<Document> scores = object.get(FUNCTIONAL_SCORE, List.class);
+                for (Document document : scores) {
+                    functionalScore.add(buildScore(document));
+                }
             }
+            addScore(object, functionalScore, CADD_SCALED, FUNCTIONAL_CADD_SCALED_FIELD);
+            addScore(object, functionalScore, CADD_RAW, FUNCTIONAL_CADD_RAW_FIELD);
+            va.setFunctionalScore(functionalScore);
         }
-        addScore(object, functionalScore, CADD_SCALED, FUNCTIONAL_CADD_SCALED_FIELD);
-        addScore(object, functionalScore, CADD_RAW, FUNCTIONAL_CADD_RAW_FIELD);
-        va.setFunctionalScore(functionalScore);
 
         //Clinical Data
-        if (object.containsKey(CLINICAL_DATA_FIELD)) {
+        if ((includes(VariantField.ANNOTATION_VARIANT_TRAIT_ASSOCIATION) || includes(VariantField.ANNOTATION_TRAIT_ASSOCIATION))
+                && object.containsKey(CLINICAL_DATA_FIELD)) {
             va.setVariantTraitAssociation(parseClinicalData((Document) object.get(CLINICAL_DATA_FIELD)));
             va.setTraitAssociation(traitAssociationConverter.convert(va.getVariantTraitAssociation()));
         }
@@ -457,7 +446,7 @@ public class DocumentToVariantAnnotationConverter
         }
 
         List<Document> repeats = getList(object, REPEATS_FIELD);
-        if (repeats != null && !repeats.isEmpty()) {
+        if (includes(VariantField.ANNOTATION_REPEAT) && repeats != null && !repeats.isEmpty()) {
             va.setRepeat(new ArrayList<>(repeats.size()));
             for (Document repeat : repeats) {
                 va.getRepeat().add(new Repeat(
@@ -479,6 +468,72 @@ public class DocumentToVariantAnnotationConverter
         return va;
     }
 
+    private ConsequenceType convertConsequenceType(Document ct) {
+        //SO accession name
+        List<String> soAccessionNames = new LinkedList<>();
+        if (ct.containsKey(CT_SO_ACCESSION_FIELD)) {
+            if (ct.get(CT_SO_ACCESSION_FIELD) instanceof List) {
+                List<Integer> list = (List) ct.get(CT_SO_ACCESSION_FIELD);
+                for (Integer so : list) {
+                    soAccessionNames.add(ConsequenceTypeMappings.accessionToTerm.get(so));
+                }
+            } else {
+                soAccessionNames.add(ConsequenceTypeMappings.accessionToTerm.get(ct.get(CT_SO_ACCESSION_FIELD)));
+            }
+        }
+
+        //ProteinSubstitutionScores
+        List<Score> proteinSubstitutionScores = new LinkedList<>();
+        if (ct.containsKey(CT_PROTEIN_SUBSTITUTION_SCORE_FIELD)) {
+            List<Document> list = (List) ct.get(CT_PROTEIN_SUBSTITUTION_SCORE_FIELD);
+            for (Document document : list) {
+                proteinSubstitutionScores.add(buildScore(document));
+            }
+        }
+        addScore(ct, proteinSubstitutionScores, POLYPHEN, CT_PROTEIN_POLYPHEN_FIELD);
+        addScore(ct, proteinSubstitutionScores, SIFT, CT_PROTEIN_SIFT_FIELD);
+
+
+        List<ProteinFeature> features = new ArrayList<>();
+        if (ct.containsKey(CT_PROTEIN_FEATURE_FIELD)) {
+            List<Document> featureDocuments = (List) ct.get(CT_PROTEIN_FEATURE_FIELD);
+            for (Document featureDocument : featureDocuments) {
+                features.add(new ProteinFeature(
+                        getDefault(featureDocument, CT_PROTEIN_FEATURE_ID_FIELD, ""),
+                        getDefault(featureDocument, CT_PROTEIN_FEATURE_START_FIELD, 0),
+                        getDefault(featureDocument, CT_PROTEIN_FEATURE_END_FIELD, 0),
+                        getDefault(featureDocument, CT_PROTEIN_FEATURE_TYPE_FIELD, ""),
+                        getDefault(featureDocument, CT_PROTEIN_FEATURE_DESCRIPTION_FIELD, "")
+                ));
+            }
+        }
+
+        ProteinVariantAnnotation proteinVariantAnnotation = buildProteinVariantAnnotation(
+                getDefault(ct, CT_PROTEIN_UNIPROT_ACCESSION, (String) null),
+                getDefault(ct, CT_PROTEIN_UNIPROT_NAME, (String) null),
+                getDefault(ct, CT_AA_POSITION_FIELD, 0),
+                getDefault(ct, CT_AA_REFERENCE_FIELD, ""),
+                getDefault(ct, CT_AA_ALTERNATE_FIELD, ""),
+                getDefault(ct, CT_PROTEIN_UNIPROT_VARIANT_ID, (String) null),
+                getDefault(ct, CT_PROTEIN_FUNCTIONAL_DESCRIPTION, (String) null),
+                proteinSubstitutionScores,
+                getDefault(ct, CT_PROTEIN_KEYWORDS, Collections.emptyList()),
+                features);
+        return buildConsequenceType(
+                intern(getDefault(ct, CT_GENE_NAME_FIELD, "")),
+                intern(getDefault(ct, CT_ENSEMBL_GENE_ID_FIELD, "")),
+                getDefault(ct, CT_ENSEMBL_TRANSCRIPT_ID_FIELD, ""),
+                intern(getDefault(ct, CT_STRAND_FIELD, "+")),
+                intern(getDefault(ct, CT_BIOTYPE_FIELD, "")),
+                getDefault(ct, CT_EXON_OVERLAP_FIELD, Collections.emptyList()),
+                getDefault(ct, CT_TRANSCRIPT_ANNOT_FLAGS, Collections.emptyList()),
+                getDefault(ct, CT_C_DNA_POSITION_FIELD, 0),
+                getDefault(ct, CT_CDS_POSITION_FIELD, 0),
+                getDefault(ct, CT_CODON_FIELD, ""),
+                soAccessionNames,
+                proteinVariantAnnotation);
+    }
+
     protected static VariantAnnotation newVariantAnnotation(Variant variant) {
         VariantAnnotation va;
         va = new VariantAnnotation();
@@ -515,7 +570,7 @@ public class DocumentToVariantAnnotationConverter
                                                  List<String> soNameList, ProteinVariantAnnotation proteinVariantAnnotation) {
         List<SequenceOntologyTerm> soTerms = new ArrayList<>(soNameList.size());
         for (String soName : soNameList) {
-            soTerms.add(new SequenceOntologyTerm(ConsequenceTypeMappings.getSoAccessionString(soName), soName));
+            soTerms.add(new SequenceOntologyTerm(intern(ConsequenceTypeMappings.getSoAccessionString(soName)), soName));
         }
         List<ExonOverlap> exonOverlapList = new ArrayList<>(exonOverlap.size());
         for (Document document : exonOverlap) {
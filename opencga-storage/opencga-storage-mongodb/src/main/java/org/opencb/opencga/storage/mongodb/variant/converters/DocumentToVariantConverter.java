@@ -172,6 +172,8 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
 
     // Add default variant ID if it is missing. Use CHR:POS:REF:ALT
     private boolean addDefaultId;
+    // Fields to convert. If null, convert all
+    private Set<VariantField> includeFields;
 
     /**
      * Create a converter between {@link Variant} and {@link Document} entities when there is
@@ -220,6 +222,21 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         }
     }
 
+    /**
+     * Convert only the given fields, even if the document contains more fields.
+     *
+     * @param includeFields Fields to include, as returned by {@link VariantField#getIncludeFields}. If null, convert all
+     * @return this
+     */
+    public DocumentToVariantConverter setIncludeFields(Set<VariantField> includeFields) {
+        this.includeFields = includeFields;
+        variantAnnotationConverter.setIncludeFields(includeFields);
+        return this;
+    }
+
+    private boolean includes(VariantField field) {
+        return includeFields == null || includeFields.contains(field);
+    }
 
     @Override
     public Variant convertToDataModelType(Document object) {
@@ -232,7 +249,7 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         if (addDefaultId) {
             variant.setId(variant.toString());
         }
-        if (object.containsKey(IDS_FIELD)) {
+        if (includes(VariantField.ID) && object.containsKey(IDS_FIELD)) {
             LinkedList<String> names = new LinkedList<>(object.get(IDS_FIELD, Collection.class));
             variant.setNames(names);
         }
@@ -242,7 +259,7 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
 
         // Transform HGVS: List of map entries -> Map of lists
         List mongoHgvs = (List) object.get(HGVS_FIELD);
-        if (mongoHgvs != null) {
+        if (mongoHgvs != null && includes(VariantField.HGVS)) {
             for (Object o : mongoHgvs) {
                 Document dbo = (Document) o;
                 variant.addHgvs((String) dbo.get(HGVS_TYPE_FIELD), (String) dbo.get(HGVS_NAME_FIELD));
@@ -290,7 +307,7 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         }
 
         // Files
-        if (variantStudyEntryConverter != null) {
+        if (variantStudyEntryConverter != null && includes(VariantField.STUDIES)) {
             List mongoFiles = object.get(STUDIES_FIELD, List.class);
             if (mongoFiles != null) {
                 for (Object o : mongoFiles) {
@@ -305,7 +322,9 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         // Annotations
         Document mongoAnnotation;
         Object o = object.get(ANNOTATION_FIELD);
-        if (o instanceof List) {
+        if (!includes(VariantField.ANNOTATION)) {
+            mongoAnnotation = null;
+        } else if (o instanceof List) {
             if (!((List) o).isEmpty()) {
                 mongoAnnotation = (Document) ((List) o).get(0);
             } else {
@@ -314,9 +333,14 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         } else {
             mongoAnnotation = (Document) object.get(ANNOTATION_FIELD);
         }
-        Document customAnnotation = object.get(CUSTOM_ANNOTATION_FIELD, Document.class);
-        boolean hasRelease = object.containsKey(RELEASE_FIELD);
-        boolean hasIndex = object.containsKey(INDEX_FIELD);
+        Document customAnnotation = null;
+        boolean hasRelease = false;
+        boolean hasIndex = false;
+        if (includes(VariantField.ANNOTATION)) {
+            customAnnotation = object.get(CUSTOM_ANNOTATION_FIELD, Document.class);
+            hasRelease = object.containsKey(RELEASE_FIELD);
+            hasIndex = object.containsKey(INDEX_FIELD);
+        }
         if (mongoAnnotation != null || customAnnotation != null || hasRelease) {
             VariantAnnotation annotation;
             if (mongoAnnotation != null) {
@@ -355,7 +379,7 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         }
 
         // Statistics
-        if (statsConverter != null && object.containsKey(STATS_FIELD)) {
+        if (statsConverter != null && includes(VariantField.STUDIES_STATS) && object.containsKey(STATS_FIELD)) {
             List<Document> stats = object.get(STATS_FIELD, List.class);
             statsConverter.convertCohortsToDataModelType(stats, variant);
         }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * List that converts the stored elements only when the list is accessed for the first time.
+ *
+ * Used for big nested arrays, like consequence types or population frequencies, that are often read from the database
+ * but never accessed. Once converted, the list behaves as a regular modifiable {@link ArrayList}.
+ * Like any other list, this is not thread safe.
+ *
+ * @param <S> Stored type
+ * @param <T> Data model type
+ */
+class LazyConvertedList<S, T> extends AbstractList<T> {
+
+    private List<S> source;
+    private Function<S, T> converter;
+    private List<T> converted;
+
+    LazyConvertedList(List<S> source, Function<S, T> converter) {
+        this.source = source;
+        this.converter = converter;
+    }
+
+    boolean isConverted() {
+        return converted != null;
+    }
+
+    private List<T> getConverted() {
+        if (converted == null) {
+            List<T> list = new ArrayList<>(source.size());
+            for (S s : source) {
+                list.add(converter.apply(s));
+            }
+            converted = list;
+            // Release the stored elements
+            source = null;
+            converter = null;
+        }
+        return converted;
+    }
+
+    @Override
+    public T get(int index) {
+        return getConverted().get(index);
+    }
+
+    @Override
+    public int size() {
+        if (converted == null) {
+            return source.size();
+        } else {
+            return converted.size();
+        }
+    }
+
+    @Override
+    public T set(int index, T element) {
+        return getConverted().set(index, element);
+    }
+
+    @Override
+    public void add(int index, T element) {
+        modCount++;
+        getConverted().add(index, element);
+    }
+
+    @Override
+    public T remove(int index) {
+        modCount++;
+        return getConverted().remove(index);
+    }
+}
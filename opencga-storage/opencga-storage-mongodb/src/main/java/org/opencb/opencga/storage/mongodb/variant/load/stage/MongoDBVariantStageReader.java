@@ -51,6 +51,7 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
     private final int studyId;
     private Collection<Integer> fileIds;
     private final Collection<String> chromosomes;
+    private Collection<String> excludeChromosomes = Collections.emptyList();
     private MongoPersistentCursor iterator;
     private Document next = null;   // Pending variant
 
@@ -73,6 +74,18 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         return this;
     }
 
+    /**
+     * Skip variants from the given chromosomes.
+     * Used to read the variants not covered by any other chromosome partition.
+     *
+     * @param excludeChromosomes Chromosomes to skip
+     * @return this
+     */
+    public MongoDBVariantStageReader setExcludeChromosomes(Collection<String> excludeChromosomes) {
+        this.excludeChromosomes = excludeChromosomes == null ? Collections.emptyList() : excludeChromosomes;
+        return this;
+    }
+
     public long countNumVariants() {
         return stageCollection.nativeQuery().count(getQuery());
     }
@@ -111,6 +124,10 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         for (String chromosome : chromosomes) {
             addChromosomeFilter(chrFilters, chromosome);
         }
+        ArrayList<Bson> excludeChrFilters = new ArrayList<>(excludeChromosomes.size());
+        for (String chromosome : excludeChromosomes) {
+            addChromosomeFilter(excludeChrFilters, chromosome);
+        }
         Bson studyFilter;
         if (fileIds != null && !fileIds.isEmpty()) {
             List<String> files = fileIds.stream()
@@ -126,6 +143,9 @@ public class MongoDBVariantStageReader implements DataReader<Document> {
         } else {
             bson = and(studyFilter, or(chrFilters)); // Be in any of these chromosomes
         }
+        if (!excludeChrFilters.isEmpty()) {
+            bson = and(bson, nor(excludeChrFilters)); // Not in any of these chromosomes
+        }
         logger.debug("stage filter: " +  bson.toBsonDocument(Document.class, com.mongodb.MongoClient.getDefaultCodecRegistry()));
         return bson;
     }
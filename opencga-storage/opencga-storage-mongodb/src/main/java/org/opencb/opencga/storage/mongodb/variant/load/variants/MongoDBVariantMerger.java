@@ -36,6 +36,7 @@ import org.opencb.commons.run.ParallelTaskRunner;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.utils.IntBitmap;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
@@ -1272,12 +1273,14 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
     }
 
     private List<Integer> buildIndexedSamplesList(List<Integer> fileIds, VariantStorageMetadataManager metadataManager) {
-        List<Integer> indexedSamples = metadataManager.getIndexedSamples(studyMetadata.getId());
+        IntBitmap indexedSamples = metadataManager.getIndexedSampleBitmap(studyMetadata.getId());
         for (Integer fileId : fileIds) {
-            indexedSamples.removeAll(metadataManager.getFileMetadata(studyId, fileId).getSamples());
+            for (Integer sampleId : metadataManager.getFileMetadata(studyId, fileId).getSamples()) {
+                indexedSamples.remove(sampleId);
+            }
         }
-        indexedSamples.sort(Integer::compareTo);
-        return indexedSamples;
+        // Sorted by sample id
+        return indexedSamples.toList();
     }
 
     private void populateInternalCaches(List<Integer> fileIds, VariantStorageMetadataManager metadataManager) {
@@ -28,6 +28,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.opencb.biodata.formats.io.FileFormatException;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
@@ -48,6 +50,7 @@ import org.opencb.opencga.storage.core.variant.VariantStorageEngineTest;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
@@ -60,6 +63,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
@@ -241,6 +245,79 @@ public class MongoVariantStorageEngineTest extends VariantStorageEngineTest impl
         assertTrue(count > 0);
     }
 
+    @Test
+    public void mergeParallelChromosomesTest() throws Exception {
+        // Aliased contigs "chr1" and "1" in the same file, and across files
+        URI dir = newOutputUri();
+        URI file1 = writeVcf(dir.resolve("file1.vcf"), Arrays.asList("S1", "S2"),
+                "chr1\t1000\t.\tA\tC", "1\t2000\t.\tG\tT", "chr1\t3000\t.\tC\tG", "22\t100\t.\tA\tT", "22\t200\t.\tT\tC");
+        URI file2 = writeVcf(dir.resolve("file2.vcf"), Arrays.asList("S3", "S4"),
+                "1\t1000\t.\tA\tC", "chr1\t2000\t.\tG\tT", "1\t4000\t.\tA\tG", "chr22\t100\t.\tA\tT");
+
+        String parallelStudy = "parallel";
+        String sequentialStudy = "sequential";
+        for (URI file : Arrays.asList(file1, file2)) {
+            runDefaultETL(file, variantStorageEngine, new StudyMetadata(0, parallelStudy), new ObjectMap()
+                    .append(VariantStorageOptions.ANNOTATE.key(), false)
+                    .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                    .append(MongoDBVariantStorageOptions.DIRECT_LOAD.key(), false)
+                    .append(MongoDBVariantStorageOptions.MERGE_PARALLEL_CHROMOSOMES.key(), 4));
+            runDefaultETL(file, variantStorageEngine, new StudyMetadata(0, sequentialStudy), new ObjectMap()
+                    .append(VariantStorageOptions.ANNOTATE.key(), false)
+                    .append(VariantStorageOptions.STATS_CALCULATE.key(), false)
+                    .append(MongoDBVariantStorageOptions.DIRECT_LOAD.key(), false)
+                    .append(MongoDBVariantStorageOptions.MERGE_PARALLEL_CHROMOSOMES.key(), 1));
+        }
+
+        VariantStorageMetadataManager metadataManager = variantStorageEngine.getMetadataManager();
+        int studyId = metadataManager.getStudyId(parallelStudy);
+        TaskMetadata[] tasks = Iterators.toArray(metadataManager.taskIterator(studyId), TaskMetadata.class);
+        List<TaskMetadata> mergeTasks = Arrays.stream(tasks)
+                .filter(task -> task.getName().equals(MongoDBVariantStorageOptions.MERGE.key()))
+                .collect(Collectors.toList());
+        assertEquals(2, mergeTasks.size());
+        for (TaskMetadata mergeTask : mergeTasks) {
+            assertEquals(TaskMetadata.Status.READY, mergeTask.currentStatus());
+            // Each normalized chromosome is merged only once
+            List<String> mergedChromosomes = mergeTask.getAttributes().getAsStringList("mergedChromosomes");
+            assertEquals(new HashSet<>(Arrays.asList("1", "22")), new HashSet<>(mergedChromosomes));
+            assertEquals(2, mergedChromosomes.size());
+        }
+
+        // Same result as the sequential merge
+        VariantDBAdaptor dbAdaptor = variantStorageEngine.getDBAdaptor();
+        long numVariants = dbAdaptor.count(new Query(VariantQueryParam.STUDY.key(), sequentialStudy)).first();
+        assertTrue(numVariants > 0);
+        assertEquals(numVariants, dbAdaptor.count(new Query(VariantQueryParam.STUDY.key(), parallelStudy)).first().longValue());
+        int numChecked = 0;
+        for (Variant variant : dbAdaptor) {
+            StudyEntry expected = variant.getStudy(sequentialStudy);
+            StudyEntry actual = variant.getStudy(parallelStudy);
+            assertNotNull(variant.toString(), expected);
+            assertNotNull(variant.toString(), actual);
+            assertEquals(variant.toString(), expected.getOrderedSamplesName(), actual.getOrderedSamplesName());
+            assertEquals(variant.toString(), expected.getSamplesData(), actual.getSamplesData());
+            assertEquals(variant.toString(), expected.getFiles(), actual.getFiles());
+            numChecked++;
+        }
+        assertEquals(numVariants, numChecked);
+    }
+
+    private static URI writeVcf(URI uri, List<String> samples, String... variants) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("##fileformat=VCFv4.2");
+        lines.add("##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">");
+        for (String contig : Arrays.asList("1", "chr1", "22", "chr22")) {
+            lines.add("##contig=<ID=" + contig + ">");
+        }
+        lines.add("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\t" + String.join("\t", samples));
+        for (String variant : variants) {
+            lines.add(variant + "\t50\tPASS\t.\tGT\t0/1\t1/1");
+        }
+        Files.write(Paths.get(uri), lines);
+        return uri;
+    }
+
     @Test
     public void loadStageConcurrent() throws Exception {
         StudyMetadata studyMetadata = createStudyMetadata();
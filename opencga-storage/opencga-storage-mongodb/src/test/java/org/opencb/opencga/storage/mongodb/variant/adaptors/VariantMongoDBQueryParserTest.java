@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 
+import static org.junit.Assert.assertEquals;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.*;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
@@ -97,6 +98,49 @@ public class VariantMongoDBQueryParserTest {
         checkEqualDocuments(expected, mongoQuery);
     }
 
+    @Test
+    public void testQueryPlanCache() throws Exception {
+        parser.enablePlanCache(10, 60000);
+        Query query = new Query().append(STUDY.key(), "study_1").append(SAMPLE.key(), "sample_10101");
+        Document mongoQuery = parser.parseQuery(query);
+        // Same query, with params in a different order
+        Document cachedQuery = parser.parseQuery(new Query().append(SAMPLE.key(), "sample_10101").append(STUDY.key(), "study_1"));
+
+        checkEqualDocuments(mongoQuery, cachedQuery);
+        assertEquals(1, parser.getPlanCache().getHits());
+        assertEquals(1, parser.getPlanCache().getMisses());
+
+        parser.parseQuery(new Query(query).append(SAMPLE.key(), "sample_10102"));
+        assertEquals(2, parser.getPlanCache().getMisses());
+
+        // Write operations never use the cache
+        parser.parseQuery(query, false);
+        assertEquals(1, parser.getPlanCache().getHits());
+        assertEquals(2, parser.getPlanCache().getMisses());
+
+        parser.invalidatePlanCache();
+        parser.parseQuery(query);
+        assertEquals(3, parser.getPlanCache().getMisses());
+
+        // Region filters are not part of the cached query
+        for (String region : Arrays.asList("1:1000-2000", "2:1000-2000")) {
+            Document regionMongoQuery = parser.parseQuery(new Query(query).append(REGION.key(), region));
+            Document expected = new Document("$or", parser.parseQuery(new Query(REGION.key(), region), false).get("$or"));
+            expected.putAll(mongoQuery);
+            checkEqualDocuments(expected, regionMongoQuery);
+        }
+        assertEquals(3, parser.getPlanCache().getHits());
+        assertEquals(3, parser.getPlanCache().getMisses());
+
+        // Any metadata change discards the cached queries
+        metadataManager.updateStudyMetadata("study_1", studyMetadata -> {
+            studyMetadata.getAttributes().put("key", "value");
+        });
+        parser.parseQuery(query);
+        assertEquals(3, parser.getPlanCache().getHits());
+        assertEquals(4, parser.getPlanCache().getMisses());
+    }
+
     @Test
     public void testQuerySampleNotAddFile() {
         // In Study2 all the files have the same samples.
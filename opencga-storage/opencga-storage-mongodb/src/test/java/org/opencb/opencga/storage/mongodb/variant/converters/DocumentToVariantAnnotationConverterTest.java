@@ -24,15 +24,18 @@ import com.mongodb.util.JSON;
 import org.bson.Document;
 import org.junit.Before;
 import org.junit.Test;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantAnnotationConverter.*;
 
 /**
@@ -283,6 +286,31 @@ public class DocumentToVariantAnnotationConverterTest {
 
     }
 
+    @Test
+    public void testConvertToDataModelTypeIncludeFields() throws Exception {
+        DocumentToVariantAnnotationConverter converter = new DocumentToVariantAnnotationConverter()
+                .setIncludeFields(new HashSet<>(Arrays.asList(VariantField.ANNOTATION, VariantField.ANNOTATION_CONSEQUENCE_TYPES)));
+        VariantAnnotation convertedVariantAnnotation = converter.convertToDataModelType(dbObject);
+        assertNull(convertedVariantAnnotation.getVariantTraitAssociation());
+        assertNull(convertedVariantAnnotation.getConservation());
+        assertNull(convertedVariantAnnotation.getPopulationFrequencies());
+
+        // Consequence types are converted on demand
+        List<ConsequenceType> consequenceTypes = convertedVariantAnnotation.getConsequenceTypes();
+        assertTrue(consequenceTypes instanceof LazyConvertedList);
+        assertFalse(((LazyConvertedList) consequenceTypes).isConverted());
+        assertEquals(((List) dbObject.get(CONSEQUENCE_TYPE_FIELD)).size(), consequenceTypes.size());
+        assertEquals("CYS", consequenceTypes.get(2).getProteinVariantAnnotation().getReference());
+        assertTrue(((LazyConvertedList) consequenceTypes).isConverted());
+
+        // Gene names are shared between variants
+        String geneName1 = converter.convertToDataModelType(new Document(CONSEQUENCE_TYPE_FIELD, singletonList(
+                new Document(CT_GENE_NAME_FIELD, new StringBuilder("APOE").toString())))).getConsequenceTypes().get(0).getGeneName();
+        String geneName2 = converter.convertToDataModelType(new Document(CONSEQUENCE_TYPE_FIELD, singletonList(
+                new Document(CT_GENE_NAME_FIELD, new StringBuilder("APOE").toString())))).getConsequenceTypes().get(0).getGeneName();
+        assertSame(geneName1, geneName2);
+    }
+
     @Test
     public void testConvertToStorageType() throws Exception {
         DocumentToVariantAnnotationConverter documentToVariantAnnotationConverter = new DocumentToVariantAnnotationConverter();